@@ -0,0 +1,40 @@
+package org.somda.sdc.benchmarks;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
+import org.somda.sdc.biceps.guice.DefaultBicepsConfigModule;
+import org.somda.sdc.biceps.guice.DefaultBicepsModule;
+import org.somda.sdc.common.guice.DefaultCommonConfigModule;
+import org.somda.sdc.common.guice.DefaultCommonModule;
+import org.somda.sdc.dpws.guice.DefaultDpwsConfigModule;
+import org.somda.sdc.dpws.guice.DefaultDpwsModule;
+import org.somda.sdc.glue.guice.DefaultGlueConfigModule;
+import org.somda.sdc.glue.guice.DefaultGlueModule;
+
+/**
+ * Creates injectors with the default modules of all packages for benchmarks.
+ */
+final class BenchmarkInjector {
+    private BenchmarkInjector() {
+    }
+
+    /**
+     * Creates an injector with the default modules.
+     *
+     * @param overridingModules modules that override bindings of the default modules, e.g. configuration values.
+     * @return the injector.
+     */
+    static Injector create(Module... overridingModules) {
+        return Guice.createInjector(Modules.override(
+                new DefaultCommonConfigModule(),
+                new DefaultGlueModule(),
+                new DefaultGlueConfigModule(),
+                new DefaultBicepsModule(),
+                new DefaultBicepsConfigModule(),
+                new DefaultCommonModule(),
+                new DefaultDpwsModule(),
+                new DefaultDpwsConfigModule()).with(overridingModules));
+    }
+}
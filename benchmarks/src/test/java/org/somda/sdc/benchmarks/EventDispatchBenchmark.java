@@ -0,0 +1,89 @@
+package org.somda.sdc.benchmarks;
+
+import com.google.common.eventbus.Subscribe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.somda.sdc.common.event.EventBus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures the per-event overhead of {@link EventBus#post(Object)} compared to Guava's
+ * {@linkplain com.google.common.eventbus.EventBus}, which {@linkplain EventBus} implementations used before.
+ * <p>
+ * Subscribers only count the events they receive, hence the measured time is the dispatch overhead.
+ */
+class EventDispatchBenchmark {
+    private static final Logger LOG = LogManager.getLogger(EventDispatchBenchmark.class);
+
+    @Test
+    void oneSubscriber() throws Exception {
+        compare(1);
+    }
+
+    @Test
+    void tenSubscribers() throws Exception {
+        compare(10);
+    }
+
+    private static void compare(int subscriberCount) throws Exception {
+        var guavaEventBus = new com.google.common.eventbus.EventBus();
+        var guavaSubscribers = createSubscribers(subscriberCount);
+        guavaSubscribers.forEach(guavaEventBus::register);
+
+        var eventBus = BenchmarkInjector.create().getInstance(EventBus.class);
+        var subscribers = createSubscribers(subscriberCount);
+        subscribers.forEach(eventBus::register);
+
+        var event = new Event();
+        guavaEventBus.post(event);
+        eventBus.post(event);
+        guavaSubscribers.forEach(subscriber -> assertEquals(1, subscriber.getReceivedEvents()));
+        subscribers.forEach(subscriber -> assertEquals(1, subscriber.getReceivedEvents()));
+
+        var name = String.format("post to %s subscriber(s)", subscriberCount);
+        var guava = Measurement.measure("Guava EventBus " + name, () -> {
+            guavaEventBus.post(event);
+            return event;
+        });
+        var compiled = Measurement.measure("EventBusImpl " + name, () -> {
+            eventBus.post(event);
+            return event;
+        });
+        LOG.info("{} subscriber(s): EventBusImpl takes {}% of the time and {}% of the allocations of Guava EventBus",
+                subscriberCount, percent(compiled.getNanosPerOperation(), guava.getNanosPerOperation()),
+                percent(compiled.getBytesPerOperation(), guava.getBytesPerOperation()));
+    }
+
+    private static List<Subscriber> createSubscribers(int count) {
+        var subscribers = new ArrayList<Subscriber>(count);
+        for (int i = 0; i < count; i++) {
+            subscribers.add(new Subscriber());
+        }
+        return subscribers;
+    }
+
+    private static long percent(double value, double reference) {
+        return Math.round(value / reference * 100);
+    }
+
+    private static class Event {
+    }
+
+    private static class Subscriber {
+        private long receivedEvents;
+
+        @Subscribe
+        void onEvent(Event event) {
+            receivedEvents++;
+        }
+
+        long getReceivedEvents() {
+            return receivedEvents;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.somda.sdc.benchmarks;
+
+import com.google.inject.Injector;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.consumer.access.RemoteMdibAccess;
+import org.somda.sdc.biceps.consumer.access.factory.RemoteMdibAccessFactory;
+import org.somda.sdc.biceps.guice.DefaultBicepsConfigModule;
+import org.somda.sdc.biceps.model.participant.ChannelDescriptor;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.MdsDescriptor;
+import org.somda.sdc.biceps.model.participant.MetricAvailability;
+import org.somda.sdc.biceps.model.participant.MetricCategory;
+import org.somda.sdc.biceps.model.participant.NumericMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.VmdDescriptor;
+import org.somda.sdc.biceps.model.participant.factory.CodedValueFactory;
+import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
+import org.somda.sdc.biceps.testutil.MockEntryFactory;
+import org.somda.sdc.glue.common.MdibMapper;
+import org.somda.sdc.glue.common.MdibXmlIo;
+import org.somda.sdc.glue.common.factory.MdibMapperFactory;
+import org.somda.sdc.glue.common.factory.ModificationsBuilderFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap retained by a consumer that holds many remote MDIBs with and without
+ * {@link CommonConfig#INTERN_HANDLES}.
+ * <p>
+ * Every remote MDIB is unmarshalled from the same GetMdib payload of a device with 200 numeric metrics, hence each of
+ * them starts with its own instances of all handle strings.
+ * The number of MDIBs can be configured with the system property {@code benchmark.mdibCount}.
+ */
+class HandleInterningBenchmark {
+    private static final Logger LOG = LogManager.getLogger(HandleInterningBenchmark.class);
+
+    private static final int MDIB_COUNT = Integer.getInteger("benchmark.mdibCount", 300);
+    private static final int WARMUP_MDIB_COUNT = 10;
+    private static final int VMD_COUNT = 2;
+    private static final int CHANNELS_PER_VMD = 5;
+    private static final int METRICS_PER_CHANNEL = 20;
+
+    private static byte[] mdibXml;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        Injector injector = BenchmarkInjector.create();
+        var mdibAccess = injector.getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        mdibAccess.writeDescription(createDeviceTree(new MockEntryFactory(
+                injector.getInstance(MdibTypeValidator.class))));
+        MdibMapper mdibMapper = injector.getInstance(MdibMapperFactory.class).createMdibMapper(mdibAccess);
+
+        var outputStream = new ByteArrayOutputStream();
+        injector.getInstance(MdibXmlIo.class).writeMdib(mdibMapper.mapMdib(), outputStream);
+        mdibXml = outputStream.toByteArray();
+    }
+
+    @Test
+    void retainedHeapOfRemoteMdibs() throws Exception {
+        var withoutInterning = retainedBytes(false);
+        var withInterning = retainedBytes(true);
+        LOG.info("{} remote MDIBs with interned handles retain {} B, {}% less than without interning",
+                MDIB_COUNT, String.format("%,d", withInterning),
+                Math.round((1 - (double) withInterning / withoutInterning) * 100));
+    }
+
+    private static long retainedBytes(boolean internHandles) throws Exception {
+        var injector = BenchmarkInjector.create(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.INTERN_HANDLES, Boolean.class, internHandles);
+            }
+        });
+
+        // load and initialize everything that is not retained per mdib
+        readRemoteMdibs(injector, WARMUP_MDIB_COUNT);
+
+        return Measurement.retainedBytes(String.format("%s remote MDIBs, %s", MDIB_COUNT,
+                internHandles ? "interned handles" : "distinct handles"), () -> readRemoteMdibs(injector, MDIB_COUNT));
+    }
+
+    private static MdibDescriptionModifications createDeviceTree(MockEntryFactory entryFactory) throws Exception {
+        var mdsHandle = "mds0";
+        var modifications = MdibDescriptionModifications.create()
+                .insert(entryFactory.entry(mdsHandle, MdsDescriptor.class,
+                        descriptor -> descriptor.setType(CodedValueFactory.createIeeeCodedValue("70001")),
+                        state -> {}, null));
+        for (int vmd = 0; vmd < VMD_COUNT; vmd++) {
+            var vmdHandle = mdsHandle + ".vmd" + vmd;
+            modifications.insert(entryFactory.entry(vmdHandle, VmdDescriptor.class, mdsHandle));
+            for (int channel = 0; channel < CHANNELS_PER_VMD; channel++) {
+                var channelHandle = vmdHandle + ".chan" + channel;
+                modifications.insert(entryFactory.entry(channelHandle, ChannelDescriptor.class, vmdHandle));
+                for (int metric = 0; metric < METRICS_PER_CHANNEL; metric++) {
+                    modifications.insert(entryFactory.entry(channelHandle + ".metric" + metric,
+                            NumericMetricDescriptor.class, descriptor -> {
+                                descriptor.setResolution(BigDecimal.ONE);
+                                descriptor.setMetricCategory(MetricCategory.MSRMT);
+                                descriptor.setMetricAvailability(MetricAvailability.CONT);
+                                descriptor.setUnit(CodedValueFactory.createIeeeCodedValue("262688"));
+                            }, state -> {}, channelHandle));
+                }
+            }
+        }
+        return modifications;
+    }
+
+    private static List<RemoteMdibAccess> readRemoteMdibs(Injector injector, int count) throws Exception {
+        var mdibXmlIo = injector.getInstance(MdibXmlIo.class);
+        var mdibAccessFactory = injector.getInstance(RemoteMdibAccessFactory.class);
+        var modificationsBuilderFactory = injector.getInstance(ModificationsBuilderFactory.class);
+
+        var mdibAccesses = new ArrayList<RemoteMdibAccess>(count);
+        for (int i = 0; i < count; i++) {
+            var mdib = mdibXmlIo.readMdib(new ByteArrayInputStream(mdibXml));
+            var mdibAccess = mdibAccessFactory.createRemoteMdibAccess();
+            mdibAccess.writeDescription(
+                    new MdibVersion(mdib.getSequenceId(), mdib.getMdibVersion(), mdib.getInstanceId()),
+                    mdib.getMdDescription().getDescriptionVersion(),
+                    mdib.getMdState().getStateVersion(),
+                    modificationsBuilderFactory.createModificationsBuilder(mdib).get());
+            mdibAccesses.add(mdibAccess);
+        }
+        return mdibAccesses;
+    }
+}
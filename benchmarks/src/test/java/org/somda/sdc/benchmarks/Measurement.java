@@ -0,0 +1,137 @@
+package org.somda.sdc.benchmarks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal timing harness for the benchmarks of this module.
+ * <p>
+ * Each operation is run for a number of warmup iterations followed by a number of measured iterations on the calling
+ * thread. An iteration repeats the operation until {@link #ITERATION_MILLIS} have elapsed. The median time per
+ * operation of all measured iterations and the bytes allocated per operation are logged and returned.
+ * Heap usage is measured as the bytes that remain reachable from the result of an operation after garbage collection.
+ * <p>
+ * Iterations can be configured with the system properties {@code benchmark.warmupIterations},
+ * {@code benchmark.iterations} and {@code benchmark.iterationMillis}.
+ */
+final class Measurement {
+    private static final Logger LOG = LogManager.getLogger(Measurement.class);
+
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("benchmark.warmupIterations", 10);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 10);
+    private static final long ITERATION_MILLIS = Long.getLong("benchmark.iterationMillis", 200);
+
+    // results of measured operations are written here so that the JIT cannot eliminate them
+    private static volatile Object sink;
+
+    private Measurement() {
+    }
+
+    /**
+     * Measures the time and allocations of an operation.
+     *
+     * @param name      the name the result is logged with.
+     * @param operation the operation to measure. Its result is consumed to keep it from being optimized away.
+     * @return the median time and allocated bytes per operation.
+     * @throws Exception if the operation fails.
+     */
+    static Result measure(String name, Callable<?> operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(operation);
+        }
+        var nanosPerOperation = new double[ITERATIONS];
+        var bytesPerOperation = new double[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            var allocatedBefore = allocatedBytes();
+            var startNanos = System.nanoTime();
+            var operations = iterate(operation);
+            nanosPerOperation[i] = (double) (System.nanoTime() - startNanos) / operations;
+            bytesPerOperation[i] = (double) (allocatedBytes() - allocatedBefore) / operations;
+        }
+        var result = new Result(median(nanosPerOperation), median(bytesPerOperation));
+        LOG.info("{}: {}", name, result);
+        return result;
+    }
+
+    /**
+     * Measures the heap retained by the result of an operation.
+     *
+     * @param name      the name the result is logged with.
+     * @param operation the operation that creates the objects to measure.
+     * @return the bytes of used heap that the operation added and that are still in use after garbage collection.
+     * @throws Exception if the operation fails.
+     */
+    static long retainedBytes(String name, Callable<?> operation) throws Exception {
+        var usedBefore = usedHeapAfterGc();
+        var result = operation.call();
+        var retainedBytes = usedHeapAfterGc() - usedBefore;
+        Reference.reachabilityFence(result);
+        LOG.info("{}: {} B retained", name, String.format("%,d", retainedBytes));
+        return retainedBytes;
+    }
+
+    private static long usedHeapAfterGc() {
+        // a single gc may leave objects that became unreachable during the collection
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long iterate(Callable<?> operation) throws Exception {
+        var endNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ITERATION_MILLIS);
+        long operations = 0;
+        do {
+            sink = operation.call();
+            operations++;
+        } while (System.nanoTime() < endNanos);
+        return operations;
+    }
+
+    private static long allocatedBytes() {
+        var threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static double median(double[] values) {
+        var sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Time and allocations per operation of a measurement.
+     */
+    static final class Result {
+        private final double nanosPerOperation;
+        private final double bytesPerOperation;
+
+        Result(double nanosPerOperation, double bytesPerOperation) {
+            this.nanosPerOperation = nanosPerOperation;
+            this.bytesPerOperation = bytesPerOperation;
+        }
+
+        double getNanosPerOperation() {
+            return nanosPerOperation;
+        }
+
+        double getBytesPerOperation() {
+            return bytesPerOperation;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,.1f ns/op, %,.0f B/op", nanosPerOperation, bytesPerOperation);
+        }
+    }
+}
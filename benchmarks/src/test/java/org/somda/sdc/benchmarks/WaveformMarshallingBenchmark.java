@@ -0,0 +1,150 @@
+package org.somda.sdc.benchmarks;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.somda.sdc.biceps.model.message.WaveformStream;
+import org.somda.sdc.biceps.model.participant.AbstractMetricValue;
+import org.somda.sdc.biceps.model.participant.MeasurementValidity;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+import org.somda.sdc.biceps.model.participant.SampleArrayValue;
+import org.somda.sdc.common.util.SampleList;
+import org.somda.sdc.dpws.helper.JaxbMarshalling;
+import org.somda.sdc.dpws.soap.SoapConfig;
+import org.somda.sdc.glue.guice.GlueDpwsConfigModule;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Measures marshalling and unmarshalling of waveform streams with samples as {@linkplain BigDecimal} lists and as
+ * {@linkplain SampleList}s, see {@link SoapConfig#PRIMITIVE_REAL_TIME_SAMPLES}.
+ * <p>
+ * The stream carries 12 channels sampled at 1 kHz and is reported every 100 ms, i.e., with 100 samples per channel.
+ * Marshalling starts from the samples as {@code double[]} as the application provides them, unmarshalling ends with
+ * the samples as {@code double[]} as the application consumes them.
+ * Measurements are taken with and without {@link SoapConfig#VALIDATE_SOAP_MESSAGES}, as schema validation parses every
+ * sample as a decimal regardless of the representation.
+ */
+class WaveformMarshallingBenchmark {
+    private static final Logger LOG = LogManager.getLogger(WaveformMarshallingBenchmark.class);
+
+    private static final QName WAVEFORM_STREAM = new QName(
+            "http://standards.ieee.org/downloads/11073/11073-10207-2017/message", "WaveformStream");
+
+    private static final int CHANNELS = 12;
+    private static final int SAMPLE_RATE = 1000;
+    private static final int REPORTS_PER_SECOND = 10;
+
+    @Test
+    void decimalSamples() throws Exception {
+        measure(false, true);
+    }
+
+    @Test
+    void primitiveSamples() throws Exception {
+        measure(true, true);
+    }
+
+    @Test
+    void decimalSamplesWithoutValidation() throws Exception {
+        measure(false, false);
+    }
+
+    @Test
+    void primitiveSamplesWithoutValidation() throws Exception {
+        measure(true, false);
+    }
+
+    private static void measure(boolean primitiveRealTimeSamples, boolean validate) throws Exception {
+        var marshalling = BenchmarkInjector.create(new GlueDpwsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                super.customConfigure();
+                bind(SoapConfig.PRIMITIVE_REAL_TIME_SAMPLES, Boolean.class, primitiveRealTimeSamples);
+                bind(SoapConfig.VALIDATE_SOAP_MESSAGES, Boolean.class, validate);
+            }
+        }).getInstance(JaxbMarshalling.class);
+        marshalling.startAsync().awaitRunning();
+
+        try {
+            var samples = createSamples();
+            var xml = marshal(marshalling, samples, primitiveRealTimeSamples);
+            assertArrayEquals(samples, unmarshal(marshalling, xml));
+
+            var name = (primitiveRealTimeSamples ? "SampleList" : "BigDecimal")
+                    + (validate ? ", validated" : ", not validated");
+            var marshalled = Measurement.measure(name + " marshal WaveformStream",
+                    () -> marshal(marshalling, samples, primitiveRealTimeSamples));
+            var unmarshalled = Measurement.measure(name + " unmarshal WaveformStream",
+                    () -> unmarshal(marshalling, xml));
+            LOG.info("{}: {} channels at {} Hz take {}% of a core to marshal and {}% of a core to unmarshal",
+                    name, CHANNELS, SAMPLE_RATE, coreUsage(marshalled), coreUsage(unmarshalled));
+        } finally {
+            marshalling.stopAsync().awaitTerminated();
+        }
+    }
+
+    private static double[][] createSamples() {
+        var samples = new double[CHANNELS][SAMPLE_RATE / REPORTS_PER_SECOND];
+        for (int channel = 0; channel < CHANNELS; channel++) {
+            for (int i = 0; i < samples[channel].length; i++) {
+                // millivolts with microvolt resolution, as typical for ECG leads
+                samples[channel][i] = Math.round(Math.sin(2 * Math.PI * i / samples[channel].length + channel)
+                        * 1_000_000) / 1_000.0;
+            }
+        }
+        return samples;
+    }
+
+    private static byte[] marshal(JaxbMarshalling marshalling, double[][] samples, boolean primitiveRealTimeSamples)
+            throws Exception {
+        var waveformStream = new WaveformStream();
+        waveformStream.setSequenceId("urn:uuid:00000000-0000-0000-0000-000000000000");
+        for (int channel = 0; channel < samples.length; channel++) {
+            var quality = new AbstractMetricValue.MetricQuality();
+            quality.setValidity(MeasurementValidity.VLD);
+            var metricValue = new SampleArrayValue();
+            metricValue.setMetricQuality(quality);
+            metricValue.setSamples(primitiveRealTimeSamples
+                    ? SampleList.ofDoubles(samples[channel])
+                    : toDecimals(samples[channel]));
+            var state = new RealTimeSampleArrayMetricState();
+            state.setDescriptorHandle("waveform" + channel);
+            state.setMetricValue(metricValue);
+            waveformStream.getState().add(state);
+        }
+
+        var outputStream = new ByteArrayOutputStream();
+        marshalling.marshal(new JAXBElement<>(WAVEFORM_STREAM, WaveformStream.class, waveformStream), outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private static double[][] unmarshal(JaxbMarshalling marshalling, byte[] xml) throws Exception {
+        var states = ((WaveformStream) marshalling.unmarshal(new ByteArrayInputStream(xml))).getState();
+        var samples = new double[states.size()][];
+        for (int channel = 0; channel < samples.length; channel++) {
+            samples[channel] = SampleList.toDoubleArray(states.get(channel).getMetricValue().getSamples());
+        }
+        return samples;
+    }
+
+    private static List<BigDecimal> toDecimals(double[] samples) {
+        var decimals = new ArrayList<BigDecimal>(samples.length);
+        for (double sample : samples) {
+            decimals.add(BigDecimal.valueOf(sample));
+        }
+        return decimals;
+    }
+
+    private static String coreUsage(Measurement.Result result) {
+        return String.format("%.2f", result.getNanosPerOperation() * REPORTS_PER_SECOND / 1e7);
+    }
+}
@@ -59,6 +59,226 @@ public class CommonConfig {
      */
     public static final String ALLOW_STATES_WITHOUT_DESCRIPTORS = "Biceps.Common.AllowStatesWithoutDescriptors";
 
+    /**
+     * If true the {@link MdibStorage} publishes an immutable snapshot after every write.
+     * <p>
+     * Read transactions are then served from the latest snapshot instead of acquiring the MDIB read lock, i.e.,
+     * readers never block writers and writers never wait for readers.
+     * Snapshots share all unchanged data with their predecessors, hence publishing a snapshot only costs time and
+     * memory in proportion to the number of modified entities.
+     * <em>Snapshot isolation relies on stored descriptors and states not being changed after writing, which is
+     * guaranteed by {@link #COPY_MDIB_INPUT} and {@link #COPY_MDIB_OUTPUT} or by {@link #FREEZE_MDIB_DATA}.</em>
+     * <ul>
+     * <li>Data type: {@linkplain Boolean}
+     * <li>Use: optional
+     * </ul>
+     */
+    public static final String MDIB_STORAGE_SNAPSHOTS = "Biceps.Common.MdibStorageSnapshots";
+
+    /**
+     * If true the {@link MdibStorage} freezes all descriptors and states it stores.
+     * <p>
+     * Frozen data throws an {@linkplain UnsupportedOperationException} on any attempt to modify it (see
+     * {@linkplain org.somda.sdc.common.util.Freezable}), hence it can be shared with the user without being copied.
+     * If enabled, output data is not copied regardless of {@link #COPY_MDIB_OUTPUT}, and input data is copied if
+     * {@link #COPY_MDIB_INPUT} is enabled or if it is frozen already.
+     * <em>Users that intend to write output data back to the MDIB need to copy it before any modification!</em>
+     * <ul>
+     * <li>Data type: {@linkplain Boolean}
+     * <li>Use: optional
+     * </ul>
+     */
+    public static final String FREEZE_MDIB_DATA = "Biceps.Common.FreezeMdibData";
+
+    /**
+     * If true MDIB modification events are delivered to each observer asynchronously.
+     * <p>
+     * Every observer gets a bounded event queue that is processed by a dedicated worker in order of the MDIB version,
+     * hence a slow observer neither delays MDIB writes nor other observers as long as its queue is not full.
+     * Asynchronous distribution requires {@link #MDIB_STORAGE_SNAPSHOTS} in order to provide each event with an MDIB
+     * access that reflects the MDIB version of the event; otherwise events are distributed synchronously.
+     * <ul>
+     * <li>Data type: {@linkplain Boolean}
+     * <li>Use: optional
+     * </ul>
+     *
+     * @see org.somda.sdc.biceps.common.event.Distributor
+     */
+    public static final String ASYNC_EVENT_DISTRIBUTION = "Biceps.Common.AsyncEventDistribution";
+
+    /**
+     * Maximum number of events that can wait to be delivered to an observer if {@link #ASYNC_EVENT_DISTRIBUTION} is
+     * enabled.
+     * <ul>
+     * <li>Data type: {@linkplain Integer}
+     * <li>Use: optional
+     * </ul>
+     */
+    public static final String EVENT_QUEUE_CAPACITY = "Biceps.Common.EventQueueCapacity";
+
+    /**
+     * Policy to apply if an observer's event queue is full and {@link #ASYNC_EVENT_DISTRIBUTION} is enabled.
+     * <ul>
+     * <li>Data type: {@linkplain org.somda.sdc.biceps.common.event.EventQueueOverflowPolicy}
+     * <li>Use: optional
+     * </ul>
+     */
+    public static final String EVENT_QUEUE_OVERFLOW_POLICY = "Biceps.Common.EventQueueOverflowPolicy";
+
+    /**
+     * Time for which a {@linkplain org.somda.sdc.biceps.provider.access.CoalescingStateWriter} buffers state updates
+     * before it writes the latest state per handle.
+     * <p>
+     * The window starts with the first update that is buffered after the previous write.
+     * <ul>
+     * <li>Data type: {@linkplain java.time.Duration}
+     * <li>Use: optional
+     * </ul>
+     */
+    public static final String STATE_COALESCING_WINDOW = "Biceps.Common.StateCoalescingWindow";
+
+    /**
+     * Minimum number of description modifications in a change set to preprocess it in bulk-load mode.
+     * <p>
+     * In bulk-load mode the {@linkplain org.somda.sdc.biceps.common.storage.MdibStoragePreprocessingChain} runs
+     * description segments that support parallel processing on the fork-join common pool, one modification per task.
+     * Consecutive parallel segments are applied to all modifications before the next sequential segment starts.
+     * This speeds up the initial load of very large MDIBs on multi-core machines.
+     * A value of 0 disables bulk-load mode, i.e., all change sets are preprocessed sequentially.
+     * <ul>
+     * <li>Data type: {@linkplain Integer}
+     * <li>Use: optional
+     * </ul>
+     *
+     * @see org.somda.sdc.biceps.common.storage.DescriptionPreprocessingSegment#supportsParallelProcessing()
+     */
+    public static final String PARALLEL_PREPROCESSING_THRESHOLD = "Biceps.Common.ParallelPreprocessingThreshold";
+
+    /**
+     * Maximum number of past states the {@linkplain org.somda.sdc.biceps.common.storage.StateHistory} retains per
+     * state handle.
+     * <p>
+     * If greater than 0, every state that is written to the {@link MdibStorage} is additionally recorded with the MDIB
+     * version it was written with, which allows to query states as of a past MDIB version.
+     * A value of 0 disables the state history.
+     * <em>The history references stored states, hence it keeps up to this number of states per handle in memory!</em>
+     * <ul>
+     * <li>Data type: {@linkplain Integer}
+     * <li>Use: optional
+     * </ul>
+     */
+    public static final String STATE_HISTORY_CAPACITY = "Biceps.Common.StateHistoryCapacity";
+
+    /**
+     * Time for which the {@linkplain org.somda.sdc.biceps.common.storage.StateHistory} retains past states.
+     * <p>
+     * States that were superseded longer ago than this duration are discarded with the next write to the same handle.
+     * The latest state of a handle is always retained.
+     * A duration of zero disables time-based eviction, i.e., only {@link #STATE_HISTORY_CAPACITY} applies.
+     * <ul>
+     * <li>Data type: {@linkplain java.time.Duration}
+     * <li>Use: optional
+     * </ul>
+     */
+    public static final String STATE_HISTORY_RETENTION = "Biceps.Common.StateHistoryRetention";
+
+    /**
+     * If true descriptor and state handles are interned in a table shared by all MDIBs of an injector once they are
+     * written to an MDIB.
+     * <p>
+     * Interning saves memory if many MDIBs with equal handles are held in one process, e.g., by a consumer that is
+     * connected to many devices of the same kind.
+     * <em>Interning is at the expense of a table lookup per handle and write!</em>
+     * <ul>
+     * <li>Data type: {@linkplain Boolean}
+     * <li>Use: optional
+     * </ul>
+     *
+     * @see HandleInterner
+     */
+    public static final String INTERN_HANDLES = "Biceps.Common.InternHandles";
+
+    /**
+     * Time of waveform samples that are retained off-heap per
+     * {@linkplain org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState}.
+     * <p>
+     * The samples of every written waveform state are moved to a primitive ring buffer outside of the Java heap
+     * that is sized by this duration and the sample period of the waveform descriptor.
+     * Stored waveform states read their samples from the ring, and the newest samples can be read without copying
+     * them.
+     * A duration of zero disables the waveform store.
+     * <ul>
+     * <li>Data type: {@linkplain java.time.Duration}
+     * <li>Use: optional
+     * </ul>
+     *
+     * @see org.somda.sdc.biceps.common.storage.WaveformStore
+     */
+    public static final String WAVEFORM_STORE_DURATION = "Biceps.Common.WaveformStoreDuration";
+
+    /**
+     * Directory in which a provider persists its MDIB in order to restore it after a restart.
+     * <p>
+     * If configured, every {@linkplain org.somda.sdc.biceps.provider.access.LocalMdibAccess} restores the MDIB that
+     * has been persisted in this directory on creation, including its MDIB version and sequence id, and appends
+     * all subsequent modifications to a log in this directory.
+     * An empty string disables the persistence.
+     * <em>Only one MDIB access per injector can be used with persistence, as all of them share the directory!</em>
+     * <ul>
+     * <li>Data type: {@linkplain String}
+     * <li>Use: optional
+     * </ul>
+     *
+     * @see org.somda.sdc.biceps.common.storage.MdibPersistence
+     */
+    public static final String MDIB_PERSISTENCE_DIRECTORY = "Biceps.Common.MdibPersistenceDirectory";
+
+    /**
+     * Number of log records after which the persisted MDIB is compacted to a snapshot.
+     * <p>
+     * Smaller values speed up restoring the MDIB at the expense of serializing the whole MDIB more often while the
+     * MDIB write lock is held.
+     * <ul>
+     * <li>Data type: {@linkplain Integer}
+     * <li>Use: optional
+     * </ul>
+     *
+     * @see #MDIB_PERSISTENCE_DIRECTORY
+     */
+    public static final String MDIB_PERSISTENCE_SNAPSHOT_INTERVAL = "Biceps.Common.MdibPersistenceSnapshotInterval";
+
+    /**
+     * Interval in which the log of the persisted MDIB is forced to the storage device.
+     * <p>
+     * Log records are handed over to the operating system on every write, hence only records of the last interval
+     * can be lost on power failure.
+     * A duration of zero forces every log record and snapshot to the storage device before the write returns.
+     * <ul>
+     * <li>Data type: {@linkplain java.time.Duration}
+     * <li>Use: optional
+     * </ul>
+     *
+     * @see #MDIB_PERSISTENCE_DIRECTORY
+     */
+    public static final String MDIB_PERSISTENCE_SYNC_INTERVAL = "Biceps.Common.MdibPersistenceSyncInterval";
+
+    /**
+     * If true every {@linkplain org.somda.sdc.biceps.provider.access.LocalMdibAccess} stores its MDIB in a
+     * {@linkplain org.somda.sdc.biceps.common.storage.ShardedMdibStorage} with one shard per MDS.
+     * <p>
+     * Every shard has its own lock and preprocessing chain, hence state modifications of different MDSs are
+     * preprocessed in parallel, which speeds up providers that aggregate many MDSs.
+     * MDIB versions are still a global sequence: applying modifications and distributing events is sequenced by one
+     * lock, and description modifications exclude any other write operation.
+     * Sharding requires {@link #MDIB_STORAGE_SNAPSHOTS} in order to read without locking; otherwise the MDIB is not
+     * sharded.
+     * <ul>
+     * <li>Data type: {@linkplain Boolean}
+     * <li>Use: optional
+     * </ul>
+     */
+    public static final String MDIB_STORAGE_SHARDING = "Biceps.Common.MdibStorageSharding";
+
     /**
      * A list of all {@linkplain org.somda.sdc.biceps.common.storage.DescriptionPreprocessingSegment}, which are applied
      * during description modifications.
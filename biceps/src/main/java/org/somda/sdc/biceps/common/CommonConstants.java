@@ -36,4 +36,9 @@ public class CommonConstants {
      */
     public static final String NAMESPACE_MESSAGE_PREFIX = "msg";
 
+    /**
+     * Coding system that is implied by a coded value without coding system, i.e., ISO/IEEE 11073-10101.
+     */
+    public static final String DEFAULT_CODING_SYSTEM = "urn:oid:1.2.840.10004.1.1.1.0.0.1";
+
 }
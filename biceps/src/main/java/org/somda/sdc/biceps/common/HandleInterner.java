@@ -0,0 +1,118 @@
+package org.somda.sdc.biceps.common;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractMultiState;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.common.util.Freezable;
+
+import javax.annotation.Nullable;
+import javax.xml.bind.Unmarshaller;
+
+/**
+ * Intern table for descriptor and state handles that is shared by all MDIBs created by the same injector.
+ * <p>
+ * If {@link CommonConfig#INTERN_HANDLES} is enabled, equal handles are resolved to one shared {@linkplain String}
+ * instance, such that MDIBs that hold the same handles, e.g., remote MDIBs of devices of the same kind, do not keep
+ * duplicates of them.
+ * Handles are referenced weakly, hence the table does not keep handles alive that are no longer used by any MDIB.
+ * If disabled, all functions forward their input.
+ */
+@Singleton
+public class HandleInterner {
+    private final Interner<String> interner;
+    private final Boolean enabled;
+
+    @Inject
+    HandleInterner(@Named(CommonConfig.INTERN_HANDLES) Boolean enabled) {
+        this.enabled = enabled;
+        this.interner = Interners.newWeakInterner();
+    }
+
+    /**
+     * Checks if handles are interned.
+     *
+     * @return the value of {@link CommonConfig#INTERN_HANDLES}.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Resolves a handle to its shared instance.
+     *
+     * @param handle the handle to intern.
+     * @return the shared instance of {@code handle} if enabled, otherwise {@code handle}.
+     */
+    @Nullable
+    public String intern(@Nullable String handle) {
+        if (!enabled || handle == null) {
+            return handle;
+        }
+        return interner.intern(handle);
+    }
+
+    /**
+     * Replaces the handle of a descriptor by its shared instance.
+     * <p>
+     * Frozen descriptors are not changed.
+     *
+     * @param descriptor the descriptor to process.
+     */
+    public void intern(AbstractDescriptor descriptor) {
+        if (enabled && !isFrozen(descriptor)) {
+            descriptor.setHandle(intern(descriptor.getHandle()));
+        }
+    }
+
+    /**
+     * Replaces the descriptor handle and, in case of multi-states, the state handle of a state by their shared
+     * instances.
+     * <p>
+     * Frozen states are not changed.
+     *
+     * @param state the state to process.
+     */
+    public void intern(AbstractState state) {
+        if (enabled && !isFrozen(state)) {
+            state.setDescriptorHandle(intern(state.getDescriptorHandle()));
+            if (state instanceof AbstractMultiState) {
+                var multiState = (AbstractMultiState) state;
+                multiState.setHandle(intern(multiState.getHandle()));
+            }
+        }
+    }
+
+    /**
+     * Creates an unmarshaller listener that interns the handles of all descriptors and states that are unmarshalled.
+     * <p>
+     * The listener can be set on any {@linkplain Unmarshaller} that reads BICEPS model data in order to avoid
+     * duplicates of handles that are kept in memory, e.g., in an MDIB that is loaded from a file.
+     *
+     * @return a new listener or null if interning is disabled.
+     */
+    @Nullable
+    public Unmarshaller.Listener createUnmarshallerListener() {
+        if (!enabled) {
+            return null;
+        }
+        return new Unmarshaller.Listener() {
+            @Override
+            public void afterUnmarshal(Object target, Object parent) {
+                if (target instanceof AbstractDescriptor) {
+                    intern((AbstractDescriptor) target);
+                } else if (target instanceof AbstractState) {
+                    intern((AbstractState) target);
+                }
+            }
+        };
+    }
+
+    private static boolean isFrozen(Object object) {
+        return object instanceof Freezable && ((Freezable) object).isFrozen();
+    }
+}
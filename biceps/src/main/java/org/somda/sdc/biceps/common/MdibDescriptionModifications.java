@@ -168,6 +168,24 @@ public class MdibDescriptionModifications {
         return addMdibModification(modType, descriptor, multiStates, parentHandle);
     }
 
+    /**
+     * Adds a change item.
+     * <p>
+     * Duplicate detection is applied to the descriptor handle and the handles of all contained multi states.
+     *
+     * @param modification the change item to add.
+     * @return this object for fluent access.
+     */
+    public MdibDescriptionModifications add(MdibDescriptionModification modification) {
+        var modType = modification.getModificationType();
+        modification.getStates().stream()
+                .filter(state -> state instanceof AbstractMultiState)
+                .forEach(state -> duplicateDetection(modType, ((AbstractMultiState) state).getHandle()));
+        duplicateDetection(modType, modification.getHandle());
+        modifications.add(modification);
+        return this;
+    }
+
     /**
      * Convenient function to insert a descriptor.
      *
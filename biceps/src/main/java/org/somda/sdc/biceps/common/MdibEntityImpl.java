@@ -3,6 +3,7 @@ package org.somda.sdc.biceps.common;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import org.somda.sdc.biceps.common.access.CopyManager;
+import org.somda.sdc.biceps.common.storage.helper.PersistentLinkedSet;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractMultiState;
 import org.somda.sdc.biceps.model.participant.AbstractState;
@@ -20,7 +21,7 @@ import java.util.function.Consumer;
  */
 public class MdibEntityImpl implements MdibEntity {
     private final String parent;
-    private final List<String> children;
+    private final PersistentLinkedSet<String> children;
     private final AbstractDescriptor descriptor;
     private final List<AbstractState> states;
     private final MdibVersion mdibVersion;
@@ -35,6 +36,18 @@ public class MdibEntityImpl implements MdibEntity {
                    @Assisted MdibVersion mdibVersion,
                    CopyManager copyManager,
                    MdibTypeValidator typeValidator) {
+        this(parent, PersistentLinkedSet.copyOf(children), descriptor, states, mdibVersion, copyManager,
+                typeValidator);
+    }
+
+    @AssistedInject
+    MdibEntityImpl(@Assisted @Nullable String parent,
+                   @Assisted("children") PersistentLinkedSet<String> children,
+                   @Assisted AbstractDescriptor descriptor,
+                   @Assisted("states") List<AbstractState> states,
+                   @Assisted MdibVersion mdibVersion,
+                   CopyManager copyManager,
+                   MdibTypeValidator typeValidator) {
         this.parent = parent;
         this.children = children;
         this.descriptor = descriptor;
@@ -59,6 +72,18 @@ public class MdibEntityImpl implements MdibEntity {
 
     @Override
     public List<String> getChildren() {
+        return children.asList();
+    }
+
+    /**
+     * Gets the child handles as an ordered set.
+     * <p>
+     * In contrast to {@link #getChildren()} this does not require creating a list, which allows to derive
+     * entities with appended or removed children in constant time.
+     *
+     * @return the child handles in insertion order.
+     */
+    public PersistentLinkedSet<String> getChildHandles() {
         return children;
     }
 
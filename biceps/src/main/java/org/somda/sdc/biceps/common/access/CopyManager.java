@@ -4,8 +4,15 @@ package org.somda.sdc.biceps.common.access;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.common.MdibDescriptionModification;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.common.util.Freezable;
 import org.somda.sdc.common.util.ObjectUtil;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * A utility class to deep copy any input and output if configured.
  * <p>
@@ -19,6 +26,10 @@ import org.somda.sdc.common.util.ObjectUtil;
  * {@link CommonConfig#COPY_MDIB_INPUT} and {@link CommonConfig#COPY_MDIB_OUTPUT} can be configured such that no copies
  * of descriptors and states are made throughout the MDIB.
  * <p>
+ * Alternatively, {@link CommonConfig#FREEZE_MDIB_DATA} can be enabled such that stored descriptors and states reject
+ * any modification.
+ * Frozen output data is never copied, frozen input data is always copied as it cannot be processed otherwise.
+ * <p>
  * Default configuration is <em>yes, copy input and output data</em>.
  */
 public class CopyManager {
@@ -38,7 +49,7 @@ public class CopyManager {
     /**
      * Copies input data if configured.
      * <p>
-     * Data is copied if {@link CommonConfig#COPY_MDIB_INPUT} is configured true.
+     * Data is copied if {@link CommonConfig#COPY_MDIB_INPUT} is configured true or if it is frozen.
      * Data is forwarded otherwise.
      *
      * @param input data to be copied.
@@ -46,23 +57,86 @@ public class CopyManager {
      * @return a copy of {@code input} if configured, otherwise a forwarded reference.
      */
     public <T> T processInput(T input) {
-        return doDeepCopyIfConfigured(copyInput, input);
+        return doDeepCopyIfConfigured(copyInput || isFrozen(input), input);
+    }
+
+    /**
+     * Copies description modifications if configured.
+     * <p>
+     * In contrast to {@link #processInput(Object)}, descriptors and states are copied one by one into a new change
+     * set, which allows to copy them by using generated copy code instead of reflection.
+     *
+     * @param input the modifications to be copied.
+     * @return a copy of {@code input} if configured, otherwise a forwarded reference.
+     */
+    public MdibDescriptionModifications processInput(MdibDescriptionModifications input) {
+        if (!copyInput && input.getModifications().stream().noneMatch(modification ->
+                isFrozen(modification.getDescriptor()) || containsFrozen(modification.getStates()))) {
+            return input;
+        }
+
+        var copy = MdibDescriptionModifications.create();
+        for (MdibDescriptionModification modification : input.getModifications()) {
+            copy.add(new MdibDescriptionModification(
+                    modification.getModificationType(),
+                    processInput(modification.getDescriptor()),
+                    copyInput || containsFrozen(modification.getStates())
+                            ? objectUtil.deepCopy(modification.getStates()) : modification.getStates(),
+                    modification.getParentHandle().orElse(null)));
+        }
+        return copy;
+    }
+
+    /**
+     * Copies state modifications if configured.
+     * <p>
+     * In contrast to {@link #processInput(Object)}, states are copied one by one into a new change set, which allows
+     * to copy them by using generated copy code instead of reflection.
+     *
+     * @param input the modifications to be copied.
+     * @return a copy of {@code input} if configured, otherwise a forwarded reference.
+     */
+    public MdibStateModifications processInput(MdibStateModifications input) {
+        if (!copyInput && !containsFrozen(input.getStates())) {
+            return input;
+        }
+
+        var copy = MdibStateModifications.create(input.getChangeType(), input.getStates().size());
+        input.getStates().forEach(state -> copy.add(processInput(state)));
+        return copy;
     }
 
     /**
      * Copies output data if configured.
      * <p>
-     * Data is copied if {@link CommonConfig#COPY_MDIB_OUTPUT} is configured true.
+     * Data is copied if {@link CommonConfig#COPY_MDIB_OUTPUT} is configured true and it is not frozen.
+     * Non-empty lists that only contain frozen elements are forwarded as unmodifiable views.
      * Data is forwarded otherwise.
      *
      * @param output data to be copied.
      * @param <T>    any type that is supposed to be deep-copied.
      * @return a copy of {@code output} if configured, otherwise a forwarded reference.
      */
+    @SuppressWarnings("unchecked")
     public <T> T processOutput(T output) {
+        if (isFrozen(output)) {
+            return output;
+        }
+        if (output instanceof List && !((List<?>) output).isEmpty()
+                && ((List<?>) output).stream().allMatch(CopyManager::isFrozen)) {
+            return (T) Collections.unmodifiableList((List<?>) output);
+        }
         return doDeepCopyIfConfigured(copyOutput, output);
     }
 
+    private static boolean isFrozen(Object data) {
+        return data instanceof Freezable && ((Freezable) data).isFrozen();
+    }
+
+    private static boolean containsFrozen(List<?> data) {
+        return data.stream().anyMatch(CopyManager::isFrozen);
+    }
+
     private <T> T doDeepCopyIfConfigured(boolean doCopy, T data) {
         if (doCopy) {
             return objectUtil.deepCopy(data);
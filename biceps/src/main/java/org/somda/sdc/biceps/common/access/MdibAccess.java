@@ -1,15 +1,20 @@
 package org.somda.sdc.biceps.common.access;
 
 import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.storage.WaveformSamples;
 import org.somda.sdc.biceps.model.participant.AbstractContextState;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
 
 import java.math.BigInteger;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Read access to an MDIB storage.
@@ -84,6 +89,31 @@ public interface MdibAccess {
      */
     <T extends AbstractDescriptor> Collection<MdibEntity> findEntitiesByType(Class<T> type);
 
+    /**
+     * Searches all entities that match a query.
+     * <p>
+     * The query is evaluated against one MDIB version by using indexes that are maintained on every write, see
+     * {@linkplain MdibQuery} for details.
+     *
+     * @param query the query to evaluate.
+     * @return all entities that match {@code query} in unspecified order.
+     */
+    List<MdibEntity> findEntities(MdibQuery query);
+
+    /**
+     * Searches all entities that match a query and projects each of them.
+     * <p>
+     * As entities are immutable, all projections reflect the MDIB version the query has been evaluated against.
+     *
+     * @param query      the query to evaluate.
+     * @param projection the function to map each matching entity with, e.g., to a descriptor or state attribute.
+     * @param <R>        the projection result type.
+     * @return the projections of all entities that match {@code query} in unspecified order.
+     */
+    default <R> List<R> findEntities(MdibQuery query, Function<MdibEntity, R> projection) {
+        return findEntities(query).stream().map(projection).collect(Collectors.toList());
+    }
+
     /**
      * Resolves the children of a specific type given a parent handle.
      *
@@ -94,6 +124,18 @@ public interface MdibAccess {
      */
     <T extends AbstractDescriptor> List<MdibEntity> getChildrenByType(String handle, Class<T> type);
 
+    /**
+     * Resolves the handles of all ancestors of an entity.
+     * <p>
+     * The ancestor path is maintained by the storage on description changes, hence it is resolved without visiting
+     * any entity.
+     *
+     * @param handle the descriptor handle of the entity.
+     * @return the ancestor handles starting with the parent and ending with the MDS, or an empty list if {@code handle}
+     * refers to an MDS or does not exist.
+     */
+    List<String> getAncestorHandles(String handle);
+
     /**
      * Gets all {@link MdibEntity} objects that are root elements.
      *
@@ -175,4 +217,61 @@ public interface MdibAccess {
      */
     <T extends AbstractContextState> List<T> findContextStatesByType(Class<T> stateClass);
 
+    /**
+     * Retrieves a state as it was present at a given MDIB version.
+     * <p>
+     * Past states are only available if {@link org.somda.sdc.biceps.common.CommonConfig#STATE_HISTORY_CAPACITY} is
+     * greater than 0.
+     * Like all other read functions, the result reflects the MDIB version of the access, i.e., versions that are
+     * newer than the MDIB version of a read transaction are looked up as of the MDIB version of the transaction.
+     *
+     * @param handle      the state or descriptor handle of the state to request (descriptor handle is used in case of
+     *                    single states).
+     * @param mdibVersion the MDIB version to look up.
+     * @return {@link Optional} of the state as of {@code mdibVersion} or {@link Optional#empty()} if the state did not
+     * exist at that version, is not retained by the state history or {@code mdibVersion} belongs to another sequence.
+     */
+    Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion);
+
+    /**
+     * Retrieves a set of states as they were present at a given MDIB version.
+     *
+     * @param handles     the state or descriptor handles of the states to request (descriptor handles are used in case
+     *                    of single states).
+     * @param mdibVersion the MDIB version to look up.
+     * @return a map of handles to states as of {@code mdibVersion} in the order of {@code handles}, which omits
+     * handles that {@link #getStateAt(String, MdibVersion)} does not find a state for.
+     */
+    Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion);
+
+    /**
+     * Retrieves a read view of the newest samples of a waveform.
+     * <p>
+     * Samples are only available if {@link org.somda.sdc.biceps.common.CommonConfig#WAVEFORM_STORE_DURATION} is
+     * greater than zero.
+     * The view reads the newest samples as of the MDIB version of the access from an off-heap ring buffer without
+     * copying them, hence it cannot be read anymore once the samples have been overwritten.
+     *
+     * @param handle   the descriptor handle of the waveform.
+     * @param maxCount the maximum number of samples to view.
+     * @return {@link Optional} of a view of the newest samples or {@link Optional#empty()} if no samples have been
+     * recorded for {@code handle} or they are not retained anymore.
+     */
+    Optional<WaveformSamples> getWaveformSamples(String handle, int maxCount);
+
+    /**
+     * Retrieves a waveform state that contains the newest samples of a waveform.
+     * <p>
+     * In contrast to {@link #getState(String, Class)}, the resulting state can span samples of multiple writes.
+     * Samples are only available if {@link org.somda.sdc.biceps.common.CommonConfig#WAVEFORM_STORE_DURATION} is
+     * greater than zero.
+     *
+     * @param handle   the descriptor handle of the waveform.
+     * @param maxCount the maximum number of samples to include.
+     * @return {@link Optional} of a new waveform state that carries the attributes of the state as of the MDIB version
+     * of the access, or {@link Optional#empty()} if no samples have been recorded for {@code handle} or they are not
+     * retained anymore.
+     */
+    Optional<RealTimeSampleArrayMetricState> getWaveformState(String handle, int maxCount);
+
 }
@@ -1,5 +1,10 @@
 package org.somda.sdc.biceps.common.access;
 
+import org.somda.sdc.biceps.common.event.EventQueueMetrics;
+import org.somda.sdc.biceps.common.event.ObserverFilter;
+
+import java.util.Map;
+
 /**
  * Interface to allow registration and unregistration of {@linkplain MdibAccessObserver} instances.
  */
@@ -11,6 +16,18 @@ public interface MdibAccessObservable {
      */
     void registerObserver(MdibAccessObserver observer);
 
+    /**
+     * Register for MDIB modification reports that match a filter.
+     * <p>
+     * The observer only receives reports that are reduced to the entities and states matching {@code filter}, reports
+     * without any match are not delivered at all.
+     * Any previous registration of the observer with a filter is replaced.
+     *
+     * @param observer the observer to subscribe.
+     * @param filter   the filter to apply.
+     */
+    void registerObserver(MdibAccessObserver observer, ObserverFilter filter);
+
     /**
      * Unregister from MDIB modification reports.
      *
@@ -22,4 +39,15 @@ public interface MdibAccessObservable {
      * Unregisters all observers at once.
      */
     void unregisterAllObservers();
+
+    /**
+     * Gets the event queue metrics of all registered observers.
+     * <p>
+     * Metrics are only available if events are distributed asynchronously.
+     *
+     * @return a map of observers to their current event queue metrics, which is empty in case of synchronous event
+     * distribution.
+     * @see org.somda.sdc.biceps.common.CommonConfig#ASYNC_EVENT_DISTRIBUTION
+     */
+    Map<MdibAccessObserver, EventQueueMetrics> getEventQueueMetrics();
 }
@@ -0,0 +1,211 @@
+package org.somda.sdc.biceps.common.access;
+
+import org.somda.sdc.biceps.common.storage.helper.AttributeKeys;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.AlertConditionKind;
+import org.somda.sdc.biceps.model.participant.AlertConditionPriority;
+import org.somda.sdc.biceps.model.participant.CodedValue;
+import org.somda.sdc.biceps.model.participant.MetricCategory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Declarative query to find MDIB entities by means of {@link MdibAccess#findEntities(MdibQuery)}.
+ * <p>
+ * A query is a conjunction of criteria, i.e., an entity matches a query if it matches all criteria; a query without
+ * criteria matches all entities.
+ * Type, coding, ancestor, metric category and alert condition criteria are resolved by indexes that are maintained by
+ * the MDIB storage, hence the costs of a query only depend on the number of entities that match its most selective
+ * indexed criterion.
+ * Predicates are evaluated for these candidates only.
+ * <p>
+ * The {@linkplain MdibQuery} is a fluent interface.
+ */
+public class MdibQuery {
+    private final List<Class<?>> types;
+    private final List<String> attributeKeys;
+    private final List<Predicate<AbstractDescriptor>> descriptorPredicates;
+    private final List<Predicate<AbstractState>> statePredicates;
+
+    private MdibQuery() {
+        this.types = new ArrayList<>();
+        this.attributeKeys = new ArrayList<>();
+        this.descriptorPredicates = new ArrayList<>();
+        this.statePredicates = new ArrayList<>();
+    }
+
+    /**
+     * Creates a query without criteria.
+     *
+     * @return a new {@link MdibQuery} instance.
+     */
+    public static MdibQuery create() {
+        return new MdibQuery();
+    }
+
+    /**
+     * Restricts the result to entities with a descriptor of a given type.
+     *
+     * @param type the descriptor type including its subtypes.
+     * @return this object for fluent access.
+     */
+    public MdibQuery descriptorType(Class<? extends AbstractDescriptor> type) {
+        types.add(type);
+        return this;
+    }
+
+    /**
+     * Restricts the result to entities with states of a given type.
+     *
+     * @param type the state type including its subtypes.
+     * @return this object for fluent access.
+     */
+    public MdibQuery stateType(Class<? extends AbstractState> type) {
+        types.add(type);
+        return this;
+    }
+
+    /**
+     * Restricts the result to entities with a descriptor of a given ISO/IEEE 11073-10101 coded type.
+     *
+     * @param code the code of the descriptor type.
+     * @return this object for fluent access.
+     */
+    public MdibQuery code(String code) {
+        return code(null, code);
+    }
+
+    /**
+     * Restricts the result to entities with a descriptor of a given coded type.
+     *
+     * @param codingSystem the coding system or null if the code is from ISO/IEEE 11073-10101.
+     * @param code         the code of the descriptor type.
+     * @return this object for fluent access.
+     */
+    public MdibQuery code(@Nullable String codingSystem, String code) {
+        attributeKeys.add(AttributeKeys.type(codingSystem, code));
+        return this;
+    }
+
+    /**
+     * Restricts the result to entities with a descriptor of a given coded type.
+     * <p>
+     * Coded values are compared by code and coding system, the coding system version is ignored.
+     *
+     * @param type the coded value to compare the descriptor type with.
+     * @return this object for fluent access.
+     */
+    public MdibQuery code(CodedValue type) {
+        return code(type.getCodingSystem(), type.getCode());
+    }
+
+    /**
+     * Restricts the result to descendants of an entity, e.g., all entities of an MDS or VMD.
+     *
+     * @param handle the handle of the ancestor, which is not part of the result.
+     * @return this object for fluent access.
+     */
+    public MdibQuery descendantOf(String handle) {
+        attributeKeys.add(AttributeKeys.ancestor(handle));
+        return this;
+    }
+
+    /**
+     * Restricts the result to metrics of a given category.
+     *
+     * @param metricCategory the metric category.
+     * @return this object for fluent access.
+     */
+    public MdibQuery metricCategory(MetricCategory metricCategory) {
+        attributeKeys.add(AttributeKeys.metricCategory(metricCategory));
+        return this;
+    }
+
+    /**
+     * Restricts the result to alert conditions of a given kind.
+     *
+     * @param kind the alert condition kind.
+     * @return this object for fluent access.
+     */
+    public MdibQuery alertConditionKind(AlertConditionKind kind) {
+        attributeKeys.add(AttributeKeys.alertConditionKind(kind));
+        return this;
+    }
+
+    /**
+     * Restricts the result to alert conditions of a given priority.
+     *
+     * @param priority the alert condition priority.
+     * @return this object for fluent access.
+     */
+    public MdibQuery alertConditionPriority(AlertConditionPriority priority) {
+        attributeKeys.add(AttributeKeys.alertConditionPriority(priority));
+        return this;
+    }
+
+    /**
+     * Restricts the result to entities whose descriptor matches a predicate.
+     *
+     * @param predicate the predicate, which must not modify the descriptor.
+     * @return this object for fluent access.
+     */
+    public MdibQuery descriptorMatches(Predicate<AbstractDescriptor> predicate) {
+        descriptorPredicates.add(predicate);
+        return this;
+    }
+
+    /**
+     * Restricts the result to entities with at least one state that matches a predicate.
+     * <p>
+     * State attributes change frequently and are hence not indexed, i.e., such predicates should be combined with an
+     * indexed criterion.
+     *
+     * @param predicate the predicate, which must not modify the state.
+     * @return this object for fluent access.
+     */
+    public MdibQuery stateMatches(Predicate<AbstractState> predicate) {
+        statePredicates.add(predicate);
+        return this;
+    }
+
+    /**
+     * Gets the descriptor and state types an entity is required to match.
+     *
+     * @return an unmodifiable list of types.
+     */
+    public List<Class<?>> getTypes() {
+        return Collections.unmodifiableList(types);
+    }
+
+    /**
+     * Gets the indexed attributes an entity is required to match.
+     *
+     * @return an unmodifiable list of keys as created by {@linkplain AttributeKeys}.
+     */
+    public List<String> getAttributeKeys() {
+        return Collections.unmodifiableList(attributeKeys);
+    }
+
+    /**
+     * Gets the predicates the descriptor of an entity is required to match.
+     *
+     * @return an unmodifiable list of predicates.
+     */
+    public List<Predicate<AbstractDescriptor>> getDescriptorPredicates() {
+        return Collections.unmodifiableList(descriptorPredicates);
+    }
+
+    /**
+     * Gets the predicates at least one state of an entity is required to match each.
+     *
+     * @return an unmodifiable list of predicates.
+     */
+    public List<Predicate<AbstractState>> getStatePredicates() {
+        return Collections.unmodifiableList(statePredicates);
+    }
+}
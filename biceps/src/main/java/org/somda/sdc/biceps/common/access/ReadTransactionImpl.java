@@ -4,14 +4,18 @@ import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.storage.MdibStorage;
+import org.somda.sdc.biceps.common.storage.WaveformSamples;
 import org.somda.sdc.biceps.model.participant.AbstractContextState;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
 
+import javax.annotation.Nullable;
 import java.math.BigInteger;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.locks.Lock;
 
@@ -24,15 +28,19 @@ public class ReadTransactionImpl implements ReadTransaction {
 
     @AssistedInject
     public ReadTransactionImpl(@Assisted MdibStorage mdibStorage,
-                               @Assisted Lock lock) {
+                               @Assisted @Nullable Lock lock) {
         this.lock = lock;
-        this.lock.lock();
+        if (this.lock != null) {
+            this.lock.lock();
+        }
         this.mdibStorage = mdibStorage;
     }
 
     @Override
     public void close() {
-        lock.unlock();
+        if (lock != null) {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -105,13 +113,43 @@ public class ReadTransactionImpl implements ReadTransaction {
         return mdibStorage.findContextStatesByType(stateClass);
     }
 
+    @Override
+    public Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion) {
+        return mdibStorage.getStateAt(handle, mdibVersion);
+    }
+
+    @Override
+    public Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion) {
+        return mdibStorage.getStatesAt(handles, mdibVersion);
+    }
+
+    @Override
+    public Optional<WaveformSamples> getWaveformSamples(String handle, int maxCount) {
+        return mdibStorage.getWaveformSamples(handle, maxCount);
+    }
+
+    @Override
+    public Optional<RealTimeSampleArrayMetricState> getWaveformState(String handle, int maxCount) {
+        return mdibStorage.getWaveformState(handle, maxCount);
+    }
+
     @Override
     public <T extends AbstractDescriptor> Collection<MdibEntity> findEntitiesByType(Class<T> type) {
         return mdibStorage.findEntitiesByType(type);
     }
 
+    @Override
+    public List<MdibEntity> findEntities(MdibQuery query) {
+        return mdibStorage.findEntities(query);
+    }
+
     @Override
     public <T extends AbstractDescriptor> List<MdibEntity> getChildrenByType(String handle, Class<T> type) {
         return mdibStorage.getChildrenByType(handle, type);
     }
+
+    @Override
+    public List<String> getAncestorHandles(String handle) {
+        return mdibStorage.getAncestorHandles(handle);
+    }
 }
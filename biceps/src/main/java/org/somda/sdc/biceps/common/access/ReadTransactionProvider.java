@@ -9,6 +9,9 @@ public interface ReadTransactionProvider {
      * <p>
      * Use the read transaction in an auto-closeable {@code try...} block in order to ensure releasing the lock that
      * is gained before this function returns.
+     * <p>
+     * If {@link org.somda.sdc.biceps.common.CommonConfig#MDIB_STORAGE_SNAPSHOTS} is enabled, the transaction is pinned
+     * to the latest published MDIB snapshot and does not acquire any lock.
      *
      * @return a new locked MDIB access transaction to operate on (read-only).
      */
@@ -0,0 +1,69 @@
+package org.somda.sdc.biceps.common.access;
+
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.common.util.ObjectStringifier;
+import org.somda.sdc.common.util.Stringified;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read-only result set of a write batch call.
+ */
+public class WriteBatchResult {
+    @Stringified
+    private final MdibVersion mdibVersion;
+    private final WriteDescriptionResult descriptionResult;
+    private final List<WriteStateResult> stateResults;
+
+    /**
+     * Constructor to initialize all values of the result set.
+     *
+     * @param mdibVersion       the MDIB version.
+     * @param descriptionResult the result of the description modifications or null if there were none.
+     * @param stateResults      the results of all state modifications in the order of the modifications.
+     */
+    public WriteBatchResult(MdibVersion mdibVersion,
+                            @Nullable WriteDescriptionResult descriptionResult,
+                            List<WriteStateResult> stateResults) {
+        this.mdibVersion = mdibVersion;
+        this.descriptionResult = descriptionResult;
+        this.stateResults = stateResults;
+    }
+
+    /**
+     * Gets the MDIB version that ensued during the preceding write operation.
+     * <p>
+     * All modifications of a batch share this MDIB version.
+     *
+     * @return the MDIB version.
+     */
+    public MdibVersion getMdibVersion() {
+        return mdibVersion;
+    }
+
+    /**
+     * Gets the result of the description modifications.
+     *
+     * @return the description result or {@linkplain Optional#empty()} if the batch did not contain any description
+     * modifications.
+     */
+    public Optional<WriteDescriptionResult> getDescriptionResult() {
+        return Optional.ofNullable(descriptionResult);
+    }
+
+    /**
+     * Gets the results of all state modifications.
+     *
+     * @return the state results in the order of the state modifications of the batch.
+     */
+    public List<WriteStateResult> getStateResults() {
+        return stateResults;
+    }
+
+    @Override
+    public String toString() {
+        return ObjectStringifier.stringify(this);
+    }
+}
@@ -17,6 +17,7 @@ public interface ReadTransactionFactory {
      * @param mdibStorage the storage where to access data.
      * @param lock        the lock that is used for the lifetime of the read transaction.
      *                    The lock is gained on object construction and unlocked on auto-close.
+     *                    Pass null if the storage is not subject to change, e.g., a storage snapshot.
      * @return a new {@link ReadTransaction} instance.
      */
     ReadTransaction createReadTransaction(@Assisted MdibStorage mdibStorage,
@@ -4,13 +4,20 @@ import org.apache.logging.log4j.Logger;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.access.MdibAccess;
+import org.somda.sdc.biceps.common.access.ReadTransactionProvider;
+import org.somda.sdc.biceps.common.access.WriteBatchResult;
 import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
 import org.somda.sdc.biceps.common.access.WriteStateResult;
 import org.somda.sdc.biceps.common.event.Distributor;
+import org.somda.sdc.biceps.common.storage.MdibStorage;
 import org.somda.sdc.biceps.common.storage.MdibStoragePreprocessingChain;
 import org.somda.sdc.biceps.common.storage.PreprocessingException;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Function;
 
@@ -26,6 +33,7 @@ public class WriteUtil {
     private final MdibStoragePreprocessingChain mdibAccessPreprocessing;
     private final ReentrantReadWriteLock readWriteLock;
     private final MdibAccess mdibAccess;
+    private final MdibStorage mdibStorage;
 
     /**
      * Constructor that accepts the dependencies in order to properly process write operations.
@@ -35,17 +43,20 @@ public class WriteUtil {
      * @param mdibAccessPreprocessing the preprocessing chain that is invoked before writing to the MDIB storage.
      * @param readWriteLock           a read write lock to protect against concurrent access.
      * @param mdibAccess              the MDIB access that is passed on event distribution.
+     * @param mdibStorage             the MDIB storage written by the locked callbacks.
      */
     public WriteUtil(Logger logger,
                      Distributor eventDistributor,
                      MdibStoragePreprocessingChain mdibAccessPreprocessing,
                      ReentrantReadWriteLock readWriteLock,
-                     MdibAccess mdibAccess) {
+                     MdibAccess mdibAccess,
+                     MdibStorage mdibStorage) {
         this.log = logger;
         this.eventDistributor = eventDistributor;
         this.mdibAccessPreprocessing = mdibAccessPreprocessing;
         this.readWriteLock = readWriteLock;
         this.mdibAccess = mdibAccess;
+        this.mdibStorage = mdibStorage;
     }
 
     /**
@@ -53,6 +64,9 @@ public class WriteUtil {
      * <p>
      * The write operation gains a write lock, downgrades it to a read lock during event distribution and releases the
      * read lock by the end of the function.
+     * In case of asynchronous event distribution, the read lock is only held while events are queued.
+     * Waiting for event queue capacity is done after the read lock has been released, see
+     * {@link Distributor#awaitEventQueueCapacity()}.
      *
      * @param lockedWriteDescription   locked callback to finally write description.
      * @param descriptionModifications the description modifications to write.
@@ -101,13 +115,14 @@ public class WriteUtil {
 
         try {
             eventDistributor.sendDescriptionModificationEvent(
-                    mdibAccess,
+                    eventMdibAccess(),
                     modificationResult.getInsertedEntities(),
                     modificationResult.getUpdatedEntities(),
                     modificationResult.getDeletedEntities());
         } finally {
             readWriteLock.readLock().unlock();
         }
+        awaitEventQueueCapacity();
 
         if (log.isDebugEnabled()) {
             log.debug("Distributing changes with {} took {} ms",
@@ -123,6 +138,9 @@ public class WriteUtil {
      * <p>
      * The write operation gains a write lock, downgrades it to a read lock during event distribution and releases the
      * read lock by the end of the function.
+     * In case of asynchronous event distribution, the read lock is only held while events are queued.
+     * Waiting for event queue capacity is done after the read lock has been released, see
+     * {@link Distributor#awaitEventQueueCapacity()}.
      *
      * @param lockedWriteStates  locked callback to finally write states.
      * @param stateModifications the state modifications to write.
@@ -168,12 +186,13 @@ public class WriteUtil {
 
         try {
             eventDistributor.sendStateModificationEvent(
-                    mdibAccess,
+                    eventMdibAccess(),
                     stateModifications.getChangeType(),
                     modificationResult.getStates());
         } finally {
             readWriteLock.readLock().unlock();
         }
+        awaitEventQueueCapacity();
 
         if (log.isDebugEnabled()) {
             log.debug("Distributing changes {} took {} ms",
@@ -184,6 +203,143 @@ public class WriteUtil {
         return modificationResult;
     }
 
+    /**
+     * Performs preprocessing, write operation and event distribution of a batch of modifications.
+     * <p>
+     * All modifications are preprocessed and written while holding one write lock and share one MDIB version, which
+     * is applied by {@code lockedIncrementVersions} right before the first modifications are written.
+     * Description modifications are processed first, state modifications afterwards in the given order.
+     * Event distribution works as with single writes with one event per modification set.
+     * <p>
+     * All modification sets are preprocessed before any of them is written, hence if preprocessing of any modification
+     * set fails, none of the modifications is written and the MDIB version is not incremented.
+     * Waiting for event queue capacity is done after the read lock has been released, see
+     * {@link Distributor#awaitEventQueueCapacity()}.
+     *
+     * @param lockedIncrementVersions  locked callback to increment the MDIB versions once for the whole batch.
+     * @param lockedWriteDescription   locked callback to finally write description with the current versions.
+     * @param lockedWriteStates        locked callback to finally write states with the current versions.
+     * @param descriptionModifications the description modifications to write or null if there are none.
+     * @param stateModifications       the state modifications to write.
+     * @return a write batch result that contains the results of all written modifications.
+     * @throws PreprocessingException in case a consistency check or modifier fails.
+     */
+    public WriteBatchResult writeBatch(
+            Runnable lockedIncrementVersions,
+            Function<MdibDescriptionModifications, WriteDescriptionResult> lockedWriteDescription,
+            Function<MdibStateModifications, WriteStateResult> lockedWriteStates,
+            @Nullable MdibDescriptionModifications descriptionModifications,
+            List<MdibStateModifications> stateModifications
+    ) throws PreprocessingException {
+        acquireWriteLock();
+
+        long startTime = 0;
+        if (log.isDebugEnabled()) {
+            startTime = System.currentTimeMillis();
+            log.debug("Start writing batch of {} modification sets",
+                    stateModifications.size() + (descriptionModifications == null ? 0 : 1));
+        }
+
+        WriteDescriptionResult descriptionResult = null;
+        var stateResults = new ArrayList<WriteStateResult>(stateModifications.size());
+        boolean applied = false;
+        mdibAccessPreprocessing.beforeBatch();
+        try {
+            if (descriptionModifications != null) {
+                mdibAccessPreprocessing.processDescriptionModifications(descriptionModifications);
+            }
+            for (MdibStateModifications modifications : stateModifications) {
+                mdibAccessPreprocessing.processStateModifications(modifications);
+            }
+
+            if (descriptionModifications != null || !stateModifications.isEmpty()) {
+                descriptionResult = mdibStorage.applyBatch(() -> {
+                    lockedIncrementVersions.run();
+                    var result = descriptionModifications == null
+                            ? null
+                            : lockedWriteDescription.apply(descriptionModifications);
+                    for (MdibStateModifications modifications : stateModifications) {
+                        stateResults.add(lockedWriteStates.apply(modifications));
+                    }
+                    return result;
+                });
+            }
+            applied = true;
+
+            readWriteLock.readLock().lock();
+        } catch (PreprocessingException e) {
+            log.warn("Error while processing batch modifications in chain segment {} on handle {}: {}",
+                    e.getSegment(), e.getHandle(), e.getMessage());
+            throw e;
+        } finally {
+            mdibAccessPreprocessing.afterBatch(applied);
+            readWriteLock.writeLock().unlock();
+        }
+
+        MdibVersion mdibVersion;
+        if (descriptionResult != null) {
+            mdibVersion = descriptionResult.getMdibVersion();
+        } else if (!stateResults.isEmpty()) {
+            mdibVersion = stateResults.get(0).getMdibVersion();
+        } else {
+            mdibVersion = mdibAccess.getMdibVersion();
+        }
+        long endTime = System.currentTimeMillis();
+        if (log.isDebugEnabled()) {
+            log.debug("MDIB version {} written in {} ms", mdibVersion, endTime - startTime);
+        }
+
+        try {
+            var eventMdibAccess = eventMdibAccess();
+            if (descriptionResult != null && !descriptionModifications.getModifications().isEmpty()) {
+                eventDistributor.sendDescriptionModificationEvent(
+                        eventMdibAccess,
+                        descriptionResult.getInsertedEntities(),
+                        descriptionResult.getUpdatedEntities(),
+                        descriptionResult.getDeletedEntities());
+            }
+            for (int i = 0; i < stateResults.size(); i++) {
+                var modifications = stateModifications.get(i);
+                if (!modifications.getStates().isEmpty()) {
+                    eventDistributor.sendStateModificationEvent(
+                            eventMdibAccess,
+                            modifications.getChangeType(),
+                            stateResults.get(i).getStates());
+                }
+            }
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+        awaitEventQueueCapacity();
+
+        if (log.isDebugEnabled()) {
+            log.debug("Distributing changes {} took {} ms", mdibVersion, System.currentTimeMillis() - endTime);
+        }
+
+        return new WriteBatchResult(mdibVersion, descriptionResult, stateResults);
+    }
+
+    /*
+     * Asynchronously distributed events are processed after the read lock has been released, hence they receive a
+     * read transaction that is pinned to the snapshot of the MDIB version that has just been written.
+     * The transaction does not hold any lock as asynchronous distribution requires snapshots to be enabled.
+     */
+    private MdibAccess eventMdibAccess() {
+        if (eventDistributor.isAsynchronous() && mdibAccess instanceof ReadTransactionProvider) {
+            return ((ReadTransactionProvider) mdibAccess).startTransaction();
+        }
+        return mdibAccess;
+    }
+
+    /*
+     * Observers may write to the MDIB, hence the writer only waits for their queues if it does not hold any lock.
+     */
+    private void awaitEventQueueCapacity() {
+        if (!readWriteLock.isWriteLockedByCurrentThread() && readWriteLock.getReadHoldCount() == 0) {
+            eventDistributor.awaitEventQueueCapacity();
+        }
+    }
+
     private void acquireWriteLock() {
         log.debug("Trying to acquire write lock");
         if (readWriteLock.getReadHoldCount() > 0) {
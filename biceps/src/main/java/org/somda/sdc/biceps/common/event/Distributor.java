@@ -1,59 +1,262 @@
 package org.somda.sdc.biceps.common.event;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
 import com.google.inject.name.Named;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.MdibTypeValidator;
 import org.somda.sdc.biceps.common.access.MdibAccess;
+import org.somda.sdc.biceps.model.participant.AbstractAlertState;
+import org.somda.sdc.biceps.model.participant.AbstractContextState;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractDeviceComponentState;
+import org.somda.sdc.biceps.model.participant.AbstractMetricState;
+import org.somda.sdc.biceps.model.participant.AbstractMultiState;
+import org.somda.sdc.biceps.model.participant.AbstractOperationState;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
 import org.somda.sdc.common.CommonConfig;
 import org.somda.sdc.common.event.EventBus;
 import org.somda.sdc.common.logging.InstanceLogger;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Utility class to distribute any BICEPS MDIB events.
+ * <p>
+ * By default, events are delivered synchronously, i.e., every observer is called by the writing thread.
+ * If {@link org.somda.sdc.biceps.common.CommonConfig#ASYNC_EVENT_DISTRIBUTION} is enabled, every observer is served
+ * from its own bounded event queue by a worker thread.
+ * Each observer then receives the events in the order they have been sent, which is the order of their MDIB versions,
+ * while observers do not delay each other.
+ * Full queues are handled according to {@link org.somda.sdc.biceps.common.CommonConfig#EVENT_QUEUE_OVERFLOW_POLICY}.
+ * Events are queued while the MDIB is locked, hence queuing never waits for capacity.
+ * Writers that have to wait for capacity do so in {@link #awaitEventQueueCapacity()} after they released the MDIB
+ * lock, which allows observers to write to the MDIB from within their callbacks.
+ * <p>
+ * Observers that are registered with an {@linkplain ObserverFilter} only receive messages that are reduced to the
+ * matching entities and states.
+ * The filters of all observers are compiled into a routing table on registration, which dispatches each state to the
+ * observers that subscribed to its handle and only evaluates the remaining criteria for these candidates and for
+ * observers without handle criterion.
  */
 public class Distributor {
     private static final Logger LOG = LogManager.getLogger(Distributor.class);
+    private static final ThreadLocal<Boolean> DELIVERING = ThreadLocal.withInitial(() -> false);
 
     private final EventBus eventBus;
+    private final Provider<EventBus> eventBusProvider;
     private final Logger instanceLogger;
+    private final boolean asynchronous;
+    private final int queueCapacity;
+    private final EventQueueOverflowPolicy overflowPolicy;
+    private final Map<Object, ObserverQueue> observerQueues;
+    private final Object executorLock;
+    private final MdibTypeValidator typeValidator;
+    private final Map<Object, Subscription> subscriptions;
+    private final Set<Object> unfilteredObservers;
+    private volatile Routing routing;
+    private ExecutorService executor;
 
     @Inject
     Distributor(EventBus eventBus,
+                Provider<EventBus> eventBusProvider,
+                MdibTypeValidator typeValidator,
+                @Named(org.somda.sdc.biceps.common.CommonConfig.ASYNC_EVENT_DISTRIBUTION) Boolean asynchronous,
+                @Named(org.somda.sdc.biceps.common.CommonConfig.MDIB_STORAGE_SNAPSHOTS) Boolean snapshots,
+                @Named(org.somda.sdc.biceps.common.CommonConfig.EVENT_QUEUE_CAPACITY) Integer queueCapacity,
+                @Named(org.somda.sdc.biceps.common.CommonConfig.EVENT_QUEUE_OVERFLOW_POLICY)
+                        EventQueueOverflowPolicy overflowPolicy,
                 @Named(CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier) {
         this.instanceLogger = InstanceLogger.wrapLogger(LOG, frameworkIdentifier);
         this.eventBus = eventBus;
+        this.eventBusProvider = eventBusProvider;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.observerQueues = new ConcurrentHashMap<>();
+        this.typeValidator = typeValidator;
+        this.subscriptions = new HashMap<>();
+        this.unfilteredObservers = ConcurrentHashMap.newKeySet();
+        this.routing = Routing.EMPTY;
+
+        if (asynchronous && !snapshots) {
+            instanceLogger.warn("Asynchronous event distribution requires MDIB storage snapshots, which are disabled. "
+                    + "Events are distributed synchronously.");
+        }
+        this.asynchronous = asynchronous && snapshots;
+        this.executorLock = new Object();
+    }
+
+    /**
+     * Checks if events are delivered asynchronously.
+     * <p>
+     * If true, observers are called after the sending function has returned, hence the MDIB access passed to the
+     * sending functions is supposed to be bound to the MDIB version of the event (e.g., a snapshot read transaction).
+     *
+     * @return true if events are delivered asynchronously, false if observers are called by the sending thread.
+     */
+    public boolean isAsynchronous() {
+        return asynchronous;
     }
 
     /**
      * Registers an observer to MDIB modification events.
+     * <p>
+     * Any previous registration of the observer with a filter is replaced.
      *
      * @param observer to unregister
      */
     public void registerObserver(Object observer) {
-        eventBus.register(observer);
+        removeSubscription(observer);
+        if (!asynchronous) {
+            unfilteredObservers.add(observer);
+            eventBus.register(observer);
+            return;
+        }
+
+        observerQueues.computeIfAbsent(observer, key -> new ObserverQueue(key, false));
+    }
+
+    /**
+     * Registers an observer to MDIB modification events that match a filter.
+     * <p>
+     * The observer only receives messages that contain at least one matching entity or state, whereby all entities
+     * and states that do not match are removed from the message.
+     * Any previous registration of the observer, with or without filter, is replaced.
+     *
+     * @param observer to register.
+     * @param filter   the filter to apply to all messages of the observer.
+     * @throws IllegalArgumentException if a descriptor type of the filter does not have a corresponding state type.
+     */
+    public void registerObserver(Object observer, ObserverFilter filter) {
+        var subscription = new Subscription(observer, filter, typeValidator);
+        if (!removeSubscription(observer)) {
+            removeUnfilteredObserver(observer);
+        }
+        if (!asynchronous) {
+            subscription.eventBus = eventBusProvider.get();
+            subscription.eventBus.register(observer);
+        } else {
+            var replacedQueue = observerQueues.put(observer, new ObserverQueue(observer, true));
+            if (replacedQueue != null) {
+                replacedQueue.close();
+            }
+        }
+        synchronized (subscriptions) {
+            subscriptions.put(observer, subscription);
+            routing = new Routing(subscriptions.values());
+        }
     }
 
     /**
      * Unregisters an observer from MDIB modification events.
+     * <p>
+     * In case of asynchronous distribution, events that have not been delivered yet are discarded.
      *
      * @param observer to unregister
      */
     public void unregisterObserver(Object observer) {
-        eventBus.unregister(observer);
+        if (removeSubscription(observer)) {
+            return;
+        }
+
+        if (!asynchronous) {
+            unfilteredObservers.remove(observer);
+            eventBus.unregister(observer);
+            return;
+        }
+
+        var queue = observerQueues.remove(observer);
+        if (queue != null) {
+            queue.close();
+        }
     }
 
     /**
      * Unregisters all observers at once.
+     * <p>
+     * In case of asynchronous distribution, the worker threads are shut down as well.
+     * They are started again once an observer is registered.
      */
     public void unregisterAllObservers() {
-        eventBus.unregisterAll();
+        List<Object> filteredObservers;
+        synchronized (subscriptions) {
+            filteredObservers = new ArrayList<>(subscriptions.keySet());
+        }
+        filteredObservers.forEach(this::removeSubscription);
+
+        if (!asynchronous) {
+            unfilteredObservers.clear();
+            eventBus.unregisterAll();
+            return;
+        }
+
+        new ArrayList<>(observerQueues.keySet()).forEach(this::unregisterObserver);
+        synchronized (executorLock) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Gets the event queue metrics of all registered observers.
+     *
+     * @return a map of observers to their current queue metrics, which is empty if events are delivered synchronously.
+     */
+    public Map<Object, EventQueueMetrics> getEventQueueMetrics() {
+        var metrics = new HashMap<Object, EventQueueMetrics>();
+        observerQueues.forEach((observer, queue) -> metrics.put(observer, queue.getMetrics()));
+        return metrics;
+    }
+
+    /**
+     * Waits until no event queue exceeds its capacity.
+     * <p>
+     * Queues exceed their capacity if events are sent to full queues with the {@link EventQueueOverflowPolicy#BLOCK}
+     * policy, or with the {@link EventQueueOverflowPolicy#COALESCE} policy if the event cannot be merged.
+     * This function is supposed to be called by the writing thread once it does not hold any MDIB lock anymore.
+     * It returns immediately if events are delivered synchronously, if the overflow policy drops events or if the
+     * calling thread delivers events of this or any other distributor, as an observer that waits for its own queue
+     * would never continue.
+     * If the calling thread is interrupted, the function returns without waiting and keeps the interrupt flag.
+     */
+    public void awaitEventQueueCapacity() {
+        if (!asynchronous || overflowPolicy == EventQueueOverflowPolicy.DROP_OLDEST || DELIVERING.get()) {
+            return;
+        }
+
+        for (ObserverQueue queue : observerQueues.values()) {
+            if (!queue.awaitCapacity()) {
+                return;
+            }
+        }
     }
 
     /**
@@ -68,9 +271,10 @@ public class Distributor {
                                                  List<MdibEntity> insertedEntities,
                                                  List<MdibEntity> updatedEntities,
                                                  List<MdibEntity> deletedEntities) {
-        eventBus.post(
-                new DescriptionModificationMessage(mdibAccess, insertedEntities, updatedEntities, deletedEntities)
-        );
+        var message = new DescriptionModificationMessage(mdibAccess, insertedEntities, updatedEntities,
+                deletedEntities);
+        post(message, null, Collections.emptyList());
+        routeDescriptionModifications(message);
     }
 
     /**
@@ -85,26 +289,505 @@ public class Distributor {
             MdibAccess mdibAccess,
             MdibStateModifications.Type changeType, List<?> states
     ) {
-        Constructor<?> ctor = null;
-        for (Constructor<?> constructor : changeType.getEventMessageClass().getConstructors()) {
-            if (constructor.getParameterCount() == 2) {
-                ctor = constructor;
+        var message = createStateModificationMessage(mdibAccess, changeType, states);
+        post(message, changeType, states);
+        routeStateModifications(message.getMdibAccess(), changeType, states);
+    }
+
+    private void post(AbstractMdibAccessMessage message,
+                      @Nullable MdibStateModifications.Type changeType,
+                      List<?> states) {
+        if (!asynchronous) {
+            eventBus.post(message);
+            return;
+        }
+
+        var event = new QueuedEvent(message, changeType, states, message.getMdibAccess().getMdibVersion());
+        observerQueues.values().forEach(queue -> {
+            if (!queue.filtered) {
+                queue.offer(event);
+            }
+        });
+    }
+
+    private void routeDescriptionModifications(DescriptionModificationMessage message) {
+        var table = routing.descriptionTable;
+        if (table.isEmpty()) {
+            return;
+        }
+
+        var mdibAccess = message.getMdibAccess();
+        var deletedEntities = new HashMap<String, MdibEntity>();
+        message.getDeletedEntities().forEach(entity -> deletedEntities.put(entity.getHandle(), entity));
+        Function<MdibEntity, RoutedElement> toElement = entity -> new RoutedElement(entity.getHandle(), null,
+                entity.getDescriptorClass(), true, () -> ancestorsOf(entity, mdibAccess, deletedEntities));
+
+        var inserted = route(table, message.getInsertedEntities(), toElement);
+        var updated = route(table, message.getUpdatedEntities(), toElement);
+        var deleted = route(table, message.getDeletedEntities(), toElement);
+        var receivers = new LinkedHashSet<Subscription>();
+        receivers.addAll(inserted.keySet());
+        receivers.addAll(updated.keySet());
+        receivers.addAll(deleted.keySet());
+        for (Subscription subscription : receivers) {
+            deliver(subscription, new DescriptionModificationMessage(mdibAccess,
+                    inserted.getOrDefault(subscription, Collections.emptyList()),
+                    updated.getOrDefault(subscription, Collections.emptyList()),
+                    deleted.getOrDefault(subscription, Collections.emptyList())), null, Collections.emptyList());
+        }
+    }
+
+    private void routeStateModifications(MdibAccess mdibAccess,
+                                         MdibStateModifications.Type changeType,
+                                         List<?> states) {
+        var table = routing.stateTables.get(changeType);
+        if (table.isEmpty()) {
+            return;
+        }
+
+        route(table, states, item -> {
+            var state = (AbstractState) item;
+            return new RoutedElement(state.getDescriptorHandle(),
+                    state instanceof AbstractMultiState ? ((AbstractMultiState) state).getHandle() : null,
+                    state.getClass(), false, () -> mdibAccess.getAncestorHandles(state.getDescriptorHandle()));
+        }).forEach((subscription, matchingStates) -> {
+            var message = createStateModificationMessage(mdibAccess, changeType, matchingStates);
+            deliver(subscription, message, changeType, matchingStates);
+        });
+    }
+
+    private <T> Map<Subscription, List<T>> route(RoutingTable table,
+                                                 List<T> items,
+                                                 Function<T, RoutedElement> toElement) {
+        var result = new LinkedHashMap<Subscription, List<T>>();
+        for (T item : items) {
+            var element = toElement.apply(item);
+            table.forEachCandidate(element, subscription -> {
+                if (subscription.matches(element)) {
+                    var matchingItems = result.computeIfAbsent(subscription, key -> new ArrayList<>());
+                    // multi-states are candidates twice if both their descriptor and their own handle are subscribed
+                    if (matchingItems.isEmpty() || matchingItems.get(matchingItems.size() - 1) != item) {
+                        matchingItems.add(item);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    /*
+     * Deleted entities are not known to the MDIB access anymore, hence their ancestors are resolved by means of the
+     * parents of the deleted entities up to the first ancestor that still exists.
+     */
+    private static List<String> ancestorsOf(MdibEntity entity,
+                                            MdibAccess mdibAccess,
+                                            Map<String, MdibEntity> deletedEntities) {
+        if (!deletedEntities.containsKey(entity.getHandle())) {
+            return mdibAccess.getAncestorHandles(entity.getHandle());
+        }
+
+        var ancestors = new ArrayList<String>();
+        var parentHandle = entity.getParent().orElse(null);
+        while (parentHandle != null) {
+            ancestors.add(parentHandle);
+            var deletedParent = deletedEntities.get(parentHandle);
+            if (deletedParent == null) {
+                ancestors.addAll(mdibAccess.getAncestorHandles(parentHandle));
                 break;
             }
+            parentHandle = deletedParent.getParent().orElse(null);
         }
+        return ancestors;
+    }
 
-        if (ctor == null) {
-            instanceLogger.error(
-                    "Expected constructor to create state modification message not found. Distribution failed."
-            );
+    private void deliver(Subscription subscription,
+                         AbstractMdibAccessMessage message,
+                         @Nullable MdibStateModifications.Type changeType,
+                         List<?> states) {
+        if (subscription.eventBus != null) {
+            subscription.eventBus.post(message);
             return;
         }
 
-        try {
-            eventBus.post(ctor.newInstance(mdibAccess, states));
-        } catch (IllegalAccessException | IllegalArgumentException
-                | InstantiationException | InvocationTargetException e) {
-            instanceLogger.error("Failed to call state event message constructor", e);
+        var queue = observerQueues.get(subscription.observer);
+        if (queue != null) {
+            queue.offer(new QueuedEvent(message, changeType, states, message.getMdibAccess().getMdibVersion()));
+        }
+    }
+
+    /*
+     * The executor is created on demand as it is shut down when all observers are unregistered.
+     */
+    private void execute(Runnable task) {
+        synchronized (executorLock) {
+            if (executor == null) {
+                executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                        .setNameFormat("MdibEventDistributor-thread-%d")
+                        .setDaemon(true)
+                        .build());
+            }
+            executor.execute(task);
+        }
+    }
+
+    private boolean removeSubscription(Object observer) {
+        Subscription subscription;
+        synchronized (subscriptions) {
+            subscription = subscriptions.remove(observer);
+            if (subscription == null) {
+                return false;
+            }
+            routing = new Routing(subscriptions.values());
+        }
+
+        if (subscription.eventBus != null) {
+            subscription.eventBus.unregister(observer);
+        } else {
+            var queue = observerQueues.remove(observer);
+            if (queue != null) {
+                queue.close();
+            }
+        }
+        return true;
+    }
+
+    private void removeUnfilteredObserver(Object observer) {
+        if (!asynchronous) {
+            if (unfilteredObservers.remove(observer)) {
+                eventBus.unregister(observer);
+            }
+            return;
+        }
+
+        var queue = observerQueues.remove(observer);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    /*
+     * Creates the message of a change type without reflection, as this is done for every distributed modification.
+     * The states are expected to match the change type, which is ensured by MdibStateModifications.
+     */
+    @SuppressWarnings("unchecked")
+    private AbstractMdibAccessMessage createStateModificationMessage(MdibAccess mdibAccess,
+                                                                     MdibStateModifications.Type changeType,
+                                                                     List<?> states) {
+        switch (changeType) {
+            case ALERT:
+                return new AlertStateModificationMessage(mdibAccess, (List<AbstractAlertState>) states);
+            case COMPONENT:
+                return new ComponentStateModificationMessage(mdibAccess, (List<AbstractDeviceComponentState>) states);
+            case CONTEXT:
+                return new ContextStateModificationMessage(mdibAccess, (List<AbstractContextState>) states);
+            case METRIC:
+                return new MetricStateModificationMessage(mdibAccess, (List<AbstractMetricState>) states);
+            case OPERATION:
+                return new OperationStateModificationMessage(mdibAccess, (List<AbstractOperationState>) states);
+            case WAVEFORM:
+                return new WaveformStateModificationMessage(mdibAccess, (List<RealTimeSampleArrayMetricState>) states);
+            default:
+                throw new IllegalArgumentException(String.format("Unknown change type %s", changeType));
+        }
+    }
+
+    /*
+     * Merges the states of two events, whereby only the latest state per handle is kept.
+     */
+    private QueuedEvent coalesce(QueuedEvent previous, QueuedEvent next) {
+        var states = new LinkedHashMap<String, Object>();
+        for (List<?> stateList : List.of(previous.states, next.states)) {
+            for (Object state : stateList) {
+                var handle = state instanceof AbstractMultiState
+                        ? ((AbstractMultiState) state).getHandle()
+                        : ((AbstractState) state).getDescriptorHandle();
+                states.remove(handle);
+                states.put(handle, state);
+            }
+        }
+
+        var mergedStates = new ArrayList<>(states.values());
+        var message = createStateModificationMessage(next.message.getMdibAccess(), next.changeType, mergedStates);
+        return new QueuedEvent(message, next.changeType, mergedStates, next.mdibVersion, previous.enqueuedNanos);
+    }
+
+    private static final class QueuedEvent {
+        private final AbstractMdibAccessMessage message;
+        private final MdibStateModifications.Type changeType;
+        private final List<?> states;
+        private final MdibVersion mdibVersion;
+        private final long enqueuedNanos;
+
+        QueuedEvent(AbstractMdibAccessMessage message,
+                    @Nullable MdibStateModifications.Type changeType,
+                    List<?> states,
+                    MdibVersion mdibVersion) {
+            this(message, changeType, states, mdibVersion, System.nanoTime());
+        }
+
+        QueuedEvent(AbstractMdibAccessMessage message,
+                    @Nullable MdibStateModifications.Type changeType,
+                    List<?> states,
+                    MdibVersion mdibVersion,
+                    long enqueuedNanos) {
+            this.message = message;
+            this.changeType = changeType;
+            this.states = states;
+            this.mdibVersion = mdibVersion;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    /**
+     * Registration of an observer with a filter.
+     */
+    private static final class Subscription {
+        private final Object observer;
+        private final Set<String> handles;
+        private final List<Class<?>> descriptorTypes;
+        private final List<Class<?>> stateTypes;
+        private final Set<String> subtreeHandles;
+        private final Set<MdibStateModifications.Type> changeTypes;
+
+        // only used for synchronous distribution
+        private EventBus eventBus;
+
+        Subscription(Object observer, ObserverFilter filter, MdibTypeValidator typeValidator) {
+            this.observer = observer;
+            this.handles = Set.copyOf(filter.getHandles());
+            this.descriptorTypes = new ArrayList<>();
+            this.stateTypes = new ArrayList<>();
+            for (Class<? extends AbstractDescriptor> descriptorType : filter.getDescriptorTypes()) {
+                descriptorTypes.add(descriptorType);
+                try {
+                    stateTypes.add(typeValidator.resolveStateType(descriptorType));
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException(String.format("Descriptor type %s has no state type",
+                            descriptorType.getName()), e);
+                }
+            }
+            this.subtreeHandles = Set.copyOf(filter.getSubtreeHandles());
+            this.changeTypes = filter.getChangeTypes().isEmpty()
+                    ? EnumSet.allOf(MdibStateModifications.Type.class)
+                    : EnumSet.copyOf(filter.getChangeTypes());
+        }
+
+        /*
+         * Evaluates all criteria except for handles, which are already matched by the routing table.
+         */
+        boolean matches(RoutedElement element) {
+            var types = element.descriptor ? descriptorTypes : stateTypes;
+            if (!types.isEmpty() && types.stream().noneMatch(type -> type.isAssignableFrom(element.type))) {
+                return false;
+            }
+            return subtreeHandles.isEmpty()
+                    || subtreeHandles.contains(element.descriptorHandle)
+                    || element.getAncestors().stream().anyMatch(subtreeHandles::contains);
+        }
+    }
+
+    /**
+     * Entity or state to route with lazily resolved ancestors.
+     */
+    private static final class RoutedElement {
+        private final String descriptorHandle;
+        private final String multiStateHandle;
+        private final Class<?> type;
+        private final boolean descriptor;
+        private final Supplier<List<String>> ancestorsSupplier;
+        private List<String> ancestors;
+
+        RoutedElement(String descriptorHandle,
+                      @Nullable String multiStateHandle,
+                      Class<?> type,
+                      boolean descriptor,
+                      Supplier<List<String>> ancestorsSupplier) {
+            this.descriptorHandle = descriptorHandle;
+            this.multiStateHandle = multiStateHandle;
+            this.type = type;
+            this.descriptor = descriptor;
+            this.ancestorsSupplier = ancestorsSupplier;
+        }
+
+        List<String> getAncestors() {
+            if (ancestors == null) {
+                ancestors = ancestorsSupplier.get();
+            }
+            return ancestors;
+        }
+    }
+
+    /**
+     * Immutable routing tables of all subscriptions, one for description modifications and one per change type.
+     */
+    private static final class Routing {
+        private static final Routing EMPTY = new Routing(Collections.emptyList());
+
+        private final Map<MdibStateModifications.Type, RoutingTable> stateTables;
+        private final RoutingTable descriptionTable;
+
+        Routing(Collection<Subscription> subscriptions) {
+            this.stateTables = new EnumMap<>(MdibStateModifications.Type.class);
+            for (MdibStateModifications.Type changeType : MdibStateModifications.Type.values()) {
+                var changeTypeSubscriptions = new ArrayList<Subscription>();
+                for (Subscription subscription : subscriptions) {
+                    if (subscription.changeTypes.contains(changeType)) {
+                        changeTypeSubscriptions.add(subscription);
+                    }
+                }
+                stateTables.put(changeType, new RoutingTable(changeTypeSubscriptions));
+            }
+            this.descriptionTable = new RoutingTable(subscriptions);
+        }
+    }
+
+    /**
+     * Maps handles to the subscriptions that are restricted to these handles.
+     */
+    private static final class RoutingTable {
+        private final Map<String, List<Subscription>> subscriptionsByHandle;
+        private final List<Subscription> unroutedSubscriptions;
+
+        RoutingTable(Collection<Subscription> subscriptions) {
+            this.subscriptionsByHandle = new HashMap<>();
+            this.unroutedSubscriptions = new ArrayList<>();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.handles.isEmpty()) {
+                    unroutedSubscriptions.add(subscription);
+                } else {
+                    subscription.handles.forEach(handle -> subscriptionsByHandle
+                            .computeIfAbsent(handle, key -> new ArrayList<>()).add(subscription));
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return subscriptionsByHandle.isEmpty() && unroutedSubscriptions.isEmpty();
+        }
+
+        void forEachCandidate(RoutedElement element, Consumer<Subscription> action) {
+            subscriptionsByHandle.getOrDefault(element.descriptorHandle, Collections.emptyList()).forEach(action);
+            if (element.multiStateHandle != null) {
+                subscriptionsByHandle.getOrDefault(element.multiStateHandle, Collections.emptyList())
+                        .forEach(action);
+            }
+            unroutedSubscriptions.forEach(action);
+        }
+    }
+
+    /**
+     * Bounded event queue of one observer, which is drained by at most one worker at a time.
+     */
+    private final class ObserverQueue {
+        private final Object observer;
+        private final boolean filtered;
+        private final EventBus observerEventBus;
+        private final Deque<QueuedEvent> events;
+
+        private boolean draining;
+        private boolean closed;
+        private MdibVersion lastQueuedMdibVersion;
+        private MdibVersion lastDeliveredMdibVersion;
+        private long droppedEvents;
+        private long coalescedEvents;
+
+        ObserverQueue(Object observer, boolean filtered) {
+            this.observer = observer;
+            this.filtered = filtered;
+            this.observerEventBus = eventBusProvider.get();
+            this.observerEventBus.register(observer);
+            this.events = new ArrayDeque<>();
+        }
+
+        synchronized void offer(QueuedEvent event) {
+            if (closed) {
+                return;
+            }
+
+            // otherwise the event exceeds the capacity and the writer waits in awaitCapacity() after it released the
+            // MDIB lock
+            if (events.size() >= queueCapacity) {
+                if (overflowPolicy == EventQueueOverflowPolicy.DROP_OLDEST) {
+                    events.pollFirst();
+                    droppedEvents++;
+                    instanceLogger.warn("Event queue of observer {} is full, dropped oldest event", observer);
+                } else if (overflowPolicy == EventQueueOverflowPolicy.COALESCE && coalesceWithLast(event)) {
+                    return;
+                }
+            }
+
+            events.addLast(event);
+            lastQueuedMdibVersion = event.mdibVersion;
+            if (!draining) {
+                draining = true;
+                execute(this::drain);
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+            events.clear();
+            notifyAll();
+        }
+
+        synchronized EventQueueMetrics getMetrics() {
+            var oldest = events.peekFirst();
+            var lag = oldest == null ? Duration.ZERO : Duration.ofNanos(System.nanoTime() - oldest.enqueuedNanos);
+            return new EventQueueMetrics(events.size(), queueCapacity, lag,
+                    lastQueuedMdibVersion, lastDeliveredMdibVersion, droppedEvents, coalescedEvents);
+        }
+
+        private boolean coalesceWithLast(QueuedEvent event) {
+            var last = events.peekLast();
+            if (last == null || event.changeType == null || last.changeType != event.changeType) {
+                return false;
+            }
+
+            var merged = coalesce(last, event);
+            events.pollLast();
+            events.addLast(merged);
+            lastQueuedMdibVersion = merged.mdibVersion;
+            coalescedEvents++;
+            return true;
+        }
+
+        synchronized boolean awaitCapacity() {
+            try {
+                while (events.size() > queueCapacity && !closed) {
+                    wait();
+                }
+                return true;
+            } catch (InterruptedException e) {
+                instanceLogger.warn("Interrupted while waiting for event queue capacity of observer {}, "
+                        + "exceed capacity", observer);
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                QueuedEvent event;
+                synchronized (this) {
+                    event = events.pollFirst();
+                    if (event == null || closed) {
+                        draining = false;
+                        return;
+                    }
+                    notifyAll();
+                }
+
+                DELIVERING.set(true);
+                try {
+                    observerEventBus.post(event.message);
+                } finally {
+                    DELIVERING.set(false);
+                }
+
+                synchronized (this) {
+                    lastDeliveredMdibVersion = event.mdibVersion;
+                }
+            }
         }
     }
 }
@@ -0,0 +1,93 @@
+package org.somda.sdc.biceps.common.event;
+
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Snapshot of the event queue metrics of an observer that is served asynchronously by the {@linkplain Distributor}.
+ */
+public class EventQueueMetrics {
+    private final int queueDepth;
+    private final int capacity;
+    private final Duration lag;
+    private final MdibVersion lastQueuedMdibVersion;
+    private final MdibVersion lastDeliveredMdibVersion;
+    private final long droppedEvents;
+    private final long coalescedEvents;
+
+    /**
+     * Constructor.
+     *
+     * @param queueDepth               the number of events waiting to be delivered.
+     * @param capacity                 the maximum number of events that can wait to be delivered.
+     * @param lag                      the time the oldest waiting event has been queued.
+     * @param lastQueuedMdibVersion    the MDIB version of the latest queued event or null if there is none.
+     * @param lastDeliveredMdibVersion the MDIB version of the latest delivered event or null if there is none.
+     * @param droppedEvents            the number of events discarded due to queue overflows.
+     * @param coalescedEvents          the number of events merged into previously queued events.
+     */
+    public EventQueueMetrics(int queueDepth,
+                             int capacity,
+                             Duration lag,
+                             @Nullable MdibVersion lastQueuedMdibVersion,
+                             @Nullable MdibVersion lastDeliveredMdibVersion,
+                             long droppedEvents,
+                             long coalescedEvents) {
+        this.queueDepth = queueDepth;
+        this.capacity = capacity;
+        this.lag = lag;
+        this.lastQueuedMdibVersion = lastQueuedMdibVersion;
+        this.lastDeliveredMdibVersion = lastDeliveredMdibVersion;
+        this.droppedEvents = droppedEvents;
+        this.coalescedEvents = coalescedEvents;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the time the oldest waiting event has been queued.
+     *
+     * @return the waiting time of the oldest event or {@linkplain Duration#ZERO} if the queue is empty.
+     */
+    public Duration getLag() {
+        return lag;
+    }
+
+    public Optional<MdibVersion> getLastQueuedMdibVersion() {
+        return Optional.ofNullable(lastQueuedMdibVersion);
+    }
+
+    public Optional<MdibVersion> getLastDeliveredMdibVersion() {
+        return Optional.ofNullable(lastDeliveredMdibVersion);
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    public long getCoalescedEvents() {
+        return coalescedEvents;
+    }
+
+    @Override
+    public String toString() {
+        return "EventQueueMetrics{"
+                + "queueDepth=" + queueDepth
+                + ", capacity=" + capacity
+                + ", lag=" + lag
+                + ", lastQueuedMdibVersion=" + lastQueuedMdibVersion
+                + ", lastDeliveredMdibVersion=" + lastDeliveredMdibVersion
+                + ", droppedEvents=" + droppedEvents
+                + ", coalescedEvents=" + coalescedEvents
+                + '}';
+    }
+}
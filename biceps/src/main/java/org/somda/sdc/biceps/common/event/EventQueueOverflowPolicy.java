@@ -0,0 +1,36 @@
+package org.somda.sdc.biceps.common.event;
+
+/**
+ * Determines how the {@linkplain Distributor} handles an observer's event queue that has reached its capacity.
+ *
+ * @see org.somda.sdc.biceps.common.CommonConfig#EVENT_QUEUE_OVERFLOW_POLICY
+ */
+public enum EventQueueOverflowPolicy {
+    /**
+     * The new event is queued anyway and the writing thread waits until the observer has processed enough events to
+     * be within capacity again.
+     * <p>
+     * No event is lost, but a slow observer slows down MDIB writes.
+     * The writing thread waits after it released the MDIB lock, hence observers can write to the MDIB from within
+     * their callbacks.
+     * Writes by observers themselves never wait, hence queues can exceed their capacity by the events of these writes
+     * and of concurrent writers.
+     */
+    BLOCK,
+
+    /**
+     * State modifications are merged into the most recently queued event if it is of the same type.
+     * <p>
+     * Per handle, only the latest state is delivered, which skips intermediate states of a slow observer.
+     * If the most recently queued event is of another type, the event is queued as with {@link #BLOCK}.
+     * Description modifications are never merged.
+     */
+    COALESCE,
+
+    /**
+     * The oldest queued event is discarded in favor of the new one.
+     * <p>
+     * Writes never wait, but a slow observer misses events.
+     */
+    DROP_OLDEST
+}
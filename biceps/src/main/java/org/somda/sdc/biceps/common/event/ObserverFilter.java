@@ -0,0 +1,134 @@
+package org.somda.sdc.biceps.common.event;
+
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Filter to limit the MDIB modification messages delivered to an observer.
+ * <p>
+ * A filter is a conjunction of criteria, whereby each criterion matches if any of its values matches:
+ * <ul>
+ * <li>handles match states by descriptor handle or multi-state handle and entities by descriptor handle,
+ * <li>descriptor types match entities by descriptor type and states by the corresponding state type,
+ * <li>subtrees match the entity or state of a handle and all of its descendants, e.g., an MDS and its content,
+ * <li>change types match state modification messages of the given {@linkplain MdibStateModifications.Type}s.
+ * </ul>
+ * Description modification messages are not subject to change types, i.e., they are delivered to any observer
+ * whose other criteria match an inserted, updated or deleted entity.
+ * <p>
+ * The filter is evaluated once on registration, hence changes after registration do not have any effect.
+ * The {@linkplain ObserverFilter} is a fluent interface.
+ *
+ * @see Distributor#registerObserver(Object, ObserverFilter)
+ */
+public class ObserverFilter {
+    private final Set<String> handles;
+    private final List<Class<? extends AbstractDescriptor>> descriptorTypes;
+    private final Set<String> subtreeHandles;
+    private final Set<MdibStateModifications.Type> changeTypes;
+
+    private ObserverFilter() {
+        this.handles = new HashSet<>();
+        this.descriptorTypes = new ArrayList<>();
+        this.subtreeHandles = new HashSet<>();
+        this.changeTypes = EnumSet.noneOf(MdibStateModifications.Type.class);
+    }
+
+    /**
+     * Creates a filter without criteria, which matches all messages.
+     *
+     * @return a new {@link ObserverFilter} instance.
+     */
+    public static ObserverFilter create() {
+        return new ObserverFilter();
+    }
+
+    /**
+     * Restricts messages to states and entities of given handles.
+     *
+     * @param handles descriptor or multi-state handles.
+     * @return this object for fluent access.
+     */
+    public ObserverFilter handles(String... handles) {
+        this.handles.addAll(Arrays.asList(handles));
+        return this;
+    }
+
+    /**
+     * Restricts messages to states and entities of given descriptor types.
+     *
+     * @param descriptorTypes descriptor types including their subtypes.
+     * @return this object for fluent access.
+     */
+    @SafeVarargs
+    public final ObserverFilter descriptorTypes(Class<? extends AbstractDescriptor>... descriptorTypes) {
+        this.descriptorTypes.addAll(Arrays.asList(descriptorTypes));
+        return this;
+    }
+
+    /**
+     * Restricts messages to states and entities of given subtrees.
+     *
+     * @param handles the descriptor handles of the subtree roots, e.g., MDS handles.
+     * @return this object for fluent access.
+     */
+    public ObserverFilter subtrees(String... handles) {
+        this.subtreeHandles.addAll(Arrays.asList(handles));
+        return this;
+    }
+
+    /**
+     * Restricts state modification messages to given change types.
+     *
+     * @param changeTypes the change types to deliver.
+     * @return this object for fluent access.
+     */
+    public ObserverFilter changeTypes(MdibStateModifications.Type... changeTypes) {
+        this.changeTypes.addAll(Arrays.asList(changeTypes));
+        return this;
+    }
+
+    /**
+     * Gets the handle criterion.
+     *
+     * @return the handles to match or an empty set if any handle matches.
+     */
+    public Set<String> getHandles() {
+        return Collections.unmodifiableSet(handles);
+    }
+
+    /**
+     * Gets the descriptor type criterion.
+     *
+     * @return the descriptor types to match or an empty list if any type matches.
+     */
+    public List<Class<? extends AbstractDescriptor>> getDescriptorTypes() {
+        return Collections.unmodifiableList(descriptorTypes);
+    }
+
+    /**
+     * Gets the subtree criterion.
+     *
+     * @return the handles of the subtree roots to match or an empty set if any subtree matches.
+     */
+    public Set<String> getSubtreeHandles() {
+        return Collections.unmodifiableSet(subtreeHandles);
+    }
+
+    /**
+     * Gets the change type criterion.
+     *
+     * @return the change types to match or an empty set if any change type matches.
+     */
+    public Set<MdibStateModifications.Type> getChangeTypes() {
+        return Collections.unmodifiableSet(changeTypes);
+    }
+}
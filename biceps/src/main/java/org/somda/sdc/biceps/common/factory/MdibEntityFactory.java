@@ -2,6 +2,8 @@ package org.somda.sdc.biceps.common.factory;
 
 import com.google.inject.Inject;
 import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.MdibEntityImpl;
+import org.somda.sdc.biceps.common.storage.helper.PersistentLinkedSet;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
@@ -49,7 +51,7 @@ public class MdibEntityFactory {
     public MdibEntity replaceDescriptorAndStates(MdibEntity mdibEntity,
                                                  AbstractDescriptor descriptor,
                                                  List<AbstractState> states) {
-        return factory.createMdibEntity(mdibEntity.getParent().orElse(null), mdibEntity.getChildren(),
+        return factory.createMdibEntity(mdibEntity.getParent().orElse(null), childrenOf(mdibEntity),
                 descriptor, states, mdibEntity.getLastChanged());
     }
 
@@ -76,4 +78,45 @@ public class MdibEntityFactory {
         return factory.createMdibEntity(mdibEntity.getParent().orElse(null), children,
                 mdibEntity.getDescriptor(), mdibEntity.getStates(), mdibEntity.getLastChanged());
     }
+
+    /**
+     * Takes an entity and appends a child.
+     * <p>
+     * In contrast to {@link #replaceChildren(MdibEntity, List)} the existing children are not copied.
+     *
+     * @param mdibEntity  the entity where a child handle is supposed to be appended.
+     * @param childHandle the child handle to append. If the handle is already a child, the order is not changed.
+     * @return an {@link MdibEntity} instance with the appended child.
+     */
+    public MdibEntity appendChild(MdibEntity mdibEntity, String childHandle) {
+        return factory.createMdibEntity(mdibEntity.getParent().orElse(null), childrenOf(mdibEntity).add(childHandle),
+                mdibEntity.getDescriptor(), mdibEntity.getStates(), mdibEntity.getLastChanged());
+    }
+
+    /**
+     * Takes an entity and removes a child.
+     * <p>
+     * In contrast to {@link #replaceChildren(MdibEntity, List)} the existing children are not copied.
+     *
+     * @param mdibEntity  the entity where a child handle is supposed to be removed.
+     * @param childHandle the child handle to remove.
+     * @return an {@link MdibEntity} instance without the child or {@code mdibEntity} if {@code childHandle} is not
+     * a child of {@code mdibEntity}.
+     */
+    public MdibEntity removeChild(MdibEntity mdibEntity, String childHandle) {
+        var children = childrenOf(mdibEntity);
+        var remainingChildren = children.remove(childHandle);
+        if (remainingChildren == children) {
+            return mdibEntity;
+        }
+        return factory.createMdibEntity(mdibEntity.getParent().orElse(null), remainingChildren,
+                mdibEntity.getDescriptor(), mdibEntity.getStates(), mdibEntity.getLastChanged());
+    }
+
+    private static PersistentLinkedSet<String> childrenOf(MdibEntity mdibEntity) {
+        if (mdibEntity instanceof MdibEntityImpl) {
+            return ((MdibEntityImpl) mdibEntity).getChildHandles();
+        }
+        return PersistentLinkedSet.copyOf(mdibEntity.getChildren());
+    }
 }
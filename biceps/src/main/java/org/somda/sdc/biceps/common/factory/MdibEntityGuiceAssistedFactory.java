@@ -2,6 +2,7 @@ package org.somda.sdc.biceps.common.factory;
 
 import com.google.inject.assistedinject.Assisted;
 import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.storage.helper.PersistentLinkedSet;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractState;
@@ -30,4 +31,20 @@ public interface MdibEntityGuiceAssistedFactory {
                                 @Assisted AbstractDescriptor descriptor,
                                 @Assisted("states") List<AbstractState> states,
                                 @Assisted MdibVersion mdibVersion);
+
+    /**
+     * Creates an MDIB entity based on all possible fields with children given as an ordered set.
+     *
+     * @param parent the parent of the entity.
+     * @param children the ordered set of child handles.
+     * @param descriptor the descriptor of the entity.
+     * @param states the states of the entity.
+     * @param mdibVersion the MDIB version of the entity.
+     * @return an {@link MdibEntity} instance.
+     */
+    MdibEntity createMdibEntity(@Assisted @Nullable String parent,
+                                @Assisted("children") PersistentLinkedSet<String> children,
+                                @Assisted AbstractDescriptor descriptor,
+                                @Assisted("states") List<AbstractState> states,
+                                @Assisted MdibVersion mdibVersion);
 }
@@ -17,6 +17,11 @@ import org.somda.sdc.biceps.model.participant.VmdDescriptor;
  */
 public class DescriptorChildRemover implements DescriptionPreprocessingSegment {
 
+    @Override
+    public boolean supportsParallelProcessing() {
+        return true;
+    }
+
     @Override
     public void process(MdibDescriptionModifications allModifications,
                         MdibDescriptionModification currentModification,
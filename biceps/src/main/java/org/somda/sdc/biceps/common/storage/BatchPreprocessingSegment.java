@@ -0,0 +1,25 @@
+package org.somda.sdc.biceps.common.storage;
+
+/**
+ * A preprocessing segment that is notified about batches of modification sets.
+ * <p>
+ * All modification sets of a batch are preprocessed before any of them is applied to the {@linkplain MdibStorage}.
+ * Segments that keep track of preprocessed modifications, e.g., latest versions, are supposed to retain the changes of
+ * a batch until {@link #afterBatch(boolean)} and drop them if the batch is not applied.
+ *
+ * @see MdibStoragePreprocessingChain#beforeBatch()
+ */
+public interface BatchPreprocessingSegment {
+    /**
+     * Function that is invoked before the first modification set of a batch is preprocessed.
+     */
+    void beforeBatch();
+
+    /**
+     * Function that is invoked after all modification sets of a batch have been preprocessed and applied, or after
+     * preprocessing of a modification set has failed.
+     *
+     * @param applied true if all modification sets have been applied, false if none of them has been applied.
+     */
+    void afterBatch(boolean applied);
+}
@@ -40,4 +40,24 @@ public interface DescriptionPreprocessingSegment {
     void process(MdibDescriptionModifications allModifications,
                  MdibDescriptionModification currentModification,
                  MdibStorage storage) throws Exception;
+
+    /**
+     * Checks if this segment can process the modifications of a change set in parallel.
+     * <p>
+     * If the {@linkplain MdibStoragePreprocessingChain} runs in bulk-load mode (see
+     * {@link org.somda.sdc.biceps.common.CommonConfig#PARALLEL_PREPROCESSING_THRESHOLD}), segments that support
+     * parallel processing are invoked concurrently for different modifications.
+     * Such segments process every modification independently of the others, do not add modifications and only
+     * read from the {@linkplain MdibStorage}.
+     * {@link #beforeFirstModification(MdibDescriptionModifications, MdibStorage)} and
+     * {@link #afterLastModification(MdibDescriptionModifications, MdibStorage)} are still invoked sequentially.
+     * <p>
+     * Default behavior is <em>no parallel processing</em>.
+     *
+     * @return true if {@link #process(MdibDescriptionModifications, MdibDescriptionModification, MdibStorage)} is
+     * thread-safe with respect to different modifications of the same change set, false otherwise.
+     */
+    default boolean supportsParallelProcessing() {
+        return false;
+    }
 }
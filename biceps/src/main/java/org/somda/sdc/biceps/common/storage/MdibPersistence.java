@@ -0,0 +1,742 @@
+package org.somda.sdc.biceps.common.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.common.CommonConstants;
+import org.somda.sdc.biceps.common.MdibDescriptionModification;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.common.logging.InstanceLogger;
+
+import javax.annotation.Nullable;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.transform.stream.StreamSource;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistence of the MDIB of a provider, which allows to restore the MDIB after a restart of the provider process.
+ * <p>
+ * An MDIB is persisted in the directory of {@link CommonConfig#MDIB_PERSISTENCE_DIRECTORY} by means of
+ * <ul>
+ * <li>a compact snapshot of all entities and versions, which is taken every
+ * {@link CommonConfig#MDIB_PERSISTENCE_SNAPSHOT_INTERVAL} records, and
+ * <li>an append-only log of the description and state modifications that have been applied to the
+ * {@linkplain MdibStorage} since the snapshot.
+ * </ul>
+ * Log records are forced to the storage device every {@link CommonConfig#MDIB_PERSISTENCE_SYNC_INTERVAL}, hence the
+ * records of the last interval can be lost on power failure, but not on a crash of the process.
+ * Snapshots are serialized while the MDIB write lock is held and written to disk in the background.
+ * <p>
+ * {@link #open(MdibStorage)} loads the snapshot and replays the log into an empty storage, which restores the MDIB
+ * including its MDIB version and sequence id.
+ * Replay ends with the first incomplete or corrupt record.
+ * Descriptors and states are persisted as XML of the participant model, hence extensions need to be either DOM
+ * elements or known to the participant model's JAXB context.
+ * <p>
+ * A directory must not be used by more than one MDIB at a time, which is enforced by a file lock that is held from
+ * {@link #open(MdibStorage)} until {@link #close()}.
+ */
+public class MdibPersistence {
+    private static final Logger LOG = LogManager.getLogger(MdibPersistence.class);
+
+    private static final String JAXB_CONTEXT_PATH =
+            "org.somda.sdc.biceps.model.extension:org.somda.sdc.biceps.model.participant";
+    private static final QName DESCRIPTOR_NAME = new QName(CommonConstants.NAMESPACE_PARTICIPANT, "Descriptor");
+    private static final QName STATE_NAME = new QName(CommonConstants.NAMESPACE_PARTICIPANT, "State");
+
+    private static final String SNAPSHOT_FILE = "mdib.snapshot";
+    private static final String SNAPSHOT_TEMP_FILE = "mdib.snapshot.tmp";
+    private static final String LOCK_FILE = "mdib.lock";
+    private static final String SEGMENT_PREFIX = "mdib-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int SNAPSHOT_MAGIC = 0x4d444942;
+    private static final int FORMAT_VERSION = 1;
+    private static final byte DESCRIPTION_RECORD = 1;
+    private static final byte STATE_RECORD = 2;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Logger instanceLogger;
+    private final Path directory;
+    private final int snapshotInterval;
+    private final Duration syncInterval;
+    private final JAXBContext jaxbContext;
+    private final ScheduledExecutorService executor;
+
+    private MdibStorage storage;
+    private boolean closed;
+    private FileChannel lockChannel;
+    private Marshaller marshaller;
+    private FileChannel segment;
+    private long segmentNumber;
+    private long sequenceNumber;
+    private int recordsSinceSnapshot;
+    private boolean unsynced;
+    private boolean snapshotRequired;
+
+    @Inject
+    MdibPersistence(@Named(CommonConfig.MDIB_PERSISTENCE_DIRECTORY) String directory,
+                    @Named(CommonConfig.MDIB_PERSISTENCE_SNAPSHOT_INTERVAL) Integer snapshotInterval,
+                    @Named(CommonConfig.MDIB_PERSISTENCE_SYNC_INTERVAL) Duration syncInterval,
+                    @Named(org.somda.sdc.common.CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier) {
+        this.instanceLogger = InstanceLogger.wrapLogger(LOG, frameworkIdentifier);
+        this.directory = directory.isEmpty() ? null : Paths.get(directory);
+        this.snapshotInterval = Math.max(1, snapshotInterval);
+        this.syncInterval = syncInterval;
+
+        if (this.directory == null) {
+            this.jaxbContext = null;
+            this.executor = null;
+            return;
+        }
+
+        try {
+            this.jaxbContext = JAXBContext.newInstance(JAXB_CONTEXT_PATH);
+        } catch (JAXBException e) {
+            throw new RuntimeException(String.format("JAXB context for '%s' could not be set up",
+                    JAXB_CONTEXT_PATH), e);
+        }
+        this.executor = isSynchronous()
+                ? null
+                : Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("MdibPersistence-thread-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Checks if MDIBs are persisted.
+     *
+     * @return true if {@link CommonConfig#MDIB_PERSISTENCE_DIRECTORY} is configured, false otherwise.
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Restores the persisted MDIB and starts to persist subsequent modifications.
+     * <p>
+     * If an MDIB could be restored, a new snapshot is taken right away in order to compact the log.
+     * Otherwise, all files of a previous MDIB are removed from the persistence directory.
+     * Errors are logged, and in case of an error while restoring the MDIB, the persistence starts with the MDIB as
+     * restored up to the error.
+     *
+     * @param storage an empty storage to restore the MDIB into and to take snapshots from, which is only supposed to
+     *                be written while the MDIB write lock is held.
+     * @return true if an MDIB has been restored into {@code storage}, false if the persistence is disabled or no
+     * MDIB has been persisted before.
+     * @throws IllegalStateException if the persistence directory is used by another MDIB or cannot be locked.
+     */
+    public synchronized boolean open(MdibStorage storage) {
+        if (!isEnabled() || this.storage != null || closed) {
+            return false;
+        }
+        lockDirectory();
+        this.storage = storage;
+
+        var restored = false;
+        try {
+            // new segments are numbered after all existing ones, which are hence never appended to
+            var segments = listSegments();
+            segmentNumber = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+            marshaller = jaxbContext.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            restored = restore(storage);
+            if (restored) {
+                var content = serializeSnapshot();
+                segmentNumber++;
+                writeSnapshot(content, segmentNumber);
+            } else {
+                deleteFiles(Long.MAX_VALUE);
+            }
+            openSegment();
+        } catch (IOException | JAXBException e) {
+            instanceLogger.error("MDIB persistence in {} could not be initialized, a snapshot is taken with the "
+                    + "next write", directory, e);
+            snapshotRequired = true;
+        }
+
+        if (executor != null) {
+            executor.scheduleWithFixedDelay(this::sync, syncInterval.toNanos(), syncInterval.toNanos(),
+                    TimeUnit.NANOSECONDS);
+        }
+        return restored;
+    }
+
+    /**
+     * Stops persisting modifications and releases the persistence directory.
+     * <p>
+     * Pending snapshots are written and the log is forced to the storage device before the directory is released,
+     * hence the directory can be opened by another MDIB afterwards.
+     * Subsequent modifications are not recorded.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            storage = null;
+            closeSegment();
+        }
+
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(CLOSE_TIMEOUT.toNanos(), TimeUnit.NANOSECONDS)) {
+                    instanceLogger.warn("MDIB snapshot could not be written to {} within {}", directory,
+                            CLOSE_TIMEOUT);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            if (lockChannel != null) {
+                try {
+                    // closing the channel releases the lock
+                    lockChannel.close();
+                } catch (IOException e) {
+                    instanceLogger.warn("MDIB persistence directory {} could not be unlocked", directory, e);
+                }
+                lockChannel = null;
+            }
+        }
+    }
+
+    /**
+     * Appends description modifications to the log.
+     * <p>
+     * Recording is done while the MDIB write lock is held and after the modifications have been applied to the
+     * storage passed to {@link #open(MdibStorage)}.
+     *
+     * @param mdibVersion              the applied MDIB version.
+     * @param mdDescriptionVersion     the applied MD description version or null if unchanged.
+     * @param mdStateVersion           the applied MD state version or null if unchanged.
+     * @param descriptionModifications the applied modifications.
+     */
+    public synchronized void record(MdibVersion mdibVersion,
+                                    @Nullable BigInteger mdDescriptionVersion,
+                                    @Nullable BigInteger mdStateVersion,
+                                    MdibDescriptionModifications descriptionModifications) {
+        append(out -> {
+            out.writeByte(DESCRIPTION_RECORD);
+            writeVersions(out, mdibVersion, mdDescriptionVersion, mdStateVersion);
+            out.writeInt(descriptionModifications.getModifications().size());
+            for (MdibDescriptionModification modification : descriptionModifications.getModifications()) {
+                out.writeUTF(modification.getModificationType().name());
+                writeEntity(out, modification.getParentHandle().orElse(null), modification.getDescriptor(),
+                        modification.getStates());
+            }
+        });
+    }
+
+    /**
+     * Appends state modifications to the log.
+     * <p>
+     * Recording is done while the MDIB write lock is held and after the modifications have been applied to the
+     * storage passed to {@link #open(MdibStorage)}.
+     *
+     * @param mdibVersion        the applied MDIB version.
+     * @param mdStateVersion     the applied MD state version or null if unchanged.
+     * @param stateModifications the applied modifications.
+     */
+    public synchronized void record(MdibVersion mdibVersion,
+                                    @Nullable BigInteger mdStateVersion,
+                                    MdibStateModifications stateModifications) {
+        append(out -> {
+            out.writeByte(STATE_RECORD);
+            writeVersions(out, mdibVersion, null, mdStateVersion);
+            out.writeUTF(stateModifications.getChangeType().name());
+            writeStates(out, stateModifications.getStates());
+        });
+    }
+
+    private void lockDirectory() {
+        FileLock lock;
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            try {
+                lock = lockChannel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // the lock is held by another MDIB of this process
+                lock = null;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(String.format("MDIB persistence directory %s could not be locked",
+                    directory), e);
+        }
+
+        if (lock == null) {
+            try {
+                lockChannel.close();
+            } catch (IOException e) {
+                instanceLogger.warn("Lock file in {} could not be closed", directory, e);
+            }
+            lockChannel = null;
+            throw new IllegalStateException(String.format("MDIB persistence directory %s is used by another MDIB",
+                    directory));
+        }
+    }
+
+    private boolean isSynchronous() {
+        return syncInterval.isZero() || syncInterval.isNegative();
+    }
+
+    private void append(RecordWriter recordWriter) {
+        if (storage == null) {
+            return;
+        }
+
+        sequenceNumber++;
+        recordsSinceSnapshot++;
+        if (!snapshotRequired) {
+            try {
+                var body = new ByteArrayOutputStream();
+                var out = new DataOutputStream(body);
+                out.writeLong(sequenceNumber);
+                recordWriter.write(out);
+                writeRecord(body.toByteArray());
+            } catch (IOException | JAXBException e) {
+                instanceLogger.error("MDIB modification could not be persisted, a snapshot is taken instead", e);
+                snapshotRequired = true;
+            }
+        }
+
+        if (snapshotRequired || recordsSinceSnapshot >= snapshotInterval) {
+            takeSnapshot();
+        }
+    }
+
+    private void writeRecord(byte[] body) throws IOException {
+        var record = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.length);
+        record.putInt(body.length);
+        record.putInt(checksum(body, 0, body.length));
+        record.put(body);
+        record.flip();
+        while (record.hasRemaining()) {
+            segment.write(record);
+        }
+
+        if (isSynchronous()) {
+            segment.force(false);
+        } else {
+            unsynced = true;
+        }
+    }
+
+    /*
+     * The snapshot is serialized in the calling thread as stored data may be modified by subsequent writes.
+     * Records after the snapshot go to a new segment, which allows to delete all previous segments once the snapshot
+     * has been written.
+     */
+    private void takeSnapshot() {
+        byte[] content;
+        try {
+            content = serializeSnapshot();
+            closeSegment();
+            segmentNumber++;
+            openSegment();
+        } catch (IOException | JAXBException e) {
+            instanceLogger.error("MDIB snapshot could not be taken", e);
+            snapshotRequired = true;
+            return;
+        }
+
+        snapshotRequired = false;
+        recordsSinceSnapshot = 0;
+        var firstRetainedSegment = segmentNumber;
+        if (executor == null) {
+            writeSnapshotAndLog(content, firstRetainedSegment);
+        } else {
+            executor.execute(() -> writeSnapshotAndLog(content, firstRetainedSegment));
+        }
+    }
+
+    private void writeSnapshotAndLog(byte[] content, long firstRetainedSegment) {
+        try {
+            writeSnapshot(content, firstRetainedSegment);
+        } catch (IOException e) {
+            instanceLogger.error("MDIB snapshot could not be written to {}, the log is retained", directory, e);
+        }
+    }
+
+    private void writeSnapshot(byte[] content, long firstRetainedSegment) throws IOException {
+        var tempFile = directory.resolve(SNAPSHOT_TEMP_FILE);
+        try (var channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            var buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tempFile, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE);
+        deleteFiles(firstRetainedSegment);
+    }
+
+    private synchronized void sync() {
+        if (!unsynced || segment == null) {
+            return;
+        }
+        try {
+            segment.force(false);
+            unsynced = false;
+        } catch (IOException e) {
+            instanceLogger.error("MDIB log could not be synchronized, a snapshot is taken with the next write", e);
+            snapshotRequired = true;
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segment = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            instanceLogger.warn("MDIB log segment could not be closed", e);
+        }
+        segment = null;
+        unsynced = false;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))
+                    .filter(number -> !number.isEmpty() && number.chars().allMatch(Character::isDigit))
+                    .map(Long::parseLong)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /*
+     * Deletes all segments with a number less than the given one; Long.MAX_VALUE deletes the snapshot as well.
+     */
+    private void deleteFiles(long firstRetainedSegment) throws IOException {
+        for (Long number : listSegments()) {
+            if (number < firstRetainedSegment) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+        if (firstRetainedSegment == Long.MAX_VALUE) {
+            Files.deleteIfExists(directory.resolve(SNAPSHOT_FILE));
+        }
+    }
+
+    private boolean restore(MdibStorage storage) throws IOException, JAXBException {
+        var unmarshaller = jaxbContext.createUnmarshaller();
+        var restored = false;
+
+        var snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshotFile)) {
+            var content = Files.readAllBytes(snapshotFile);
+            var bodyLength = content.length - Integer.BYTES;
+            if (bodyLength < 0 || checksum(content, 0, bodyLength) != ByteBuffer.wrap(content, bodyLength,
+                    Integer.BYTES).getInt()) {
+                throw new IOException(String.format("MDIB snapshot %s is corrupt", snapshotFile));
+            }
+
+            var in = new DataInputStream(new ByteArrayInputStream(content, 0, bodyLength));
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException(String.format("MDIB snapshot %s has an unknown format", snapshotFile));
+            }
+            sequenceNumber = in.readLong();
+            var versions = readVersions(in);
+            var modifications = MdibDescriptionModifications.create();
+            var entityCount = in.readInt();
+            for (int i = 0; i < entityCount; i++) {
+                modifications.add(readEntity(in, unmarshaller, MdibDescriptionModification.Type.INSERT));
+            }
+            storage.apply(versions.mdibVersion, versions.mdDescriptionVersion, versions.mdStateVersion,
+                    modifications);
+            restored = true;
+        }
+
+        for (Long number : listSegments()) {
+            var replay = replay(segmentPath(number), unmarshaller, storage);
+            restored |= replay.replayedRecords > 0;
+            if (replay.gap) {
+                instanceLogger.warn("MDIB log ends with a gap after record {}, later records are discarded",
+                        sequenceNumber);
+                break;
+            }
+        }
+        if (restored) {
+            instanceLogger.info("Restored MDIB version {} from {}", storage.getMdibVersion(), directory);
+        }
+        return restored;
+    }
+
+    private Replay replay(Path segmentPath, Unmarshaller unmarshaller, MdibStorage storage) throws IOException {
+        var replay = new Replay();
+        var remaining = Files.size(segmentPath);
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segmentPath)))) {
+            while (remaining >= RECORD_HEADER_SIZE) {
+                var length = in.readInt();
+                var checksum = in.readInt();
+                remaining -= RECORD_HEADER_SIZE;
+                if (length < 0 || length > remaining) {
+                    instanceLogger.warn("MDIB log segment {} ends with an incomplete record", segmentPath);
+                    return replay;
+                }
+                var body = in.readNBytes(length);
+                remaining -= length;
+                if (checksum(body, 0, length) != checksum) {
+                    instanceLogger.warn("MDIB log segment {} contains a corrupt record", segmentPath);
+                    return replay;
+                }
+
+                var record = new DataInputStream(new ByteArrayInputStream(body));
+                var recordSequenceNumber = record.readLong();
+                if (recordSequenceNumber <= sequenceNumber) {
+                    continue;
+                }
+                if (recordSequenceNumber != sequenceNumber + 1) {
+                    replay.gap = true;
+                    return replay;
+                }
+
+                try {
+                    replayRecord(record, unmarshaller, storage);
+                } catch (JAXBException | IOException e) {
+                    instanceLogger.warn("MDIB log segment {} contains an unreadable record", segmentPath, e);
+                    replay.gap = true;
+                    return replay;
+                }
+                sequenceNumber = recordSequenceNumber;
+                replay.replayedRecords++;
+            }
+        }
+        return replay;
+    }
+
+    private void replayRecord(DataInputStream in, Unmarshaller unmarshaller, MdibStorage storage)
+            throws IOException, JAXBException {
+        var recordType = in.readByte();
+        var versions = readVersions(in);
+        switch (recordType) {
+            case DESCRIPTION_RECORD:
+                var descriptionModifications = MdibDescriptionModifications.create();
+                var modificationCount = in.readInt();
+                for (int i = 0; i < modificationCount; i++) {
+                    var modificationType = MdibDescriptionModification.Type.valueOf(in.readUTF());
+                    descriptionModifications.add(readEntity(in, unmarshaller, modificationType));
+                }
+                storage.apply(versions.mdibVersion, versions.mdDescriptionVersion, versions.mdStateVersion,
+                        descriptionModifications);
+                break;
+            case STATE_RECORD:
+                var stateModifications = MdibStateModifications.create(
+                        MdibStateModifications.Type.valueOf(in.readUTF()));
+                stateModifications.addAll(readStates(in, unmarshaller));
+                storage.apply(versions.mdibVersion, versions.mdStateVersion, stateModifications);
+                break;
+            default:
+                throw new IOException(String.format("Unknown MDIB log record type %s", recordType));
+        }
+    }
+
+    private byte[] serializeSnapshot() throws IOException, JAXBException {
+        var entities = new ArrayList<MdibEntity>();
+        var pending = new ArrayDeque<>(storage.getRootEntities());
+        while (!pending.isEmpty()) {
+            // parents are written before their children in order to be restorable by a single insert modification
+            var entity = pending.pollFirst();
+            entities.add(entity);
+            for (String child : entity.getChildren()) {
+                storage.getEntity(child).ifPresent(pending::addLast);
+            }
+        }
+
+        var body = new ByteArrayOutputStream();
+        var out = new DataOutputStream(body);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(sequenceNumber);
+        writeVersions(out, storage.getMdibVersion(), storage.getMdDescriptionVersion(), storage.getMdStateVersion());
+        out.writeInt(entities.size());
+        for (MdibEntity entity : entities) {
+            writeEntity(out, entity.getParent().orElse(null), entity.getDescriptor(), entity.getStates());
+        }
+        out.writeInt(checksum(body.toByteArray(), 0, body.size()));
+        return body.toByteArray();
+    }
+
+    private void writeVersions(DataOutputStream out,
+                               MdibVersion mdibVersion,
+                               @Nullable BigInteger mdDescriptionVersion,
+                               @Nullable BigInteger mdStateVersion) throws IOException {
+        out.writeUTF(mdibVersion.getSequenceId());
+        writeBigInteger(out, mdibVersion.getVersion());
+        writeBigInteger(out, mdibVersion.getInstanceId());
+        writeBigInteger(out, mdDescriptionVersion);
+        writeBigInteger(out, mdStateVersion);
+    }
+
+    private Versions readVersions(DataInputStream in) throws IOException {
+        var sequenceId = in.readUTF();
+        var version = readBigInteger(in);
+        var instanceId = readBigInteger(in);
+        return new Versions(new MdibVersion(sequenceId, version, instanceId), readBigInteger(in), readBigInteger(in));
+    }
+
+    private void writeBigInteger(DataOutputStream out, @Nullable BigInteger value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    private BigInteger readBigInteger(DataInputStream in) throws IOException {
+        var length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    private void writeEntity(DataOutputStream out,
+                             @Nullable String parentHandle,
+                             AbstractDescriptor descriptor,
+                             List<? extends AbstractState> states) throws IOException, JAXBException {
+        out.writeBoolean(parentHandle != null);
+        if (parentHandle != null) {
+            out.writeUTF(parentHandle);
+        }
+        writeElement(out, new JAXBElement<>(DESCRIPTOR_NAME, AbstractDescriptor.class, descriptor));
+        writeStates(out, states);
+    }
+
+    private MdibDescriptionModification readEntity(DataInputStream in,
+                                                   Unmarshaller unmarshaller,
+                                                   MdibDescriptionModification.Type modificationType)
+            throws IOException, JAXBException {
+        var parentHandle = in.readBoolean() ? in.readUTF() : null;
+        var descriptor = readElement(in, unmarshaller, AbstractDescriptor.class);
+        return new MdibDescriptionModification(modificationType, descriptor, readStates(in, unmarshaller),
+                parentHandle);
+    }
+
+    private void writeStates(DataOutputStream out, List<? extends AbstractState> states)
+            throws IOException, JAXBException {
+        out.writeInt(states.size());
+        for (AbstractState state : states) {
+            writeElement(out, new JAXBElement<>(STATE_NAME, AbstractState.class, state));
+        }
+    }
+
+    private List<AbstractState> readStates(DataInputStream in, Unmarshaller unmarshaller)
+            throws IOException, JAXBException {
+        var stateCount = in.readInt();
+        var states = new ArrayList<AbstractState>(stateCount);
+        for (int i = 0; i < stateCount; i++) {
+            states.add(readElement(in, unmarshaller, AbstractState.class));
+        }
+        return states;
+    }
+
+    private void writeElement(DataOutputStream out, JAXBElement<?> element) throws IOException, JAXBException {
+        var xml = new ByteArrayOutputStream();
+        marshaller.marshal(element, xml);
+        out.writeInt(xml.size());
+        xml.writeTo(out);
+    }
+
+    private <T> T readElement(DataInputStream in, Unmarshaller unmarshaller, Class<T> type)
+            throws IOException, JAXBException {
+        var xml = new byte[in.readInt()];
+        in.readFully(xml);
+        return unmarshaller.unmarshal(new StreamSource(new ByteArrayInputStream(xml)), type).getValue();
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        var crc = new CRC32C();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException, JAXBException;
+    }
+
+    private static final class Versions {
+        private final MdibVersion mdibVersion;
+        private final BigInteger mdDescriptionVersion;
+        private final BigInteger mdStateVersion;
+
+        Versions(MdibVersion mdibVersion,
+                 @Nullable BigInteger mdDescriptionVersion,
+                 @Nullable BigInteger mdStateVersion) {
+            this.mdibVersion = mdibVersion;
+            this.mdDescriptionVersion = mdDescriptionVersion;
+            this.mdStateVersion = mdStateVersion;
+        }
+    }
+
+    private static final class Replay {
+        private int replayedRecords;
+        private boolean gap;
+    }
+}
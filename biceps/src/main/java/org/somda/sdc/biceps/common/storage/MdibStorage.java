@@ -4,6 +4,7 @@ import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.access.MdibAccess;
+import org.somda.sdc.biceps.common.access.MdibQuery;
 import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
 import org.somda.sdc.biceps.common.access.WriteStateResult;
 import org.somda.sdc.biceps.model.participant.AbstractContextState;
@@ -11,11 +12,13 @@ import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractMultiState;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
 
 import javax.annotation.Nullable;
 import java.math.BigInteger;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -56,6 +59,36 @@ public interface MdibStorage {
                            @Nullable BigInteger mdStateVersion,
                            MdibStateModifications stateModifications);
 
+    /**
+     * Applies several modifications as one unit.
+     * <p>
+     * All apply functions invoked by {@code operation} appear as a single write to snapshot readers, i.e., a storage
+     * that publishes snapshots publishes one snapshot after {@code operation} has returned or failed.
+     * Default behavior is to run the operation as is.
+     *
+     * @param operation the operation that applies the modifications.
+     * @param <T>       the result type of the operation.
+     * @return the result of the operation.
+     * @throws PreprocessingException if thrown by the operation.
+     */
+    default <T> T applyBatch(BatchOperation<T> operation) throws PreprocessingException {
+        return operation.run();
+    }
+
+    /**
+     * Gets the latest published read-only snapshot of this storage.
+     * <p>
+     * A snapshot reflects the storage as it was after the last completed write and is never changed afterwards.
+     * Hence, snapshots can be read without any locking.
+     * Default behavior is <em>no snapshot support</em>.
+     *
+     * @return the latest snapshot or {@linkplain Optional#empty()} if this storage does not publish snapshots.
+     * @see org.somda.sdc.biceps.common.CommonConfig#MDIB_STORAGE_SNAPSHOTS
+     */
+    default Optional<MdibStorage> getSnapshot() {
+        return Optional.empty();
+    }
+
     /**
      * The latest known MDIB version.
      *
@@ -117,6 +150,15 @@ public interface MdibStorage {
      */
     <T extends AbstractDescriptor> Collection<MdibEntity> findEntitiesByType(Class<T> type);
 
+    /**
+     * Searches all entities that match a query.
+     *
+     * @param query the query to evaluate.
+     * @return all entities that match {@code query} in unspecified order.
+     * @see MdibAccess#findEntities(MdibQuery)
+     */
+    List<MdibEntity> findEntities(MdibQuery query);
+
     /**
      * Resolves the children of a specific type given a parent handle.
      *
@@ -127,6 +169,16 @@ public interface MdibStorage {
      */
     <T extends AbstractDescriptor> List<MdibEntity> getChildrenByType(String handle, Class<T> type);
 
+    /**
+     * Resolves the handles of all ancestors of an entity.
+     *
+     * @param handle the descriptor handle of the entity.
+     * @return the ancestor handles starting with the parent and ending with the MDS, or an empty list if {@code handle}
+     * refers to an MDS or does not exist.
+     * @see MdibAccess#getAncestorHandles(String)
+     */
+    List<String> getAncestorHandles(String handle);
+
     /**
      * Gets all {@link MdibEntity} objects that are root elements.
      *
@@ -211,4 +263,75 @@ public interface MdibStorage {
      * @return a list of all context states with the given type.
      */
     <T extends AbstractContextState> List<T> findContextStatesByType(Class<T> stateClass);
+
+    /**
+     * Retrieves a state as it was present at a given MDIB version.
+     * <p>
+     * States are looked up in the {@linkplain StateHistory}, hence this function requires
+     * {@link org.somda.sdc.biceps.common.CommonConfig#STATE_HISTORY_CAPACITY} to be greater than 0.
+     * Snapshots look up versions that are newer than their MDIB version as of their MDIB version.
+     *
+     * @param handle      the state or descriptor handle of the state to request (descriptor handle is used in case of
+     *                    single states).
+     * @param mdibVersion the MDIB version to look up.
+     * @return {@link Optional} of the state as of {@code mdibVersion} or {@link Optional#empty()} if the state did not
+     * exist at that version or is not retained by the state history.
+     */
+    Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion);
+
+    /**
+     * Retrieves a set of states as they were present at a given MDIB version.
+     *
+     * @param handles     the state or descriptor handles of the states to request (descriptor handles are used in case
+     *                    of single states).
+     * @param mdibVersion the MDIB version to look up.
+     * @return a map of handles to states as of {@code mdibVersion}, which omits handles that
+     * {@link #getStateAt(String, MdibVersion)} does not find a state for.
+     */
+    Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion);
+
+    /**
+     * Retrieves a read view of the newest samples of a waveform.
+     * <p>
+     * Samples are looked up in the {@linkplain WaveformStore}, hence this function requires
+     * {@link org.somda.sdc.biceps.common.CommonConfig#WAVEFORM_STORE_DURATION} to be greater than zero.
+     * Snapshots view the newest samples as of their MDIB version.
+     *
+     * @param handle   the descriptor handle of the waveform.
+     * @param maxCount the maximum number of samples to view.
+     * @return {@link Optional} of a view of the newest samples or {@link Optional#empty()} if no samples have been
+     * recorded for {@code handle}.
+     */
+    Optional<WaveformSamples> getWaveformSamples(String handle, int maxCount);
+
+    /**
+     * Retrieves a waveform state that contains the newest samples of a waveform.
+     * <p>
+     * Samples are looked up in the {@linkplain WaveformStore}, hence this function requires
+     * {@link org.somda.sdc.biceps.common.CommonConfig#WAVEFORM_STORE_DURATION} to be greater than zero.
+     * Snapshots include the newest samples as of their MDIB version.
+     *
+     * @param handle   the descriptor handle of the waveform.
+     * @param maxCount the maximum number of samples to include.
+     * @return {@link Optional} of a new waveform state or {@link Optional#empty()} if no samples have been recorded for
+     * {@code handle}.
+     */
+    Optional<RealTimeSampleArrayMetricState> getWaveformState(String handle, int maxCount);
+
+    /**
+     * Operation that invokes several apply functions of an {@linkplain MdibStorage}.
+     *
+     * @param <T> the result type.
+     * @see #applyBatch(BatchOperation)
+     */
+    @FunctionalInterface
+    interface BatchOperation<T> {
+        /**
+         * Runs the operation.
+         *
+         * @return the result of the operation.
+         * @throws PreprocessingException if preprocessing of a modification fails.
+         */
+        T run() throws PreprocessingException;
+    }
 }
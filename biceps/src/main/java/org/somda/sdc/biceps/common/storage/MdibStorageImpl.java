@@ -5,15 +5,21 @@ import com.google.inject.assistedinject.AssistedInject;
 import com.google.inject.name.Named;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.somda.sdc.biceps.common.HandleInterner;
 import org.somda.sdc.biceps.common.MdibDescriptionModification;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.common.access.MdibQuery;
 import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
 import org.somda.sdc.biceps.common.access.WriteStateResult;
 import org.somda.sdc.biceps.common.factory.MdibEntityFactory;
+import org.somda.sdc.biceps.common.storage.helper.AttributeIndex;
+import org.somda.sdc.biceps.common.storage.helper.AttributeKeys;
 import org.somda.sdc.biceps.common.storage.helper.MdibStorageUtil;
+import org.somda.sdc.biceps.common.storage.helper.PersistentMap;
+import org.somda.sdc.biceps.common.storage.helper.TypeIndex;
 import org.somda.sdc.biceps.model.participant.AbstractContextDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractContextState;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
@@ -21,8 +27,11 @@ import org.somda.sdc.biceps.model.participant.AbstractMultiState;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.ContextAssociation;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
 import org.somda.sdc.common.CommonConfig;
 import org.somda.sdc.common.logging.InstanceLogger;
+import org.somda.sdc.common.util.Freezable;
 
 import javax.annotation.Nullable;
 import java.lang.reflect.InvocationTargetException;
@@ -31,14 +40,36 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * Default implementation of {@linkplain MdibStorage}.
+ * <p>
+ * Entities and context states are additionally indexed by type, hence type queries like
+ * {@link #findEntitiesByType(Class)} only cost time in proportion to the result size.
+ * Entities are also indexed by the descriptor attributes listed in {@linkplain AttributeKeys}, which serves
+ * {@link #findEntities(MdibQuery)}.
+ * Moreover, the ancestor handles of every entity are retained to serve {@link #getAncestorHandles(String)}.
+ * Attribute and ancestor indexes are only updated on description changes, hence state updates do not entail index
+ * maintenance.
+ * <p>
+ * If {@link org.somda.sdc.biceps.common.CommonConfig#FREEZE_MDIB_DATA} is enabled, all descriptors and states are
+ * frozen once they are applied.
+ * <p>
+ * If {@link org.somda.sdc.biceps.common.CommonConfig#STATE_HISTORY_CAPACITY} is greater than 0, all written states are
+ * recorded in a {@linkplain StateHistory} that serves {@link #getStateAt(String, MdibVersion)}.
+ * <p>
+ * If {@link org.somda.sdc.biceps.common.CommonConfig#INTERN_HANDLES} is enabled, the handles of all descriptors and
+ * states are interned before they are stored.
+ * <p>
+ * If {@link org.somda.sdc.biceps.common.CommonConfig#WAVEFORM_STORE_DURATION} is greater than zero, the samples of all
+ * written waveform states are moved to a {@linkplain WaveformStore}, which the stored states read their samples from.
  */
 public class MdibStorageImpl implements MdibStorage {
     private static final Logger LOG = LogManager.getLogger(MdibStorageImpl.class);
@@ -46,9 +77,14 @@ public class MdibStorageImpl implements MdibStorage {
     private final MdibEntityFactory entityFactory;
     private final MdibStorageUtil util;
     private final MdibTypeValidator typeValidator;
+    private final StateHistory stateHistory;
+    private final HandleInterner handleInterner;
+    private final WaveformStore waveformStore;
     private final Logger instanceLogger;
     private final Boolean storeNotAssociatedContextStates;
     private final Boolean allowStatesWithoutDescriptors;
+    private final Boolean snapshotsEnabled;
+    private final Boolean freezeData;
 
     private MdibVersion mdibVersion;
     private BigInteger mdDescriptionVersion;
@@ -57,22 +93,43 @@ public class MdibStorageImpl implements MdibStorage {
     private Map<String, MdibEntity> entities;
     private ArrayList<String> rootEntities;
     private Map<String, AbstractContextState> contextStates;
-
+    private Map<String, Set<String>> contextStatesByDescriptor;
+    private TypeIndex entityTypes;
+    private AttributeIndex entityAttributes;
+    private PersistentMap<String, List<String>> entityAncestors;
+    private TypeIndex contextStateTypes;
+
+    private final Set<String> changedEntities;
+    private final Set<String> changedContextStates;
+    private boolean rootEntitiesChanged;
+    private PersistentMap<String, MdibEntity> snapshotEntities;
+    private List<String> snapshotRootEntities;
+    private PersistentMap<String, AbstractContextState> snapshotContextStates;
+    private volatile MdibStorageSnapshot snapshot;
+    private int batchDepth;
 
     @AssistedInject
     MdibStorageImpl(MdibEntityFactory entityFactory,
                     MdibStorageUtil util,
                     MdibTypeValidator typeValidator,
+                    StateHistory stateHistory,
+                    HandleInterner handleInterner,
+                    WaveformStore waveformStore,
                     @Named(CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier,
                     @Named(org.somda.sdc.biceps.common.CommonConfig.STORE_NOT_ASSOCIATED_CONTEXT_STATES)
                             Boolean storeNotAssociatedContextStates,
                     @Named(org.somda.sdc.biceps.common.CommonConfig.ALLOW_STATES_WITHOUT_DESCRIPTORS)
-                            Boolean allowStatesWithoutDescriptors) {
+                            Boolean allowStatesWithoutDescriptors,
+                    @Named(org.somda.sdc.biceps.common.CommonConfig.MDIB_STORAGE_SNAPSHOTS)
+                            Boolean snapshotsEnabled,
+                    @Named(org.somda.sdc.biceps.common.CommonConfig.FREEZE_MDIB_DATA)
+                            Boolean freezeData) {
         this(
                 MdibVersion.create(), BigInteger.valueOf(-1),
                 BigInteger.valueOf(-1), entityFactory, util,
-                typeValidator, frameworkIdentifier,
-                storeNotAssociatedContextStates, allowStatesWithoutDescriptors
+                typeValidator, stateHistory, handleInterner, waveformStore, frameworkIdentifier,
+                storeNotAssociatedContextStates, allowStatesWithoutDescriptors,
+                snapshotsEnabled, freezeData
         );
     }
 
@@ -81,16 +138,24 @@ public class MdibStorageImpl implements MdibStorage {
                     MdibEntityFactory entityFactory,
                     MdibStorageUtil util,
                     MdibTypeValidator typeValidator,
+                    StateHistory stateHistory,
+                    HandleInterner handleInterner,
+                    WaveformStore waveformStore,
                     @Named(CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier,
                     @Named(org.somda.sdc.biceps.common.CommonConfig.STORE_NOT_ASSOCIATED_CONTEXT_STATES)
                             Boolean storeNotAssociatedContextStates,
                     @Named(org.somda.sdc.biceps.common.CommonConfig.ALLOW_STATES_WITHOUT_DESCRIPTORS)
-                            Boolean allowStatesWithoutDescriptors) {
+                            Boolean allowStatesWithoutDescriptors,
+                    @Named(org.somda.sdc.biceps.common.CommonConfig.MDIB_STORAGE_SNAPSHOTS)
+                            Boolean snapshotsEnabled,
+                    @Named(org.somda.sdc.biceps.common.CommonConfig.FREEZE_MDIB_DATA)
+                            Boolean freezeData) {
         this(
                 initialMdibVersion, BigInteger.valueOf(-1),
                 BigInteger.valueOf(-1), entityFactory, util,
-                typeValidator, frameworkIdentifier,
-                storeNotAssociatedContextStates, allowStatesWithoutDescriptors
+                typeValidator, stateHistory, handleInterner, waveformStore, frameworkIdentifier,
+                storeNotAssociatedContextStates, allowStatesWithoutDescriptors,
+                snapshotsEnabled, freezeData
         );
     }
 
@@ -101,11 +166,18 @@ public class MdibStorageImpl implements MdibStorage {
                     MdibEntityFactory entityFactory,
                     MdibStorageUtil util,
                     MdibTypeValidator typeValidator,
+                    StateHistory stateHistory,
+                    HandleInterner handleInterner,
+                    WaveformStore waveformStore,
                     @Named(CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier,
                     @Named(org.somda.sdc.biceps.common.CommonConfig.STORE_NOT_ASSOCIATED_CONTEXT_STATES)
                             Boolean storeNotAssociatedContextStates,
                     @Named(org.somda.sdc.biceps.common.CommonConfig.ALLOW_STATES_WITHOUT_DESCRIPTORS)
-                            Boolean allowStatesWithoutDescriptors) {
+                            Boolean allowStatesWithoutDescriptors,
+                    @Named(org.somda.sdc.biceps.common.CommonConfig.MDIB_STORAGE_SNAPSHOTS)
+                            Boolean snapshotsEnabled,
+                    @Named(org.somda.sdc.biceps.common.CommonConfig.FREEZE_MDIB_DATA)
+                            Boolean freezeData) {
         this.instanceLogger = InstanceLogger.wrapLogger(LOG, frameworkIdentifier);
         this.mdibVersion = initialMdibVersion;
         this.mdDescriptionVersion = mdDescriptionVersion;
@@ -113,12 +185,29 @@ public class MdibStorageImpl implements MdibStorage {
         this.entityFactory = entityFactory;
         this.util = util;
         this.typeValidator = typeValidator;
+        this.stateHistory = stateHistory;
+        this.handleInterner = handleInterner;
+        this.waveformStore = waveformStore;
         this.storeNotAssociatedContextStates = storeNotAssociatedContextStates;
         this.allowStatesWithoutDescriptors = allowStatesWithoutDescriptors;
+        this.snapshotsEnabled = snapshotsEnabled;
+        this.freezeData = freezeData;
 
         this.entities = new HashMap<>();
         this.rootEntities = new ArrayList<>();
         this.contextStates = new HashMap<>();
+        this.contextStatesByDescriptor = new HashMap<>();
+        this.entityTypes = TypeIndex.empty();
+        this.entityAttributes = AttributeIndex.empty();
+        this.entityAncestors = PersistentMap.empty();
+        this.contextStateTypes = TypeIndex.empty();
+
+        this.changedEntities = new HashSet<>();
+        this.changedContextStates = new HashSet<>();
+        this.snapshotEntities = PersistentMap.empty();
+        this.snapshotRootEntities = Collections.emptyList();
+        this.snapshotContextStates = PersistentMap.empty();
+        publishSnapshot();
     }
 
     public <T extends AbstractDescriptor> Optional<T> getDescriptor(String handle, Class<T> descrClass) {
@@ -140,15 +229,16 @@ public class MdibStorageImpl implements MdibStorage {
 
     @Override
     public <T extends AbstractDescriptor> Collection<MdibEntity> findEntitiesByType(Class<T> type) {
-        List<MdibEntity> result = new ArrayList<>();
-        for (MdibEntity entity : entities.values()) {
-            if (type.isAssignableFrom(entity.getDescriptor().getClass())) {
-                result.add(entity);
-            }
-        }
+        List<MdibEntity> result = new ArrayList<>(entityTypes.count(type));
+        entityTypes.forEachHandle(type, handle -> result.add(entities.get(handle)));
         return result;
     }
 
+    @Override
+    public List<MdibEntity> findEntities(MdibQuery query) {
+        return util.findEntities(query, entityTypes, entityAttributes, entities::get, entities::values);
+    }
+
     @Override
     public <T extends AbstractDescriptor> List<MdibEntity> getChildrenByType(String handle, Class<T> type) {
         final List<MdibEntity> result = new ArrayList<>();
@@ -169,6 +259,12 @@ public class MdibStorageImpl implements MdibStorage {
         return result;
     }
 
+    @Override
+    public List<String> getAncestorHandles(String handle) {
+        var ancestorHandles = entityAncestors.get(handle);
+        return ancestorHandles == null ? Collections.emptyList() : ancestorHandles;
+    }
+
     public List<MdibEntity> getRootEntities() {
         return util.exposeEntityList(entities, rootEntities);
     }
@@ -188,14 +284,12 @@ public class MdibStorageImpl implements MdibStorage {
 
     @Override
     public <T extends AbstractState> List<T> getStatesByType(Class<T> stateClass) {
-        var result = new ArrayList<T>();
-        for (MdibEntity entity : entities.values()) {
-            entity.getStates().forEach(state -> {
-                if (stateClass.isAssignableFrom(state.getClass())) {
-                    result.add(stateClass.cast(state));
-                }
-            });
-        }
+        var result = new ArrayList<T>(entityTypes.count(stateClass));
+        entityTypes.forEachHandle(stateClass, handle -> entities.get(handle).getStates().forEach(state -> {
+            if (stateClass.isAssignableFrom(state.getClass())) {
+                result.add(stateClass.cast(state));
+            }
+        }));
         return result;
     }
 
@@ -233,15 +327,31 @@ public class MdibStorageImpl implements MdibStorage {
 
     @Override
     public <T extends AbstractContextState> List<T> findContextStatesByType(Class<T> stateClass) {
-        var result = new ArrayList<T>();
-        contextStates.forEach((handle, state) -> {
-            if (stateClass.isAssignableFrom(state.getClass())) {
-                result.add(stateClass.cast(state));
-            }
-        });
+        var result = new ArrayList<T>(contextStateTypes.count(stateClass));
+        contextStateTypes.forEachHandle(stateClass, handle -> result.add(stateClass.cast(contextStates.get(handle))));
         return result;
     }
 
+    @Override
+    public Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion) {
+        return stateHistory.getStateAt(handle, mdibVersion);
+    }
+
+    @Override
+    public Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion) {
+        return stateHistory.getStatesAt(handles, mdibVersion);
+    }
+
+    @Override
+    public Optional<WaveformSamples> getWaveformSamples(String handle, int maxCount) {
+        return waveformStore.getSamples(handle, maxCount);
+    }
+
+    @Override
+    public Optional<RealTimeSampleArrayMetricState> getWaveformState(String handle, int maxCount) {
+        return waveformStore.getState(handle, maxCount);
+    }
+
     @Override
     public WriteDescriptionResult apply(MdibVersion mdibVersion,
                                         @Nullable BigInteger mdDescriptionVersion,
@@ -249,14 +359,16 @@ public class MdibStorageImpl implements MdibStorage {
                                         MdibDescriptionModifications descriptionModifications) {
         this.mdibVersion = mdibVersion;
         Optional.ofNullable(mdDescriptionVersion).ifPresent(version -> this.mdDescriptionVersion = version);
-        Optional.ofNullable(mdDescriptionVersion).ifPresent(version -> this.mdStateVersion = version);
+        Optional.ofNullable(mdStateVersion).ifPresent(version -> this.mdStateVersion = version);
 
         final List<MdibEntity> insertedEntities = new ArrayList<>();
         final List<MdibEntity> updatedEntities = new ArrayList<>();
         final List<MdibEntity> deletedEntities = new ArrayList<>();
 
-        var updatedParentEntitiesDueToInsert = new ArrayList<String>();
+        var updatedParentEntitiesDueToInsert = new LinkedHashSet<String>();
         for (var modification : descriptionModifications.getModifications()) {
+            handleInterner.intern(modification.getDescriptor());
+            modification.getStates().forEach(handleInterner::intern);
             var sanitizedStates = removeNotAssociatedContextStates(modification.getStates());
             switch (modification.getModificationType()) {
                 case INSERT:
@@ -274,17 +386,26 @@ public class MdibStorageImpl implements MdibStorage {
                                     + " Skip entry while description modification processing."
                     );
             }
+            // freeze after recording as recording moves waveform samples
+            freezeIfConfigured(modification.getDescriptor());
+            modification.getStates().forEach(this::freezeIfConfigured);
         }
 
         // Add updated parent entities to updatedEntities in case they are not part of the updatedEntities
         // or insertedEntities list already
-        for (var handle : updatedParentEntitiesDueToInsert) {
-            if (updatedEntities.stream().noneMatch(mdibEntity -> handle.equals(mdibEntity.getHandle())) &&
-                    insertedEntities.stream().noneMatch(mdibEntity -> handle.equals(mdibEntity.getHandle()))) {
+        if (!updatedParentEntitiesDueToInsert.isEmpty()) {
+            for (var mdibEntity : updatedEntities) {
+                updatedParentEntitiesDueToInsert.remove(mdibEntity.getHandle());
+            }
+            for (var mdibEntity : insertedEntities) {
+                updatedParentEntitiesDueToInsert.remove(mdibEntity.getHandle());
+            }
+            for (var handle : updatedParentEntitiesDueToInsert) {
                 updatedEntities.add(Optional.ofNullable(entities.get(handle)).orElseThrow());
             }
         }
 
+        publishSnapshot();
         return new WriteDescriptionResult(mdibVersion, insertedEntities, updatedEntities, deletedEntities);
     }
 
@@ -310,15 +431,11 @@ public class MdibStorageImpl implements MdibStorage {
             );
             mdibEntity.getParent().ifPresent(parentHandle ->
                     Optional.ofNullable(entities.get(parentHandle)).ifPresent(parentEntity -> {
-                        var updatedParent = entityFactory.replaceChildren(parentEntity,
-                                parentEntity.getChildren().stream()
-                                        // filter out the removed entity only
-                                        .filter(s -> !s.equals(mdibEntity.getHandle()))
-                                        .collect(Collectors.toList()));
+                        var updatedParent = entityFactory.removeChild(parentEntity, mdibEntity.getHandle());
 
-                        entities.put(updatedParent.getHandle(), updatedParent);
                         // if the child was found and removed - add parent to the updated entities list
-                        if (parentEntity.getChildren().size() != updatedParent.getChildren().size()) {
+                        if (updatedParent != parentEntity) {
+                            putEntity(updatedParent);
                             updatedEntities.add(updatedParent);
                         }
                     })
@@ -334,10 +451,14 @@ public class MdibStorageImpl implements MdibStorage {
             return;
         }
 
-        rootEntities.remove(modification.getHandle());
-        entities.remove(modification.getHandle());
-        contextStates.entrySet().removeIf(state ->
-                state.getValue().getDescriptorHandle().equals(modification.getHandle()));
+        rootEntitiesChanged |= rootEntities.remove(modification.getHandle());
+        removeEntity(modification.getHandle());
+        stateHistory.recordRemoval(mdibVersion, modification.getHandle());
+        waveformStore.remove(modification.getHandle());
+        var contextStateHandles = contextStatesByDescriptor.get(modification.getHandle());
+        if (contextStateHandles != null) {
+            new ArrayList<>(contextStateHandles).forEach(this::removeContextState);
+        }
 
         deletedEntities.add(deletedEntity);
     }
@@ -349,16 +470,19 @@ public class MdibStorageImpl implements MdibStorage {
         Optional.ofNullable(entities.get(modification.getHandle())).ifPresent(mdibEntity -> {
             instanceLogger.debug("[{}] Update entity: {}", mdibVersion.getInstanceId(), modification.getDescriptor());
 
-            entities.put(mdibEntity.getHandle(), entityFactory.replaceDescriptorAndStates(
+            putEntity(entityFactory.replaceDescriptorAndStates(
                     mdibEntity,
                     modification.getDescriptor(),
                     sanitizedStates));
+            indexAttributes(modification.getDescriptor(), mdibEntity.getParent().orElse(null));
 
             updatedEntities.add(entityFactory.replaceDescriptorAndStates(
                     mdibEntity,
                     modification.getDescriptor(),
                     modification.getStates()));
 
+            recordSingleStates(modification.getDescriptor(), sanitizedStates);
+
             updateContextStatesMap(modification.getStates());
         });
     }
@@ -371,9 +495,9 @@ public class MdibStorageImpl implements MdibStorage {
             }
 
             if (!storeNotAssociatedContextStates && getNotAssociatedContextState(state).isPresent()) {
-                contextStates.remove(contextState.get().getHandle());
+                removeContextState(contextState.get().getHandle());
             } else {
-                contextStates.put(contextState.get().getHandle(), contextState.get());
+                putContextState(contextState.get());
             }
         }
     }
@@ -381,9 +505,9 @@ public class MdibStorageImpl implements MdibStorage {
     private void insertEntity(MdibDescriptionModification modification,
                               List<AbstractState> sanitizedStates,
                               List<MdibEntity> insertedEntities,
-                              List<String> updatedEntityHandles) {
+                              Set<String> updatedEntityHandles) {
         var mdibEntityForStorage = entityFactory.createMdibEntity(
-                modification.getParentHandle().orElse(null),
+                handleInterner.intern(modification.getParentHandle().orElse(null)),
                 new ArrayList<>(),
                 modification.getDescriptor(),
                 sanitizedStates,
@@ -399,19 +523,18 @@ public class MdibStorageImpl implements MdibStorage {
         // Either add entity as child of a parent or expect it to be a root entity
         if (modification.getParentHandle().isPresent()) {
             Optional.ofNullable(entities.get(modification.getParentHandle().get())).ifPresent(parentEntity -> {
-                var children = new ArrayList<>(parentEntity.getChildren());
-                children.add(mdibEntityForStorage.getHandle());
-
-                entities.put(parentEntity.getHandle(),
-                        entityFactory.replaceChildren(parentEntity, Collections.unmodifiableList(children)));
+                putEntity(entityFactory.appendChild(parentEntity, mdibEntityForStorage.getHandle()));
                 updatedEntityHandles.add(parentEntity.getHandle());
             });
         } else {
             rootEntities.add(mdibEntityForStorage.getHandle());
+            rootEntitiesChanged = true;
         }
 
         // Add to entities list
-        entities.put(mdibEntityForStorage.getHandle(), mdibEntityForStorage);
+        putEntity(mdibEntityForStorage);
+        indexAttributes(modification.getDescriptor(), mdibEntityForStorage.getParent().orElse(null));
+        recordSingleStates(modification.getDescriptor(), sanitizedStates);
 
         instanceLogger.debug(
                 "[{}] Insert entity: {}",
@@ -420,9 +543,9 @@ public class MdibStorageImpl implements MdibStorage {
 
         // Add to context states if context entity
         if (mdibEntityForStorage.getDescriptor() instanceof AbstractContextDescriptor) {
-            contextStates.putAll(mdibEntityForStorage.getStates().stream()
+            mdibEntityForStorage.getStates().stream()
                     .map(AbstractContextState.class::cast)
-                    .collect(Collectors.toMap(AbstractMultiState::getHandle, state -> state)));
+                    .forEach(this::putContextState);
         }
 
         insertedEntities.add(mdibEntityForResultSet);
@@ -439,13 +562,19 @@ public class MdibStorageImpl implements MdibStorage {
 
         final List<AbstractState> modifiedStates = new ArrayList<>();
         for (AbstractState modification : stateModifications.getStates()) {
+            handleInterner.intern(modification);
+            final MdibEntity mdibEntity = entities.get(modification.getDescriptorHandle());
+            if (mdibEntity != null) {
+                // moves the samples before the state is frozen
+                recordWaveform(mdibEntity.getDescriptor(), modification);
+            }
+            freezeIfConfigured(modification);
             if (instanceLogger.isDebugEnabled()) {
                 instanceLogger.debug("[{}] Update state: {}", mdibVersion.getSequenceId(), modification);
             }
 
             modifiedStates.add(modification);
 
-            final MdibEntity mdibEntity = entities.get(modification.getDescriptorHandle());
             if (mdibEntity == null) {
                 // Do not store context states when not associated
                 if (!storeNotAssociatedContextStates) {
@@ -497,8 +626,9 @@ public class MdibStorageImpl implements MdibStorage {
             } else {
                 mdibEntity
                         .doIfSingleState(state -> {
-                            entities.put(mdibEntity.getHandle(),
-                                    entityFactory.replaceStates(mdibEntity, Collections.singletonList(modification)));
+                            putEntity(entityFactory.replaceStates(mdibEntity,
+                                    Collections.singletonList(modification)));
+                            stateHistory.record(mdibVersion, modification);
                         })
                         .orElse(states -> {
                             var modificationAsMultiState = typeValidator.toMultiState(modification).orElseThrow(() ->
@@ -520,7 +650,7 @@ public class MdibStorageImpl implements MdibStorage {
                                                         + " refuse storage in MDIB",
                                                 modificationAsMultiState.getHandle()
                                         );
-                                        contextStates.remove(multiState.getHandle());
+                                        removeContextState(multiState.getHandle());
                                     } else {
                                         instanceLogger.debug(
                                                 "Replacing already present multi-state {}",
@@ -539,14 +669,12 @@ public class MdibStorageImpl implements MdibStorage {
                                 newStates.add(modificationAsMultiState);
                             }
 
-                            entities.put(mdibEntity.getHandle(), entityFactory.replaceStates(mdibEntity,
+                            putEntity(entityFactory.replaceStates(mdibEntity,
                                     Collections.unmodifiableList(newStates)));
                             newStates.stream()
                                     .filter(AbstractContextState.class::isInstance)
                                     .map(AbstractContextState.class::cast)
-                                    .collect(Collectors.toList())
-                                    .forEach(abstractContextState ->
-                                            contextStates.put(abstractContextState.getHandle(), abstractContextState));
+                                    .forEach(this::putContextState);
                         });
             }
         }
@@ -557,9 +685,26 @@ public class MdibStorageImpl implements MdibStorage {
             apply(mdibVersion, null, null, descriptionModifications);
         }
 
+        publishSnapshot();
         return new WriteStateResult(mdibVersion, modifiedStates);
     }
 
+    @Override
+    public <T> T applyBatch(BatchOperation<T> operation) throws PreprocessingException {
+        batchDepth++;
+        try {
+            return operation.run();
+        } finally {
+            batchDepth--;
+            publishSnapshot();
+        }
+    }
+
+    @Override
+    public Optional<MdibStorage> getSnapshot() {
+        return Optional.ofNullable(snapshot);
+    }
+
     @Override
     public MdibVersion getMdibVersion() {
         return mdibVersion;
@@ -575,6 +720,152 @@ public class MdibStorageImpl implements MdibStorage {
         return mdStateVersion;
     }
 
+    private void freezeIfConfigured(@Nullable Object data) {
+        if (freezeData && data instanceof Freezable) {
+            ((Freezable) data).freeze();
+        }
+    }
+
+    private void putEntity(MdibEntity entity) {
+        var previousEntity = entities.put(entity.getHandle(), entity);
+        // type index only needs to be touched if the descriptor type changes, which implies a state type change
+        if (previousEntity == null || previousEntity.getDescriptorClass() != entity.getDescriptorClass()) {
+            unindexEntity(previousEntity);
+            entityTypes = entityTypes
+                    .add(entity.getDescriptorClass(), entity.getHandle())
+                    .add(entity.getStateClass(), entity.getHandle());
+        }
+        markChanged(changedEntities, entity.getHandle());
+    }
+
+    private void removeEntity(String handle) {
+        unindexEntity(entities.remove(handle));
+        entityAttributes = entityAttributes.remove(handle);
+        entityAncestors = entityAncestors.remove(handle);
+        markChanged(changedEntities, handle);
+    }
+
+    private void unindexEntity(@Nullable MdibEntity entity) {
+        if (entity != null) {
+            entityTypes = entityTypes
+                    .remove(entity.getDescriptorClass(), entity.getHandle())
+                    .remove(entity.getStateClass(), entity.getHandle());
+        }
+    }
+
+    private void indexAttributes(AbstractDescriptor descriptor, @Nullable String parentHandle) {
+        var ancestorHandles = new ArrayList<String>();
+        var ancestorHandle = parentHandle;
+        while (ancestorHandle != null) {
+            ancestorHandles.add(ancestorHandle);
+            var ancestor = entities.get(ancestorHandle);
+            ancestorHandle = ancestor == null ? null : ancestor.getParent().orElse(null);
+        }
+        entityAttributes = entityAttributes.put(descriptor.getHandle(), AttributeKeys.of(descriptor, ancestorHandles));
+        if (ancestorHandles.isEmpty()) {
+            entityAncestors = entityAncestors.remove(descriptor.getHandle());
+        } else if (!ancestorHandles.equals(entityAncestors.get(descriptor.getHandle()))) {
+            entityAncestors = entityAncestors.put(descriptor.getHandle(), List.copyOf(ancestorHandles));
+        }
+    }
+
+    private void putContextState(AbstractContextState contextState) {
+        var previousContextState = contextStates.put(contextState.getHandle(), contextState);
+        if (previousContextState == null
+                || previousContextState.getClass() != contextState.getClass()
+                || !previousContextState.getDescriptorHandle().equals(contextState.getDescriptorHandle())) {
+            unindexContextState(previousContextState);
+            contextStateTypes = contextStateTypes.add(contextState.getClass(), contextState.getHandle());
+            contextStatesByDescriptor.computeIfAbsent(contextState.getDescriptorHandle(), key -> new HashSet<>())
+                    .add(contextState.getHandle());
+        }
+        markChanged(changedContextStates, contextState.getHandle());
+        stateHistory.record(mdibVersion, contextState);
+    }
+
+    private void removeContextState(String handle) {
+        unindexContextState(contextStates.remove(handle));
+        markChanged(changedContextStates, handle);
+        stateHistory.recordRemoval(mdibVersion, handle);
+    }
+
+    private void recordSingleStates(AbstractDescriptor descriptor, List<AbstractState> states) {
+        for (AbstractState state : states) {
+            // multi-states are recorded once they are put into the context state map
+            if (!(state instanceof AbstractMultiState)) {
+                stateHistory.record(mdibVersion, state);
+                recordWaveform(descriptor, state);
+            }
+        }
+    }
+
+    private void recordWaveform(AbstractDescriptor descriptor, AbstractState state) {
+        if (state instanceof RealTimeSampleArrayMetricState) {
+            waveformStore.record((RealTimeSampleArrayMetricState) state,
+                    descriptor instanceof RealTimeSampleArrayMetricDescriptor
+                            ? ((RealTimeSampleArrayMetricDescriptor) descriptor).getSamplePeriod()
+                            : null,
+                    mdibVersion);
+        }
+    }
+
+    private void unindexContextState(@Nullable AbstractContextState contextState) {
+        if (contextState != null) {
+            contextStateTypes = contextStateTypes.remove(contextState.getClass(), contextState.getHandle());
+            var handles = contextStatesByDescriptor.get(contextState.getDescriptorHandle());
+            if (handles != null) {
+                handles.remove(contextState.getHandle());
+                if (handles.isEmpty()) {
+                    contextStatesByDescriptor.remove(contextState.getDescriptorHandle());
+                }
+            }
+        }
+    }
+
+    private void markChanged(Set<String> changedHandles, String handle) {
+        if (snapshotsEnabled) {
+            changedHandles.add(handle);
+        }
+    }
+
+    /**
+     * Transfers all changes since the last call into a new snapshot and publishes it.
+     * <p>
+     * Only entities and context states that were touched by the last write are copied into the snapshot maps, all other
+     * data is shared with the previous snapshot.
+     */
+    private void publishSnapshot() {
+        if (!snapshotsEnabled || batchDepth > 0) {
+            return;
+        }
+
+        for (String handle : changedEntities) {
+            var entity = entities.get(handle);
+            snapshotEntities = entity == null
+                    ? snapshotEntities.remove(handle)
+                    : snapshotEntities.put(handle, entity);
+        }
+        changedEntities.clear();
+
+        for (String handle : changedContextStates) {
+            var contextState = contextStates.get(handle);
+            snapshotContextStates = contextState == null
+                    ? snapshotContextStates.remove(handle)
+                    : snapshotContextStates.put(handle, contextState);
+        }
+        changedContextStates.clear();
+
+        if (rootEntitiesChanged) {
+            snapshotRootEntities = List.copyOf(rootEntities);
+            rootEntitiesChanged = false;
+        }
+
+        snapshot = new MdibStorageSnapshot(mdibVersion, mdDescriptionVersion, mdStateVersion,
+                snapshotEntities, snapshotRootEntities, snapshotContextStates, entityTypes, entityAttributes,
+                entityAncestors, contextStateTypes,
+                stateHistory, waveformStore, util);
+    }
+
     private Optional<AbstractContextState> getNotAssociatedContextState(AbstractState state) {
         if (state instanceof AbstractContextState) {
             var contextState = (AbstractContextState) state;
@@ -2,6 +2,8 @@ package org.somda.sdc.biceps.common.storage;
 
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
+import com.google.inject.name.Named;
+import org.somda.sdc.biceps.common.CommonConfig;
 import org.somda.sdc.biceps.common.MdibDescriptionModification;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibStateModifications;
@@ -9,93 +11,454 @@ import org.somda.sdc.biceps.common.MdibTypeValidator;
 import org.somda.sdc.biceps.model.participant.AbstractMultiState;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 /**
  * Provides a processing chain that is supposed to be run before any interaction with
  * an {@linkplain MdibStorage} instance.
  * <p>
  * The {@linkplain MdibStoragePreprocessingChain} offers processing functions for description and state change sets.
+ * <p>
+ * State change sets that only update known states, i.e., states whose handles, descriptor handles and types match
+ * states in the {@linkplain MdibStorage}, take a fast path that skips all segments which are not required for known
+ * states (see {@link StatePreprocessingSegment#isRequiredForKnownStates()}).
+ * The known states are determined from the {@linkplain MdibStorage} once after every description change.
+ * <p>
+ * Description change sets that exceed {@link CommonConfig#PARALLEL_PREPROCESSING_THRESHOLD} are processed in
+ * bulk-load mode: the chain is divided into stages of consecutive segments that either support parallel processing or
+ * not, and each stage is applied to all modifications before the next stage starts.
+ * Parallel stages are executed on the fork-join common pool.
+ * <p>
+ * The time spent in every segment is accumulated and can be retrieved by {@link #getStatistics()}.
+ * For parallel stages this is the processing time summed over all threads.
+ * <p>
+ * Several modification sets can be preprocessed as a batch before any of them is applied, see {@link #beforeBatch()}.
  */
 public class MdibStoragePreprocessingChain {
     private final MdibStorage mdibStorage;
     private final List<DescriptionPreprocessingSegment> descriptionChainSegments;
     private final List<StatePreprocessingSegment> stateChainSegments;
     private final MdibTypeValidator typeValidator;
+    private final int parallelThreshold;
+
+    private final List<Stage> descriptionStages;
+    private final int[] allStateSegments;
+    private final int[] knownStateSegments;
+    private final Map<String, KnownState> knownStates;
+    private boolean knownStatesOutdated;
+    private final List<BatchPreprocessingSegment> batchSegments;
+    private boolean batch;
+    private boolean batchDescriptionModified;
+
+    private final long[] descriptionSegmentNanos;
+    private final long[] stateSegmentNanos;
+    private final long[] descriptionSegmentTotalNanos;
+    private final long[] descriptionSegmentInvocations;
+    private final long[] stateSegmentTotalNanos;
+    private final long[] stateSegmentInvocations;
+    private long fastPathStateModifications;
+    private long regularStateModifications;
+    private final Object statisticsLock;
 
     @Inject
     MdibStoragePreprocessingChain(@Assisted MdibStorage mdibStorage,
                                   @Assisted List<DescriptionPreprocessingSegment> descriptionChainSegments,
                                   @Assisted List<StatePreprocessingSegment> stateChainSegments,
-                                  MdibTypeValidator typeValidator) {
+                                  MdibTypeValidator typeValidator,
+                                  @Named(CommonConfig.PARALLEL_PREPROCESSING_THRESHOLD) Integer parallelThreshold) {
         this.mdibStorage = mdibStorage;
         this.descriptionChainSegments = descriptionChainSegments;
         this.stateChainSegments = stateChainSegments;
         this.typeValidator = typeValidator;
+        this.parallelThreshold = parallelThreshold;
+
+        this.descriptionStages = new ArrayList<>();
+        for (int s = 0; s < descriptionChainSegments.size(); ++s) {
+            final boolean parallel = descriptionChainSegments.get(s).supportsParallelProcessing();
+            final Stage lastStage = descriptionStages.isEmpty()
+                    ? null
+                    : descriptionStages.get(descriptionStages.size() - 1);
+            if (lastStage == null || lastStage.parallel != parallel) {
+                descriptionStages.add(new Stage(parallel, s, s + 1));
+            } else {
+                lastStage.to = s + 1;
+            }
+        }
+
+        this.allStateSegments = IntStream.range(0, stateChainSegments.size()).toArray();
+        this.knownStateSegments = IntStream.range(0, stateChainSegments.size())
+                .filter(i -> stateChainSegments.get(i).isRequiredForKnownStates())
+                .toArray();
+        this.knownStates = new HashMap<>();
+        this.knownStatesOutdated = true;
+        this.batchSegments = new ArrayList<>();
+        for (int s = 0; s < descriptionChainSegments.size(); ++s) {
+            addBatchSegment(descriptionChainSegments.get(s));
+        }
+        for (int s = 0; s < stateChainSegments.size(); ++s) {
+            addBatchSegment(stateChainSegments.get(s));
+        }
+
+        this.descriptionSegmentNanos = new long[descriptionChainSegments.size()];
+        this.stateSegmentNanos = new long[stateChainSegments.size()];
+        this.descriptionSegmentTotalNanos = new long[descriptionChainSegments.size()];
+        this.descriptionSegmentInvocations = new long[descriptionChainSegments.size()];
+        this.stateSegmentTotalNanos = new long[stateChainSegments.size()];
+        this.stateSegmentInvocations = new long[stateChainSegments.size()];
+        this.statisticsLock = new Object();
     }
 
     /**
      * Accepts a set of description modifications and applies them on every available description chain segment.
+     * <p>
+     * If the number of modifications reaches {@link CommonConfig#PARALLEL_PREPROCESSING_THRESHOLD}, the
+     * modifications are processed in bulk-load mode.
+     * In this case the exception of the first failing modification is thrown once its stage has finished.
      *
      * @param modifications the modification to pass to the chain segments.
      * @throws PreprocessingException in case a chain segment fails.
      */
     public void processDescriptionModifications(MdibDescriptionModifications modifications)
             throws PreprocessingException {
+        knownStatesOutdated = true;
+        batchDescriptionModified = batch;
+
         final List<MdibDescriptionModification> modificationList = modifications.getModifications();
         int sizeToIterate = modificationList.size();
 
-        descriptionChainSegments.forEach(chainSegment ->
-                chainSegment.beforeFirstModification(modifications, mdibStorage)
-        );
+        Arrays.fill(descriptionSegmentNanos, 0);
+        try {
+            for (int s = 0; s < descriptionChainSegments.size(); ++s) {
+                final long start = System.nanoTime();
+                descriptionChainSegments.get(s).beforeFirstModification(modifications, mdibStorage);
+                descriptionSegmentNanos[s] += System.nanoTime() - start;
+            }
+
+            if (parallelThreshold > 0 && sizeToIterate >= parallelThreshold) {
+                processInStages(modifications);
+            } else {
+                for (int i = 0; i < sizeToIterate; ++i) {
+                    processDescriptionModification(modifications, i, 0, descriptionChainSegments.size());
+                    sizeToIterate = modificationList.size();
+                }
+            }
 
-        for (int i = 0; i < sizeToIterate; ++i) {
-            for (DescriptionPreprocessingSegment chainSegment : descriptionChainSegments) {
+            for (int s = 0; s < descriptionChainSegments.size(); ++s) {
+                final long start = System.nanoTime();
+                descriptionChainSegments.get(s).afterLastModification(modifications, mdibStorage);
+                descriptionSegmentNanos[s] += System.nanoTime() - start;
+            }
+        } finally {
+            synchronized (statisticsLock) {
+                for (int s = 0; s < descriptionChainSegments.size(); ++s) {
+                    descriptionSegmentTotalNanos[s] += descriptionSegmentNanos[s];
+                    descriptionSegmentInvocations[s]++;
+                }
+            }
+        }
+    }
+
+    private void processInStages(MdibDescriptionModifications modifications) throws PreprocessingException {
+        final List<MdibDescriptionModification> modificationList = modifications.getModifications();
+        int from = 0;
+        while (from < modificationList.size()) {
+            // modifications added by sequential segments are processed by all stages in the next round
+            final int to = modificationList.size();
+            for (Stage stage : descriptionStages) {
+                if (stage.parallel) {
+                    processInParallel(modifications, stage, from, to);
+                } else {
+                    for (int i = from; i < to; ++i) {
+                        processDescriptionModification(modifications, i, stage.from, stage.to);
+                    }
+                }
+            }
+            from = to;
+        }
+    }
+
+    private void processInParallel(MdibDescriptionModifications modifications, Stage stage, int from, int to)
+            throws PreprocessingException {
+        final List<MdibDescriptionModification> modificationList = modifications.getModifications();
+        final LongAdder[] nanos = new LongAdder[stage.to - stage.from];
+        for (int s = 0; s < nanos.length; ++s) {
+            nanos[s] = new LongAdder();
+        }
+        final AtomicReference<SegmentFailure> firstFailure = new AtomicReference<>();
+
+        IntStream.range(from, to).parallel().forEach(i -> {
+            final SegmentFailure failure = firstFailure.get();
+            if (failure != null && failure.modification < i) {
+                return;
+            }
+            for (int s = stage.from; s < stage.to; ++s) {
+                final long start = System.nanoTime();
                 try {
-                    chainSegment.process(modifications, modificationList.get(i), mdibStorage);
+                    descriptionChainSegments.get(s).process(modifications, modificationList.get(i), mdibStorage);
                 // CHECKSTYLE.OFF: IllegalCatch
                 } catch (Exception e) {
                 // CHECKSTYLE.ON: IllegalCatch
-                    throw new PreprocessingException(e.getMessage(), e.getCause(),
-                            modificationList.get(i).getHandle(), chainSegment.toString());
+                    firstFailure.accumulateAndGet(new SegmentFailure(i, s, e), SegmentFailure::first);
+                    return;
+                } finally {
+                    nanos[s - stage.from].add(System.nanoTime() - start);
                 }
             }
-            sizeToIterate = modificationList.size();
+        });
+
+        for (int s = stage.from; s < stage.to; ++s) {
+            descriptionSegmentNanos[s] += nanos[s - stage.from].sum();
         }
 
-        descriptionChainSegments.forEach(chainSegment ->
-                chainSegment.afterLastModification(modifications, mdibStorage)
-        );
+        final SegmentFailure failure = firstFailure.get();
+        if (failure != null) {
+            throw new PreprocessingException(failure.exception.getMessage(), failure.exception.getCause(),
+                    modificationList.get(failure.modification).getHandle(),
+                    descriptionChainSegments.get(failure.segment).toString());
+        }
+    }
+
+    private void processDescriptionModification(MdibDescriptionModifications modifications,
+                                                int modification,
+                                                int fromSegment,
+                                                int toSegment) throws PreprocessingException {
+        final MdibDescriptionModification currentModification = modifications.getModifications().get(modification);
+        for (int s = fromSegment; s < toSegment; ++s) {
+            final DescriptionPreprocessingSegment chainSegment = descriptionChainSegments.get(s);
+            final long start = System.nanoTime();
+            try {
+                chainSegment.process(modifications, currentModification, mdibStorage);
+            // CHECKSTYLE.OFF: IllegalCatch
+            } catch (Exception e) {
+            // CHECKSTYLE.ON: IllegalCatch
+                throw new PreprocessingException(e.getMessage(), e.getCause(),
+                        currentModification.getHandle(), chainSegment.toString());
+            } finally {
+                descriptionSegmentNanos[s] += System.nanoTime() - start;
+            }
+        }
     }
 
     /**
      * Accepts a set of state modifications and applies them on every available state chain segment.
+     * <p>
+     * If the set only consists of known states, segments that are not required for known states are skipped.
      *
      * @param modifications the modification to pass to the chain segments.
      * @throws PreprocessingException in case a chain segment fails.
      */
     public void processStateModifications(MdibStateModifications modifications) throws PreprocessingException {
-        stateChainSegments.forEach(chainSegment -> chainSegment.beforeFirstModification(modifications, mdibStorage));
+        final boolean fastPath = isKnown(modifications);
+        final int[] segments = fastPath ? knownStateSegments : allStateSegments;
 
-        for (AbstractState modification : modifications.getStates()) {
-            for (StatePreprocessingSegment chainSegment : stateChainSegments) {
-                try {
-                    chainSegment.process(modifications, modification, mdibStorage);
-                // CHECKSTYLE.OFF: IllegalCatch
-                } catch (Exception e) {
-                // CHECKSTYLE.ON: IllegalCatch
-                    final Optional<AbstractMultiState> multiState = typeValidator.toMultiState(modification);
-                    String handle = modification.getDescriptorHandle();
-                    if (multiState.isPresent()) {
-                        handle = multiState.get().getHandle();
+        Arrays.fill(stateSegmentNanos, 0);
+        try {
+            for (int s : segments) {
+                final long start = System.nanoTime();
+                stateChainSegments.get(s).beforeFirstModification(modifications, mdibStorage);
+                stateSegmentNanos[s] += System.nanoTime() - start;
+            }
+
+            for (AbstractState modification : modifications.getStates()) {
+                for (int s : segments) {
+                    final StatePreprocessingSegment chainSegment = stateChainSegments.get(s);
+                    final long start = System.nanoTime();
+                    try {
+                        chainSegment.process(modifications, modification, mdibStorage);
+                    // CHECKSTYLE.OFF: IllegalCatch
+                    } catch (Exception e) {
+                    // CHECKSTYLE.ON: IllegalCatch
+                        final Optional<AbstractMultiState> multiState = typeValidator.toMultiState(modification);
+                        String handle = modification.getDescriptorHandle();
+                        if (multiState.isPresent()) {
+                            handle = multiState.get().getHandle();
+                        }
+
+                        throw new PreprocessingException(e.getMessage(), e.getCause(), handle,
+                                chainSegment.toString());
+                    } finally {
+                        stateSegmentNanos[s] += System.nanoTime() - start;
                     }
+                }
+            }
+
+            for (int s : segments) {
+                final long start = System.nanoTime();
+                stateChainSegments.get(s).afterLastModification(modifications, mdibStorage);
+                stateSegmentNanos[s] += System.nanoTime() - start;
+            }
 
-                    throw new PreprocessingException(e.getMessage(), e.getCause(), handle, chainSegment.toString());
+            if (!fastPath && hasFastPath()) {
+                // multi-states that passed all segments are consistent with the storage and hence known from now on,
+                // single states become known with the description of their descriptors
+                for (AbstractState state : modifications.getStates()) {
+                    if (state instanceof AbstractMultiState) {
+                        putKnownState(state);
+                    }
+                }
+            }
+        } finally {
+            synchronized (statisticsLock) {
+                for (int s : segments) {
+                    stateSegmentTotalNanos[s] += stateSegmentNanos[s];
+                    stateSegmentInvocations[s]++;
+                }
+                if (fastPath) {
+                    fastPathStateModifications++;
+                } else {
+                    regularStateModifications++;
                 }
             }
         }
+    }
+
+    /**
+     * Starts a batch of modification sets.
+     * <p>
+     * Until {@link #afterBatch(boolean)} is called, all modification sets are supposed to be preprocessed without being
+     * applied to the {@linkplain MdibStorage}.
+     * Segments that implement {@linkplain BatchPreprocessingSegment} are notified accordingly.
+     */
+    public void beforeBatch() {
+        batch = true;
+        batchDescriptionModified = false;
+        batchSegments.forEach(BatchPreprocessingSegment::beforeBatch);
+    }
 
-        stateChainSegments.forEach(chainSegment -> chainSegment.afterLastModification(modifications, mdibStorage));
+    /**
+     * Finishes a batch of modification sets.
+     *
+     * @param applied true if all modification sets of the batch have been preprocessed and applied, false if
+     *                preprocessing has failed and none of the modification sets has been applied.
+     */
+    public void afterBatch(boolean applied) {
+        batch = false;
+        // known states are determined from the storage, which did not include the modifications of the batch yet
+        if (!applied || batchDescriptionModified) {
+            knownStatesOutdated = true;
+        }
+        batchSegments.forEach(segment -> segment.afterBatch(applied));
+    }
+
+    /**
+     * Gets the accumulated processing statistics of this chain.
+     * <p>
+     * This function is thread-safe and can be called while modifications are processed.
+     *
+     * @return a snapshot of the current statistics.
+     */
+    public PreprocessingStatistics getStatistics() {
+        synchronized (statisticsLock) {
+            var descriptionTimings = new ArrayList<PreprocessingStatistics.SegmentTiming>();
+            for (int s = 0; s < descriptionChainSegments.size(); ++s) {
+                descriptionTimings.add(new PreprocessingStatistics.SegmentTiming(
+                        descriptionChainSegments.get(s).toString(),
+                        descriptionSegmentInvocations[s],
+                        Duration.ofNanos(descriptionSegmentTotalNanos[s])));
+            }
+            var stateTimings = new ArrayList<PreprocessingStatistics.SegmentTiming>();
+            for (int s = 0; s < stateChainSegments.size(); ++s) {
+                stateTimings.add(new PreprocessingStatistics.SegmentTiming(
+                        stateChainSegments.get(s).toString(),
+                        stateSegmentInvocations[s],
+                        Duration.ofNanos(stateSegmentTotalNanos[s])));
+            }
+            return new PreprocessingStatistics(descriptionTimings, stateTimings,
+                    fastPathStateModifications, regularStateModifications);
+        }
+    }
+
+    private void addBatchSegment(Object segment) {
+        // segments that process descriptions and states are notified once
+        if (segment instanceof BatchPreprocessingSegment && batchSegments.stream().noneMatch(s -> s == segment)) {
+            batchSegments.add((BatchPreprocessingSegment) segment);
+        }
+    }
+
+    private boolean hasFastPath() {
+        return knownStateSegments.length != allStateSegments.length;
+    }
+
+    private boolean isKnown(MdibStateModifications modifications) {
+        if (!hasFastPath() || modifications.getStates().isEmpty()) {
+            return false;
+        }
+
+        if (knownStatesOutdated) {
+            knownStates.clear();
+            mdibStorage.getStatesByType(AbstractState.class).forEach(this::putKnownState);
+            knownStatesOutdated = false;
+        }
+
+        for (AbstractState state : modifications.getStates()) {
+            final KnownState knownState = knownStates.get(stateHandle(state));
+            if (knownState == null
+                    || knownState.stateClass != state.getClass()
+                    || !knownState.descriptorHandle.equals(state.getDescriptorHandle())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void putKnownState(AbstractState state) {
+        final String handle = stateHandle(state);
+        if (handle != null && state.getDescriptorHandle() != null) {
+            knownStates.put(handle, new KnownState(state.getDescriptorHandle(), state.getClass()));
+        }
+    }
+
+    private static String stateHandle(AbstractState state) {
+        return state instanceof AbstractMultiState
+                ? ((AbstractMultiState) state).getHandle()
+                : state.getDescriptorHandle();
+    }
+
+    private static class Stage {
+        private final boolean parallel;
+        private final int from;
+        private int to;
+
+        Stage(boolean parallel, int from, int to) {
+            this.parallel = parallel;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static class SegmentFailure {
+        private final int modification;
+        private final int segment;
+        private final Exception exception;
+
+        SegmentFailure(int modification, int segment, Exception exception) {
+            this.modification = modification;
+            this.segment = segment;
+            this.exception = exception;
+        }
+
+        static SegmentFailure first(@Nullable SegmentFailure lhs, SegmentFailure rhs) {
+            return lhs == null || rhs.modification < lhs.modification ? rhs : lhs;
+        }
+    }
+
+    private static class KnownState {
+        private final String descriptorHandle;
+        private final Class<? extends AbstractState> stateClass;
+
+        KnownState(String descriptorHandle, Class<? extends AbstractState> stateClass) {
+            this.descriptorHandle = descriptorHandle;
+            this.stateClass = stateClass;
+        }
     }
 }
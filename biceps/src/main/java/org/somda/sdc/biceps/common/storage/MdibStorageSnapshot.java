@@ -0,0 +1,280 @@
+package org.somda.sdc.biceps.common.storage;
+
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.access.MdibQuery;
+import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
+import org.somda.sdc.biceps.common.access.WriteStateResult;
+import org.somda.sdc.biceps.common.storage.helper.AttributeIndex;
+import org.somda.sdc.biceps.common.storage.helper.MdibStorageUtil;
+import org.somda.sdc.biceps.common.storage.helper.PersistentMap;
+import org.somda.sdc.biceps.common.storage.helper.TypeIndex;
+import org.somda.sdc.biceps.model.participant.AbstractContextState;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractMultiState;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+
+import javax.annotation.Nullable;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Immutable, read-only view of an {@linkplain MdibStorage} at a certain MDIB version.
+ * <p>
+ * Snapshots are published by {@linkplain MdibStorageImpl} after every write if
+ * {@link org.somda.sdc.biceps.common.CommonConfig#MDIB_STORAGE_SNAPSHOTS} is enabled.
+ * As a snapshot is never changed after creation, it can be read from any thread without locking.
+ * Subsequent snapshots share all entities and map nodes that were not affected by a write.
+ * <p>
+ * Any attempt to apply modifications on a snapshot results in an {@linkplain UnsupportedOperationException}.
+ * <p>
+ * All snapshots share the {@linkplain StateHistory} and the {@linkplain WaveformStore} of the storage.
+ * Past states and waveform samples are looked up as of the MDIB version of the snapshot, i.e., writes that happened
+ * after the snapshot are not visible, whereas history entries and samples that have been dropped since then are
+ * missing.
+ */
+public class MdibStorageSnapshot implements MdibStorage {
+    private final MdibVersion mdibVersion;
+    private final BigInteger mdDescriptionVersion;
+    private final BigInteger mdStateVersion;
+    private final PersistentMap<String, MdibEntity> entities;
+    private final List<String> rootEntities;
+    private final PersistentMap<String, AbstractContextState> contextStates;
+    private final TypeIndex entityTypes;
+    private final AttributeIndex entityAttributes;
+    private final PersistentMap<String, List<String>> entityAncestors;
+    private final TypeIndex contextStateTypes;
+    private final StateHistory stateHistory;
+    private final WaveformStore waveformStore;
+    private final MdibStorageUtil util;
+
+    MdibStorageSnapshot(MdibVersion mdibVersion,
+                        BigInteger mdDescriptionVersion,
+                        BigInteger mdStateVersion,
+                        PersistentMap<String, MdibEntity> entities,
+                        List<String> rootEntities,
+                        PersistentMap<String, AbstractContextState> contextStates,
+                        TypeIndex entityTypes,
+                        AttributeIndex entityAttributes,
+                        PersistentMap<String, List<String>> entityAncestors,
+                        TypeIndex contextStateTypes,
+                        StateHistory stateHistory,
+                        WaveformStore waveformStore,
+                        MdibStorageUtil util) {
+        this.mdibVersion = mdibVersion;
+        this.mdDescriptionVersion = mdDescriptionVersion;
+        this.mdStateVersion = mdStateVersion;
+        this.entities = entities;
+        this.rootEntities = rootEntities;
+        this.contextStates = contextStates;
+        this.entityTypes = entityTypes;
+        this.entityAttributes = entityAttributes;
+        this.entityAncestors = entityAncestors;
+        this.contextStateTypes = contextStateTypes;
+        this.stateHistory = stateHistory;
+        this.waveformStore = waveformStore;
+        this.util = util;
+    }
+
+    @Override
+    public WriteDescriptionResult apply(MdibVersion mdibVersion,
+                                        @Nullable BigInteger mdDescriptionVersion,
+                                        @Nullable BigInteger mdStateVersion,
+                                        MdibDescriptionModifications descriptionModifications) {
+        throw new UnsupportedOperationException("MDIB storage snapshots are read-only");
+    }
+
+    @Override
+    public WriteStateResult apply(MdibVersion mdibVersion,
+                                  @Nullable BigInteger mdStateVersion,
+                                  MdibStateModifications stateModifications) {
+        throw new UnsupportedOperationException("MDIB storage snapshots are read-only");
+    }
+
+    @Override
+    public Optional<MdibStorage> getSnapshot() {
+        return Optional.of(this);
+    }
+
+    @Override
+    public MdibVersion getMdibVersion() {
+        return mdibVersion;
+    }
+
+    @Override
+    public BigInteger getMdDescriptionVersion() {
+        return mdDescriptionVersion;
+    }
+
+    @Override
+    public BigInteger getMdStateVersion() {
+        return mdStateVersion;
+    }
+
+    @Override
+    public <T extends AbstractDescriptor> Optional<T> getDescriptor(String handle, Class<T> descrClass) {
+        final MdibEntity mdibEntity = entities.get(handle);
+        if (mdibEntity != null) {
+            return util.exposeInstance(mdibEntity.getDescriptor(), descrClass);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<AbstractDescriptor> getDescriptor(String handle) {
+        return getDescriptor(handle, AbstractDescriptor.class);
+    }
+
+    @Override
+    public Optional<MdibEntity> getEntity(String handle) {
+        return Optional.ofNullable(entities.get(handle));
+    }
+
+    @Override
+    public <T extends AbstractDescriptor> Collection<MdibEntity> findEntitiesByType(Class<T> type) {
+        List<MdibEntity> result = new ArrayList<>(entityTypes.count(type));
+        entityTypes.forEachHandle(type, handle -> result.add(entities.get(handle)));
+        return result;
+    }
+
+    @Override
+    public List<MdibEntity> findEntities(MdibQuery query) {
+        return util.findEntities(query, entityTypes, entityAttributes, entities::get, entities::values);
+    }
+
+    @Override
+    public <T extends AbstractDescriptor> List<MdibEntity> getChildrenByType(String handle, Class<T> type) {
+        final List<MdibEntity> result = new ArrayList<>();
+        final MdibEntity entity = entities.get(handle);
+        if (entity == null) {
+            return result;
+        }
+
+        for (String child : entity.getChildren()) {
+            final MdibEntity childEntity = entities.get(child);
+            if (childEntity != null && type.isAssignableFrom(childEntity.getDescriptorClass())) {
+                result.add(childEntity);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public List<String> getAncestorHandles(String handle) {
+        var ancestorHandles = entityAncestors.get(handle);
+        return ancestorHandles == null ? Collections.emptyList() : ancestorHandles;
+    }
+
+    @Override
+    public List<MdibEntity> getRootEntities() {
+        final List<MdibEntity> result = new ArrayList<>(rootEntities.size());
+        for (String handle : rootEntities) {
+            final MdibEntity entity = entities.get(handle);
+            if (entity != null) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<AbstractState> getState(String handle) {
+        return getState(handle, AbstractState.class);
+    }
+
+    @Override
+    public <T extends AbstractState> Optional<T> getState(String handle, Class<T> stateClass) {
+        final MdibEntity entity = entities.get(handle);
+        if (entity != null) {
+            final List<AbstractState> states = entity.getStates();
+            if (states.size() == 1) {
+                return util.exposeInstance(states.get(0), stateClass);
+            }
+        }
+        return util.exposeInstance(contextStates.get(handle), stateClass);
+    }
+
+    @Override
+    public <T extends AbstractState> List<T> getStatesByType(Class<T> stateClass) {
+        var result = new ArrayList<T>(entityTypes.count(stateClass));
+        entityTypes.forEachHandle(stateClass, handle -> entities.get(handle).getStates().forEach(state -> {
+            if (stateClass.isAssignableFrom(state.getClass())) {
+                result.add(stateClass.cast(state));
+            }
+        }));
+        return result;
+    }
+
+    @Override
+    public <T extends AbstractContextState> List<T> getContextStates(String descriptorHandle, Class<T> stateClass) {
+        final MdibEntity entity = entities.get(descriptorHandle);
+        if (entity == null || entity.getStates().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return util.exposeListOfType(entity.getStates(), stateClass);
+    }
+
+    @Override
+    public List<AbstractContextState> getContextStates(String descriptorHandle) {
+        return getContextStates(descriptorHandle, AbstractContextState.class);
+    }
+
+    @Override
+    public List<AbstractMultiState> getMultiStates(String descriptorHandle) {
+        final MdibEntity entity = entities.get(descriptorHandle);
+        if (entity == null || entity.getStates().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return util.exposeListOfType(entity.getStates(), AbstractMultiState.class);
+    }
+
+    @Override
+    public List<AbstractContextState> getContextStates() {
+        return contextStates.values();
+    }
+
+    @Override
+    public <T extends AbstractContextState> List<T> findContextStatesByType(Class<T> stateClass) {
+        var result = new ArrayList<T>(contextStateTypes.count(stateClass));
+        contextStateTypes.forEachHandle(stateClass, handle -> result.add(stateClass.cast(contextStates.get(handle))));
+        return result;
+    }
+
+    @Override
+    public Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion) {
+        return boundToSnapshot(mdibVersion).flatMap(version -> stateHistory.getStateAt(handle, version));
+    }
+
+    @Override
+    public Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion) {
+        return boundToSnapshot(mdibVersion)
+                .map(version -> stateHistory.getStatesAt(handles, version))
+                .orElseGet(LinkedHashMap::new);
+    }
+
+    @Override
+    public Optional<WaveformSamples> getWaveformSamples(String handle, int maxCount) {
+        return waveformStore.getSamples(handle, maxCount, mdibVersion);
+    }
+
+    @Override
+    public Optional<RealTimeSampleArrayMetricState> getWaveformState(String handle, int maxCount) {
+        return getState(handle, RealTimeSampleArrayMetricState.class)
+                .flatMap(state -> waveformStore.getState(handle, maxCount, mdibVersion, state));
+    }
+
+    private Optional<MdibVersion> boundToSnapshot(MdibVersion version) {
+        // versions after the snapshot are capped as the shared state history also contains later writes
+        return version.compareToMdibVersion(mdibVersion).map(comparison -> comparison > 0 ? mdibVersion : version);
+    }
+}
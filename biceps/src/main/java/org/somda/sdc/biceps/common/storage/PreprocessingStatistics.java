@@ -0,0 +1,116 @@
+package org.somda.sdc.biceps.common.storage;
+
+import org.somda.sdc.common.util.ObjectStringifier;
+import org.somda.sdc.common.util.Stringified;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Snapshot of the processing statistics of an {@linkplain MdibStoragePreprocessingChain}.
+ */
+public class PreprocessingStatistics {
+    @Stringified
+    private final List<SegmentTiming> descriptionSegmentTimings;
+    @Stringified
+    private final List<SegmentTiming> stateSegmentTimings;
+    @Stringified
+    private final long fastPathStateModifications;
+    @Stringified
+    private final long regularStateModifications;
+
+    /**
+     * Constructor.
+     *
+     * @param descriptionSegmentTimings  timings of the description segments in the order of the chain.
+     * @param stateSegmentTimings        timings of the state segments in the order of the chain.
+     * @param fastPathStateModifications number of state change sets that were processed by the fast path.
+     * @param regularStateModifications  number of state change sets that were processed by all state segments.
+     */
+    public PreprocessingStatistics(List<SegmentTiming> descriptionSegmentTimings,
+                                   List<SegmentTiming> stateSegmentTimings,
+                                   long fastPathStateModifications,
+                                   long regularStateModifications) {
+        this.descriptionSegmentTimings = descriptionSegmentTimings;
+        this.stateSegmentTimings = stateSegmentTimings;
+        this.fastPathStateModifications = fastPathStateModifications;
+        this.regularStateModifications = regularStateModifications;
+    }
+
+    public List<SegmentTiming> getDescriptionSegmentTimings() {
+        return descriptionSegmentTimings;
+    }
+
+    public List<SegmentTiming> getStateSegmentTimings() {
+        return stateSegmentTimings;
+    }
+
+    /**
+     * Gets the number of state change sets that only updated states of known entities.
+     * <p>
+     * Those change sets skip all segments that are not required for known states, see
+     * {@link StatePreprocessingSegment#isRequiredForKnownStates()}.
+     *
+     * @return the number of state change sets processed by the fast path.
+     */
+    public long getFastPathStateModifications() {
+        return fastPathStateModifications;
+    }
+
+    public long getRegularStateModifications() {
+        return regularStateModifications;
+    }
+
+    @Override
+    public String toString() {
+        return ObjectStringifier.stringify(this);
+    }
+
+    /**
+     * Accumulated processing time of one preprocessing segment.
+     */
+    public static class SegmentTiming {
+        @Stringified
+        private final String segment;
+        @Stringified
+        private final long invocations;
+        @Stringified
+        private final Duration totalTime;
+
+        /**
+         * Constructor.
+         *
+         * @param segment     the name of the segment as returned by its {@code toString()} function.
+         * @param invocations the number of change sets the segment has processed.
+         * @param totalTime   the accumulated time the segment has spent on processing change sets.
+         */
+        public SegmentTiming(String segment, long invocations, Duration totalTime) {
+            this.segment = segment;
+            this.invocations = invocations;
+            this.totalTime = totalTime;
+        }
+
+        public String getSegment() {
+            return segment;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        /**
+         * Gets the accumulated processing time including the callbacks before the first and after the last
+         * modification.
+         *
+         * @return the accumulated processing time.
+         */
+        public Duration getTotalTime() {
+            return totalTime;
+        }
+
+        @Override
+        public String toString() {
+            return ObjectStringifier.stringify(this);
+        }
+    }
+}
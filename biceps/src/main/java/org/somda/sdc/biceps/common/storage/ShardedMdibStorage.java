@@ -0,0 +1,587 @@
+package org.somda.sdc.biceps.common.storage;
+
+import org.apache.logging.log4j.Logger;
+import org.somda.sdc.biceps.common.MdibDescriptionModification;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.access.MdibQuery;
+import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
+import org.somda.sdc.biceps.common.access.WriteStateResult;
+import org.somda.sdc.biceps.common.storage.factory.MdibStorageFactory;
+import org.somda.sdc.biceps.common.storage.helper.PersistentMap;
+import org.somda.sdc.biceps.model.participant.AbstractContextState;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractMultiState;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+
+import javax.annotation.Nullable;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * {@linkplain MdibStorage} that partitions its entities by root entity, i.e., by MDS.
+ * <p>
+ * Every root entity and its descendants are stored in a {@linkplain Shard} that consists of a dedicated
+ * {@linkplain MdibStorage}, a dedicated {@linkplain MdibStoragePreprocessingChain} and a lock.
+ * This allows writers to preprocess modifications of different MDSs in parallel, whereas the MDIB version, MD
+ * description version and MD state version are global to all shards and set by {@code apply} functions.
+ * Read functions look up handles in the shard they belong to and merge the results of all shards otherwise.
+ * <p>
+ * If the storages of all shards publish snapshots, this storage publishes a snapshot that consists of the snapshots
+ * of all shards after every write.
+ * Any attempt to apply modifications on a snapshot results in an {@linkplain UnsupportedOperationException}.
+ * <p>
+ * <em>This storage is not thread-safe. Writes are supposed to be sequenced by the user, and modifications of
+ * descriptions are supposed to exclude any concurrent access to the shards.</em>
+ * States without descriptors are not supported.
+ *
+ * @see org.somda.sdc.biceps.common.CommonConfig#MDIB_STORAGE_SHARDING
+ */
+public class ShardedMdibStorage implements MdibStorage {
+    private static final Comparator<Shard> SHARD_ORDER = Comparator.comparing(Shard::getRootHandle);
+
+    private final Logger log;
+    private final MdibStorageFactory storageFactory;
+    private final Function<MdibStorage, MdibStoragePreprocessingChain> chainFactory;
+    private final Map<String, Shard> shards;
+    private final Map<String, MdibStorage> shardStorages;
+
+    private MdibVersion mdibVersion;
+    private BigInteger mdDescriptionVersion;
+    private BigInteger mdStateVersion;
+    private PersistentMap<String, String> rootHandles;
+    private volatile ShardedMdibStorage snapshot;
+    private int batchDepth;
+
+    /**
+     * Creates an empty sharded storage.
+     *
+     * @param logger               the owner's logger to be used for logging.
+     * @param storageFactory       the factory to create the storage of a shard.
+     * @param chainFactory         function that creates the preprocessing chain of a shard for the shard's storage.
+     * @param mdibVersion          the initial MDIB version.
+     * @param mdDescriptionVersion the initial MD description version.
+     * @param mdStateVersion       the initial MD state version.
+     */
+    public ShardedMdibStorage(Logger logger,
+                              MdibStorageFactory storageFactory,
+                              Function<MdibStorage, MdibStoragePreprocessingChain> chainFactory,
+                              MdibVersion mdibVersion,
+                              BigInteger mdDescriptionVersion,
+                              BigInteger mdStateVersion) {
+        this.log = logger;
+        this.storageFactory = storageFactory;
+        this.chainFactory = chainFactory;
+        this.shards = new LinkedHashMap<>();
+        this.shardStorages = new LinkedHashMap<>();
+        this.mdibVersion = mdibVersion;
+        this.mdDescriptionVersion = mdDescriptionVersion;
+        this.mdStateVersion = mdStateVersion;
+        this.rootHandles = PersistentMap.empty();
+        publishSnapshot();
+    }
+
+    private ShardedMdibStorage(ShardedMdibStorage storage, Map<String, MdibStorage> shardSnapshots) {
+        this.log = storage.log;
+        this.storageFactory = null;
+        this.chainFactory = null;
+        this.shards = null;
+        this.shardStorages = shardSnapshots;
+        this.mdibVersion = storage.mdibVersion;
+        this.mdDescriptionVersion = storage.mdDescriptionVersion;
+        this.mdStateVersion = storage.mdStateVersion;
+        this.rootHandles = storage.rootHandles;
+        this.snapshot = this;
+    }
+
+    /**
+     * Gets all shards of this storage.
+     *
+     * @return the shards in order of creation.
+     * Shards are created by the first modifications that insert or restore their root entity, and are kept even if
+     * the root entity is deleted afterwards.
+     */
+    public List<Shard> getShards() {
+        checkWritable();
+        return new ArrayList<>(shards.values());
+    }
+
+    /**
+     * Splits description modifications into the modifications of each shard.
+     * <p>
+     * Shards for inserted root entities are created on demand.
+     * The modifications of each shard are in the order of the given modifications.
+     *
+     * @param modifications the modifications to split.
+     * @return the modifications of each affected shard.
+     * @throws PreprocessingException if a modification refers to an entity or parent entity that is unknown.
+     */
+    public Map<Shard, MdibDescriptionModifications> partition(MdibDescriptionModifications modifications)
+            throws PreprocessingException {
+        checkWritable();
+        var partitions = new TreeMap<Shard, MdibDescriptionModifications>(SHARD_ORDER);
+        var insertedRootHandles = new HashMap<String, String>();
+        for (MdibDescriptionModification modification : modifications.getModifications()) {
+            var rootHandle = rootHandleOf(modification, insertedRootHandles);
+            if (rootHandle == null) {
+                throw new PreprocessingException(String.format(
+                        "Modification of type %s refers to an unknown entity or parent entity",
+                        modification.getModificationType()), modification.getHandle(), toString());
+            }
+            partitions.computeIfAbsent(shard(rootHandle), shard -> MdibDescriptionModifications.create())
+                    .add(modification);
+        }
+        return partitions;
+    }
+
+    /**
+     * Splits state modifications into the modifications of each shard.
+     * <p>
+     * If all states belong to one shard, the given modifications are returned for that shard.
+     *
+     * @param modifications the modifications to split.
+     * @return the modifications of each affected shard, sorted by root handle.
+     * @throws PreprocessingException if a state refers to an unknown descriptor.
+     */
+    public Map<Shard, MdibStateModifications> partition(MdibStateModifications modifications)
+            throws PreprocessingException {
+        checkWritable();
+        return checkAndPartitionStates(modifications, rootHandles::get);
+    }
+
+    /**
+     * Splits state modifications into the modifications of each shard, whereby the descriptors of the states may be
+     * inserted or deleted by description modifications that are applied before the state modifications.
+     * <p>
+     * This is required if description and state modifications are preprocessed together before any of them is
+     * applied.
+     * The description modifications are expected to have been split by {@link #partition(MdibDescriptionModifications)}
+     * before, which creates the shards of inserted root entities.
+     *
+     * @param modifications        the modifications to split.
+     * @param pendingModifications the description modifications that are applied before the state modifications.
+     * @return the modifications of each affected shard, sorted by root handle.
+     * @throws PreprocessingException if a state refers to a descriptor that is unknown after the description
+     *                                modifications have been applied.
+     */
+    public Map<Shard, MdibStateModifications> partition(MdibStateModifications modifications,
+                                                        MdibDescriptionModifications pendingModifications)
+            throws PreprocessingException {
+        checkWritable();
+        var pendingRootHandles = new HashMap<String, String>();
+        var deletedHandles = new HashSet<String>();
+        for (MdibDescriptionModification modification : pendingModifications.getModifications()) {
+            if (modification.getModificationType() == MdibDescriptionModification.Type.DELETE) {
+                deletedHandles.add(modification.getHandle());
+                pendingRootHandles.remove(modification.getHandle());
+            } else {
+                deletedHandles.remove(modification.getHandle());
+                rootHandleOf(modification, pendingRootHandles);
+            }
+        }
+        return checkAndPartitionStates(modifications, handle -> deletedHandles.contains(handle)
+                ? null
+                : pendingRootHandles.getOrDefault(handle, rootHandles.get(handle)));
+    }
+
+    @Override
+    public WriteDescriptionResult apply(MdibVersion mdibVersion,
+                                        @Nullable BigInteger mdDescriptionVersion,
+                                        @Nullable BigInteger mdStateVersion,
+                                        MdibDescriptionModifications descriptionModifications) {
+        checkWritable();
+        setVersions(mdibVersion, mdDescriptionVersion, mdStateVersion);
+
+        var partitions = new LinkedHashMap<String, MdibDescriptionModifications>();
+        var insertedRootHandles = new HashMap<String, String>();
+        for (MdibDescriptionModification modification : descriptionModifications.getModifications()) {
+            var rootHandle = rootHandleOf(modification, insertedRootHandles);
+            if (rootHandle == null) {
+                log.warn("Possible inconsistency detected. Entity to modify cannot be assigned to a shard: {}",
+                        modification.getHandle());
+                continue;
+            }
+            partitions.computeIfAbsent(rootHandle, handle -> MdibDescriptionModifications.create())
+                    .add(modification);
+        }
+
+        final List<MdibEntity> insertedEntities = new ArrayList<>();
+        final List<MdibEntity> updatedEntities = new ArrayList<>();
+        final List<MdibEntity> deletedEntities = new ArrayList<>();
+        for (Map.Entry<String, MdibDescriptionModifications> partition : partitions.entrySet()) {
+            var result = shard(partition.getKey()).storage.apply(
+                    this.mdibVersion, this.mdDescriptionVersion, this.mdStateVersion, partition.getValue());
+            for (MdibEntity entity : result.getInsertedEntities()) {
+                rootHandles = rootHandles.put(entity.getHandle(), partition.getKey());
+            }
+            for (MdibEntity entity : result.getDeletedEntities()) {
+                rootHandles = rootHandles.remove(entity.getHandle());
+            }
+            insertedEntities.addAll(result.getInsertedEntities());
+            updatedEntities.addAll(result.getUpdatedEntities());
+            deletedEntities.addAll(result.getDeletedEntities());
+        }
+
+        publishSnapshot();
+        return new WriteDescriptionResult(this.mdibVersion, insertedEntities, updatedEntities, deletedEntities);
+    }
+
+    @Override
+    public WriteStateResult apply(MdibVersion mdibVersion,
+                                  @Nullable BigInteger mdStateVersion,
+                                  MdibStateModifications stateModifications) {
+        checkWritable();
+        for (AbstractState state : stateModifications.getStates()) {
+            if (!rootHandles.containsKey(state.getDescriptorHandle())) {
+                throw new RuntimeException("Inserting states without descriptors is not supported by sharded"
+                        + " MDIB storages, descriptor handle " + state.getDescriptorHandle());
+            }
+        }
+
+        setVersions(mdibVersion, null, mdStateVersion);
+        var partitions = partitionStates(stateModifications, rootHandles::get);
+        for (Map.Entry<Shard, MdibStateModifications> partition : partitions.entrySet()) {
+            partition.getKey().storage.apply(this.mdibVersion, this.mdStateVersion, partition.getValue());
+        }
+
+        publishSnapshot();
+        return new WriteStateResult(this.mdibVersion, new ArrayList<>(stateModifications.getStates()));
+    }
+
+    @Override
+    public <T> T applyBatch(BatchOperation<T> operation) throws PreprocessingException {
+        checkWritable();
+        batchDepth++;
+        try {
+            return operation.run();
+        } finally {
+            batchDepth--;
+            publishSnapshot();
+        }
+    }
+
+    @Override
+    public Optional<MdibStorage> getSnapshot() {
+        return Optional.ofNullable(snapshot);
+    }
+
+    @Override
+    public MdibVersion getMdibVersion() {
+        return mdibVersion;
+    }
+
+    @Override
+    public BigInteger getMdDescriptionVersion() {
+        return mdDescriptionVersion;
+    }
+
+    @Override
+    public BigInteger getMdStateVersion() {
+        return mdStateVersion;
+    }
+
+    @Override
+    public <T extends AbstractDescriptor> Optional<T> getDescriptor(String handle, Class<T> descrClass) {
+        return shardStorage(handle).flatMap(storage -> storage.getDescriptor(handle, descrClass));
+    }
+
+    @Override
+    public Optional<AbstractDescriptor> getDescriptor(String handle) {
+        return shardStorage(handle).flatMap(storage -> storage.getDescriptor(handle));
+    }
+
+    @Override
+    public Optional<MdibEntity> getEntity(String handle) {
+        return shardStorage(handle).flatMap(storage -> storage.getEntity(handle));
+    }
+
+    @Override
+    public <T extends AbstractDescriptor> Collection<MdibEntity> findEntitiesByType(Class<T> type) {
+        return collect(storage -> storage.findEntitiesByType(type));
+    }
+
+    @Override
+    public List<MdibEntity> findEntities(MdibQuery query) {
+        return collect(storage -> storage.findEntities(query));
+    }
+
+    @Override
+    public <T extends AbstractDescriptor> List<MdibEntity> getChildrenByType(String handle, Class<T> type) {
+        return shardStorage(handle).map(storage -> storage.getChildrenByType(handle, type))
+                .orElseGet(ArrayList::new);
+    }
+
+    @Override
+    public List<String> getAncestorHandles(String handle) {
+        return shardStorage(handle).map(storage -> storage.getAncestorHandles(handle)).orElseGet(List::of);
+    }
+
+    @Override
+    public List<MdibEntity> getRootEntities() {
+        return collect(MdibStorage::getRootEntities);
+    }
+
+    @Override
+    public Optional<AbstractState> getState(String handle) {
+        return findInShards(handle, storage -> storage.getState(handle));
+    }
+
+    @Override
+    public <T extends AbstractState> Optional<T> getState(String handle, Class<T> stateClass) {
+        return findInShards(handle, storage -> storage.getState(handle, stateClass));
+    }
+
+    @Override
+    public <T extends AbstractState> List<T> getStatesByType(Class<T> stateClass) {
+        return collect(storage -> storage.getStatesByType(stateClass));
+    }
+
+    @Override
+    public <T extends AbstractContextState> List<T> getContextStates(String descriptorHandle, Class<T> stateClass) {
+        return shardStorage(descriptorHandle).map(storage -> storage.getContextStates(descriptorHandle, stateClass))
+                .orElseGet(List::of);
+    }
+
+    @Override
+    public List<AbstractContextState> getContextStates(String descriptorHandle) {
+        return shardStorage(descriptorHandle).map(storage -> storage.getContextStates(descriptorHandle))
+                .orElseGet(List::of);
+    }
+
+    @Override
+    public List<AbstractMultiState> getMultiStates(String descriptorHandle) {
+        return shardStorage(descriptorHandle).map(storage -> storage.getMultiStates(descriptorHandle))
+                .orElseGet(List::of);
+    }
+
+    @Override
+    public List<AbstractContextState> getContextStates() {
+        return collect(MdibStorage::getContextStates);
+    }
+
+    @Override
+    public <T extends AbstractContextState> List<T> findContextStatesByType(Class<T> stateClass) {
+        return collect(storage -> storage.findContextStatesByType(stateClass));
+    }
+
+    @Override
+    public Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion) {
+        return findInShards(handle, storage -> storage.getStateAt(handle, mdibVersion));
+    }
+
+    @Override
+    public Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion) {
+        var shardResults = new HashMap<String, AbstractState>();
+        for (MdibStorage storage : shardStorages.values()) {
+            shardResults.putAll(storage.getStatesAt(handles, mdibVersion));
+        }
+        // keep the order of the requested handles
+        var result = new LinkedHashMap<String, AbstractState>(shardResults.size());
+        for (String handle : handles) {
+            var state = shardResults.get(handle);
+            if (state != null) {
+                result.put(handle, state);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<WaveformSamples> getWaveformSamples(String handle, int maxCount) {
+        return findInShards(handle, storage -> storage.getWaveformSamples(handle, maxCount));
+    }
+
+    @Override
+    public Optional<RealTimeSampleArrayMetricState> getWaveformState(String handle, int maxCount) {
+        return findInShards(handle, storage -> storage.getWaveformState(handle, maxCount));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName();
+    }
+
+    private void checkWritable() {
+        if (shards == null) {
+            throw new UnsupportedOperationException("MDIB storage snapshots are read-only");
+        }
+    }
+
+    private void setVersions(MdibVersion mdibVersion,
+                             @Nullable BigInteger mdDescriptionVersion,
+                             @Nullable BigInteger mdStateVersion) {
+        this.mdibVersion = mdibVersion;
+        Optional.ofNullable(mdDescriptionVersion).ifPresent(version -> this.mdDescriptionVersion = version);
+        Optional.ofNullable(mdStateVersion).ifPresent(version -> this.mdStateVersion = version);
+    }
+
+    /*
+     * Resolves the root handle of a modification, whereby entities inserted by preceding modifications of the same
+     * change set are tracked in insertedRootHandles. Returns null if the entity or its parent is unknown.
+     */
+    @Nullable
+    private String rootHandleOf(MdibDescriptionModification modification, Map<String, String> insertedRootHandles) {
+        var handle = modification.getHandle();
+        var rootHandle = insertedRootHandles.get(handle);
+        if (rootHandle == null) {
+            rootHandle = rootHandles.get(handle);
+        }
+        if (rootHandle != null || modification.getModificationType() != MdibDescriptionModification.Type.INSERT) {
+            return rootHandle;
+        }
+
+        var parentHandle = modification.getParentHandle();
+        if (parentHandle.isEmpty()) {
+            rootHandle = handle;
+        } else {
+            rootHandle = insertedRootHandles.get(parentHandle.get());
+            if (rootHandle == null) {
+                rootHandle = rootHandles.get(parentHandle.get());
+            }
+        }
+        if (rootHandle != null) {
+            insertedRootHandles.put(handle, rootHandle);
+        }
+        return rootHandle;
+    }
+
+    private Map<Shard, MdibStateModifications> checkAndPartitionStates(MdibStateModifications modifications,
+                                                                       Function<String, String> rootHandleLookup)
+            throws PreprocessingException {
+        for (AbstractState state : modifications.getStates()) {
+            if (rootHandleLookup.apply(state.getDescriptorHandle()) == null) {
+                throw new PreprocessingException("State refers to an unknown descriptor",
+                        state.getDescriptorHandle(), toString());
+            }
+        }
+        return partitionStates(modifications, rootHandleLookup);
+    }
+
+    private Map<Shard, MdibStateModifications> partitionStates(MdibStateModifications modifications,
+                                                               Function<String, String> rootHandleLookup) {
+        var partitions = new TreeMap<Shard, MdibStateModifications>(SHARD_ORDER);
+        for (AbstractState state : modifications.getStates()) {
+            partitions.computeIfAbsent(shards.get(rootHandleLookup.apply(state.getDescriptorHandle())),
+                    shard -> MdibStateModifications.create(modifications.getChangeType())).add(state);
+        }
+        if (partitions.size() == 1) {
+            partitions.replaceAll((shard, shardModifications) -> modifications);
+        }
+        return partitions;
+    }
+
+    private Shard shard(String rootHandle) {
+        return shards.computeIfAbsent(rootHandle, handle -> {
+            var storage = storageFactory.createMdibStorage(mdibVersion, mdDescriptionVersion, mdStateVersion);
+            shardStorages.put(handle, storage);
+            return new Shard(handle, storage, chainFactory.apply(storage));
+        });
+    }
+
+    private Optional<MdibStorage> shardStorage(String handle) {
+        var rootHandle = rootHandles.get(handle);
+        return rootHandle == null ? Optional.empty() : Optional.ofNullable(shardStorages.get(rootHandle));
+    }
+
+    /*
+     * Looks up handles that are not necessarily descriptor handles, e.g., multi-state handles or handles of deleted
+     * entities, in all shards if the handle is unknown.
+     */
+    private <T> Optional<T> findInShards(String handle, Function<MdibStorage, Optional<T>> lookup) {
+        var storage = shardStorage(handle);
+        if (storage.isPresent()) {
+            return lookup.apply(storage.get());
+        }
+        for (MdibStorage shardStorage : shardStorages.values()) {
+            var result = lookup.apply(shardStorage);
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private <T> List<T> collect(Function<MdibStorage, Collection<? extends T>> lookup) {
+        var result = new ArrayList<T>();
+        for (MdibStorage storage : shardStorages.values()) {
+            result.addAll(lookup.apply(storage));
+        }
+        return result;
+    }
+
+    private void publishSnapshot() {
+        if (batchDepth > 0) {
+            return;
+        }
+
+        var shardSnapshots = new LinkedHashMap<String, MdibStorage>();
+        for (Shard shard : shards.values()) {
+            var shardSnapshot = shard.storage.getSnapshot();
+            if (shardSnapshot.isEmpty()) {
+                return;
+            }
+            shardSnapshots.put(shard.rootHandle, shardSnapshot.get());
+        }
+        snapshot = new ShardedMdibStorage(this, shardSnapshots);
+    }
+
+    /**
+     * Partition of a {@linkplain ShardedMdibStorage} that contains one root entity and its descendants.
+     */
+    public static final class Shard {
+        private final String rootHandle;
+        private final MdibStorage storage;
+        private final MdibStoragePreprocessingChain preprocessingChain;
+        private final ReentrantLock lock;
+
+        private Shard(String rootHandle, MdibStorage storage, MdibStoragePreprocessingChain preprocessingChain) {
+            this.rootHandle = rootHandle;
+            this.storage = storage;
+            this.preprocessingChain = preprocessingChain;
+            this.lock = new ReentrantLock();
+        }
+
+        /**
+         * Gets the handle of the root entity.
+         *
+         * @return the root handle, e.g., an MDS handle.
+         */
+        public String getRootHandle() {
+            return rootHandle;
+        }
+
+        /**
+         * Gets the preprocessing chain that is supposed to process all modifications of this shard.
+         * <p>
+         * The chain operates on the storage of this shard only.
+         *
+         * @return the preprocessing chain of this shard.
+         */
+        public MdibStoragePreprocessingChain getPreprocessingChain() {
+            return preprocessingChain;
+        }
+
+        /**
+         * Gets the lock that is supposed to be held while modifications of this shard are preprocessed and applied.
+         *
+         * @return the lock of this shard.
+         */
+        public ReentrantLock getLock() {
+            return lock;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.somda.sdc.biceps.common.storage;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.common.access.CopyManager;
+import org.somda.sdc.biceps.model.participant.AbstractMultiState;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded history of the states written to an {@linkplain MdibStorageImpl}.
+ * <p>
+ * Every state handle is assigned a ring buffer of past states, each of which is keyed by the MDIB version it was
+ * written with.
+ * The rings only hold references to the MDIB versions and states that are stored anyway, hence a recorded state
+ * costs a few bytes as long as it is part of the MDIB, and is released by the ring once it is evicted.
+ * Rings are bounded by {@link CommonConfig#STATE_HISTORY_CAPACITY} and {@link CommonConfig#STATE_HISTORY_RETENTION}.
+ * <p>
+ * Recording is done by the storage while the MDIB write lock is held; queries can be issued from any thread.
+ * The history is cleared whenever the MDIB sequence changes, as MDIB versions of different sequences are not
+ * comparable.
+ */
+public class StateHistory {
+    private static final int INITIAL_RING_CAPACITY = 4;
+
+    private final CopyManager copyManager;
+    private final int capacity;
+    private final long retentionNanos;
+    private final Map<String, Ring> rings;
+
+    private volatile MdibVersion latestMdibVersion;
+
+    @Inject
+    StateHistory(CopyManager copyManager,
+                 @Named(CommonConfig.STATE_HISTORY_CAPACITY) Integer capacity,
+                 @Named(CommonConfig.STATE_HISTORY_RETENTION) Duration retention) {
+        this.copyManager = copyManager;
+        this.capacity = Math.max(0, capacity);
+        this.retentionNanos = retention.toNanos();
+        this.rings = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Checks if states are recorded.
+     *
+     * @return true if {@link CommonConfig#STATE_HISTORY_CAPACITY} is greater than 0, false otherwise.
+     */
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Retrieves a state as it was present at a given MDIB version.
+     *
+     * @param handle      the state or descriptor handle of the state to request (descriptor handle is used in case of
+     *                    single states).
+     * @param mdibVersion the MDIB version to look up.
+     * @return the latest state that was written with an MDIB version less than or equal to {@code mdibVersion}, or
+     * {@linkplain Optional#empty()} if the state did not exist at that version, has not been retained, or the MDIB
+     * version is of another sequence.
+     */
+    public Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion) {
+        if (!isComparable(mdibVersion)) {
+            return Optional.empty();
+        }
+        var ring = rings.get(handle);
+        if (ring == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(ring.find(mdibVersion)).map(copyManager::processOutput);
+    }
+
+    /**
+     * Retrieves a set of states as they were present at a given MDIB version.
+     *
+     * @param handles     the state or descriptor handles of the states to request (descriptor handles are used in case
+     *                    of single states).
+     * @param mdibVersion the MDIB version to look up.
+     * @return a map of handles to states as of {@code mdibVersion} in the order of {@code handles}.
+     * Handles for which {@link #getStateAt(String, MdibVersion)} does not find a state are omitted.
+     */
+    public Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion) {
+        var result = new LinkedHashMap<String, AbstractState>(handles.size());
+        if (!isComparable(mdibVersion)) {
+            return result;
+        }
+        for (String handle : handles) {
+            var ring = rings.get(handle);
+            if (ring != null) {
+                var state = ring.find(mdibVersion);
+                if (state != null) {
+                    result.put(handle, copyManager.processOutput(state));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records a state that has been written to the storage.
+     * <p>
+     * A state that is already the latest entry of its ring is not recorded again.
+     *
+     * @param mdibVersion the MDIB version the state has been written with.
+     * @param state       the stored state.
+     */
+    void record(MdibVersion mdibVersion, AbstractState state) {
+        if (!isEnabled()) {
+            return;
+        }
+        resetOnSequenceChange(mdibVersion);
+        var handle = state instanceof AbstractMultiState
+                ? ((AbstractMultiState) state).getHandle()
+                : state.getDescriptorHandle();
+        rings.computeIfAbsent(handle, key -> new Ring(Math.min(capacity, INITIAL_RING_CAPACITY)))
+                .add(mdibVersion, System.nanoTime(), state, capacity, retentionNanos);
+    }
+
+    /**
+     * Records that a state has been removed from the storage.
+     * <p>
+     * Removals are only recorded for handles that have been recorded before.
+     *
+     * @param mdibVersion the MDIB version the state has been removed with.
+     * @param handle      the state handle, or the descriptor handle in case of single states.
+     */
+    void recordRemoval(MdibVersion mdibVersion, String handle) {
+        if (!isEnabled()) {
+            return;
+        }
+        resetOnSequenceChange(mdibVersion);
+        var ring = rings.get(handle);
+        if (ring != null) {
+            ring.add(mdibVersion, System.nanoTime(), null, capacity, retentionNanos);
+        }
+    }
+
+    private void resetOnSequenceChange(MdibVersion mdibVersion) {
+        var latest = latestMdibVersion;
+        if (latest != null && latest.compareToMdibVersion(mdibVersion).isEmpty()) {
+            rings.clear();
+        }
+        latestMdibVersion = mdibVersion;
+    }
+
+    private boolean isComparable(MdibVersion mdibVersion) {
+        var latest = latestMdibVersion;
+        return latest != null && latest.compareToMdibVersion(mdibVersion).isPresent();
+    }
+
+    /**
+     * Ring buffer of the past states of one handle in ascending MDIB version order.
+     * <p>
+     * Entries are stored in parallel arrays that grow on demand up to the configured capacity.
+     * A null state marks a removal.
+     */
+    private static final class Ring {
+        private MdibVersion[] versions;
+        private long[] timestamps;
+        private AbstractState[] states;
+        private int head;
+        private int size;
+
+        Ring(int initialCapacity) {
+            this.versions = new MdibVersion[initialCapacity];
+            this.timestamps = new long[initialCapacity];
+            this.states = new AbstractState[initialCapacity];
+        }
+
+        synchronized void add(MdibVersion mdibVersion,
+                              long timestamp,
+                              @Nullable AbstractState state,
+                              int capacity,
+                              long retentionNanos) {
+            if (size > 0) {
+                var latest = index(size - 1);
+                if (states[latest] == state) {
+                    return;
+                }
+                // several writes of the same handle with one MDIB version only leave the last one visible
+                if (versions[latest].equals(mdibVersion)) {
+                    states[latest] = state;
+                    timestamps[latest] = timestamp;
+                    return;
+                }
+            }
+
+            if (size == capacity) {
+                evictOldest();
+            } else if (size == versions.length) {
+                grow(capacity);
+            }
+
+            var index = index(size);
+            versions[index] = mdibVersion;
+            timestamps[index] = timestamp;
+            states[index] = state;
+            size++;
+
+            if (retentionNanos > 0) {
+                // the latest entry is always retained
+                while (size > 1 && timestamp - timestamps[index(1)] > retentionNanos) {
+                    evictOldest();
+                }
+            }
+        }
+
+        @Nullable
+        synchronized AbstractState find(MdibVersion mdibVersion) {
+            // binary search for the latest entry with a version less than or equal to the requested one
+            int low = 0;
+            int high = size - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                var comparison = versions[index(mid)].compareToMdibVersion(mdibVersion).orElse(1);
+                if (comparison <= 0) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found < 0 ? null : states[index(found)];
+        }
+
+        private void evictOldest() {
+            versions[head] = null;
+            states[head] = null;
+            head = (head + 1) % versions.length;
+            size--;
+        }
+
+        private void grow(int capacity) {
+            var newLength = Math.min(capacity, versions.length * 2);
+            var newVersions = new MdibVersion[newLength];
+            var newTimestamps = new long[newLength];
+            var newStates = new AbstractState[newLength];
+            for (int i = 0; i < size; i++) {
+                var index = index(i);
+                newVersions[i] = versions[index];
+                newTimestamps[i] = timestamps[index];
+                newStates[i] = states[index];
+            }
+            versions = newVersions;
+            timestamps = newTimestamps;
+            states = newStates;
+            head = 0;
+        }
+
+        private int index(int position) {
+            return (head + position) % versions.length;
+        }
+    }
+}
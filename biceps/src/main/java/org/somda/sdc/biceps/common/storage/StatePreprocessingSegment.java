@@ -39,4 +39,19 @@ public interface StatePreprocessingSegment {
      */
     default void afterLastModification(MdibStateModifications modifications, MdibStorage mdibStorage) {
     }
+
+    /**
+     * Checks if this segment needs to process state modifications that only update states of known entities.
+     * <p>
+     * The {@linkplain MdibStoragePreprocessingChain} considers a state known if the {@linkplain MdibStorage} holds a
+     * state of the same type and with the same handle that belongs to the same descriptor.
+     * Segments that only verify the integrity of new states can skip change sets consisting of known states.
+     * <p>
+     * Default behavior is <em>required</em>.
+     *
+     * @return true if the segment has to process change sets that only include known states, false otherwise.
+     */
+    default boolean isRequiredForKnownStates() {
+        return true;
+    }
 }
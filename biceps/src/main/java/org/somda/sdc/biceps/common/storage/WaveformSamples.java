@@ -0,0 +1,100 @@
+package org.somda.sdc.biceps.common.storage;
+
+import java.time.Duration;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+
+/**
+ * Read view of consecutive samples of a waveform in a {@linkplain WaveformStore}.
+ * <p>
+ * The view does not copy any samples but reads them from the off-heap ring buffer of the store.
+ * As the ring buffer is continuously overwritten by new samples, reads fail with a
+ * {@linkplain ConcurrentModificationException} once the viewed samples have been overwritten.
+ */
+public class WaveformSamples {
+    private final WaveformStore.Ring ring;
+    private final long firstSampleIndex;
+    private final int size;
+
+    WaveformSamples(WaveformStore.Ring ring, long firstSampleIndex, int size) {
+        this.ring = ring;
+        this.firstSampleIndex = firstSampleIndex;
+        this.size = size;
+    }
+
+    /**
+     * Gets the number of viewed samples.
+     *
+     * @return the number of samples.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the index of the first viewed sample.
+     * <p>
+     * Samples are counted since the store started to record the waveform, hence the index can be used to find out if
+     * two views overlap.
+     *
+     * @return the index of the first sample.
+     */
+    public long getFirstSampleIndex() {
+        return firstSampleIndex;
+    }
+
+    /**
+     * Gets the sample period the samples are recorded with.
+     *
+     * @return the sample period of the waveform descriptor, or 1 millisecond if unknown.
+     */
+    public Duration getSamplePeriod() {
+        return ring.getSamplePeriod();
+    }
+
+    /**
+     * Reads a sample.
+     *
+     * @param index the index of the sample within this view, where 0 is the oldest sample.
+     * @return the sample value.
+     * @throws IndexOutOfBoundsException       if {@code index} is not within the view.
+     * @throws ConcurrentModificationException if the sample has been overwritten in the meantime.
+     */
+    public double get(int index) {
+        Objects.checkIndex(index, size);
+        var value = ring.get(firstSampleIndex + index);
+        if (!ring.isRetained(firstSampleIndex + index)) {
+            throw new ConcurrentModificationException(
+                    String.format("Sample %s has been overwritten", firstSampleIndex + index));
+        }
+        return value;
+    }
+
+    /**
+     * Copies all samples to an array.
+     *
+     * @param target the array to copy to.
+     * @param offset the position in {@code target} where to put the oldest sample.
+     * @throws IndexOutOfBoundsException       if {@code target} does not have room for all samples.
+     * @throws ConcurrentModificationException if any sample has been overwritten in the meantime.
+     */
+    public void copyTo(double[] target, int offset) {
+        Objects.checkFromIndexSize(offset, size, target.length);
+        for (int i = 0; i < size; i++) {
+            target[offset + i] = ring.get(firstSampleIndex + i);
+        }
+        if (!ring.isRetained(firstSampleIndex)) {
+            throw new ConcurrentModificationException(
+                    String.format("Samples starting at %s have been overwritten", firstSampleIndex));
+        }
+    }
+
+    /**
+     * Checks if all samples of the view are still readable.
+     *
+     * @return true if no sample has been overwritten yet, false otherwise.
+     */
+    public boolean isValid() {
+        return ring.isRetained(firstSampleIndex);
+    }
+}
@@ -0,0 +1,443 @@
+package org.somda.sdc.biceps.common.storage;
+
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+import org.somda.sdc.biceps.model.participant.SampleArrayValue;
+import org.somda.sdc.common.util.ObjectUtil;
+import org.somda.sdc.common.util.SampleList;
+
+import javax.annotation.Nullable;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Off-heap store of the samples of the {@linkplain RealTimeSampleArrayMetricState}s written to an
+ * {@linkplain MdibStorageImpl}.
+ * <p>
+ * Every waveform handle is assigned a ring buffer of primitive samples that is allocated outside of the Java heap.
+ * A ring holds the samples of {@link CommonConfig#WAVEFORM_STORE_DURATION} based on the sample period of the
+ * corresponding {@linkplain RealTimeSampleArrayMetricDescriptor}.
+ * The sample arrays of consecutive writes are appended in write order, i.e., gaps between sample arrays are not
+ * represented.
+ * Samples are stored as doubles, which loses precision for decimals with more than 15 significant digits.
+ * <p>
+ * Recording moves the samples of a written state into the ring: the state is given a {@linkplain SampleList} that
+ * reads its samples from the ring instead of keeping them on the heap.
+ * Hence, BICEPS reports and GetMdState responses marshal the samples straight from the ring.
+ * As long as a state is referenced, e.g., by an MDIB snapshot, a {@linkplain StateHistory} or an application, its
+ * samples are copied to the heap right before the ring overwrites them.
+ * Samples of states that are frozen, that exceed the ring capacity or that cannot be represented as doubles are kept
+ * on the heap as is.
+ * <p>
+ * The newest samples of a handle can be read without copying by means of {@link #getSamples(String, int)}.
+ * {@linkplain RealTimeSampleArrayMetricState}s that span more than the last sample array are only materialized on
+ * request by {@link #getState(String, int)}, which returns the samples as {@linkplain SampleList}.
+ * <p>
+ * Recording is done by the storage while the MDIB write lock is held; reads can be issued from any thread.
+ */
+public class WaveformStore {
+    private static final Duration DEFAULT_SAMPLE_PERIOD = Duration.ofMillis(1);
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / Double.BYTES;
+
+    private final ObjectUtil objectUtil;
+    private final long durationNanos;
+    private final Map<String, Ring> rings;
+
+    @Inject
+    WaveformStore(ObjectUtil objectUtil,
+                  @Named(CommonConfig.WAVEFORM_STORE_DURATION) Duration duration) {
+        this.objectUtil = objectUtil;
+        this.durationNanos = duration.toNanos();
+        this.rings = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Checks if waveform samples are recorded.
+     *
+     * @return true if {@link CommonConfig#WAVEFORM_STORE_DURATION} is greater than zero, false otherwise.
+     */
+    public boolean isEnabled() {
+        return durationNanos > 0;
+    }
+
+    /**
+     * Retrieves a read view of the newest samples of a waveform.
+     * <p>
+     * The view directly accesses the ring buffer of the waveform, hence it does not reflect a specific MDIB version and
+     * becomes invalid once its samples are overwritten by subsequent writes.
+     *
+     * @param handle   the descriptor handle of the waveform.
+     * @param maxCount the maximum number of samples to view.
+     * @return a view of the newest {@code maxCount} samples, or less if fewer samples are retained, or
+     * {@linkplain Optional#empty()} if no samples have been recorded for {@code handle}.
+     */
+    public Optional<WaveformSamples> getSamples(String handle, int maxCount) {
+        return Optional.ofNullable(rings.get(handle)).map(ring -> ring.view(maxCount));
+    }
+
+    /**
+     * Retrieves a read view of the newest samples of a waveform that have been written up to an MDIB version.
+     *
+     * @param handle      the descriptor handle of the waveform.
+     * @param maxCount    the maximum number of samples to view.
+     * @param mdibVersion the MDIB version to look up.
+     * @return a view of the newest {@code maxCount} samples as of {@code mdibVersion}, or less if fewer samples are
+     * retained, or {@linkplain Optional#empty()} if no samples of {@code mdibVersion} have been retained for
+     * {@code handle}.
+     * @see #getSamples(String, int)
+     */
+    public Optional<WaveformSamples> getSamples(String handle, int maxCount, MdibVersion mdibVersion) {
+        var ring = rings.get(handle);
+        if (ring == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(ring.find(mdibVersion)).map(write -> ring.view(write.endSampleIndex, maxCount));
+    }
+
+    /**
+     * Materializes a waveform state that contains the newest samples of a waveform.
+     * <p>
+     * All attributes except the samples are copied from the latest written state.
+     * The determination time is shifted by the sample period to match the first sample, and apply annotations
+     * of the latest written state are retained as far as they refer to samples that are part of the result.
+     *
+     * @param handle   the descriptor handle of the waveform.
+     * @param maxCount the maximum number of samples to include.
+     * @return a new waveform state with the newest {@code maxCount} samples, or less if fewer samples are retained, or
+     * {@linkplain Optional#empty()} if no samples have been recorded for {@code handle}.
+     */
+    public Optional<RealTimeSampleArrayMetricState> getState(String handle, int maxCount) {
+        return Optional.ofNullable(rings.get(handle)).map(ring -> {
+            while (true) {
+                var latest = ring.latest;
+                var state = materialize(ring, latest.state, latest.firstSampleIndex, latest.endSampleIndex, maxCount);
+                if (state != null) {
+                    return state;
+                }
+            }
+        });
+    }
+
+    /**
+     * Materializes a waveform state that contains the newest samples of a waveform that have been written up to an
+     * MDIB version.
+     *
+     * @param handle      the descriptor handle of the waveform.
+     * @param maxCount    the maximum number of samples to include.
+     * @param mdibVersion the MDIB version to look up.
+     * @param state       the state that has been stored at {@code mdibVersion}, which all attributes except the samples
+     *                    are copied from.
+     * @return a new waveform state with the newest {@code maxCount} samples as of {@code mdibVersion}, or less if fewer
+     * samples are retained, or {@linkplain Optional#empty()} if no samples of {@code mdibVersion} have been retained
+     * for {@code handle}.
+     * @see #getState(String, int)
+     */
+    public Optional<RealTimeSampleArrayMetricState> getState(String handle,
+                                                             int maxCount,
+                                                             MdibVersion mdibVersion,
+                                                             RealTimeSampleArrayMetricState state) {
+        var ring = rings.get(handle);
+        var write = ring == null ? null : ring.find(mdibVersion);
+        if (write == null) {
+            return Optional.empty();
+        }
+        while (true) {
+            var result = materialize(ring, state, write.firstSampleIndex, write.endSampleIndex, maxCount);
+            if (result != null) {
+                return Optional.of(result);
+            }
+        }
+    }
+
+    /**
+     * Records the samples of a waveform state that is written to the storage.
+     * <p>
+     * If possible, the samples of the state are replaced by a {@linkplain SampleList} that reads from the ring.
+     * If the sample period changed since the last write, the ring is reallocated and all samples recorded before are
+     * discarded from the store, while states that still read from the previous ring keep it alive.
+     *
+     * @param state        the stored state, which is not frozen yet.
+     * @param samplePeriod the sample period of the waveform or null if unknown, in which case 1 millisecond is assumed.
+     * @param mdibVersion  the MDIB version the state is written with.
+     */
+    void record(RealTimeSampleArrayMetricState state, @Nullable Duration samplePeriod, MdibVersion mdibVersion) {
+        if (!isEnabled()) {
+            return;
+        }
+        var period = samplePeriod == null || samplePeriod.isZero() || samplePeriod.isNegative()
+                ? DEFAULT_SAMPLE_PERIOD : samplePeriod;
+        var ring = rings.get(state.getDescriptorHandle());
+        if (ring == null || !ring.samplePeriod.equals(period)) {
+            var periodNanos = Math.max(1, period.toNanos());
+            var capacity = (int) Math.min(MAX_CAPACITY, Math.max(1, (durationNanos + periodNanos - 1) / periodNanos));
+            ring = new Ring(capacity, period);
+            rings.put(state.getDescriptorHandle(), ring);
+        }
+        ring.append(state, mdibVersion);
+    }
+
+    /**
+     * Discards all samples of a waveform whose entity has been removed from the storage.
+     *
+     * @param handle the descriptor handle of the removed entity.
+     */
+    void remove(String handle) {
+        // the direct buffer is released by the garbage collector once no view references the ring anymore
+        rings.remove(handle);
+    }
+
+    @Nullable
+    private RealTimeSampleArrayMetricState materialize(Ring ring,
+                                                      @Nullable RealTimeSampleArrayMetricState writtenState,
+                                                      long firstSampleIndex,
+                                                      long endSampleIndex,
+                                                      int maxCount) {
+        var view = ring.view(endSampleIndex, maxCount);
+        var values = new double[view.size()];
+        try {
+            view.copyTo(values, 0);
+        } catch (ConcurrentModificationException e) {
+            // samples were overwritten while copying, the caller retries with a view of the current ring content
+            return null;
+        }
+
+        var state = writtenState == null
+                ? new RealTimeSampleArrayMetricState()
+                : objectUtil.deepCopy(writtenState);
+        if (values.length == 0) {
+            return state;
+        }
+
+        var metricValue = state.getMetricValue() == null ? new SampleArrayValue() : state.getMetricValue();
+        metricValue.setSamples(SampleList.ofDoubles(values));
+
+        // number of samples the result starts before the sample array of the written state
+        var offset = firstSampleIndex - view.getFirstSampleIndex();
+        if (metricValue.getDeterminationTime() != null) {
+            metricValue.setDeterminationTime(metricValue.getDeterminationTime()
+                    .minus(ring.samplePeriod.multipliedBy(offset)));
+        }
+        var annotations = new ArrayList<SampleArrayValue.ApplyAnnotation>();
+        for (SampleArrayValue.ApplyAnnotation annotation : metricValue.getApplyAnnotation()) {
+            var sampleIndex = annotation.getSampleIndex() + offset;
+            if (sampleIndex >= 0 && sampleIndex < values.length) {
+                annotation.setSampleIndex(sampleIndex);
+                annotations.add(annotation);
+            }
+        }
+        metricValue.setApplyAnnotation(annotations);
+        state.setMetricValue(metricValue);
+        return state;
+    }
+
+    /**
+     * Ring buffer of the samples of one waveform.
+     * <p>
+     * Samples are addressed by their index since the ring has been allocated.
+     * There is one writer that appends while holding the MDIB write lock, and arbitrary readers.
+     * Readers detect overwritten samples by checking the reservation counter after reading, which the writer
+     * increments before it overwrites any sample.
+     * Sample arrays that have been moved into the ring are tracked as weakly referenced {@linkplain Region}s, which
+     * the writer copies to the heap before it overwrites them if they are still in use.
+     * Readers of snapshots find the samples of a past MDIB version by means of the {@linkplain Write}s that still
+     * have samples in the ring.
+     */
+    static final class Ring {
+        private final DoubleBuffer buffer;
+        private final int capacity;
+        private final Duration samplePeriod;
+        private final ArrayDeque<RegionReference> regions;
+        private final ArrayDeque<Write> writes;
+
+        // index up to which (exclusive) samples may have been written
+        private volatile long reserved;
+        private volatile Latest latest;
+
+        Ring(int capacity, Duration samplePeriod) {
+            this.buffer = ByteBuffer.allocateDirect(capacity * Double.BYTES).asDoubleBuffer();
+            this.capacity = capacity;
+            this.samplePeriod = samplePeriod;
+            this.regions = new ArrayDeque<>();
+            this.writes = new ArrayDeque<>();
+            this.latest = new Latest(null, 0, 0);
+        }
+
+        void append(RealTimeSampleArrayMetricState state, MdibVersion mdibVersion) {
+            var metricValue = state.getMetricValue();
+            List<BigDecimal> samples = metricValue == null ? Collections.emptyList() : metricValue.getSamples();
+            var first = latest.endSampleIndex;
+            var end = first + samples.size();
+            detachRegionsBefore(end - capacity);
+            reserved = end;
+            // order the reservation before the overwriting stores
+            VarHandle.releaseFence();
+            var sampleIndex = first;
+            var finite = true;
+            if (samples instanceof SampleList) {
+                var sampleList = (SampleList) samples;
+                for (int i = 0; i < sampleList.size(); i++) {
+                    buffer.put(position(sampleIndex++), sampleList.getDouble(i));
+                }
+            } else {
+                for (BigDecimal sample : samples) {
+                    var value = sample.doubleValue();
+                    finite &= Double.isFinite(value);
+                    buffer.put(position(sampleIndex++), value);
+                }
+            }
+            if (finite && !samples.isEmpty() && samples.size() <= capacity && !metricValue.isFrozen()) {
+                var region = new Region(this, first, samples.size());
+                regions.add(new RegionReference(region));
+                metricValue.setSamples(SampleList.ofSource(samples.size(), region));
+            }
+            latest = new Latest(state, first, sampleIndex);
+
+            synchronized (writes) {
+                writes.add(new Write(mdibVersion, first, sampleIndex));
+                // writes without any retained sample cannot be viewed anymore
+                while (writes.peek().endSampleIndex <= sampleIndex - capacity) {
+                    writes.poll();
+                }
+            }
+        }
+
+        @Nullable
+        Write find(MdibVersion mdibVersion) {
+            synchronized (writes) {
+                var iterator = writes.descendingIterator();
+                while (iterator.hasNext()) {
+                    var write = iterator.next();
+                    if (write.mdibVersion.compareToMdibVersion(mdibVersion).orElse(1) <= 0) {
+                        return write;
+                    }
+                }
+                return null;
+            }
+        }
+
+        private void detachRegionsBefore(long sampleIndex) {
+            while (!regions.isEmpty() && regions.peek().firstSampleIndex < sampleIndex) {
+                var region = regions.poll().get();
+                if (region != null) {
+                    region.detach();
+                }
+            }
+        }
+
+        WaveformSamples view(int maxCount) {
+            return view(latest.endSampleIndex, maxCount);
+        }
+
+        WaveformSamples view(long endSampleIndex, int maxCount) {
+            var retained = Math.max(0, endSampleIndex - Math.max(0, reserved - capacity));
+            var size = (int) Math.min(Math.max(0, maxCount), retained);
+            return new WaveformSamples(this, endSampleIndex - size, size);
+        }
+
+        Duration getSamplePeriod() {
+            return samplePeriod;
+        }
+
+        double get(long sampleIndex) {
+            return buffer.get(position(sampleIndex));
+        }
+
+        boolean isRetained(long sampleIndex) {
+            // order the preceding sample reads before the reservation read
+            VarHandle.acquireFence();
+            return sampleIndex >= reserved - capacity;
+        }
+
+        private int position(long sampleIndex) {
+            return (int) (sampleIndex % capacity);
+        }
+    }
+
+    /**
+     * Samples of one stored state that are read from a ring until they are detached, i.e., copied to the heap.
+     */
+    private static final class Region implements SampleList.Source {
+        private final Ring ring;
+        private final long firstSampleIndex;
+        private final int size;
+
+        // set by the writer before the reservation that allows to overwrite the region
+        private volatile double[] detached;
+
+        Region(Ring ring, long firstSampleIndex, int size) {
+            this.ring = ring;
+            this.firstSampleIndex = firstSampleIndex;
+            this.size = size;
+        }
+
+        @Override
+        public double getDouble(int index) {
+            var samples = detached;
+            if (samples == null) {
+                var value = ring.get(firstSampleIndex + index);
+                if (ring.isRetained(firstSampleIndex + index)) {
+                    return value;
+                }
+                samples = detached;
+            }
+            return samples[index];
+        }
+
+        void detach() {
+            var samples = new double[size];
+            for (int i = 0; i < size; i++) {
+                samples[i] = ring.get(firstSampleIndex + i);
+            }
+            detached = samples;
+        }
+    }
+
+    private static final class RegionReference extends WeakReference<Region> {
+        private final long firstSampleIndex;
+
+        RegionReference(Region region) {
+            super(region);
+            this.firstSampleIndex = region.firstSampleIndex;
+        }
+    }
+
+    private static final class Write {
+        private final MdibVersion mdibVersion;
+        private final long firstSampleIndex;
+        private final long endSampleIndex;
+
+        Write(MdibVersion mdibVersion, long firstSampleIndex, long endSampleIndex) {
+            this.mdibVersion = mdibVersion;
+            this.firstSampleIndex = firstSampleIndex;
+            this.endSampleIndex = endSampleIndex;
+        }
+    }
+
+    private static final class Latest {
+        private final RealTimeSampleArrayMetricState state;
+        private final long firstSampleIndex;
+        private final long endSampleIndex;
+
+        Latest(@Nullable RealTimeSampleArrayMetricState state, long firstSampleIndex, long endSampleIndex) {
+            this.state = state;
+            this.firstSampleIndex = firstSampleIndex;
+            this.endSampleIndex = endSampleIndex;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.somda.sdc.biceps.common.storage.helper;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable secondary index that maps string keys to handles of the elements that carry these keys.
+ * <p>
+ * Keys describe attributes of an element (e.g., a coded type or an ancestor handle) and are supposed to be created by
+ * using {@linkplain AttributeKeys}.
+ * The keys of each handle are retained as well, hence an element can be re-indexed or removed without knowing its
+ * previous attributes.
+ * <p>
+ * Any modification returns a new index that shares all unaffected data with its predecessor (see
+ * {@linkplain PersistentMap}).
+ */
+public final class AttributeIndex {
+    private static final AttributeIndex EMPTY = new AttributeIndex(PersistentMap.empty(), PersistentMap.empty());
+
+    private final PersistentMap<String, PersistentMap<String, String>> handlesByKey;
+    private final PersistentMap<String, List<String>> keysByHandle;
+
+    private AttributeIndex(PersistentMap<String, PersistentMap<String, String>> handlesByKey,
+                           PersistentMap<String, List<String>> keysByHandle) {
+        this.handlesByKey = handlesByKey;
+        this.keysByHandle = keysByHandle;
+    }
+
+    /**
+     * Gets an empty index.
+     *
+     * @return an empty index instance.
+     */
+    public static AttributeIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates an index that maps the given keys to a handle instead of the keys the handle was mapped to before.
+     *
+     * @param handle the handle to index.
+     * @param keys   the keys of the element identified by {@code handle}.
+     * @return a new index including the mappings or this index if the keys did not change.
+     */
+    public AttributeIndex put(String handle, List<String> keys) {
+        var previousKeys = keysByHandle.get(handle);
+        if (keys.equals(previousKeys)) {
+            return this;
+        }
+
+        var result = previousKeys == null ? handlesByKey : removeAll(handlesByKey, handle, previousKeys);
+        for (String key : keys) {
+            var handles = result.get(key);
+            result = result.put(key, (handles == null ? PersistentMap.<String, String>empty() : handles)
+                    .put(handle, handle));
+        }
+        return new AttributeIndex(result, keys.isEmpty()
+                ? keysByHandle.remove(handle)
+                : keysByHandle.put(handle, List.copyOf(keys)));
+    }
+
+    /**
+     * Creates an index that does not map any key to a handle anymore.
+     *
+     * @param handle the handle to remove.
+     * @return a new index excluding all mappings of {@code handle}.
+     */
+    public AttributeIndex remove(String handle) {
+        var previousKeys = keysByHandle.get(handle);
+        if (previousKeys == null) {
+            return this;
+        }
+        return new AttributeIndex(removeAll(handlesByKey, handle, previousKeys), keysByHandle.remove(handle));
+    }
+
+    /**
+     * Checks if a key is mapped to a handle.
+     *
+     * @param key    the key to seek.
+     * @param handle the handle to seek.
+     * @return true if {@code key} is mapped to {@code handle}, false otherwise.
+     */
+    public boolean contains(String key, String handle) {
+        var handles = handlesByKey.get(key);
+        return handles != null && handles.containsKey(handle);
+    }
+
+    /**
+     * Performs an action for each handle that is mapped to a given key.
+     * <p>
+     * The iteration order is unspecified.
+     *
+     * @param key    the key to seek.
+     * @param action the action to perform for each handle.
+     */
+    public void forEachHandle(String key, Consumer<String> action) {
+        var handles = handlesByKey.get(key);
+        if (handles != null) {
+            handles.forEach((handle, unused) -> action.accept(handle));
+        }
+    }
+
+    /**
+     * Counts the handles that are mapped to a given key.
+     *
+     * @param key the key to seek.
+     * @return the number of handles mapped to {@code key}.
+     */
+    public int count(String key) {
+        var handles = handlesByKey.get(key);
+        return handles == null ? 0 : handles.size();
+    }
+
+    private static PersistentMap<String, PersistentMap<String, String>> removeAll(
+            PersistentMap<String, PersistentMap<String, String>> handlesByKey, String handle, List<String> keys) {
+        var result = handlesByKey;
+        for (String key : keys) {
+            var handles = result.get(key);
+            if (handles == null) {
+                continue;
+            }
+            var remainingHandles = handles.remove(handle);
+            result = remainingHandles.isEmpty() ? result.remove(key) : result.put(key, remainingHandles);
+        }
+        return result;
+    }
+}
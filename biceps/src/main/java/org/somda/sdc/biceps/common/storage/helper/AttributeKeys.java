@@ -0,0 +1,117 @@
+package org.somda.sdc.biceps.common.storage.helper;
+
+import org.somda.sdc.biceps.common.CommonConstants;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.AlertConditionDescriptor;
+import org.somda.sdc.biceps.model.participant.AlertConditionKind;
+import org.somda.sdc.biceps.model.participant.AlertConditionPriority;
+import org.somda.sdc.biceps.model.participant.CodedValue;
+import org.somda.sdc.biceps.model.participant.MetricCategory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the keys of descriptor attributes that are maintained in an {@linkplain AttributeIndex}.
+ * <p>
+ * Indexed attributes are the coded type, the handles of all ancestors, the metric category of metric descriptors,
+ * and the kind and priority of alert condition descriptors.
+ */
+public final class AttributeKeys {
+    private static final String TYPE_PREFIX = "type:";
+    private static final String ANCESTOR_PREFIX = "ancestor:";
+    private static final String METRIC_CATEGORY_PREFIX = "metricCategory:";
+    private static final String ALERT_CONDITION_KIND_PREFIX = "alertConditionKind:";
+    private static final String ALERT_CONDITION_PRIORITY_PREFIX = "alertConditionPriority:";
+
+    private AttributeKeys() {
+    }
+
+    /**
+     * Creates the key of a coded type.
+     *
+     * @param codingSystem the coding system or null to use {@link CommonConstants#DEFAULT_CODING_SYSTEM}.
+     * @param code         the code.
+     * @return the key.
+     */
+    public static String type(@Nullable String codingSystem, String code) {
+        return TYPE_PREFIX + (codingSystem == null ? CommonConstants.DEFAULT_CODING_SYSTEM : codingSystem)
+                + ' ' + code;
+    }
+
+    /**
+     * Creates the key of an ancestor.
+     *
+     * @param handle the handle of the ancestor.
+     * @return the key.
+     */
+    public static String ancestor(String handle) {
+        return ANCESTOR_PREFIX + handle;
+    }
+
+    /**
+     * Creates the key of a metric category.
+     *
+     * @param metricCategory the metric category.
+     * @return the key.
+     */
+    public static String metricCategory(MetricCategory metricCategory) {
+        return METRIC_CATEGORY_PREFIX + metricCategory.value();
+    }
+
+    /**
+     * Creates the key of an alert condition kind.
+     *
+     * @param kind the alert condition kind.
+     * @return the key.
+     */
+    public static String alertConditionKind(AlertConditionKind kind) {
+        return ALERT_CONDITION_KIND_PREFIX + kind.value();
+    }
+
+    /**
+     * Creates the key of an alert condition priority.
+     *
+     * @param priority the alert condition priority.
+     * @return the key.
+     */
+    public static String alertConditionPriority(AlertConditionPriority priority) {
+        return ALERT_CONDITION_PRIORITY_PREFIX + priority.value();
+    }
+
+    /**
+     * Creates all keys of a descriptor.
+     *
+     * @param descriptor      the descriptor.
+     * @param ancestorHandles the handles of all ancestors of the descriptor.
+     * @return the keys of all indexed attributes.
+     */
+    public static List<String> of(AbstractDescriptor descriptor, List<String> ancestorHandles) {
+        var keys = new ArrayList<String>(ancestorHandles.size() + 3);
+        CodedValue type = descriptor.getType();
+        if (type != null && type.getCode() != null) {
+            keys.add(type(type.getCodingSystem(), type.getCode()));
+        }
+        for (String ancestorHandle : ancestorHandles) {
+            keys.add(ancestor(ancestorHandle));
+        }
+        if (descriptor instanceof AbstractMetricDescriptor) {
+            var metricCategory = ((AbstractMetricDescriptor) descriptor).getMetricCategory();
+            if (metricCategory != null) {
+                keys.add(metricCategory(metricCategory));
+            }
+        }
+        if (descriptor instanceof AlertConditionDescriptor) {
+            var alertCondition = (AlertConditionDescriptor) descriptor;
+            if (alertCondition.getKind() != null) {
+                keys.add(alertConditionKind(alertCondition.getKind()));
+            }
+            if (alertCondition.getPriority() != null) {
+                keys.add(alertConditionPriority(alertCondition.getPriority()));
+            }
+        }
+        return keys;
+    }
+}
@@ -2,14 +2,22 @@ package org.somda.sdc.biceps.common.storage.helper;
 
 import com.google.inject.Inject;
 import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.access.MdibQuery;
 import org.somda.sdc.biceps.common.factory.MdibEntityFactory;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.common.util.ObjectUtil;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -77,4 +85,83 @@ public class MdibStorageUtil {
                 .map(entities::get)
                 .collect(Collectors.toList());
     }
+
+    /**
+     * Evaluates a query by using the indexes of a storage.
+     * <p>
+     * Candidates are taken from the indexed criterion with the fewest matches and then checked against all other
+     * criteria.
+     * Only if the query does not contain any indexed criterion, all entities are checked.
+     *
+     * @param query            the query to evaluate.
+     * @param entityTypes      the index of descriptor and state types.
+     * @param entityAttributes the index of descriptor attributes.
+     * @param entities         a function to look up an entity by handle.
+     * @param allEntities      a supplier of all entities.
+     * @return all entities that match {@code query} in unspecified order.
+     */
+    public List<MdibEntity> findEntities(MdibQuery query,
+                                         TypeIndex entityTypes,
+                                         AttributeIndex entityAttributes,
+                                         Function<String, MdibEntity> entities,
+                                         Supplier<Collection<MdibEntity>> allEntities) {
+        Consumer<Consumer<String>> candidates = null;
+        var candidateCount = Integer.MAX_VALUE;
+        for (Class<?> type : query.getTypes()) {
+            var count = entityTypes.count(type);
+            if (count < candidateCount) {
+                candidateCount = count;
+                candidates = action -> entityTypes.forEachHandle(type, action);
+            }
+        }
+        for (String key : query.getAttributeKeys()) {
+            var count = entityAttributes.count(key);
+            if (count < candidateCount) {
+                candidateCount = count;
+                candidates = action -> entityAttributes.forEachHandle(key, action);
+            }
+        }
+
+        if (candidates == null) {
+            return allEntities.get().stream()
+                    .filter(entity -> matches(query, entityAttributes, entity))
+                    .collect(Collectors.toList());
+        }
+
+        var result = new ArrayList<MdibEntity>(candidateCount);
+        candidates.accept(handle -> {
+            var entity = entities.apply(handle);
+            if (entity != null && matches(query, entityAttributes, entity)) {
+                result.add(entity);
+            }
+        });
+        return result;
+    }
+
+    private static boolean matches(MdibQuery query, AttributeIndex entityAttributes, MdibEntity entity) {
+        for (Class<?> type : query.getTypes()) {
+            if (!type.isAssignableFrom(entity.getDescriptorClass()) && !type.isAssignableFrom(entity.getStateClass())) {
+                return false;
+            }
+        }
+        for (String key : query.getAttributeKeys()) {
+            if (!entityAttributes.contains(key, entity.getHandle())) {
+                return false;
+            }
+        }
+        if (!query.getDescriptorPredicates().isEmpty()) {
+            var descriptor = entity.getDescriptor();
+            for (Predicate<AbstractDescriptor> predicate : query.getDescriptorPredicates()) {
+                if (!predicate.test(descriptor)) {
+                    return false;
+                }
+            }
+        }
+        for (Predicate<AbstractState> predicate : query.getStatePredicates()) {
+            if (entity.getStates().stream().noneMatch(predicate)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
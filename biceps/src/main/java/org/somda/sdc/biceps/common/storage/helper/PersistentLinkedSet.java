@@ -0,0 +1,226 @@
+package org.somda.sdc.biceps.common.storage.helper;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Immutable set that preserves insertion order and shares its structure with previous versions.
+ * <p>
+ * The set is implemented as a doubly linked list whose links are stored in a {@linkplain PersistentMap}.
+ * Hence, appending, removing and lookup of elements cost {@code O(log32 n)} in time and space regardless of the
+ * position of the element, which is effectively constant for any realistic set size.
+ * <p>
+ * Null elements are not allowed.
+ *
+ * @param <E> the element type.
+ */
+public final class PersistentLinkedSet<E> implements Iterable<E> {
+    private static final PersistentLinkedSet<?> EMPTY = new PersistentLinkedSet<>(PersistentMap.empty(), null, null);
+
+    private final PersistentMap<E, Link<E>> links;
+    private final E first;
+    private final E last;
+
+    // lazily created list view, safe to be shared as the set is immutable
+    private List<E> list;
+
+    private PersistentLinkedSet(PersistentMap<E, Link<E>> links, E first, E last) {
+        this.links = links;
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Gets an empty set.
+     *
+     * @param <E> the element type.
+     * @return an empty set instance.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentLinkedSet<E> empty() {
+        return (PersistentLinkedSet<E>) EMPTY;
+    }
+
+    /**
+     * Creates a set from a collection of elements.
+     * <p>
+     * Duplicates are ignored, i.e., only the first occurrence of an element determines its position.
+     *
+     * @param elements the elements to add in iteration order.
+     * @param <E>      the element type.
+     * @return a set containing all elements.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentLinkedSet<E> copyOf(Collection<? extends E> elements) {
+        if (elements instanceof PersistentLinkedSet.ListView) {
+            return ((ListView<E>) elements).set;
+        }
+
+        PersistentLinkedSet<E> result = empty();
+        for (E element : elements) {
+            result = result.add(element);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a set that appends an element to the elements of this set.
+     *
+     * @param element the element to append.
+     * @return a new set with {@code element} at the end or this set if the element is already contained.
+     */
+    public PersistentLinkedSet<E> add(E element) {
+        Objects.requireNonNull(element);
+        if (links.containsKey(element)) {
+            return this;
+        }
+
+        var newLinks = links.put(element, new Link<>(last, null));
+        if (last == null) {
+            return new PersistentLinkedSet<>(newLinks, element, element);
+        }
+
+        var lastLink = links.get(last);
+        newLinks = newLinks.put(last, new Link<>(lastLink.previous, element));
+        return new PersistentLinkedSet<>(newLinks, first, element);
+    }
+
+    /**
+     * Creates a set that contains all elements of this set except a given element.
+     *
+     * @param element the element to remove.
+     * @return a new set without {@code element} or this set if the element is not contained.
+     */
+    public PersistentLinkedSet<E> remove(Object element) {
+        var link = links.get(element);
+        if (link == null) {
+            return this;
+        }
+
+        var newLinks = links.remove(element);
+        var newFirst = first;
+        var newLast = last;
+        if (link.previous == null) {
+            newFirst = link.next;
+        } else {
+            var previousLink = links.get(link.previous);
+            newLinks = newLinks.put(link.previous, new Link<>(previousLink.previous, link.next));
+        }
+        if (link.next == null) {
+            newLast = link.previous;
+        } else {
+            var nextLink = links.get(link.next);
+            newLinks = newLinks.put(link.next, new Link<>(link.previous, nextLink.next));
+        }
+
+        return newLinks.isEmpty() ? empty() : new PersistentLinkedSet<>(newLinks, newFirst, newLast);
+    }
+
+    /**
+     * Checks if an element is contained in this set.
+     *
+     * @param element the element to look up.
+     * @return true if the element is contained, false otherwise.
+     */
+    public boolean contains(Object element) {
+        return links.containsKey(element);
+    }
+
+    /**
+     * Gets the number of elements in this set.
+     *
+     * @return the number of elements.
+     */
+    public int size() {
+        return links.size();
+    }
+
+    /**
+     * Checks if this set is empty.
+     *
+     * @return true if there is no element in this set, false otherwise.
+     */
+    public boolean isEmpty() {
+        return links.isEmpty();
+    }
+
+    /**
+     * Gets an unmodifiable list of all elements in insertion order.
+     * <p>
+     * The list is created on first access and cached afterwards.
+     *
+     * @return the elements of this set as a list.
+     */
+    public List<E> asList() {
+        var result = list;
+        if (result == null) {
+            var elements = new ArrayList<E>(size());
+            forEach(elements::add);
+            result = new ListView<>(this, elements);
+            list = result;
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private E next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public E next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                var current = next;
+                next = links.get(current).next;
+                return current;
+            }
+        };
+    }
+
+    private static final class Link<E> {
+        private final E previous;
+        private final E next;
+
+        Link(E previous, E next) {
+            this.previous = previous;
+            this.next = next;
+        }
+    }
+
+    /**
+     * List view that remembers its origin in order to convert it back to a set without copying.
+     *
+     * @param <E> the element type.
+     */
+    private static final class ListView<E> extends AbstractList<E> {
+        private final PersistentLinkedSet<E> set;
+        private final List<E> elements;
+
+        ListView(PersistentLinkedSet<E> set, List<E> elements) {
+            this.set = set;
+            this.elements = elements;
+        }
+
+        @Override
+        public E get(int index) {
+            return elements.get(index);
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package org.somda.sdc.biceps.common.storage.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Immutable hash map that shares its structure with previous versions.
+ * <p>
+ * The map is implemented as a hash array mapped trie.
+ * Any modification returns a new map that reuses all nodes of the original map which are not affected by the
+ * modification, i.e., insertions, replacements and removals cost {@code O(log32 n)} in time and space.
+ * This allows publishing a new version of a large map on every write without copying all of its entries.
+ * <p>
+ * Neither keys nor values can be null.
+ *
+ * @param <K> the key type.
+ * @param <V> the value type.
+ */
+public final class PersistentMap<K, V> {
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Gets an empty map.
+     *
+     * @param <K> the key type.
+     * @param <V> the value type.
+     * @return an empty map instance.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Gets the value that is mapped to a given key.
+     *
+     * @param key the key to look up.
+     * @return the mapped value or null if there is no mapping for {@code key}.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return (V) root.find(key, hash(key), 0);
+    }
+
+    /**
+     * Checks if there is a value mapped to a given key.
+     *
+     * @param key the key to look up.
+     * @return true if there is a mapping for {@code key}, false otherwise.
+     */
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Creates a map that contains all entries of this map plus the given mapping.
+     *
+     * @param key   the key to put.
+     * @param value the value to map to {@code key}. Replaces any existing mapping.
+     * @return a new map including the mapping or this map if the mapping existed already.
+     */
+    public PersistentMap<K, V> put(K key, V value) {
+        Objects.requireNonNull(value);
+        var sizeChange = new int[1];
+        var newRoot = root.put(new Entry(key, hash(key), value), 0, sizeChange);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, size + sizeChange[0]);
+    }
+
+    /**
+     * Creates a map that contains all entries of this map except the mapping of the given key.
+     *
+     * @param key the key to remove.
+     * @return a new map without a mapping for {@code key} or this map if no such mapping existed.
+     */
+    public PersistentMap<K, V> remove(Object key) {
+        var newRoot = root.remove(key, hash(key), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        if (newRoot == null) {
+            return empty();
+        }
+        return new PersistentMap<>(newRoot, size - 1);
+    }
+
+    /**
+     * Performs the given action for each entry of this map.
+     * <p>
+     * The iteration order is unspecified.
+     *
+     * @param action the action to perform.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach(entry -> action.accept((K) entry.key, (V) entry.value));
+    }
+
+    /**
+     * Copies all values of this map to a list.
+     * <p>
+     * <em>Attention: the list is created on function call, hence be careful with performance issues.</em>
+     *
+     * @return a list of all values in unspecified order.
+     */
+    public List<V> values() {
+        var result = new ArrayList<V>(size);
+        forEach((key, value) -> result.add(value));
+        return result;
+    }
+
+    /**
+     * Gets the number of entries in this map.
+     *
+     * @return the number of key-value mappings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if this map is empty.
+     *
+     * @return true if there is no mapping in this map, false otherwise.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> (Integer.SIZE / 2));
+    }
+
+    private static int bitPosition(int hash, int shift) {
+        return 1 << ((hash >>> shift) & LEVEL_MASK);
+    }
+
+    private static Node merge(Entry first, Entry second, int shift) {
+        if (shift >= Integer.SIZE) {
+            // all hash bits consumed: both entries share the same hash code
+            return new CollisionNode(new Entry[]{first, second});
+        }
+
+        int firstBit = bitPosition(first.hash, shift);
+        int secondBit = bitPosition(second.hash, shift);
+        if (firstBit == secondBit) {
+            return new BitmapNode(firstBit, new Object[]{merge(first, second, shift + BITS_PER_LEVEL)});
+        }
+
+        var slots = Integer.compareUnsigned(firstBit, secondBit) < 0
+                ? new Object[]{first, second}
+                : new Object[]{second, first};
+        return new BitmapNode(firstBit | secondBit, slots);
+    }
+
+    private static final class Entry {
+        private final Object key;
+        private final int hash;
+        private final Object value;
+
+        Entry(Object key, int hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        boolean matches(Object otherKey, int otherHash) {
+            return hash == otherHash && key.equals(otherKey);
+        }
+    }
+
+    private abstract static class Node {
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node put(Entry entry, int shift, int[] sizeChange);
+
+        abstract Node remove(Object key, int hash, int shift);
+
+        abstract void forEach(Consumer<Entry> action);
+
+        abstract Entry singleEntry();
+    }
+
+    private static final class BitmapNode extends Node {
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+
+            var slot = slots[index(bit)];
+            if (slot instanceof Entry) {
+                var entry = (Entry) slot;
+                return entry.matches(key, hash) ? entry.value : null;
+            }
+            return ((Node) slot).find(key, hash, shift + BITS_PER_LEVEL);
+        }
+
+        @Override
+        Node put(Entry entry, int shift, int[] sizeChange) {
+            int bit = bitPosition(entry.hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                sizeChange[0] = 1;
+                var newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = entry;
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, newSlots);
+            }
+
+            var slot = slots[index];
+            if (slot instanceof Entry) {
+                var existingEntry = (Entry) slot;
+                if (existingEntry.matches(entry.key, entry.hash)) {
+                    return existingEntry.value == entry.value ? this : withSlot(index, entry);
+                }
+                sizeChange[0] = 1;
+                return withSlot(index, merge(existingEntry, entry, shift + BITS_PER_LEVEL));
+            }
+
+            var child = (Node) slot;
+            var newChild = child.put(entry, shift + BITS_PER_LEVEL, sizeChange);
+            return newChild == child ? this : withSlot(index, newChild);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+
+            int index = index(bit);
+            var slot = slots[index];
+            if (slot instanceof Entry) {
+                return ((Entry) slot).matches(key, hash) ? withoutSlot(index, bit) : this;
+            }
+
+            var child = (Node) slot;
+            var newChild = child.remove(key, hash, shift + BITS_PER_LEVEL);
+            if (newChild == child) {
+                return this;
+            }
+            if (newChild == null) {
+                return withoutSlot(index, bit);
+            }
+
+            // pull up single entries in order to keep the trie compact
+            var singleEntry = newChild.singleEntry();
+            return withSlot(index, singleEntry == null ? newChild : singleEntry);
+        }
+
+        @Override
+        void forEach(Consumer<Entry> action) {
+            for (Object slot : slots) {
+                if (slot instanceof Entry) {
+                    action.accept((Entry) slot);
+                } else {
+                    ((Node) slot).forEach(action);
+                }
+            }
+        }
+
+        @Override
+        Entry singleEntry() {
+            return slots.length == 1 && slots[0] instanceof Entry ? (Entry) slots[0] : null;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private BitmapNode withSlot(int index, Object slot) {
+            var newSlots = slots.clone();
+            newSlots[index] = slot;
+            return new BitmapNode(bitmap, newSlots);
+        }
+
+        private BitmapNode withoutSlot(int index, int bit) {
+            if (slots.length == 1) {
+                return null;
+            }
+            var newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new BitmapNode(bitmap & ~bit, newSlots);
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+        private final Entry[] entries;
+
+        CollisionNode(Entry[] entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            for (Entry entry : entries) {
+                if (entry.matches(key, hash)) {
+                    return entry.value;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        Node put(Entry entry, int shift, int[] sizeChange) {
+            for (int i = 0; i < entries.length; ++i) {
+                if (entries[i].matches(entry.key, entry.hash)) {
+                    if (entries[i].value == entry.value) {
+                        return this;
+                    }
+                    var newEntries = entries.clone();
+                    newEntries[i] = entry;
+                    return new CollisionNode(newEntries);
+                }
+            }
+
+            sizeChange[0] = 1;
+            var newEntries = Arrays.copyOf(entries, entries.length + 1);
+            newEntries[entries.length] = entry;
+            return new CollisionNode(newEntries);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            for (int i = 0; i < entries.length; ++i) {
+                if (entries[i].matches(key, hash)) {
+                    if (entries.length == 1) {
+                        return null;
+                    }
+                    var newEntries = new Entry[entries.length - 1];
+                    System.arraycopy(entries, 0, newEntries, 0, i);
+                    System.arraycopy(entries, i + 1, newEntries, i, entries.length - i - 1);
+                    return new CollisionNode(newEntries);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        void forEach(Consumer<Entry> action) {
+            for (Entry entry : entries) {
+                action.accept(entry);
+            }
+        }
+
+        @Override
+        Entry singleEntry() {
+            return entries.length == 1 ? entries[0] : null;
+        }
+    }
+}
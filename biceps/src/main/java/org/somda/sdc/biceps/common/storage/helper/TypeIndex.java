@@ -0,0 +1,95 @@
+package org.somda.sdc.biceps.common.storage.helper;
+
+import java.util.function.Consumer;
+
+/**
+ * Immutable secondary index that maps types to handles of the elements that are instances of these types.
+ * <p>
+ * A handle is registered for its concrete type and all of its super classes (except {@linkplain Object}), which
+ * makes the index aware of the class hierarchy: handles of all instances of a type including its subtypes can be
+ * resolved in {@code O(result size)} without testing each element by using {@link Class#isAssignableFrom(Class)}.
+ * <p>
+ * Any modification returns a new index that shares all unaffected data with its predecessor (see
+ * {@linkplain PersistentMap}).
+ */
+public final class TypeIndex {
+    private static final TypeIndex EMPTY = new TypeIndex(PersistentMap.empty());
+
+    private final PersistentMap<Class<?>, PersistentMap<String, String>> handlesByType;
+
+    private TypeIndex(PersistentMap<Class<?>, PersistentMap<String, String>> handlesByType) {
+        this.handlesByType = handlesByType;
+    }
+
+    /**
+     * Gets an empty index.
+     *
+     * @return an empty index instance.
+     */
+    public static TypeIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates an index that additionally maps a type and its super classes to a handle.
+     *
+     * @param type   the concrete type of the element identified by {@code handle}.
+     * @param handle the handle to add.
+     * @return a new index including the mapping.
+     */
+    public TypeIndex add(Class<?> type, String handle) {
+        var result = handlesByType;
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            var handles = result.get(current);
+            result = result.put(current, (handles == null ? PersistentMap.<String, String>empty() : handles)
+                    .put(handle, handle));
+        }
+        return result == handlesByType ? this : new TypeIndex(result);
+    }
+
+    /**
+     * Creates an index that does not map a type and its super classes to a handle anymore.
+     *
+     * @param type   the concrete type the handle was added with.
+     * @param handle the handle to remove.
+     * @return a new index excluding the mapping.
+     */
+    public TypeIndex remove(Class<?> type, String handle) {
+        var result = handlesByType;
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            var handles = result.get(current);
+            if (handles == null) {
+                continue;
+            }
+            var remainingHandles = handles.remove(handle);
+            result = remainingHandles.isEmpty() ? result.remove(current) : result.put(current, remainingHandles);
+        }
+        return result == handlesByType ? this : new TypeIndex(result);
+    }
+
+    /**
+     * Performs an action for each handle that is mapped to a given type.
+     * <p>
+     * The iteration order is unspecified.
+     *
+     * @param type   the type to seek, which includes all subtypes.
+     * @param action the action to perform for each handle.
+     */
+    public void forEachHandle(Class<?> type, Consumer<String> action) {
+        var handles = handlesByType.get(type);
+        if (handles != null) {
+            handles.forEach((handle, unused) -> action.accept(handle));
+        }
+    }
+
+    /**
+     * Counts the handles that are mapped to a given type.
+     *
+     * @param type the type to seek, which includes all subtypes.
+     * @return the number of handles mapped to {@code type}.
+     */
+    public int count(Class<?> type) {
+        var handles = handlesByType.get(type);
+        return handles == null ? 0 : handles.size();
+    }
+}
@@ -8,12 +8,15 @@ import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.access.MdibAccessObserver;
+import org.somda.sdc.biceps.common.access.MdibQuery;
 import org.somda.sdc.biceps.common.access.ReadTransaction;
 import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
 import org.somda.sdc.biceps.common.access.WriteStateResult;
 import org.somda.sdc.biceps.common.access.factory.ReadTransactionFactory;
 import org.somda.sdc.biceps.common.access.helper.WriteUtil;
 import org.somda.sdc.biceps.common.event.Distributor;
+import org.somda.sdc.biceps.common.event.EventQueueMetrics;
+import org.somda.sdc.biceps.common.event.ObserverFilter;
 import org.somda.sdc.biceps.common.preprocessing.PreprocessingInjectorWrapper;
 import org.somda.sdc.biceps.common.preprocessing.PreprocessingUtil;
 import org.somda.sdc.biceps.common.storage.DescriptionPreprocessingSegment;
@@ -21,19 +24,23 @@ import org.somda.sdc.biceps.common.storage.MdibStorage;
 import org.somda.sdc.biceps.common.storage.MdibStoragePreprocessingChain;
 import org.somda.sdc.biceps.common.storage.PreprocessingException;
 import org.somda.sdc.biceps.common.storage.StatePreprocessingSegment;
+import org.somda.sdc.biceps.common.storage.WaveformSamples;
 import org.somda.sdc.biceps.common.storage.factory.MdibStorageFactory;
 import org.somda.sdc.biceps.common.storage.factory.MdibStoragePreprocessingChainFactory;
 import org.somda.sdc.biceps.model.participant.AbstractContextState;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
 import org.somda.sdc.common.CommonConfig;
 import org.somda.sdc.common.logging.InstanceLogger;
 
 import javax.annotation.Nullable;
 import java.math.BigInteger;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -84,7 +91,7 @@ public class RemoteMdibAccessImpl implements RemoteMdibAccess {
         this.writeUtil = new WriteUtil(
                 instanceLogger, eventDistributor,
                 localMdibAccessPreprocessing, readWriteLock,
-                this
+                this, mdibStorage
         );
     }
 
@@ -116,6 +123,11 @@ public class RemoteMdibAccessImpl implements RemoteMdibAccess {
         eventDistributor.registerObserver(observer);
     }
 
+    @Override
+    public void registerObserver(MdibAccessObserver observer, ObserverFilter filter) {
+        eventDistributor.registerObserver(observer, filter);
+    }
+
     @Override
     public void unregisterObserver(MdibAccessObserver observer) {
         eventDistributor.unregisterObserver(observer);
@@ -126,6 +138,14 @@ public class RemoteMdibAccessImpl implements RemoteMdibAccess {
         eventDistributor.unregisterAllObservers();
     }
 
+    @Override
+    public Map<MdibAccessObserver, EventQueueMetrics> getEventQueueMetrics() {
+        var metrics = new HashMap<MdibAccessObserver, EventQueueMetrics>();
+        eventDistributor.getEventQueueMetrics().forEach((observer, observerMetrics) ->
+                metrics.put((MdibAccessObserver) observer, observerMetrics));
+        return metrics;
+    }
+
     @Override
     public MdibVersion getMdibVersion() {
         try (ReadTransaction transaction = startTransaction()) {
@@ -224,6 +244,34 @@ public class RemoteMdibAccessImpl implements RemoteMdibAccess {
         }
     }
 
+    @Override
+    public Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getStateAt(handle, mdibVersion);
+        }
+    }
+
+    @Override
+    public Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getStatesAt(handles, mdibVersion);
+        }
+    }
+
+    @Override
+    public Optional<WaveformSamples> getWaveformSamples(String handle, int maxCount) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getWaveformSamples(handle, maxCount);
+        }
+    }
+
+    @Override
+    public Optional<RealTimeSampleArrayMetricState> getWaveformState(String handle, int maxCount) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getWaveformState(handle, maxCount);
+        }
+    }
+
     @Override
     public <T extends AbstractDescriptor> Collection<MdibEntity> findEntitiesByType(Class<T> type) {
         try (ReadTransaction transaction = startTransaction()) {
@@ -231,6 +279,13 @@ public class RemoteMdibAccessImpl implements RemoteMdibAccess {
         }
     }
 
+    @Override
+    public List<MdibEntity> findEntities(MdibQuery query) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.findEntities(query);
+        }
+    }
+
     @Override
     public <T extends AbstractDescriptor> List<MdibEntity> getChildrenByType(String handle, Class<T> type) {
         try (ReadTransaction transaction = startTransaction()) {
@@ -238,8 +293,20 @@ public class RemoteMdibAccessImpl implements RemoteMdibAccess {
         }
     }
 
+    @Override
+    public List<String> getAncestorHandles(String handle) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getAncestorHandles(handle);
+        }
+    }
+
     @Override
     public ReadTransaction startTransaction() {
+        var snapshot = mdibStorage.getSnapshot();
+        if (snapshot.isPresent()) {
+            // snapshots are immutable and hence do not require any locking
+            return readTransactionFactory.createReadTransaction(snapshot.get(), null);
+        }
         return readTransactionFactory.createReadTransaction(mdibStorage, readWriteLock.readLock());
     }
 }
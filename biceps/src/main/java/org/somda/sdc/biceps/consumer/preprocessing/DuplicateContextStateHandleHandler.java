@@ -62,6 +62,12 @@ public class DuplicateContextStateHandleHandler implements StatePreprocessingSeg
         allContextStates = null;
     }
 
+    @Override
+    public boolean isRequiredForKnownStates() {
+        // known context states are assigned to the same descriptor in the MDIB storage already
+        return false;
+    }
+
     @Override
     public String toString() {
         return this.getClass().getSimpleName();
@@ -2,6 +2,7 @@ package org.somda.sdc.biceps.guice;
 
 import com.google.inject.TypeLiteral;
 import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.common.event.EventQueueOverflowPolicy;
 import org.somda.sdc.biceps.common.preprocessing.DescriptorChildRemover;
 import org.somda.sdc.biceps.common.storage.DescriptionPreprocessingSegment;
 import org.somda.sdc.biceps.common.storage.StatePreprocessingSegment;
@@ -13,6 +14,7 @@ import org.somda.sdc.biceps.provider.preprocessing.TypeConsistencyChecker;
 import org.somda.sdc.biceps.provider.preprocessing.VersionHandler;
 import org.somda.sdc.common.guice.AbstractConfigurationModule;
 
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -41,6 +43,66 @@ public class DefaultBicepsConfigModule extends AbstractConfigurationModule {
                 Boolean.class,
                 true);
 
+        bind(CommonConfig.MDIB_STORAGE_SNAPSHOTS,
+                Boolean.class,
+                false);
+
+        bind(CommonConfig.FREEZE_MDIB_DATA,
+                Boolean.class,
+                false);
+
+        bind(CommonConfig.ASYNC_EVENT_DISTRIBUTION,
+                Boolean.class,
+                false);
+
+        bind(CommonConfig.EVENT_QUEUE_CAPACITY,
+                Integer.class,
+                1000);
+
+        bind(CommonConfig.EVENT_QUEUE_OVERFLOW_POLICY,
+                EventQueueOverflowPolicy.class,
+                EventQueueOverflowPolicy.BLOCK);
+
+        bind(CommonConfig.STATE_COALESCING_WINDOW,
+                Duration.class,
+                Duration.ofMillis(100));
+
+        bind(CommonConfig.PARALLEL_PREPROCESSING_THRESHOLD,
+                Integer.class,
+                0);
+
+        bind(CommonConfig.STATE_HISTORY_CAPACITY,
+                Integer.class,
+                0);
+
+        bind(CommonConfig.STATE_HISTORY_RETENTION,
+                Duration.class,
+                Duration.ZERO);
+
+        bind(CommonConfig.INTERN_HANDLES,
+                Boolean.class,
+                false);
+
+        bind(CommonConfig.WAVEFORM_STORE_DURATION,
+                Duration.class,
+                Duration.ZERO);
+
+        bind(CommonConfig.MDIB_PERSISTENCE_DIRECTORY,
+                String.class,
+                "");
+
+        bind(CommonConfig.MDIB_PERSISTENCE_SNAPSHOT_INTERVAL,
+                Integer.class,
+                10000);
+
+        bind(CommonConfig.MDIB_PERSISTENCE_SYNC_INTERVAL,
+                Duration.class,
+                Duration.ofMillis(100));
+
+        bind(CommonConfig.MDIB_STORAGE_SHARDING,
+                Boolean.class,
+                false);
+
         bind(CommonConfig.CONSUMER_STATE_PREPROCESSING_SEGMENTS,
                 new TypeLiteral<List<Class<? extends StatePreprocessingSegment>>>() {
                 },
@@ -16,8 +16,10 @@ import org.somda.sdc.biceps.common.storage.MdibStoragePreprocessingChain;
 import org.somda.sdc.biceps.consumer.access.RemoteMdibAccess;
 import org.somda.sdc.biceps.consumer.access.RemoteMdibAccessImpl;
 import org.somda.sdc.biceps.consumer.access.factory.RemoteMdibAccessFactory;
+import org.somda.sdc.biceps.provider.access.CoalescingStateWriter;
 import org.somda.sdc.biceps.provider.access.LocalMdibAccess;
 import org.somda.sdc.biceps.provider.access.LocalMdibAccessImpl;
+import org.somda.sdc.biceps.provider.access.factory.CoalescingStateWriterFactory;
 import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
 
 /**
@@ -46,6 +48,10 @@ public class DefaultBicepsModule extends AbstractModule {
                 .implement(LocalMdibAccess.class, LocalMdibAccessImpl.class)
                 .build(LocalMdibAccessFactory.class));
 
+        install(new FactoryModuleBuilder()
+                .implement(CoalescingStateWriter.class, CoalescingStateWriter.class)
+                .build(CoalescingStateWriterFactory.class));
+
         install(new FactoryModuleBuilder()
                 .implement(RemoteMdibAccess.class, RemoteMdibAccessImpl.class)
                 .build(RemoteMdibAccessFactory.class));
@@ -8,6 +8,7 @@ import java.math.BigInteger;
 import java.net.URI;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 
 /**
@@ -22,11 +23,17 @@ import java.util.UUID;
  * <li>set the version counter of an {@linkplain MdibVersion} by {@link #setVersionCounter(MdibVersion, BigInteger)}
  * <li>compare versions (see {@link #equals(Object)})
  * </ul>
+ * <p>
+ * The version counter is stored as a primitive long as long as it fits into one, hence incrementing and comparing
+ * versions does not require any {@linkplain BigInteger} arithmetic in practice.
+ * Counters that exceed the range of a long are promoted to a {@linkplain BigInteger} transparently.
  */
 public class MdibVersion {
     private final String sequenceId;
     private final BigInteger instanceId;
-    private final BigInteger version;
+    private final long versionValue;
+    @Nullable
+    private final BigInteger versionOverflow;
 
     /**
      * Constructor that sets a given sequence id.
@@ -36,9 +43,7 @@ public class MdibVersion {
      * @param sequenceId the sequence id to set.
      */
     public MdibVersion(String sequenceId) {
-        this.sequenceId = sequenceId;
-        this.version = BigInteger.ZERO;
-        this.instanceId = BigInteger.ZERO;
+        this(sequenceId, 0, null, BigInteger.ZERO);
     }
 
     /**
@@ -50,9 +55,7 @@ public class MdibVersion {
      * @param version the version counter to set.
      */
     public MdibVersion(String sequenceId, BigInteger version) {
-        this.sequenceId = sequenceId;
-        this.version = version;
-        this.instanceId = BigInteger.ZERO;
+        this(sequenceId, version, BigInteger.ZERO);
     }
 
     /**
@@ -63,8 +66,16 @@ public class MdibVersion {
      * @param instanceId the instance id to set.
      */
     public MdibVersion(String sequenceId, BigInteger version, BigInteger instanceId) {
+        this(sequenceId, fitsLong(version) ? version.longValue() : 0, fitsLong(version) ? null : version, instanceId);
+    }
+
+    private MdibVersion(String sequenceId,
+                        long versionValue,
+                        @Nullable BigInteger versionOverflow,
+                        BigInteger instanceId) {
         this.sequenceId = sequenceId;
-        this.version = version;
+        this.versionValue = versionValue;
+        this.versionOverflow = versionOverflow;
         this.instanceId = instanceId;
     }
 
@@ -85,6 +96,10 @@ public class MdibVersion {
      * incremented by one.
      */
     public static MdibVersion increment(MdibVersion mdibVersion) {
+        if (mdibVersion.versionOverflow == null && mdibVersion.versionValue != Long.MAX_VALUE) {
+            return new MdibVersion(mdibVersion.getSequenceId(), mdibVersion.versionValue + 1, null,
+                    mdibVersion.getInstanceId());
+        }
         return new MdibVersion(mdibVersion.getSequenceId(), mdibVersion.getVersion().add(BigInteger.ONE),
                 mdibVersion.getInstanceId());
     }
@@ -105,7 +120,7 @@ public class MdibVersion {
     }
 
     public BigInteger getVersion() {
-        return version;
+        return versionOverflow == null ? BigInteger.valueOf(versionValue) : versionOverflow;
     }
 
     public BigInteger getInstanceId() {
@@ -128,14 +143,15 @@ public class MdibVersion {
         }
 
         MdibVersion rhs = (MdibVersion) rhsObject;
-        return URI.create(this.sequenceId).equals(URI.create(rhs.sequenceId))
-                && this.version.equals(rhs.version)
-                && this.instanceId.equals(rhs.instanceId);
+        return compareVersion(rhs) == 0
+                && this.instanceId.equals(rhs.instanceId)
+                && isSameSequence(rhs);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(sequenceId, instanceId, version);
+        return 31 * Objects.hash(sequenceId, instanceId)
+                + (versionOverflow == null ? Long.hashCode(versionValue) : versionOverflow.hashCode());
     }
 
     /**
@@ -158,7 +174,7 @@ public class MdibVersion {
      * </ul>
      */
     public Optional<Integer> compareToMdibVersion(@Nullable MdibVersion rhs) {
-        if (rhs == null || !URI.create(this.getSequenceId()).equals(URI.create(rhs.getSequenceId()))) {
+        if (rhs == null || !isSameSequence(rhs)) {
             return Optional.empty();
         }
 
@@ -167,7 +183,7 @@ public class MdibVersion {
         }
 
         if (this.getInstanceId().equals(rhs.getInstanceId())) {
-            return Optional.of(this.getVersion().compareTo(rhs.getVersion()));
+            return Optional.of(compareVersion(rhs));
         }
 
         if (this.getInstanceId().compareTo(rhs.getInstanceId()) > 0) {
@@ -179,6 +195,26 @@ public class MdibVersion {
 
     @Override
     public String toString() {
-        return ObjectStringifier.stringifyAll(this);
+        var keyValues = new TreeMap<String, Object>();
+        keyValues.put("sequenceId", sequenceId);
+        keyValues.put("instanceId", instanceId);
+        keyValues.put("version", getVersion());
+        return ObjectStringifier.stringifyMap(this, keyValues);
+    }
+
+    private boolean isSameSequence(MdibVersion rhs) {
+        return this.sequenceId.equals(rhs.sequenceId)
+                || URI.create(this.sequenceId).equals(URI.create(rhs.sequenceId));
+    }
+
+    private int compareVersion(MdibVersion rhs) {
+        if (this.versionOverflow == null && rhs.versionOverflow == null) {
+            return Long.compare(this.versionValue, rhs.versionValue);
+        }
+        return this.getVersion().compareTo(rhs.getVersion());
+    }
+
+    private static boolean fitsLong(BigInteger value) {
+        return value.bitLength() < Long.SIZE;
     }
 }
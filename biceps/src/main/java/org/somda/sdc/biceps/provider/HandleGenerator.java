@@ -1,17 +1,43 @@
 package org.somda.sdc.biceps.provider;
 
+import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.access.MdibAccess;
+import org.somda.sdc.biceps.common.access.ReadTransaction;
+import org.somda.sdc.biceps.common.access.ReadTransactionProvider;
+import org.somda.sdc.biceps.model.participant.AbstractContextState;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Utility to create handles.
+ * <p>
+ * Handles consist of a prefix and a non-negative integer that is drawn from a counter without locking.
+ * Generators created by {@link #create(String)} share one counter with {@link #createOne(String)}, whereas
+ * generators created by {@link #create(String, MdibAccess)} share one counter per MDIB and prefix that starts after
+ * all handles of the MDIB with the same prefix.
+ * Hence handles of the latter do not collide with any handle in the MDIB without a lookup per handle, as long as
+ * handles with the prefix are only created by these generators.
+ * The {@linkplain org.somda.sdc.biceps.provider.preprocessing.DuplicateChecker} still verifies every inserted handle.
+ * <p>
+ * High-rate users can {@linkplain #reserve(int) reserve} blocks of handles, which touches the counter once per block.
  */
 public class HandleGenerator {
-    private static final AtomicInteger HANDLE_COUNTER = new AtomicInteger(0);
+    private static final AtomicLong HANDLE_COUNTER = new AtomicLong(0);
+    private static final Map<MdibAccess, Map<String, AtomicLong>> MDIB_COUNTERS =
+            Collections.synchronizedMap(new WeakHashMap<>());
     private final String prefix;
+    private final AtomicLong counter;
 
-    private HandleGenerator(String prefix) {
+    private HandleGenerator(String prefix, AtomicLong counter) {
         this.prefix = prefix;
+        this.counter = counter;
     }
 
     /**
@@ -21,7 +47,26 @@ public class HandleGenerator {
      * @return a handle generator instance.
      */
     public static HandleGenerator create(String prefix) {
-        return new HandleGenerator(prefix);
+        return new HandleGenerator(prefix, HANDLE_COUNTER);
+    }
+
+    /**
+     * Creates instance that generates handles with a fixed prefix for an MDIB.
+     * <p>
+     * All generators created for the same MDIB access and prefix share one counter.
+     * When the first of these generators is created, all descriptor and multi-state handles of the MDIB are scanned
+     * in order to start the sequence after the greatest integer that follows the prefix in any of these handles.
+     * The counter is released once the MDIB access is no longer referenced.
+     *
+     * @param prefix     the prefix to set for all generated handles.
+     * @param mdibAccess the MDIB the generated handles are inserted to.
+     * @return a handle generator instance that shares its counter with the other generators of the MDIB and prefix.
+     */
+    public static HandleGenerator create(String prefix, MdibAccess mdibAccess) {
+        final Map<String, AtomicLong> counters =
+                MDIB_COUNTERS.computeIfAbsent(mdibAccess, access -> new ConcurrentHashMap<>());
+        return new HandleGenerator(prefix,
+                counters.computeIfAbsent(prefix, key -> new AtomicLong(findLastSuffix(key, mdibAccess))));
     }
 
     /**
@@ -45,14 +90,117 @@ public class HandleGenerator {
 
     /**
      * Creates the next handle with the prefix given during construction.
+     * <p>
+     * This function is thread-safe.
      *
      * @return handle name in the format: prefix + non-negative integer.
      */
     public String next() {
-        return concatHandle(prefix, HANDLE_COUNTER.incrementAndGet());
+        return concatHandle(prefix, counter.incrementAndGet());
+    }
+
+    /**
+     * Reserves a block of consecutive handles with the prefix given during construction.
+     * <p>
+     * This function is thread-safe; the handles of a block are not handed out by any other call.
+     *
+     * @param count the number of handles to reserve.
+     * @return a block that creates the reserved handles on demand.
+     */
+    public Block reserve(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException(String.format("Negative number of handles to reserve: %s", count));
+        }
+        long last = counter.addAndGet(count);
+        return new Block(prefix, last - count + 1, last);
+    }
+
+    private static String concatHandle(String prefix, long suffix) {
+        return prefix + suffix;
+    }
+
+    private static long findLastSuffix(String prefix, MdibAccess mdibAccess) {
+        if (mdibAccess instanceof ReadTransactionProvider) {
+            // scan one consistent view of the storage
+            try (ReadTransaction transaction = ((ReadTransactionProvider) mdibAccess).startTransaction()) {
+                return scanLastSuffix(prefix, transaction);
+            }
+        }
+        return scanLastSuffix(prefix, mdibAccess);
+    }
+
+    private static long scanLastSuffix(String prefix, MdibAccess mdibAccess) {
+        // handles are read from stored entities and context states, which does not copy any descriptor or state
+        long lastSuffix = 0;
+        for (MdibEntity entity : mdibAccess.findEntitiesByType(AbstractDescriptor.class)) {
+            lastSuffix = Math.max(lastSuffix, parseSuffix(prefix, entity.getHandle()));
+        }
+        // context states are the only multi-states
+        for (AbstractContextState state : mdibAccess.getContextStates()) {
+            lastSuffix = Math.max(lastSuffix, parseSuffix(prefix, state.getHandle()));
+        }
+        return lastSuffix;
+    }
+
+    private static long parseSuffix(String prefix, String handle) {
+        // suffixes with more than 18 digits cannot be generated and might not fit into a long
+        int length = handle.length() - prefix.length();
+        if (length < 1 || length > 18 || !handle.startsWith(prefix)) {
+            return 0;
+        }
+        for (int i = prefix.length(); i < handle.length(); i++) {
+            if (handle.charAt(i) < '0' || handle.charAt(i) > '9') {
+                return 0;
+            }
+        }
+        return Long.parseLong(handle, prefix.length(), handle.length(), 10);
     }
 
-    private static String concatHandle(String prefix, int suffix) {
-        return String.format("%s%s", prefix, suffix);
+    /**
+     * Block of handles reserved by {@link #reserve(int)}.
+     * <p>
+     * <em>A block is not thread-safe, it is supposed to be used by one thread.</em>
+     */
+    public static final class Block {
+        private final String prefix;
+        private final long last;
+        private long next;
+
+        private Block(String prefix, long first, long last) {
+            this.prefix = prefix;
+            this.next = first;
+            this.last = last;
+        }
+
+        /**
+         * Checks if the block contains handles that have not been handed out.
+         *
+         * @return true if {@link #next()} returns another handle, false otherwise.
+         */
+        public boolean hasNext() {
+            return next <= last;
+        }
+
+        /**
+         * Gets the number of handles that have not been handed out.
+         *
+         * @return the number of remaining handles.
+         */
+        public int remaining() {
+            return (int) (last - next + 1);
+        }
+
+        /**
+         * Creates the next handle of the block.
+         *
+         * @return handle name in the format: prefix + non-negative integer.
+         * @throws NoSuchElementException if all handles of the block have been handed out.
+         */
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("All reserved handles have been handed out");
+            }
+            return concatHandle(prefix, next++);
+        }
     }
 }
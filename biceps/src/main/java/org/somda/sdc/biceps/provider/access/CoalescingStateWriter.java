@@ -0,0 +1,326 @@
+package org.somda.sdc.biceps.provider.access;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+import com.google.inject.name.Named;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.access.CopyManager;
+import org.somda.sdc.biceps.common.access.WriteBatchResult;
+import org.somda.sdc.biceps.common.storage.PreprocessingException;
+import org.somda.sdc.biceps.model.participant.AbstractMultiState;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.common.CommonConfig;
+import org.somda.sdc.common.logging.InstanceLogger;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Front-end to a {@linkplain LocalMdibAccess} that coalesces high-rate state updates.
+ * <p>
+ * State modifications are buffered per handle, whereby a buffered state is replaced by any later state with the same
+ * handle (latest value wins).
+ * The buffer is written by using {@link LocalMdibAccess#writeBatchWithoutCopy(
+ * org.somda.sdc.biceps.common.MdibDescriptionModifications, java.util.List)} once the coalescing window that started
+ * with the first buffered update has elapsed or {@link #flush()} is called, which results in one MDIB version and one
+ * event per change type regardless of the number of updates that have been submitted in the meantime.
+ * <p>
+ * States that are rejected by the preprocessing of the MDIB access are dropped and reported to the registered
+ * {@linkplain FlushFailureListener}s, whereas all other states of the flush are written nevertheless.
+ * If a flush fails for any other reason, the states are kept in the buffer and another flush is scheduled after the
+ * coalescing window; failures of flushes that are triggered by the coalescing window are reported to the listeners
+ * as well.
+ * <p>
+ * The service flushes all buffered states on shutdown.
+ *
+ * @see org.somda.sdc.biceps.common.CommonConfig#STATE_COALESCING_WINDOW
+ */
+public class CoalescingStateWriter extends AbstractIdleService {
+    private static final Logger LOG = LogManager.getLogger(CoalescingStateWriter.class);
+
+    private final LocalMdibAccess mdibAccess;
+    private final CopyManager copyManager;
+    private final Duration window;
+    private final Logger instanceLogger;
+    private final ReentrantLock flushLock;
+    private final List<FlushFailureListener> flushFailureListeners;
+
+    private Map<MdibStateModifications.Type, Map<String, AbstractState>> buffer;
+    private boolean accepting;
+    private boolean flushScheduled;
+    private long submittedStates;
+    private long coalescedStates;
+    private ScheduledExecutorService executor;
+
+    @AssistedInject
+    CoalescingStateWriter(@Assisted LocalMdibAccess mdibAccess,
+                          CopyManager copyManager,
+                          @Named(org.somda.sdc.biceps.common.CommonConfig.STATE_COALESCING_WINDOW) Duration window,
+                          @Named(CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier) {
+        this.instanceLogger = InstanceLogger.wrapLogger(LOG, frameworkIdentifier);
+        this.mdibAccess = mdibAccess;
+        this.copyManager = copyManager;
+        this.window = window;
+        this.flushLock = new ReentrantLock();
+        this.flushFailureListeners = new CopyOnWriteArrayList<>();
+        this.buffer = new LinkedHashMap<>();
+    }
+
+    /**
+     * Buffers state modifications until the next flush.
+     * <p>
+     * States are copied if configured by {@link org.somda.sdc.biceps.common.CommonConfig#COPY_MDIB_INPUT}, hence
+     * they can be reused by the caller.
+     *
+     * @param mdibStateModifications a set of state updates.
+     * @throws IllegalStateException if the service is not running.
+     */
+    public void writeStates(MdibStateModifications mdibStateModifications) {
+        // checked under the lock that shutDown() takes before the executor is stopped and the final flush is done
+        synchronized (this) {
+            if (!accepting) {
+                throw new IllegalStateException("Coalescing state writer is not running");
+            }
+
+            var states = buffer.computeIfAbsent(mdibStateModifications.getChangeType(),
+                    changeType -> new LinkedHashMap<>());
+            for (AbstractState state : mdibStateModifications.getStates()) {
+                submittedStates++;
+                if (states.put(handleOf(state), copyManager.processInput(state)) != null) {
+                    coalescedStates++;
+                }
+            }
+
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Writes all buffered states to the MDIB access immediately.
+     * <p>
+     * States that are rejected by the preprocessing of the MDIB access are dropped and reported to the
+     * {@linkplain FlushFailureListener}s, all other states are written.
+     * If writing fails for any other reason, the states are kept in the buffer and another flush is scheduled.
+     *
+     * @return the result of the write operation or {@linkplain Optional#empty()} if no state has been written.
+     */
+    public Optional<WriteBatchResult> flush() {
+        // the flush lock keeps the order of buffers that are written by concurrent flushes
+        flushLock.lock();
+        try {
+            Map<MdibStateModifications.Type, Map<String, AbstractState>> states;
+            synchronized (this) {
+                states = buffer;
+                buffer = new LinkedHashMap<>();
+                flushScheduled = false;
+            }
+
+            // every rejection removes at least one state, hence the loop ends
+            while (true) {
+                var modifications = new ArrayList<MdibStateModifications>(states.size());
+                states.forEach((changeType, statesOfType) -> modifications.add(MdibStateModifications
+                        .create(changeType, statesOfType.size()).addAll(statesOfType.values())));
+                if (modifications.isEmpty()) {
+                    return Optional.empty();
+                }
+
+                try {
+                    // buffered states have already been copied on submission
+                    return Optional.of(mdibAccess.writeBatchWithoutCopy(null, modifications));
+                } catch (PreprocessingException e) {
+                    var rejectedStates = reject(states, e.getHandle());
+                    instanceLogger.warn("Dropped {} coalesced state(s) that have been rejected: {}",
+                            rejectedStates.size(), e.getMessage());
+                    flushFailureListeners.forEach(listener -> listener.onRejectedStates(rejectedStates, e));
+                // CHECKSTYLE.OFF: IllegalCatch
+                } catch (RuntimeException e) {
+                // CHECKSTYLE.ON: IllegalCatch
+                    rebuffer(states);
+                    throw e;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Discards all buffered states without writing them.
+     *
+     * @return the number of discarded states.
+     */
+    public synchronized int discard() {
+        var discardedStates = buffer.values().stream().mapToInt(Map::size).sum();
+        buffer = new LinkedHashMap<>();
+        return discardedStates;
+    }
+
+    /**
+     * Registers a listener that is notified about rejected states and failed flushes.
+     *
+     * @param listener the listener to register.
+     */
+    public void registerFlushFailureListener(FlushFailureListener listener) {
+        flushFailureListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener that has been registered by
+     * {@link #registerFlushFailureListener(FlushFailureListener)}.
+     *
+     * @param listener the listener to unregister.
+     */
+    public void unregisterFlushFailureListener(FlushFailureListener listener) {
+        flushFailureListeners.remove(listener);
+    }
+
+    /**
+     * Gets the number of states that have been submitted.
+     *
+     * @return the number of states passed to {@link #writeStates(MdibStateModifications)}.
+     */
+    public synchronized long getSubmittedStates() {
+        return submittedStates;
+    }
+
+    /**
+     * Gets the number of states that have been replaced by later states before being written.
+     *
+     * @return the number of coalesced states, i.e., updates that have not been written to the MDIB access.
+     */
+    public synchronized long getCoalescedStates() {
+        return coalescedStates;
+    }
+
+    @Override
+    protected synchronized void startUp() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("CoalescingStateWriter-thread-%d")
+                .setDaemon(true)
+                .build());
+        accepting = true;
+    }
+
+    @Override
+    protected void shutDown() {
+        // writes that have been accepted before are in the buffer and written by the final flush
+        synchronized (this) {
+            accepting = false;
+            executor.shutdownNow();
+        }
+        flush();
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        // CHECKSTYLE.OFF: IllegalCatch
+        } catch (RuntimeException e) {
+        // CHECKSTYLE.ON: IllegalCatch
+            instanceLogger.warn("Coalesced states could not be written, retrying after the coalescing window: {}",
+                    e.getMessage());
+            instanceLogger.trace("Coalesced states could not be written", e);
+            flushFailureListeners.forEach(listener -> listener.onFlushFailure(e));
+        }
+    }
+
+    private synchronized void scheduleFlush() {
+        if (accepting && !flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(this::scheduledFlush, window.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void rebuffer(Map<MdibStateModifications.Type, Map<String, AbstractState>> states) {
+        // states that have been submitted during the failed flush are newer than the states to put back
+        var newerStates = buffer;
+        buffer = states;
+        newerStates.forEach((changeType, newerStatesOfType) -> {
+            var statesOfType = buffer.computeIfAbsent(changeType, type -> new LinkedHashMap<>());
+            newerStatesOfType.forEach((handle, state) -> {
+                if (statesOfType.put(handle, state) != null) {
+                    coalescedStates++;
+                }
+            });
+        });
+        scheduleFlush();
+    }
+
+    /*
+     * Removes the states that caused a preprocessing failure, which are identified by the handle of the failure.
+     * If no state matches, the rejected state cannot be determined and all states are removed.
+     */
+    private static List<AbstractState> reject(Map<MdibStateModifications.Type, Map<String, AbstractState>> states,
+                                              @Nullable String handle) {
+        var rejectedStates = new ArrayList<AbstractState>();
+        for (Map<String, AbstractState> statesOfType : states.values()) {
+            var state = statesOfType.remove(handle);
+            if (state != null) {
+                rejectedStates.add(state);
+            }
+        }
+        if (rejectedStates.isEmpty()) {
+            // multi-states might be reported by their descriptor handle
+            for (Map<String, AbstractState> statesOfType : states.values()) {
+                statesOfType.values().removeIf(state -> {
+                    if (state.getDescriptorHandle().equals(handle)) {
+                        rejectedStates.add(state);
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        }
+        if (rejectedStates.isEmpty()) {
+            states.values().forEach(statesOfType -> rejectedStates.addAll(statesOfType.values()));
+            states.clear();
+        }
+        states.values().removeIf(Map::isEmpty);
+        return rejectedStates;
+    }
+
+    private static String handleOf(AbstractState state) {
+        return state instanceof AbstractMultiState
+                ? ((AbstractMultiState) state).getHandle()
+                : state.getDescriptorHandle();
+    }
+
+    /**
+     * Listener that is notified if buffered states could not be written.
+     */
+    public interface FlushFailureListener {
+        /**
+         * Called after states have been rejected by the preprocessing of the MDIB access.
+         * <p>
+         * The rejected states are dropped, all other states of the flush are written nevertheless.
+         *
+         * @param rejectedStates the dropped states.
+         * @param exception      the exception that caused the rejection.
+         */
+        void onRejectedStates(List<AbstractState> rejectedStates, PreprocessingException exception);
+
+        /**
+         * Called after a flush triggered by the coalescing window failed for another reason than rejected states.
+         * <p>
+         * The states are still buffered at this point and another flush is scheduled.
+         *
+         * @param exception the exception that caused the failure.
+         */
+        default void onFlushFailure(RuntimeException exception) {
+        }
+    }
+}
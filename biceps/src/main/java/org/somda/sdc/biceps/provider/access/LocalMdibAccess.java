@@ -5,9 +5,14 @@ import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.access.MdibAccess;
 import org.somda.sdc.biceps.common.access.MdibAccessObservable;
 import org.somda.sdc.biceps.common.access.ReadTransactionProvider;
+import org.somda.sdc.biceps.common.access.WriteBatchResult;
 import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
 import org.somda.sdc.biceps.common.access.WriteStateResult;
 import org.somda.sdc.biceps.common.storage.PreprocessingException;
+import org.somda.sdc.biceps.common.storage.PreprocessingStatistics;
+
+import javax.annotation.Nullable;
+import java.util.List;
 
 /**
  * MDIB read and write access for the BICEPS provider side.
@@ -42,4 +47,60 @@ public interface LocalMdibAccess extends MdibAccess, ReadTransactionProvider, Md
      *                                would be violated.
      */
     WriteStateResult writeStates(MdibStateModifications mdibStateModifications) throws PreprocessingException;
+
+    /**
+     * Processes several modification objects at once, stores the data internally and triggers one event per object.
+     * <p>
+     * All modifications are written under one lock acquisition and share one MDIB version, which is cheaper than
+     * writing them one by one and allows to publish changes of the same instant (e.g., metrics and alerts) together.
+     * The description modifications are written first, followed by the state modifications in the given order.
+     * All modification objects are preprocessed before any of them is written, i.e., if preprocessing of any object
+     * fails, none of them is written.
+     * <p>
+     * <em>Attention: as all reports of a batch carry the same MDIB version, consumers need to accept reports with
+     * an MDIB version they have already seen in order to process all of them.</em>
+     *
+     * @param mdibDescriptionModifications a set of insertions, updates and deletes or null if there are none.
+     * @param mdibStateModifications       sets of state updates.
+     * @return a write result including the results of all modification objects.
+     * @throws PreprocessingException if something goes wrong during preprocessing, i.e., the consistency of the MDIB
+     *                                would be violated.
+     */
+    WriteBatchResult writeBatch(@Nullable MdibDescriptionModifications mdibDescriptionModifications,
+                                List<MdibStateModifications> mdibStateModifications) throws PreprocessingException;
+
+    /**
+     * Same as {@link #writeBatch(MdibDescriptionModifications, List)}, but the modifications are never copied.
+     * <p>
+     * This allows callers that own the modifications already (e.g., because they copied them before) to save a
+     * second copy regardless of {@link org.somda.sdc.biceps.common.CommonConfig#COPY_MDIB_INPUT}.
+     * <em>The caller hands over the modifications and must neither modify nor reuse them afterwards.</em>
+     *
+     * @param mdibDescriptionModifications a set of insertions, updates and deletes or null if there are none.
+     * @param mdibStateModifications       sets of state updates.
+     * @return a write result including the results of all modification objects.
+     * @throws PreprocessingException if something goes wrong during preprocessing, i.e., the consistency of the MDIB
+     *                                would be violated.
+     */
+    WriteBatchResult writeBatchWithoutCopy(@Nullable MdibDescriptionModifications mdibDescriptionModifications,
+                                           List<MdibStateModifications> mdibStateModifications)
+            throws PreprocessingException;
+
+    /**
+     * Gets the statistics of the preprocessing chain that is applied to all modifications of this MDIB access.
+     *
+     * @return the accumulated processing time per preprocessing segment and the number of state change sets that
+     * took the fast path for known states.
+     */
+    PreprocessingStatistics getPreprocessingStatistics();
+
+    /**
+     * Stops persisting the MDIB and releases the persistence directory.
+     * <p>
+     * The MDIB access can still be used afterwards, but subsequent modifications are not persisted.
+     * Nothing happens if the MDIB is not persisted.
+     *
+     * @see org.somda.sdc.biceps.common.CommonConfig#MDIB_PERSISTENCE_DIRECTORY
+     */
+    void closePersistence();
 }
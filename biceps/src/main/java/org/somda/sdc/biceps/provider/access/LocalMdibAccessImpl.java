@@ -9,47 +9,74 @@ import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.access.CopyManager;
 import org.somda.sdc.biceps.common.access.MdibAccessObserver;
+import org.somda.sdc.biceps.common.access.MdibQuery;
 import org.somda.sdc.biceps.common.access.ReadTransaction;
+import org.somda.sdc.biceps.common.access.WriteBatchResult;
 import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
 import org.somda.sdc.biceps.common.access.WriteStateResult;
 import org.somda.sdc.biceps.common.access.factory.ReadTransactionFactory;
 import org.somda.sdc.biceps.common.access.helper.WriteUtil;
 import org.somda.sdc.biceps.common.event.Distributor;
+import org.somda.sdc.biceps.common.event.EventQueueMetrics;
+import org.somda.sdc.biceps.common.event.ObserverFilter;
 import org.somda.sdc.biceps.common.preprocessing.PreprocessingInjectorWrapper;
 import org.somda.sdc.biceps.common.preprocessing.PreprocessingUtil;
 import org.somda.sdc.biceps.common.storage.DescriptionPreprocessingSegment;
+import org.somda.sdc.biceps.common.storage.MdibPersistence;
 import org.somda.sdc.biceps.common.storage.MdibStorage;
 import org.somda.sdc.biceps.common.storage.MdibStoragePreprocessingChain;
 import org.somda.sdc.biceps.common.storage.PreprocessingException;
+import org.somda.sdc.biceps.common.storage.PreprocessingStatistics;
+import org.somda.sdc.biceps.common.storage.ShardedMdibStorage;
 import org.somda.sdc.biceps.common.storage.StatePreprocessingSegment;
+import org.somda.sdc.biceps.common.storage.WaveformSamples;
 import org.somda.sdc.biceps.common.storage.factory.MdibStorageFactory;
 import org.somda.sdc.biceps.common.storage.factory.MdibStoragePreprocessingChainFactory;
 import org.somda.sdc.biceps.model.participant.AbstractContextState;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
 import org.somda.sdc.common.CommonConfig;
 import org.somda.sdc.common.logging.InstanceLogger;
 
+import javax.annotation.Nullable;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
 /**
  * Default implementation of {@linkplain LocalMdibAccessImpl}.
+ * <p>
+ * If {@link org.somda.sdc.biceps.common.CommonConfig#MDIB_PERSISTENCE_DIRECTORY} is configured, the MDIB is restored
+ * from the {@linkplain MdibPersistence} on creation and every write is recorded afterwards.
+ * <p>
+ * If {@link org.somda.sdc.biceps.common.CommonConfig#MDIB_STORAGE_SHARDING} and
+ * {@link org.somda.sdc.biceps.common.CommonConfig#MDIB_STORAGE_SNAPSHOTS} are enabled, the MDIB is stored in a
+ * {@linkplain ShardedMdibStorage} with one shard per MDS, whereby state modifications of different MDSs are
+ * preprocessed in parallel.
+ * In this case the {@linkplain PreprocessingStatistics} are summed up over the preprocessing chains of all shards.
  */
 public class LocalMdibAccessImpl implements LocalMdibAccess {
     private static final Logger LOG = LogManager.getLogger(LocalMdibAccessImpl.class);
 
     private final Distributor eventDistributor;
     private final MdibStorage mdibStorage;
+    private final MdibPersistence mdibPersistence;
     private final ReentrantReadWriteLock readWriteLock;
     private final ReadTransactionFactory readTransactionFactory;
     private final CopyManager copyManager;
 
+    private final ShardedMdibStorage shardedMdibStorage;
+    private final MdibStoragePreprocessingChain localMdibAccessPreprocessing;
     private final WriteUtil writeUtil;
+    private final ShardedWriteUtil shardedWriteUtil;
     private final Logger instanceLogger;
 
     private MdibVersion mdibVersion;
@@ -60,6 +87,7 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
     LocalMdibAccessImpl(Distributor eventDistributor,
                         MdibStoragePreprocessingChainFactory chainFactory,
                         MdibStorageFactory mdibStorageFactory,
+                        MdibPersistence mdibPersistence,
                         ReentrantReadWriteLock readWriteLock,
                         ReadTransactionFactory readTransactionFactory,
                         CopyManager copyManager,
@@ -68,6 +96,8 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
                                 List<Class<? extends StatePreprocessingSegment>> stateSegmentClasses,
                         @Named(org.somda.sdc.biceps.common.CommonConfig.PROVIDER_DESCRIPTION_PREPROCESSING_SEGMENTS)
                                 List<Class<? extends DescriptionPreprocessingSegment>> descriptionSegmentClasses,
+                        @Named(org.somda.sdc.biceps.common.CommonConfig.MDIB_STORAGE_SHARDING) Boolean sharding,
+                        @Named(org.somda.sdc.biceps.common.CommonConfig.MDIB_STORAGE_SNAPSHOTS) Boolean snapshots,
                         PreprocessingInjectorWrapper injectorWrapper) {
         this.instanceLogger = InstanceLogger.wrapLogger(LOG, frameworkIdentifier);
         mdibVersion = MdibVersion.create();
@@ -75,11 +105,55 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
         mdStateVersion = BigInteger.ZERO;
 
         this.eventDistributor = eventDistributor;
-        this.mdibStorage = mdibStorageFactory.createMdibStorage(mdibVersion, BigInteger.ZERO, BigInteger.ZERO);
+        if (sharding && !snapshots) {
+            instanceLogger.warn("MDIB storage sharding requires MDIB storage snapshots, which are disabled. "
+                    + "The MDIB storage is not sharded.");
+        }
+        if (sharding && snapshots) {
+            this.shardedMdibStorage = new ShardedMdibStorage(instanceLogger, mdibStorageFactory,
+                    storage -> createPreprocessingChain(chainFactory, storage, stateSegmentClasses,
+                            descriptionSegmentClasses, injectorWrapper),
+                    mdibVersion, BigInteger.ZERO, BigInteger.ZERO);
+            this.mdibStorage = shardedMdibStorage;
+        } else {
+            this.shardedMdibStorage = null;
+            this.mdibStorage = mdibStorageFactory.createMdibStorage(mdibVersion, BigInteger.ZERO, BigInteger.ZERO);
+        }
+        this.mdibPersistence = mdibPersistence;
+        if (mdibPersistence.open(mdibStorage)) {
+            mdibVersion = mdibStorage.getMdibVersion();
+            mdDescriptionVersion = mdibStorage.getMdDescriptionVersion();
+            mdStateVersion = mdibStorage.getMdStateVersion();
+        }
         this.readWriteLock = readWriteLock;
         this.readTransactionFactory = readTransactionFactory;
         this.copyManager = copyManager;
 
+        if (shardedMdibStorage == null) {
+            this.localMdibAccessPreprocessing = createPreprocessingChain(chainFactory, mdibStorage,
+                    stateSegmentClasses, descriptionSegmentClasses, injectorWrapper);
+            this.writeUtil = new WriteUtil(
+                    instanceLogger, eventDistributor,
+                    localMdibAccessPreprocessing, readWriteLock,
+                    this, mdibStorage
+            );
+            this.shardedWriteUtil = null;
+        } else {
+            this.localMdibAccessPreprocessing = null;
+            this.writeUtil = null;
+            this.shardedWriteUtil = new ShardedWriteUtil(
+                    instanceLogger, eventDistributor,
+                    readWriteLock, this, shardedMdibStorage
+            );
+        }
+    }
+
+    private static MdibStoragePreprocessingChain createPreprocessingChain(
+            MdibStoragePreprocessingChainFactory chainFactory,
+            MdibStorage mdibStorage,
+            List<Class<? extends StatePreprocessingSegment>> stateSegmentClasses,
+            List<Class<? extends DescriptionPreprocessingSegment>> descriptionSegmentClasses,
+            PreprocessingInjectorWrapper injectorWrapper) {
         var descriptionPreprocessingSegments =
                 PreprocessingUtil.getDescriptionPreprocessingSegments(descriptionSegmentClasses,
                         injectorWrapper.getInjector());
@@ -87,38 +161,152 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
         var statePreprocessingSegments = PreprocessingUtil.getStatePreprocessingSegments(
                 stateSegmentClasses, descriptionPreprocessingSegments, injectorWrapper.getInjector());
 
-        MdibStoragePreprocessingChain localMdibAccessPreprocessing = chainFactory.createMdibStoragePreprocessingChain(
+        return chainFactory.createMdibStoragePreprocessingChain(
                 mdibStorage,
                 descriptionPreprocessingSegments,
                 statePreprocessingSegments);
-
-        this.writeUtil = new WriteUtil(
-                instanceLogger, eventDistributor,
-                localMdibAccessPreprocessing, readWriteLock,
-                this
-        );
     }
 
     @Override
     public WriteDescriptionResult writeDescription(MdibDescriptionModifications mdibDescriptionModifications)
             throws PreprocessingException {
         var modificationsCopy = copyManager.processInput(mdibDescriptionModifications);
-        return writeUtil.writeDescription(descriptionModifications -> {
-            mdibVersion = MdibVersion.increment(mdibVersion);
-            mdDescriptionVersion = mdDescriptionVersion.add(BigInteger.ONE);
-            mdStateVersion = mdStateVersion.add(BigInteger.ONE);
-            return mdibStorage.apply(mdibVersion, mdDescriptionVersion, mdStateVersion, descriptionModifications);
-        }, modificationsCopy);
+        Function<MdibDescriptionModifications, WriteDescriptionResult> lockedWriteDescription =
+                descriptionModifications -> {
+                    mdibVersion = MdibVersion.increment(mdibVersion);
+                    mdDescriptionVersion = mdDescriptionVersion.add(BigInteger.ONE);
+                    mdStateVersion = mdStateVersion.add(BigInteger.ONE);
+                    return applyDescription(descriptionModifications);
+                };
+        if (shardedWriteUtil != null) {
+            return shardedWriteUtil.writeDescription(lockedWriteDescription, modificationsCopy);
+        }
+        return writeUtil.writeDescription(lockedWriteDescription, modificationsCopy);
     }
 
     @Override
     public WriteStateResult writeStates(MdibStateModifications mdibStateModifications) throws PreprocessingException {
         var modificationsCopy = copyManager.processInput(mdibStateModifications);
-        return writeUtil.writeStates(stateModifications -> {
+        Function<MdibStateModifications, WriteStateResult> lockedWriteStates = stateModifications -> {
+            mdibVersion = MdibVersion.increment(mdibVersion);
+            mdStateVersion = mdStateVersion.add(BigInteger.ONE);
+            return applyStates(stateModifications);
+        };
+        if (shardedWriteUtil != null) {
+            return shardedWriteUtil.writeStates(lockedWriteStates, modificationsCopy);
+        }
+        return writeUtil.writeStates(lockedWriteStates, modificationsCopy);
+    }
+
+    @Override
+    public WriteBatchResult writeBatch(@Nullable MdibDescriptionModifications mdibDescriptionModifications,
+                                       List<MdibStateModifications> mdibStateModifications)
+            throws PreprocessingException {
+        var descriptionModificationsCopy = mdibDescriptionModifications == null
+                ? null
+                : copyManager.processInput(mdibDescriptionModifications);
+        var stateModificationsCopies = new ArrayList<MdibStateModifications>(mdibStateModifications.size());
+        for (MdibStateModifications modifications : mdibStateModifications) {
+            stateModificationsCopies.add(copyManager.processInput(modifications));
+        }
+        return writeBatchWithoutCopy(descriptionModificationsCopy, stateModificationsCopies);
+    }
+
+    @Override
+    public WriteBatchResult writeBatchWithoutCopy(@Nullable MdibDescriptionModifications descriptionModificationsCopy,
+                                                  List<MdibStateModifications> stateModificationsCopies)
+            throws PreprocessingException {
+        Runnable lockedIncrementVersions = () -> {
             mdibVersion = MdibVersion.increment(mdibVersion);
+            if (descriptionModificationsCopy != null) {
+                mdDescriptionVersion = mdDescriptionVersion.add(BigInteger.ONE);
+            }
             mdStateVersion = mdStateVersion.add(BigInteger.ONE);
-            return mdibStorage.apply(mdibVersion, mdStateVersion, stateModifications);
-        }, modificationsCopy);
+        };
+        if (shardedWriteUtil != null) {
+            return shardedWriteUtil.writeBatch(lockedIncrementVersions, this::applyDescription, this::applyStates,
+                    descriptionModificationsCopy, stateModificationsCopies);
+        }
+        return writeUtil.writeBatch(
+                lockedIncrementVersions,
+                this::applyDescription,
+                this::applyStates,
+                descriptionModificationsCopy,
+                stateModificationsCopies);
+    }
+
+    private WriteDescriptionResult applyDescription(MdibDescriptionModifications descriptionModifications) {
+        var result = mdibStorage.apply(mdibVersion, mdDescriptionVersion, mdStateVersion, descriptionModifications);
+        mdibPersistence.record(mdibVersion, mdDescriptionVersion, mdStateVersion, descriptionModifications);
+        return result;
+    }
+
+    private WriteStateResult applyStates(MdibStateModifications stateModifications) {
+        var result = mdibStorage.apply(mdibVersion, mdStateVersion, stateModifications);
+        mdibPersistence.record(mdibVersion, mdStateVersion, stateModifications);
+        return result;
+    }
+
+    @Override
+    public PreprocessingStatistics getPreprocessingStatistics() {
+        if (shardedMdibStorage == null) {
+            return localMdibAccessPreprocessing.getStatistics();
+        }
+
+        var statistics = new ArrayList<PreprocessingStatistics>();
+        // shards are only created while the write lock is held
+        readWriteLock.readLock().lock();
+        try {
+            shardedMdibStorage.getShards().forEach(shard ->
+                    statistics.add(shard.getPreprocessingChain().getStatistics()));
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+        return sumStatistics(statistics);
+    }
+
+    @Override
+    public void closePersistence() {
+        // a write that is in progress is recorded before the persistence is closed
+        readWriteLock.writeLock().lock();
+        try {
+            mdibPersistence.close();
+        } finally {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * All shards use the same segment configuration, hence timings are summed up per segment position.
+     */
+    private static PreprocessingStatistics sumStatistics(List<PreprocessingStatistics> statistics) {
+        var descriptionTimings = new ArrayList<PreprocessingStatistics.SegmentTiming>();
+        var stateTimings = new ArrayList<PreprocessingStatistics.SegmentTiming>();
+        long fastPathStateModifications = 0;
+        long regularStateModifications = 0;
+        for (PreprocessingStatistics shardStatistics : statistics) {
+            addTimings(descriptionTimings, shardStatistics.getDescriptionSegmentTimings());
+            addTimings(stateTimings, shardStatistics.getStateSegmentTimings());
+            fastPathStateModifications += shardStatistics.getFastPathStateModifications();
+            regularStateModifications += shardStatistics.getRegularStateModifications();
+        }
+        return new PreprocessingStatistics(descriptionTimings, stateTimings,
+                fastPathStateModifications, regularStateModifications);
+    }
+
+    private static void addTimings(List<PreprocessingStatistics.SegmentTiming> sums,
+                                   List<PreprocessingStatistics.SegmentTiming> timings) {
+        for (int i = 0; i < timings.size(); i++) {
+            var timing = timings.get(i);
+            if (i < sums.size()) {
+                var sum = sums.get(i);
+                sums.set(i, new PreprocessingStatistics.SegmentTiming(sum.getSegment(),
+                        sum.getInvocations() + timing.getInvocations(),
+                        sum.getTotalTime().plus(timing.getTotalTime())));
+            } else {
+                sums.add(timing);
+            }
+        }
     }
 
     @Override
@@ -127,6 +315,12 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
         eventDistributor.registerObserver(observer);
     }
 
+    @Override
+    public void registerObserver(MdibAccessObserver observer, ObserverFilter filter) {
+        instanceLogger.info("Register filtered MDIB observer: {}", observer);
+        eventDistributor.registerObserver(observer, filter);
+    }
+
     @Override
     public void unregisterObserver(MdibAccessObserver observer) {
         instanceLogger.info("Unregister MDIB observer: {}", observer);
@@ -138,6 +332,14 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
         eventDistributor.unregisterAllObservers();
     }
 
+    @Override
+    public Map<MdibAccessObserver, EventQueueMetrics> getEventQueueMetrics() {
+        var metrics = new HashMap<MdibAccessObserver, EventQueueMetrics>();
+        eventDistributor.getEventQueueMetrics().forEach((observer, observerMetrics) ->
+                metrics.put((MdibAccessObserver) observer, observerMetrics));
+        return metrics;
+    }
+
     @Override
     public MdibVersion getMdibVersion() {
         try (ReadTransaction transaction = startTransaction()) {
@@ -236,6 +438,34 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
         }
     }
 
+    @Override
+    public Optional<AbstractState> getStateAt(String handle, MdibVersion mdibVersion) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getStateAt(handle, mdibVersion);
+        }
+    }
+
+    @Override
+    public Map<String, AbstractState> getStatesAt(Collection<String> handles, MdibVersion mdibVersion) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getStatesAt(handles, mdibVersion);
+        }
+    }
+
+    @Override
+    public Optional<WaveformSamples> getWaveformSamples(String handle, int maxCount) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getWaveformSamples(handle, maxCount);
+        }
+    }
+
+    @Override
+    public Optional<RealTimeSampleArrayMetricState> getWaveformState(String handle, int maxCount) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getWaveformState(handle, maxCount);
+        }
+    }
+
     @Override
     public <T extends AbstractDescriptor> Collection<MdibEntity> findEntitiesByType(Class<T> type) {
         try (ReadTransaction transaction = startTransaction()) {
@@ -243,6 +473,13 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
         }
     }
 
+    @Override
+    public List<MdibEntity> findEntities(MdibQuery query) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.findEntities(query);
+        }
+    }
+
     @Override
     public <T extends AbstractDescriptor> List<MdibEntity> getChildrenByType(String handle, Class<T> type) {
         try (ReadTransaction transaction = startTransaction()) {
@@ -250,8 +487,20 @@ public class LocalMdibAccessImpl implements LocalMdibAccess {
         }
     }
 
+    @Override
+    public List<String> getAncestorHandles(String handle) {
+        try (ReadTransaction transaction = startTransaction()) {
+            return transaction.getAncestorHandles(handle);
+        }
+    }
+
     @Override
     public ReadTransaction startTransaction() {
+        var snapshot = mdibStorage.getSnapshot();
+        if (snapshot.isPresent()) {
+            // snapshots are immutable and hence do not require any locking
+            return readTransactionFactory.createReadTransaction(snapshot.get(), null);
+        }
         return readTransactionFactory.createReadTransaction(mdibStorage, readWriteLock.readLock());
     }
 }
@@ -0,0 +1,309 @@
+package org.somda.sdc.biceps.provider.access;
+
+import org.apache.logging.log4j.Logger;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.access.MdibAccess;
+import org.somda.sdc.biceps.common.access.ReadTransactionProvider;
+import org.somda.sdc.biceps.common.access.WriteBatchResult;
+import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
+import org.somda.sdc.biceps.common.access.WriteStateResult;
+import org.somda.sdc.biceps.common.event.Distributor;
+import org.somda.sdc.biceps.common.storage.PreprocessingException;
+import org.somda.sdc.biceps.common.storage.ShardedMdibStorage;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Write operations of a {@linkplain LocalMdibAccessImpl} with a {@linkplain ShardedMdibStorage}.
+ * <p>
+ * State modifications hold the read lock of the given read write lock and the locks of all shards they affect while
+ * they are preprocessed by the preprocessing chains of the shards, hence state modifications of different MDSs are
+ * preprocessed in parallel.
+ * Description modifications and batches hold the write lock, i.e., they exclude any other write operation.
+ * All modification sets of a batch are preprocessed before any of them is applied.
+ * <p>
+ * Afterwards every write operation acquires a global commit lock in order to increment the MDIB version, apply the
+ * modifications and distribute the events.
+ * This way MDIB versions are a global sequence and events are distributed in order of the MDIB version.
+ * Waiting for event queue capacity is done after all locks have been released, see
+ * {@link Distributor#awaitEventQueueCapacity()}.
+ * <p>
+ * <em>Remark: The operations do not copy descriptors or states.</em>
+ */
+class ShardedWriteUtil {
+    private final Logger log;
+    private final Distributor eventDistributor;
+    private final ReentrantReadWriteLock readWriteLock;
+    private final ReentrantLock commitLock;
+    private final MdibAccess mdibAccess;
+    private final ShardedMdibStorage mdibStorage;
+
+    ShardedWriteUtil(Logger logger,
+                     Distributor eventDistributor,
+                     ReentrantReadWriteLock readWriteLock,
+                     MdibAccess mdibAccess,
+                     ShardedMdibStorage mdibStorage) {
+        this.log = logger;
+        this.eventDistributor = eventDistributor;
+        this.readWriteLock = readWriteLock;
+        this.commitLock = new ReentrantLock();
+        this.mdibAccess = mdibAccess;
+        this.mdibStorage = mdibStorage;
+    }
+
+    WriteDescriptionResult writeDescription(
+            Function<MdibDescriptionModifications, WriteDescriptionResult> lockedWriteDescription,
+            MdibDescriptionModifications descriptionModifications
+    ) throws PreprocessingException {
+        checkWriteAllowed();
+        WriteDescriptionResult modificationResult;
+        readWriteLock.writeLock().lock();
+        try {
+            var modifications = preprocess(descriptionModifications, null);
+            commitLock.lock();
+            try {
+                modificationResult = lockedWriteDescription.apply(modifications);
+                if (modifications.getModifications().isEmpty()) {
+                    return new WriteDescriptionResult(mdibAccess.getMdibVersion(),
+                            Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+                }
+
+                eventDistributor.sendDescriptionModificationEvent(
+                        eventMdibAccess(),
+                        modificationResult.getInsertedEntities(),
+                        modificationResult.getUpdatedEntities(),
+                        modificationResult.getDeletedEntities());
+            } finally {
+                commitLock.unlock();
+            }
+        } finally {
+            readWriteLock.writeLock().unlock();
+        }
+        awaitEventQueueCapacity();
+        return modificationResult;
+    }
+
+    WriteStateResult writeStates(Function<MdibStateModifications, WriteStateResult> lockedWriteStates,
+                                 MdibStateModifications stateModifications) throws PreprocessingException {
+        checkWriteAllowed();
+        WriteStateResult modificationResult;
+        readWriteLock.readLock().lock();
+        try {
+            var partitions = mdibStorage.partition(stateModifications);
+            // partitions are sorted by root handle, which avoids deadlocks between writers of several shards
+            var lockedShards = new ArrayList<ShardedMdibStorage.Shard>(partitions.size());
+            try {
+                for (ShardedMdibStorage.Shard shard : partitions.keySet()) {
+                    shard.getLock().lock();
+                    lockedShards.add(shard);
+                }
+                preprocess(partitions, null);
+                modificationResult = commitStates(lockedWriteStates, stateModifications);
+            } finally {
+                lockedShards.forEach(shard -> shard.getLock().unlock());
+            }
+        } finally {
+            readWriteLock.readLock().unlock();
+        }
+        awaitEventQueueCapacity();
+        return modificationResult;
+    }
+
+    WriteBatchResult writeBatch(
+            Runnable lockedIncrementVersions,
+            Function<MdibDescriptionModifications, WriteDescriptionResult> lockedWriteDescription,
+            Function<MdibStateModifications, WriteStateResult> lockedWriteStates,
+            @Nullable MdibDescriptionModifications descriptionModifications,
+            List<MdibStateModifications> stateModifications
+    ) throws PreprocessingException {
+        checkWriteAllowed();
+        readWriteLock.writeLock().lock();
+        var batchShards = new LinkedHashSet<ShardedMdibStorage.Shard>();
+        boolean applied = false;
+        WriteBatchResult result;
+        try {
+            MdibDescriptionModifications modifications = null;
+            if (descriptionModifications != null) {
+                modifications = preprocess(descriptionModifications, batchShards);
+            }
+            for (MdibStateModifications stateModification : stateModifications) {
+                preprocess(descriptionModifications == null
+                        ? mdibStorage.partition(stateModification)
+                        : mdibStorage.partition(stateModification, descriptionModifications), batchShards);
+            }
+
+            commitLock.lock();
+            try {
+                result = commitBatch(lockedIncrementVersions, lockedWriteDescription, lockedWriteStates,
+                        modifications, stateModifications);
+            } finally {
+                commitLock.unlock();
+            }
+            applied = true;
+        } finally {
+            for (ShardedMdibStorage.Shard shard : batchShards) {
+                shard.getPreprocessingChain().afterBatch(applied);
+            }
+            readWriteLock.writeLock().unlock();
+        }
+        awaitEventQueueCapacity();
+        return result;
+    }
+
+    private WriteStateResult commitStates(Function<MdibStateModifications, WriteStateResult> lockedWriteStates,
+                                          MdibStateModifications stateModifications) {
+        commitLock.lock();
+        try {
+            var modificationResult = lockedWriteStates.apply(stateModifications);
+            if (stateModifications.getStates().isEmpty()) {
+                return new WriteStateResult(mdibAccess.getMdibVersion(), Collections.emptyList());
+            }
+
+            eventDistributor.sendStateModificationEvent(
+                    eventMdibAccess(),
+                    stateModifications.getChangeType(),
+                    modificationResult.getStates());
+            return modificationResult;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /*
+     * Same semantics as WriteUtil.writeBatch(), i.e., the modifications have been preprocessed already and the versions
+     * are incremented once right before the modifications are written.
+     */
+    private WriteBatchResult commitBatch(
+            Runnable lockedIncrementVersions,
+            Function<MdibDescriptionModifications, WriteDescriptionResult> lockedWriteDescription,
+            Function<MdibStateModifications, WriteStateResult> lockedWriteStates,
+            @Nullable MdibDescriptionModifications descriptionModifications,
+            List<MdibStateModifications> stateModifications
+    ) throws PreprocessingException {
+        if (descriptionModifications == null && stateModifications.isEmpty()) {
+            return new WriteBatchResult(mdibAccess.getMdibVersion(), null, Collections.emptyList());
+        }
+
+        var stateResults = new ArrayList<WriteStateResult>(stateModifications.size());
+        var descriptionResult = mdibStorage.applyBatch(() -> {
+            lockedIncrementVersions.run();
+            var result = descriptionModifications == null
+                    ? null
+                    : lockedWriteDescription.apply(descriptionModifications);
+            for (MdibStateModifications modifications : stateModifications) {
+                stateResults.add(lockedWriteStates.apply(modifications));
+            }
+            return result;
+        });
+
+        var eventMdibAccess = eventMdibAccess();
+        if (descriptionResult != null && !descriptionModifications.getModifications().isEmpty()) {
+            eventDistributor.sendDescriptionModificationEvent(
+                    eventMdibAccess,
+                    descriptionResult.getInsertedEntities(),
+                    descriptionResult.getUpdatedEntities(),
+                    descriptionResult.getDeletedEntities());
+        }
+        for (int i = 0; i < stateResults.size(); i++) {
+            var modifications = stateModifications.get(i);
+            if (!modifications.getStates().isEmpty()) {
+                eventDistributor.sendStateModificationEvent(
+                        eventMdibAccess,
+                        modifications.getChangeType(),
+                        stateResults.get(i).getStates());
+            }
+        }
+
+        var mdibVersion = descriptionResult != null
+                ? descriptionResult.getMdibVersion()
+                : stateResults.get(0).getMdibVersion();
+        return new WriteBatchResult(mdibVersion, descriptionResult, stateResults);
+    }
+
+    /*
+     * Preprocesses the modifications of every affected shard by the shard's chain and joins the results, which keeps
+     * the order of the modifications within every shard.
+     */
+    private MdibDescriptionModifications preprocess(MdibDescriptionModifications descriptionModifications,
+                                                    @Nullable Set<ShardedMdibStorage.Shard> batchShards)
+            throws PreprocessingException {
+        var partitions = mdibStorage.partition(descriptionModifications);
+        var modifications = MdibDescriptionModifications.create();
+        try {
+            for (Map.Entry<ShardedMdibStorage.Shard, MdibDescriptionModifications> partition : partitions.entrySet()) {
+                startBatch(partition.getKey(), batchShards);
+                partition.getKey().getPreprocessingChain().processDescriptionModifications(partition.getValue());
+                partition.getValue().getModifications().forEach(modifications::add);
+            }
+        } catch (PreprocessingException e) {
+            log.warn("Error while processing description modifications in chain segment {} on handle {}: {}",
+                    e.getSegment(), e.getHandle(), e.getMessage());
+            throw e;
+        }
+        return modifications;
+    }
+
+    private void preprocess(Map<ShardedMdibStorage.Shard, MdibStateModifications> partitions,
+                            @Nullable Set<ShardedMdibStorage.Shard> batchShards)
+            throws PreprocessingException {
+        try {
+            for (Map.Entry<ShardedMdibStorage.Shard, MdibStateModifications> partition : partitions.entrySet()) {
+                startBatch(partition.getKey(), batchShards);
+                partition.getKey().getPreprocessingChain().processStateModifications(partition.getValue());
+            }
+        } catch (PreprocessingException e) {
+            log.warn("Error while processing state modifications in chain segment {} on handle {}: {}",
+                    e.getSegment(), e.getHandle(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /*
+     * The chain of a shard takes part in a batch from the first modification set of the shard on.
+     */
+    private static void startBatch(ShardedMdibStorage.Shard shard,
+                                   @Nullable Set<ShardedMdibStorage.Shard> batchShards) {
+        if (batchShards != null && batchShards.add(shard)) {
+            shard.getPreprocessingChain().beforeBatch();
+        }
+    }
+
+    /*
+     * Observers that are called synchronously run while the commit lock is held, hence they must not write.
+     */
+    private void checkWriteAllowed() {
+        if (commitLock.isHeldByCurrentThread()) {
+            throw new IllegalThreadStateException(
+                    "Tried to invoke write operation while MDIB modification events are distributed by the current"
+                            + " thread. Check if a write description or state function has been executed within"
+                            + " an MDIB observer."
+            );
+        }
+    }
+
+    /*
+     * Observers may write to the MDIB, hence the writer only waits for their queues if it does not hold any lock.
+     */
+    private void awaitEventQueueCapacity() {
+        if (!readWriteLock.isWriteLockedByCurrentThread() && readWriteLock.getReadHoldCount() == 0) {
+            eventDistributor.awaitEventQueueCapacity();
+        }
+    }
+
+    private MdibAccess eventMdibAccess() {
+        if (eventDistributor.isAsynchronous() && mdibAccess instanceof ReadTransactionProvider) {
+            return ((ReadTransactionProvider) mdibAccess).startTransaction();
+        }
+        return mdibAccess;
+    }
+}
@@ -0,0 +1,20 @@
+package org.somda.sdc.biceps.provider.access.factory;
+
+import com.google.inject.assistedinject.Assisted;
+import org.somda.sdc.biceps.provider.access.CoalescingStateWriter;
+import org.somda.sdc.biceps.provider.access.LocalMdibAccess;
+
+/**
+ * Factory to create {@linkplain CoalescingStateWriter} instances.
+ */
+public interface CoalescingStateWriterFactory {
+    /**
+     * Creates a coalescing state writer.
+     * <p>
+     * The writer needs to be started before states can be written.
+     *
+     * @param mdibAccess the local MDIB access to write coalesced states to.
+     * @return the coalescing state writer instance.
+     */
+    CoalescingStateWriter createCoalescingStateWriter(@Assisted LocalMdibAccess mdibAccess);
+}
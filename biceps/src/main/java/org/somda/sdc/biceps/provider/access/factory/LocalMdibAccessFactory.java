@@ -12,6 +12,9 @@ public interface LocalMdibAccessFactory {
     /**
      * Creates a local mdib access with an MDIB version that has a random sequence id.
      * <p>
+     * If {@link org.somda.sdc.biceps.common.CommonConfig#MDIB_PERSISTENCE_DIRECTORY} is configured, the persisted MDIB
+     * is restored instead, including its MDIB version.
+     * <p>
      * The following preprocessing steps are visited in the following order:
      * <ol>
      * <li>{@link DuplicateChecker}
@@ -11,10 +11,13 @@ import org.somda.sdc.biceps.common.MdibTreeValidator;
 import org.somda.sdc.biceps.common.storage.DescriptionPreprocessingSegment;
 import org.somda.sdc.biceps.common.storage.MdibStorage;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.provider.preprocessing.helper.InsertionIndex;
 import org.somda.sdc.common.CommonConfig;
 import org.somda.sdc.common.logging.InstanceLogger;
 
+import javax.annotation.Nullable;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Preprocessing segment that verifies correctness of child cardinality.
@@ -28,6 +31,9 @@ public class CardinalityChecker implements DescriptionPreprocessingSegment {
     private final MdibTreeValidator treeValidator;
     private final Logger instanceLogger;
 
+    @Nullable
+    private volatile InsertionIndex insertionIndex;
+
     @Inject
     CardinalityChecker(MdibTreeValidator treeValidator,
                        @Named(CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier) {
@@ -35,6 +41,21 @@ public class CardinalityChecker implements DescriptionPreprocessingSegment {
         this.treeValidator = treeValidator;
     }
 
+    @Override
+    public void beforeFirstModification(MdibDescriptionModifications modifications, MdibStorage mdibStorage) {
+        insertionIndex = new InsertionIndex(modifications);
+    }
+
+    @Override
+    public void afterLastModification(MdibDescriptionModifications modifications, MdibStorage mdibStorage) {
+        insertionIndex = null;
+    }
+
+    @Override
+    public boolean supportsParallelProcessing() {
+        return true;
+    }
+
     @Override
     public void process(MdibDescriptionModifications allModifications,
                         MdibDescriptionModification currentModification,
@@ -76,6 +97,12 @@ public class CardinalityChecker implements DescriptionPreprocessingSegment {
     private boolean isSameTypeInModifications(MdibDescriptionModifications modifications,
                                               AbstractDescriptor descriptor,
                                               String parentHandle) {
+        final InsertionIndex index = insertionIndex;
+        if (index != null && index.isUpToDate(modifications)) {
+            final Set<String> handles = index.getChildHandles(parentHandle, descriptor.getClass());
+            return handles.size() > (handles.contains(descriptor.getHandle()) ? 1 : 0);
+        }
+
         return modifications.getModifications().stream()
                 .filter(mod -> mod.getModificationType() == MdibDescriptionModification.Type.INSERT)
                 .filter(mod -> !mod.getDescriptor().getHandle().equals(descriptor.getHandle()))
@@ -25,6 +25,11 @@ public class DuplicateChecker implements DescriptionPreprocessingSegment {
         handleCache.clear();
     }
 
+    @Override
+    public boolean supportsParallelProcessing() {
+        return true;
+    }
+
     @Override
     public void process(MdibDescriptionModifications allModifications,
                         MdibDescriptionModification currentModification,
@@ -13,6 +13,11 @@ import org.somda.sdc.biceps.common.storage.MdibStorage;
  * by automatically setting the descriptor reference at each state.
  */
 public class HandleReferenceHandler implements DescriptionPreprocessingSegment {
+    @Override
+    public boolean supportsParallelProcessing() {
+        return true;
+    }
+
     @Override
     public void process(MdibDescriptionModifications allModifications,
                         MdibDescriptionModification currentModification,
@@ -8,21 +8,43 @@ import org.somda.sdc.biceps.common.storage.DescriptionPreprocessingSegment;
 import org.somda.sdc.biceps.common.storage.MdibStorage;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.MdsDescriptor;
+import org.somda.sdc.biceps.provider.preprocessing.helper.InsertionIndex;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.util.Optional;
 
 /**
  * Preprocessing segment that ensures correctness of child-parent type relationships.
+ * <p>
+ * Modifications are checked independently of each other, hence the segment supports parallel processing.
  */
 public class TypeConsistencyChecker implements DescriptionPreprocessingSegment {
     private MdibTreeValidator treeValidator;
 
+    @Nullable
+    private volatile InsertionIndex insertionIndex;
+
     @Inject
     TypeConsistencyChecker(MdibTreeValidator treeValidator) {
         this.treeValidator = treeValidator;
     }
 
+    @Override
+    public void beforeFirstModification(MdibDescriptionModifications modifications, MdibStorage mdibStorage) {
+        insertionIndex = new InsertionIndex(modifications);
+    }
+
+    @Override
+    public void afterLastModification(MdibDescriptionModifications modifications, MdibStorage mdibStorage) {
+        insertionIndex = null;
+    }
+
+    @Override
+    public boolean supportsParallelProcessing() {
+        return true;
+    }
+
     @Override
     public void process(MdibDescriptionModifications allModifications,
                         MdibDescriptionModification currentModification,
@@ -51,9 +73,14 @@ public class TypeConsistencyChecker implements DescriptionPreprocessingSegment {
         Optional<AbstractDescriptor> parentFromStorage = storage.getDescriptor(
                 currentModification.getParentHandle().get()
         );
+        final InsertionIndex index = insertionIndex;
         AbstractDescriptor parentDescriptor;
         if (parentFromStorage.isPresent()) {
             parentDescriptor = parentFromStorage.get();
+        } else if (index != null && index.isUpToDate(allModifications)) {
+            parentDescriptor = index.getDescriptor(currentModification.getParentHandle().get()).orElseThrow(() ->
+                    new TypeConsistencyException(String.format("No parent descriptor found with handle %s",
+                            currentModification.getParentHandle().get())));
         } else {
             parentDescriptor = allModifications.getModifications().stream()
                     .filter(mod -> mod.getModificationType() == MdibDescriptionModification.Type.INSERT)
@@ -1,11 +1,13 @@
 package org.somda.sdc.biceps.provider.preprocessing;
 
 import com.google.inject.Inject;
+import org.somda.sdc.biceps.common.HandleInterner;
 import org.somda.sdc.biceps.common.MdibDescriptionModification;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.common.storage.BatchPreprocessingSegment;
 import org.somda.sdc.biceps.common.storage.DescriptionPreprocessingSegment;
 import org.somda.sdc.biceps.common.storage.MdibStorage;
 import org.somda.sdc.biceps.common.storage.StatePreprocessingSegment;
@@ -14,9 +16,12 @@ import org.somda.sdc.biceps.model.participant.AbstractMultiState;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.MdsDescriptor;
 import org.somda.sdc.biceps.provider.preprocessing.helper.VersionPair;
+import org.somda.sdc.common.util.Freezable;
 import org.somda.sdc.common.util.ObjectUtil;
 
 import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -35,20 +40,33 @@ import java.util.stream.Collectors;
  * <p>
  * If an error is thrown during processing, the versions stored internally in the version handler are not going to be
  * tainted.
+ * Versions processed during a modification are collected separately and merged into the latest versions after the last
+ * modification, hence the map of latest versions does not need to be copied on every write.
+ * In case of a batch, the versions of all modification sets are merged after the batch has been applied.
+ * Handles are interned before they are used as keys, see {@link HandleInterner}.
+ * <p>
+ * If the {@link MdibStorage} is not empty on the first modification, e.g., as the MDIB has been restored by
+ * {@link org.somda.sdc.biceps.common.storage.MdibPersistence}, the latest versions are initialized from the storage.
  */
-public class VersionHandler implements DescriptionPreprocessingSegment, StatePreprocessingSegment {
+public class VersionHandler
+        implements DescriptionPreprocessingSegment, StatePreprocessingSegment, BatchPreprocessingSegment {
     private final MdibTypeValidator mdibTypeValidator;
     private final ObjectUtil objectUtil;
+    private final HandleInterner handleInterner;
 
-    private Map<String, VersionPair> versionsWorkingCopy;
-    private Map<String, VersionPair> versions;
+    private final Map<String, VersionPair> versionsWorkingCopy;
+    private final Map<String, VersionPair> versions;
     private final Set<String> updatedParents;
+    private boolean initialized;
+    private boolean batch;
 
     @Inject
     VersionHandler(MdibTypeValidator mdibTypeValidator,
-                   ObjectUtil objectUtil) {
+                   ObjectUtil objectUtil,
+                   HandleInterner handleInterner) {
         this.mdibTypeValidator = mdibTypeValidator;
         this.objectUtil = objectUtil;
+        this.handleInterner = handleInterner;
         this.versionsWorkingCopy = new HashMap<>();
         this.versions = new HashMap<>();
         this.updatedParents = new HashSet<>();
@@ -56,23 +74,45 @@ public class VersionHandler implements DescriptionPreprocessingSegment, StatePre
 
     @Override
     public void beforeFirstModification(MdibDescriptionModifications modifications, MdibStorage storage) {
+        initializeVersions(storage);
         updatedParents.clear();
-        versionsWorkingCopy = objectUtil.deepCopy(versions);
+        discardWorkingCopy();
     }
 
     @Override
     public void afterLastModification(MdibDescriptionModifications modifications, MdibStorage storage) {
-        versions = versionsWorkingCopy;
+        if (!batch) {
+            commitWorkingCopy();
+        }
     }
 
     @Override
     public void beforeFirstModification(MdibStateModifications modifications, MdibStorage storage) {
-        versionsWorkingCopy = objectUtil.deepCopy(versions);
+        initializeVersions(storage);
+        discardWorkingCopy();
     }
 
     @Override
     public void afterLastModification(MdibStateModifications modifications, MdibStorage storage) {
-        versions = versionsWorkingCopy;
+        if (!batch) {
+            commitWorkingCopy();
+        }
+    }
+
+    @Override
+    public void beforeBatch() {
+        batch = true;
+        versionsWorkingCopy.clear();
+    }
+
+    @Override
+    public void afterBatch(boolean applied) {
+        batch = false;
+        if (applied) {
+            commitWorkingCopy();
+        } else {
+            versionsWorkingCopy.clear();
+        }
     }
 
     @Override
@@ -118,12 +158,12 @@ public class VersionHandler implements DescriptionPreprocessingSegment, StatePre
                 versionPair = new VersionPair(versionPairFromDescr.getDescriptorVersion(), BigInteger.valueOf(-1));
             }
 
-            multiState.get().setStateVersion(versionPair.getStateVersion().add(BigInteger.ONE));
+            multiState.get().setStateVersion(versionPair.getNextStateVersion());
             multiState.get().setDescriptorVersion(versionPair.getDescriptorVersion());
             putVersionPair(multiState.get());
         } else {
             getVersionPair(state.getDescriptorHandle()).ifPresent(versionPair -> {
-                state.setStateVersion(versionPair.getStateVersion().add(BigInteger.ONE));
+                state.setStateVersion(versionPair.getNextStateVersion());
                 state.setDescriptorVersion(versionPair.getDescriptorVersion());
                 putVersionPair(versionPair, state);
             });
@@ -148,7 +188,7 @@ public class VersionHandler implements DescriptionPreprocessingSegment, StatePre
         MdibEntity parentEntity = storage.getEntity(parentHandle).orElseThrow(() ->
                 new VersioningException("MDIB storage inconsistency: parent entity is missing"));
 
-        processUpdate(parentEntity.getDescriptor(), parentEntity.getStates(), storage);
+        processUpdate(toModifiable(parentEntity.getDescriptor()), toModifiable(parentEntity.getStates()), storage);
     }
 
     private void processUpdate(AbstractDescriptor descriptor,
@@ -166,7 +206,7 @@ public class VersionHandler implements DescriptionPreprocessingSegment, StatePre
                 if (state.isEmpty()) {
                     throw new VersioningException("State is missing to complete the update operation");
                 } else {
-                    states.add(state.get());
+                    states.add(toModifiable(state.get()));
                 }
             }
             processUpdateWithSingleState(descriptor, states.get(0));
@@ -181,16 +221,16 @@ public class VersionHandler implements DescriptionPreprocessingSegment, StatePre
         final VersionPair versionPair = getVersionPair(descriptor).orElseThrow(() ->
                 new VersioningException("Expected existing version on update, but none found"));
 
-        descriptor.setDescriptorVersion(versionPair.getDescriptorVersion().add(BigInteger.ONE));
+        descriptor.setDescriptorVersion(versionPair.getNextDescriptorVersion());
         putVersionPair(descriptor);
 
         final Map<String, AbstractMultiState> multiStatesFromStorage = storage.getMultiStates(descriptor.getHandle())
-                .stream().collect(Collectors.toMap(AbstractMultiState::getHandle, o -> o));
+                .stream().collect(Collectors.toMap(AbstractMultiState::getHandle, this::toModifiable));
 
         Consumer<AbstractMultiState> replaceVersions = multiState -> {
-            final VersionPair stateVersionPair = getVersionPair(multiState).orElse(new VersionPair());
+            final VersionPair stateVersionPair = getVersionPair(multiState).orElse(VersionPair.initial());
             multiState.setDescriptorVersion(descriptor.getDescriptorVersion());
-            multiState.setStateVersion(stateVersionPair.getStateVersion().add(BigInteger.ONE));
+            multiState.setStateVersion(stateVersionPair.getNextStateVersion());
             putVersionPair(multiState);
         };
 
@@ -213,9 +253,9 @@ public class VersionHandler implements DescriptionPreprocessingSegment, StatePre
             throws VersioningException {
         final VersionPair versionPair = getVersionPair(descriptor).orElseThrow(() ->
                 new VersioningException("Expected existing version on update, but none found"));
-        descriptor.setDescriptorVersion(versionPair.getDescriptorVersion().add(BigInteger.ONE));
+        descriptor.setDescriptorVersion(versionPair.getNextDescriptorVersion());
         state.setDescriptorVersion(descriptor.getDescriptorVersion());
-        state.setStateVersion(versionPair.getStateVersion().add(BigInteger.ONE));
+        state.setStateVersion(versionPair.getNextStateVersion());
         putVersionPair(descriptor, state);
     }
 
@@ -242,35 +282,48 @@ public class VersionHandler implements DescriptionPreprocessingSegment, StatePre
                     throw new VersioningException("Missing parent to be inserted before child");
                 }
             } else {
-                processUpdate(entity.get().getDescriptor(), entity.get().getStates(), storage);
+                processUpdate(toModifiable(entity.get().getDescriptor()), toModifiable(entity.get().getStates()),
+                        storage);
             }
         }
     }
 
     private void processInsertWithSingleState(AbstractDescriptor descriptor, AbstractState state) {
-        final VersionPair versionPair = getVersionPair(descriptor).orElse(new VersionPair());
-        descriptor.setDescriptorVersion(versionPair.getDescriptorVersion().add(BigInteger.ONE));
+        final VersionPair versionPair = getVersionPair(descriptor).orElse(VersionPair.initial());
+        descriptor.setDescriptorVersion(versionPair.getNextDescriptorVersion());
         state.setDescriptorVersion(descriptor.getDescriptorVersion());
-        state.setStateVersion(versionPair.getStateVersion().add(BigInteger.ONE));
+        state.setStateVersion(versionPair.getNextStateVersion());
         putVersionPair(descriptor, state);
     }
 
     private void processInsertWithMultiState(AbstractDescriptor descriptor, List<? extends AbstractState> states)
             throws VersioningException {
-        final VersionPair versionPair = getVersionPair(descriptor).orElse(new VersionPair());
-        descriptor.setDescriptorVersion(versionPair.getDescriptorVersion().add(BigInteger.ONE));
+        final VersionPair versionPair = getVersionPair(descriptor).orElse(VersionPair.initial());
+        descriptor.setDescriptorVersion(versionPair.getNextDescriptorVersion());
         putVersionPair(descriptor);
 
         for (AbstractState state : states) {
             final AbstractMultiState multiState = mdibTypeValidator.toMultiState(state)
                     .orElseThrow(() -> new VersioningException("Expected multi-state, but single state found"));
-            final VersionPair stateVersionPair = getVersionPair(multiState).orElse(new VersionPair());
+            final VersionPair stateVersionPair = getVersionPair(multiState).orElse(VersionPair.initial());
             multiState.setDescriptorVersion(descriptor.getDescriptorVersion());
-            multiState.setStateVersion(stateVersionPair.getStateVersion().add(BigInteger.ONE));
+            multiState.setStateVersion(stateVersionPair.getNextStateVersion());
             putVersionPair(multiState);
         }
     }
 
+    /*
+     * Data from the MDIB storage is frozen if configured, hence it has to be copied before versions are changed.
+     * Copying is in line with the default configuration, which exposes copies of the stored data anyway.
+     */
+    private <T> T toModifiable(T data) {
+        return data instanceof Freezable && ((Freezable) data).isFrozen() ? objectUtil.deepCopy(data) : data;
+    }
+
+    private List<AbstractState> toModifiable(List<AbstractState> states) {
+        return states.stream().map(this::toModifiable).collect(Collectors.toCollection(ArrayList::new));
+    }
+
     private boolean isUpdatedAlready(AbstractDescriptor descriptor) {
         return updatedParents.contains(descriptor.getHandle());
     }
@@ -281,39 +334,78 @@ public class VersionHandler implements DescriptionPreprocessingSegment, StatePre
 
     private void putVersionPair(VersionPair versionPair, AbstractState state) {
         versionsWorkingCopy.put(
-                state.getDescriptorHandle(),
-                new VersionPair(versionPair.getDescriptorVersion(), state.getStateVersion())
+                handleInterner.intern(state.getDescriptorHandle()),
+                versionPair.withStateVersion(state.getStateVersion())
         );
     }
 
     private void putVersionPair(AbstractDescriptor descriptor) {
-        versionsWorkingCopy.put(descriptor.getHandle(), new VersionPair(descriptor.getDescriptorVersion()));
+        versionsWorkingCopy.put(handleInterner.intern(descriptor.getHandle()),
+                new VersionPair(descriptor.getDescriptorVersion()));
     }
 
     private void putVersionPair(AbstractDescriptor descriptor, AbstractState state) {
         versionsWorkingCopy.put(
-                descriptor.getHandle(),
+                handleInterner.intern(descriptor.getHandle()),
                 new VersionPair(descriptor.getDescriptorVersion(), state.getStateVersion())
         );
     }
 
     private void putVersionPair(AbstractMultiState state) {
         versionsWorkingCopy.put(
-                state.getHandle(),
+                handleInterner.intern(state.getHandle()),
                 new VersionPair(state.getDescriptorVersion(), state.getStateVersion())
         );
     }
 
+    private void initializeVersions(MdibStorage storage) {
+        if (initialized) {
+            return;
+        }
+        initialized = true;
+
+        var pending = new ArrayDeque<>(storage.getRootEntities());
+        while (!pending.isEmpty()) {
+            var entity = pending.pollFirst();
+            var descriptor = entity.getDescriptor();
+            entity.doIfSingleState(state -> putVersionPair(descriptor, state))
+                    .orElse(states -> {
+                        putVersionPair(descriptor);
+                        states.forEach(this::putVersionPair);
+                    });
+            for (String child : entity.getChildren()) {
+                storage.getEntity(child).ifPresent(pending::addLast);
+            }
+        }
+        commitWorkingCopy();
+    }
+
+    /*
+     * Versions of a failed modification set are discarded before the next set, except for batches, which collect the
+     * versions of all sets in the working copy.
+     */
+    private void discardWorkingCopy() {
+        if (!batch) {
+            versionsWorkingCopy.clear();
+        }
+    }
+
+    private void commitWorkingCopy() {
+        versions.putAll(versionsWorkingCopy);
+        versionsWorkingCopy.clear();
+    }
+
     private Optional<VersionPair> getVersionPair(String handle) {
-        return Optional.ofNullable(versionsWorkingCopy.get(handle));
+        final VersionPair versionPair = versionsWorkingCopy.get(handle);
+        return Optional.ofNullable(versionPair == null ? versions.get(handle) : versionPair);
     }
 
     private Optional<VersionPair> getVersionPair(AbstractDescriptor descriptor) {
-        return Optional.ofNullable(versionsWorkingCopy.get(descriptor.getHandle()));
+        return getVersionPair(descriptor.getHandle());
     }
 
     private Optional<VersionPair> getVersionPair(AbstractMultiState state) {
-        return Optional.ofNullable(versionsWorkingCopy.get(state.getHandle()));
+        return getVersionPair(state.getHandle());
     }
 
     @Override
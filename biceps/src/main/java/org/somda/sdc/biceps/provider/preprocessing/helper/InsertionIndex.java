@@ -0,0 +1,85 @@
+package org.somda.sdc.biceps.provider.preprocessing.helper;
+
+import org.somda.sdc.biceps.common.MdibDescriptionModification;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Index of the descriptors inserted by a set of description modifications.
+ * <p>
+ * Preprocessing segments that need to look up other insertions of the same change set can use this index instead of
+ * scanning all modifications for every modification, which is quadratic in the size of the change set.
+ * The index reflects the modifications at creation time; use {@link #isUpToDate(MdibDescriptionModifications)} to
+ * detect modifications that have been added afterwards.
+ * Once created, the index is read-only and can be used by multiple threads.
+ */
+public class InsertionIndex {
+    private final MdibDescriptionModifications modifications;
+    private final int indexedModifications;
+    private final Map<String, AbstractDescriptor> descriptors;
+    private final Map<String, Map<Class<?>, Set<String>>> childHandles;
+
+    /**
+     * Creates an index of all insertions in the given modifications.
+     *
+     * @param modifications the modifications to index.
+     */
+    public InsertionIndex(MdibDescriptionModifications modifications) {
+        this.modifications = modifications;
+        this.indexedModifications = modifications.getModifications().size();
+        this.descriptors = new HashMap<>();
+        this.childHandles = new HashMap<>();
+        for (MdibDescriptionModification modification : modifications.getModifications()) {
+            if (modification.getModificationType() != MdibDescriptionModification.Type.INSERT) {
+                continue;
+            }
+            final AbstractDescriptor descriptor = modification.getDescriptor();
+            descriptors.putIfAbsent(descriptor.getHandle(), descriptor);
+            modification.getParentHandle().ifPresent(parentHandle ->
+                    childHandles.computeIfAbsent(parentHandle, handle -> new HashMap<>())
+                            .computeIfAbsent(descriptor.getClass(), type -> new HashSet<>())
+                            .add(descriptor.getHandle()));
+        }
+    }
+
+    /**
+     * Checks if this index covers all of the given modifications.
+     *
+     * @param modifications the modifications to check.
+     * @return true if the index has been created from {@code modifications} and no modifications have been added
+     * since, false otherwise.
+     */
+    public boolean isUpToDate(MdibDescriptionModifications modifications) {
+        return this.modifications == modifications
+                && indexedModifications == modifications.getModifications().size();
+    }
+
+    /**
+     * Gets an inserted descriptor.
+     *
+     * @param handle the handle of the descriptor.
+     * @return the first descriptor inserted with the given handle or {@linkplain Optional#empty()} if none exists.
+     */
+    public Optional<AbstractDescriptor> getDescriptor(String handle) {
+        return Optional.ofNullable(descriptors.get(handle));
+    }
+
+    /**
+     * Gets the handles of all descriptors of a type that are inserted below a parent.
+     *
+     * @param parentHandle the handle of the parent.
+     * @param type         the exact type of the children.
+     * @return the handles of the inserted children of exactly the given type.
+     */
+    public Set<String> getChildHandles(String parentHandle, Class<?> type) {
+        return childHandles.getOrDefault(parentHandle, Collections.emptyMap())
+                .getOrDefault(type, Collections.emptySet());
+    }
+}
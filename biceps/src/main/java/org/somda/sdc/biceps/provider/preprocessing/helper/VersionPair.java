@@ -1,5 +1,6 @@
 package org.somda.sdc.biceps.provider.preprocessing.helper;
 
+import javax.annotation.Nullable;
 import java.math.BigInteger;
 
 /**
@@ -9,31 +10,107 @@ import java.math.BigInteger;
  * into a separate class, because {@link org.somda.sdc.common.util.ObjectUtilImpl} always cloned the
  * {@link org.somda.sdc.biceps.provider.preprocessing.VersionHandler} as well, which caused a massive memory leak
  * and eventually lead to a stack overflow as well.
+ * <p>
+ * Versions are stored as primitive longs and only promoted to {@linkplain BigInteger} if they exceed the range of a
+ * long.
+ * Instances are immutable, hence maps of version pairs can be shared between copies.
  */
 public class VersionPair {
-    private final BigInteger descriptorVersion;
-    private final BigInteger stateVersion;
+    private static final VersionPair INITIAL = new VersionPair();
+
+    private final long descriptorVersion;
+    private final long stateVersion;
+    @Nullable
+    private final BigInteger descriptorVersionOverflow;
+    @Nullable
+    private final BigInteger stateVersionOverflow;
 
     public VersionPair() {
-        descriptorVersion = BigInteger.valueOf(-1);
-        stateVersion = BigInteger.valueOf(-1);
+        this(BigInteger.valueOf(-1), BigInteger.valueOf(-1));
     }
 
     public VersionPair(BigInteger descriptorVersion, BigInteger stateVersion) {
-        this.descriptorVersion = descriptorVersion;
-        this.stateVersion = stateVersion;
+        this.descriptorVersion = toLong(descriptorVersion);
+        this.descriptorVersionOverflow = toOverflow(descriptorVersion);
+        this.stateVersion = toLong(stateVersion);
+        this.stateVersionOverflow = toOverflow(stateVersion);
     }
 
     public VersionPair(BigInteger descriptorVersion) {
+        this(descriptorVersion, BigInteger.ZERO);
+    }
+
+    private VersionPair(long descriptorVersion,
+                        @Nullable BigInteger descriptorVersionOverflow,
+                        BigInteger stateVersion) {
         this.descriptorVersion = descriptorVersion;
-        this.stateVersion = BigInteger.ZERO;
+        this.descriptorVersionOverflow = descriptorVersionOverflow;
+        this.stateVersion = toLong(stateVersion);
+        this.stateVersionOverflow = toOverflow(stateVersion);
+    }
+
+    /**
+     * Gets the version pair that precedes any existing version, i.e., descriptor and state version -1.
+     *
+     * @return a shared instance of {@code new VersionPair()}.
+     */
+    public static VersionPair initial() {
+        return INITIAL;
     }
 
     public BigInteger getDescriptorVersion() {
-        return descriptorVersion;
+        return toBigInteger(descriptorVersion, descriptorVersionOverflow);
     }
 
     public BigInteger getStateVersion() {
-        return stateVersion;
+        return toBigInteger(stateVersion, stateVersionOverflow);
+    }
+
+    /**
+     * Gets the descriptor version incremented by one.
+     *
+     * @return the next descriptor version, computed by long arithmetic unless the range of a long is exceeded.
+     */
+    public BigInteger getNextDescriptorVersion() {
+        return increment(descriptorVersion, descriptorVersionOverflow);
+    }
+
+    /**
+     * Gets the state version incremented by one.
+     *
+     * @return the next state version, computed by long arithmetic unless the range of a long is exceeded.
+     */
+    public BigInteger getNextStateVersion() {
+        return increment(stateVersion, stateVersionOverflow);
+    }
+
+    /**
+     * Creates a version pair with the descriptor version of this pair and the given state version.
+     *
+     * @param stateVersion the state version to set.
+     * @return a new version pair.
+     */
+    public VersionPair withStateVersion(BigInteger stateVersion) {
+        return new VersionPair(descriptorVersion, descriptorVersionOverflow, stateVersion);
+    }
+
+    private static long toLong(BigInteger value) {
+        return value.bitLength() < Long.SIZE ? value.longValue() : 0;
+    }
+
+    @Nullable
+    private static BigInteger toOverflow(BigInteger value) {
+        return value.bitLength() < Long.SIZE ? null : value;
+    }
+
+    private static BigInteger toBigInteger(long value, @Nullable BigInteger overflow) {
+        return overflow == null ? BigInteger.valueOf(value) : overflow;
+    }
+
+    private static BigInteger increment(long value, @Nullable BigInteger overflow) {
+        if (overflow == null && value != Long.MAX_VALUE) {
+            return BigInteger.valueOf(value + 1);
+        }
+        return toBigInteger(value, overflow).add(BigInteger.ONE);
     }
 }
\ No newline at end of file
@@ -0,0 +1,431 @@
+package org.somda.sdc.biceps.common.event;
+
+import com.google.common.eventbus.Subscribe;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.somda.sdc.biceps.UnitTestUtil;
+import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.common.access.MdibAccessObserver;
+import org.somda.sdc.biceps.guice.DefaultBicepsConfigModule;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.ContextAssociation;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.MdsState;
+import org.somda.sdc.biceps.model.participant.NumericMetricState;
+import org.somda.sdc.biceps.model.participant.PatientContextState;
+import org.somda.sdc.biceps.model.participant.StringMetricState;
+import org.somda.sdc.biceps.model.participant.VmdDescriptor;
+import org.somda.sdc.biceps.model.participant.VmdState;
+import org.somda.sdc.biceps.provider.access.LocalMdibAccess;
+import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
+import org.somda.sdc.biceps.testutil.BaseTreeModificationsSet;
+import org.somda.sdc.biceps.testutil.Handles;
+import org.somda.sdc.biceps.testutil.MdibAccessObserverSpy;
+import org.somda.sdc.biceps.testutil.MockEntryFactory;
+import org.somda.sdc.biceps.testutil.MockModelFactory;
+import test.org.somda.common.LoggingTestWatcher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LoggingTestWatcher.class)
+class DistributorTest {
+    private static final Duration WAIT_TIME = Duration.ofSeconds(10);
+
+    @Test
+    void asynchronousDistributionInMdibVersionOrder() throws Exception {
+        var mdibAccess = createMdibAccess(1000, EventQueueOverflowPolicy.BLOCK);
+        var blockedObserver = new GatedObserver();
+        var spy = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(blockedObserver);
+        mdibAccess.registerObserver(spy);
+
+        // When a description and several states are written while one observer is blocked
+        var expectedVersions = new ArrayList<MdibVersion>();
+        expectedVersions.add(mdibAccess.writeDescription(baseTree()).getMdibVersion());
+        for (int i = 0; i < 5; i++) {
+            expectedVersions.add(mdibAccess.writeStates(MdibStateModifications
+                    .create(MdibStateModifications.Type.COMPONENT)
+                    .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class))).getMdibVersion());
+        }
+
+        // Then expect the other observer to receive all events with the MDIB version they have been written with
+        assertTrue(spy.waitForNumberOfRecordedMessages(expectedVersions.size(), WAIT_TIME));
+        assertEquals(expectedVersions, versionsOf(spy.getRecordedMessages()));
+        assertTrue(spy.getRecordedMessages().get(0) instanceof DescriptionModificationMessage);
+        assertTrue(blockedObserver.awaitEntered());
+        assertTrue(blockedObserver.getRecordedMessages().isEmpty());
+
+        var metrics = metricsOf(mdibAccess, blockedObserver);
+        assertEquals(expectedVersions.size() - 1, metrics.getQueueDepth());
+        assertEquals(expectedVersions.get(expectedVersions.size() - 1),
+                metrics.getLastQueuedMdibVersion().orElseThrow());
+        assertFalse(metrics.getLastDeliveredMdibVersion().isPresent());
+
+        // When the blocked observer continues
+        blockedObserver.open();
+
+        // Then expect it to receive all events in the same order
+        assertTrue(blockedObserver.waitForNumberOfRecordedMessages(expectedVersions.size()));
+        assertEquals(expectedVersions, versionsOf(blockedObserver.getRecordedMessages()));
+    }
+
+    @Test
+    void dropOldestOnOverflow() throws Exception {
+        var mdibAccess = createMdibAccess(2, EventQueueOverflowPolicy.DROP_OLDEST);
+        var observer = new GatedObserver();
+        mdibAccess.registerObserver(observer);
+
+        // When more states are written than the queue of a blocked observer can hold
+        var descriptionVersion = mdibAccess.writeDescription(baseTree()).getMdibVersion();
+        assertTrue(observer.awaitEntered());
+        var stateVersions = new ArrayList<MdibVersion>();
+        for (int i = 0; i < 4; i++) {
+            stateVersions.add(mdibAccess.writeStates(MdibStateModifications
+                    .create(MdibStateModifications.Type.COMPONENT)
+                    .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class))).getMdibVersion());
+        }
+
+        // Then expect the oldest events to be dropped
+        var metrics = metricsOf(mdibAccess, observer);
+        assertEquals(2, metrics.getQueueDepth());
+        assertEquals(2, metrics.getDroppedEvents());
+
+        observer.open();
+        assertTrue(observer.waitForNumberOfRecordedMessages(3));
+        assertEquals(List.of(descriptionVersion, stateVersions.get(2), stateVersions.get(3)),
+                versionsOf(observer.getRecordedMessages()));
+    }
+
+    @Test
+    void coalesceOnOverflow() throws Exception {
+        var mdibAccess = createMdibAccess(1, EventQueueOverflowPolicy.COALESCE);
+        var observer = new GatedObserver();
+        mdibAccess.registerObserver(observer);
+
+        // When states are written to the full queue of a blocked observer
+        mdibAccess.writeDescription(baseTree());
+        assertTrue(observer.awaitEntered());
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.VMD_0, VmdState.class)));
+        var lastResult = mdibAccess.writeStates(MdibStateModifications
+                .create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+
+        // Then expect the states to be merged into one event that only contains the latest state per handle
+        var metrics = metricsOf(mdibAccess, observer);
+        assertEquals(1, metrics.getQueueDepth());
+        assertEquals(2, metrics.getCoalescedEvents());
+        assertEquals(0, metrics.getDroppedEvents());
+
+        observer.open();
+        assertTrue(observer.waitForNumberOfRecordedMessages(2));
+        var message = observer.getRecordedMessages().get(1);
+        assertTrue(message instanceof ComponentStateModificationMessage);
+        assertEquals(lastResult.getMdibVersion(), message.getMdibAccess().getMdibVersion());
+        var states = ((ComponentStateModificationMessage) message).getStates();
+        assertEquals(List.of(Handles.VMD_0, Handles.MDS_0), states.stream()
+                .map(state -> state.getDescriptorHandle())
+                .collect(Collectors.toList()));
+        assertEquals(lastResult.getStates().get(0).getStateVersion(), states.get(1).getStateVersion());
+    }
+
+    @Test
+    void observerWritesWithBlockingPolicy() throws Exception {
+        var mdibAccess = createMdibAccess(1, EventQueueOverflowPolicy.BLOCK);
+        mdibAccess.writeDescription(baseTree());
+        var stateCount = 20;
+        var receivedMessages = new CountDownLatch(2 * stateCount);
+        var failures = new ArrayList<Exception>();
+        var observer = new MdibAccessObserver() {
+            @Subscribe
+            void onUpdate(ComponentStateModificationMessage message) {
+                receivedMessages.countDown();
+                if (!stateHandlesOf(message).contains(Handles.MDS_0)) {
+                    return;
+                }
+
+                // When the observer writes to the MDIB from within its callback
+                try {
+                    mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                            .add(MockModelFactory.createState(Handles.VMD_0, VmdState.class)));
+                } catch (Exception e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }
+        };
+        mdibAccess.registerObserver(observer);
+
+        // And the queue of the observer is full while states are written
+        assertTimeoutPreemptively(WAIT_TIME, () -> {
+            for (int i = 0; i < stateCount; i++) {
+                mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                        .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+            }
+        });
+
+        // Then expect neither the writer nor the observer to deadlock
+        assertTrue(receivedMessages.await(WAIT_TIME.toMillis(), TimeUnit.MILLISECONDS));
+        synchronized (failures) {
+            assertTrue(failures.isEmpty());
+        }
+    }
+
+    @Test
+    void filteredDistribution() throws Exception {
+        var mdibAccess = new UnitTestUtil().getInjector().getInstance(LocalMdibAccessFactory.class)
+                .createLocalMdibAccess();
+        var handleObserver = new MdibAccessObserverSpy();
+        var subtreeObserver = new MdibAccessObserverSpy();
+        var typeObserver = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(handleObserver, ObserverFilter.create()
+                .handles(Handles.METRIC_0, Handles.CONTEXT_0));
+        mdibAccess.registerObserver(subtreeObserver, ObserverFilter.create()
+                .subtrees(Handles.VMD_0)
+                .changeTypes(MdibStateModifications.Type.METRIC));
+        mdibAccess.registerObserver(typeObserver, ObserverFilter.create().descriptorTypes(VmdDescriptor.class));
+
+        // When the description is written
+        mdibAccess.writeDescription(baseTree());
+
+        // Then expect each observer to receive the matching entities only
+        assertEquals(List.of(Handles.METRIC_0), insertedHandlesOf(handleObserver.getRecordedMessages().get(0)));
+        assertEquals(List.of(Handles.VMD_0, Handles.CHANNEL_0, Handles.CHANNEL_1, Handles.METRIC_0, Handles.METRIC_1,
+                Handles.METRIC_2, Handles.METRIC_3, Handles.METRIC_4),
+                insertedHandlesOf(subtreeObserver.getRecordedMessages().get(0)));
+        assertEquals(List.of(Handles.VMD_0, Handles.VMD_1, Handles.VMD_2),
+                insertedHandlesOf(typeObserver.getRecordedMessages().get(0)));
+
+        // When metric, component and context states are written
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.METRIC)
+                .add(MockModelFactory.createState(Handles.METRIC_0, NumericMetricState.class))
+                .add(MockModelFactory.createState(Handles.METRIC_1, StringMetricState.class)));
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class))
+                .add(MockModelFactory.createState(Handles.VMD_0, VmdState.class)));
+        var contextState = MockModelFactory.createContextState(Handles.CONTEXT_0, Handles.CONTEXTDESCRIPTOR_0,
+                PatientContextState.class);
+        contextState.setContextAssociation(ContextAssociation.ASSOC);
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.CONTEXT).add(contextState));
+
+        // Then expect each observer to receive messages with matching states only
+        assertEquals(3, handleObserver.getRecordedMessages().size());
+        assertEquals(List.of(Handles.METRIC_0), stateHandlesOf(handleObserver.getRecordedMessages().get(1)));
+        assertTrue(handleObserver.getRecordedMessages().get(2) instanceof ContextStateModificationMessage);
+        assertEquals(List.of(Handles.CONTEXTDESCRIPTOR_0),
+                stateHandlesOf(handleObserver.getRecordedMessages().get(2)));
+
+        assertEquals(2, subtreeObserver.getRecordedMessages().size());
+        assertEquals(List.of(Handles.METRIC_0, Handles.METRIC_1),
+                stateHandlesOf(subtreeObserver.getRecordedMessages().get(1)));
+
+        assertEquals(2, typeObserver.getRecordedMessages().size());
+        assertEquals(List.of(Handles.VMD_0), stateHandlesOf(typeObserver.getRecordedMessages().get(1)));
+
+        // When an observer is unregistered
+        mdibAccess.unregisterObserver(handleObserver);
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.METRIC)
+                .add(MockModelFactory.createState(Handles.METRIC_0, NumericMetricState.class)));
+
+        // Then expect it to not receive any further messages
+        assertEquals(3, handleObserver.getRecordedMessages().size());
+        assertEquals(3, subtreeObserver.getRecordedMessages().size());
+    }
+
+    @Test
+    void filteredAsynchronousDistribution() throws Exception {
+        var mdibAccess = createMdibAccess(1000, EventQueueOverflowPolicy.BLOCK);
+        var observer = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(observer, ObserverFilter.create().handles(Handles.MDS_0));
+
+        // When states are written that partially match the filter
+        mdibAccess.writeDescription(baseTree());
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.VMD_0, VmdState.class)));
+        var result = mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class))
+                .add(MockModelFactory.createState(Handles.VMD_0, VmdState.class)));
+
+        // Then expect the queue of the observer to only receive the matching parts
+        assertTrue(observer.waitForNumberOfRecordedMessages(2, WAIT_TIME));
+        assertEquals(List.of(Handles.MDS_0), insertedHandlesOf(observer.getRecordedMessages().get(0)));
+        assertEquals(List.of(Handles.MDS_0), stateHandlesOf(observer.getRecordedMessages().get(1)));
+        assertEquals(result.getMdibVersion(), observer.getRecordedMessages().get(1).getMdibAccess().getMdibVersion());
+        assertTrue(mdibAccess.getEventQueueMetrics().containsKey(observer));
+    }
+
+    @Test
+    void replaceUnfilteredRegistration() throws Exception {
+        var mdibAccess = new UnitTestUtil().getInjector().getInstance(LocalMdibAccessFactory.class)
+                .createLocalMdibAccess();
+        assertFilteredRegistrationReplacesUnfiltered(mdibAccess, 0);
+    }
+
+    @Test
+    void replaceUnfilteredAsynchronousRegistration() throws Exception {
+        var mdibAccess = createMdibAccess(1000, EventQueueOverflowPolicy.BLOCK);
+        assertFilteredRegistrationReplacesUnfiltered(mdibAccess, 1);
+    }
+
+    @Test
+    void unregisterAllShutsDownWorkers() throws Exception {
+        var mdibAccess = createMdibAccess(1000, EventQueueOverflowPolicy.BLOCK);
+        var workers = new ArrayList<Thread>();
+        var observer = new MdibAccessObserver() {
+            @Subscribe
+            void onUpdate(AbstractMdibAccessMessage message) {
+                synchronized (workers) {
+                    workers.add(Thread.currentThread());
+                    workers.notifyAll();
+                }
+            }
+        };
+        mdibAccess.registerObserver(observer);
+        mdibAccess.writeDescription(baseTree());
+        Thread worker;
+        synchronized (workers) {
+            while (workers.isEmpty()) {
+                workers.wait(WAIT_TIME.toMillis());
+            }
+            worker = workers.get(0);
+        }
+
+        // When all observers are unregistered
+        mdibAccess.unregisterAllObservers();
+
+        // Then expect the worker thread to terminate
+        worker.join(WAIT_TIME.toMillis());
+        assertFalse(worker.isAlive());
+
+        // And expect observers that are registered afterwards to be served by a new worker
+        var spy = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(spy);
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+        assertTrue(spy.waitForNumberOfRecordedMessages(1, WAIT_TIME));
+    }
+
+    private void assertFilteredRegistrationReplacesUnfiltered(LocalMdibAccess mdibAccess,
+                                                              int expectedQueues) throws Exception {
+        mdibAccess.writeDescription(baseTree());
+
+        // When an observer is registered without filter and then with a filter
+        var observer = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(observer);
+        mdibAccess.registerObserver(observer, ObserverFilter.create().handles(Handles.MDS_0));
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.VMD_0, VmdState.class)));
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class))
+                .add(MockModelFactory.createState(Handles.VMD_0, VmdState.class)));
+
+        // Then expect it to only receive the filtered messages
+        assertTrue(observer.waitForNumberOfRecordedMessages(1, WAIT_TIME));
+        Thread.sleep(100);
+        assertEquals(1, observer.getRecordedMessages().size());
+        assertEquals(List.of(Handles.MDS_0), stateHandlesOf(observer.getRecordedMessages().get(0)));
+        assertEquals(expectedQueues, mdibAccess.getEventQueueMetrics().size());
+    }
+
+    private LocalMdibAccess createMdibAccess(int queueCapacity, EventQueueOverflowPolicy overflowPolicy) {
+        var unitTestUtil = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.MDIB_STORAGE_SNAPSHOTS, Boolean.class, true);
+                bind(CommonConfig.ASYNC_EVENT_DISTRIBUTION, Boolean.class, true);
+                bind(CommonConfig.EVENT_QUEUE_CAPACITY, Integer.class, queueCapacity);
+                bind(CommonConfig.EVENT_QUEUE_OVERFLOW_POLICY, EventQueueOverflowPolicy.class, overflowPolicy);
+            }
+        });
+        return unitTestUtil.getInjector().getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+    }
+
+    private MdibDescriptionModifications baseTree() throws Exception {
+        var injector = new UnitTestUtil().getInjector();
+        return new BaseTreeModificationsSet(new MockEntryFactory(injector.getInstance(MdibTypeValidator.class)))
+                .createBaseTree();
+    }
+
+    private static List<String> insertedHandlesOf(AbstractMdibAccessMessage message) {
+        return ((DescriptionModificationMessage) message).getInsertedEntities().stream()
+                .map(MdibEntity::getHandle)
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> stateHandlesOf(AbstractMdibAccessMessage message) {
+        return ((StateModificationMessage<?>) message).getStates().stream()
+                .map(AbstractState::getDescriptorHandle)
+                .collect(Collectors.toList());
+    }
+
+    private static EventQueueMetrics metricsOf(LocalMdibAccess mdibAccess, MdibAccessObserver observer) {
+        return mdibAccess.getEventQueueMetrics().get(observer);
+    }
+
+    private static List<MdibVersion> versionsOf(List<AbstractMdibAccessMessage> messages) {
+        return messages.stream()
+                .map(message -> message.getMdibAccess().getMdibVersion())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Observer that blocks in its first callback until it is opened.
+     */
+    private static class GatedObserver implements MdibAccessObserver {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final List<AbstractMdibAccessMessage> recordedMessages = new ArrayList<>();
+
+        @Subscribe
+        void onUpdate(AbstractMdibAccessMessage message) throws InterruptedException {
+            entered.countDown();
+            if (gate.await(WAIT_TIME.toMillis(), TimeUnit.MILLISECONDS)) {
+                synchronized (recordedMessages) {
+                    recordedMessages.add(message);
+                    recordedMessages.notifyAll();
+                }
+            }
+        }
+
+        boolean awaitEntered() throws InterruptedException {
+            return entered.await(WAIT_TIME.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        List<AbstractMdibAccessMessage> getRecordedMessages() {
+            synchronized (recordedMessages) {
+                return new ArrayList<>(recordedMessages);
+            }
+        }
+
+        boolean waitForNumberOfRecordedMessages(int number) throws InterruptedException {
+            var deadline = System.currentTimeMillis() + WAIT_TIME.toMillis();
+            synchronized (recordedMessages) {
+                while (recordedMessages.size() < number && System.currentTimeMillis() < deadline) {
+                    recordedMessages.wait(Math.max(1, deadline - System.currentTimeMillis()));
+                }
+                return recordedMessages.size() == number;
+            }
+        }
+    }
+}
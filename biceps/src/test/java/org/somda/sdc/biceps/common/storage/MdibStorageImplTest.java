@@ -8,20 +8,34 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.somda.sdc.biceps.UnitTestUtil;
 import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.common.CommonConstants;
 import org.somda.sdc.biceps.common.MdibDescriptionModification;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.access.MdibQuery;
+import org.somda.sdc.biceps.common.event.EventQueueOverflowPolicy;
 import org.somda.sdc.biceps.common.preprocessing.DescriptorChildRemover;
 import org.somda.sdc.biceps.common.storage.factory.MdibStorageFactory;
 import org.somda.sdc.biceps.consumer.preprocessing.DuplicateContextStateHandleHandler;
 import org.somda.sdc.biceps.consumer.preprocessing.VersionDuplicateHandler;
+import org.somda.sdc.biceps.guice.DefaultBicepsConfigModule;
+import org.somda.sdc.biceps.model.participant.AbstractContextDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractContextState;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractMetricState;
+import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.AlertConditionDescriptor;
+import org.somda.sdc.biceps.model.participant.AlertConditionKind;
+import org.somda.sdc.biceps.model.participant.AlertConditionPriority;
 import org.somda.sdc.biceps.model.participant.AlertConditionState;
 import org.somda.sdc.biceps.model.participant.AlertSystemDescriptor;
 import org.somda.sdc.biceps.model.participant.AlertSystemState;
 import org.somda.sdc.biceps.model.participant.ChannelDescriptor;
 import org.somda.sdc.biceps.model.participant.ChannelState;
+import org.somda.sdc.biceps.model.participant.CodedValue;
+import org.somda.sdc.biceps.model.participant.ComponentActivation;
 import org.somda.sdc.biceps.model.participant.ContextAssociation;
 import org.somda.sdc.biceps.model.participant.EnsembleContextDescriptor;
 import org.somda.sdc.biceps.model.participant.EnsembleContextState;
@@ -30,8 +44,16 @@ import org.somda.sdc.biceps.model.participant.LocationContextState;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
 import org.somda.sdc.biceps.model.participant.MdsDescriptor;
 import org.somda.sdc.biceps.model.participant.MdsState;
+import org.somda.sdc.biceps.model.participant.MetricCategory;
+import org.somda.sdc.biceps.model.participant.NumericMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.NumericMetricState;
 import org.somda.sdc.biceps.model.participant.PatientContextDescriptor;
 import org.somda.sdc.biceps.model.participant.PatientContextState;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+import org.somda.sdc.biceps.model.participant.SampleArrayValue;
+import org.somda.sdc.biceps.model.participant.StringMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.StringMetricState;
 import org.somda.sdc.biceps.model.participant.SystemContextDescriptor;
 import org.somda.sdc.biceps.model.participant.SystemContextState;
 import org.somda.sdc.biceps.model.participant.VmdDescriptor;
@@ -43,17 +65,23 @@ import org.somda.sdc.biceps.provider.preprocessing.VersionHandler;
 import org.somda.sdc.biceps.testutil.Handles;
 import org.somda.sdc.biceps.testutil.MockModelFactory;
 import org.somda.sdc.common.guice.AbstractConfigurationModule;
+import org.somda.sdc.common.util.SampleList;
 import test.org.somda.common.LoggingTestWatcher;
 
 import java.math.BigInteger;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -159,6 +187,142 @@ class MdibStorageImplTest {
         }
     }
 
+    @Test
+    void findByType() {
+        applyDescriptionWithVersion(MdibDescriptionModification.Type.INSERT, BigInteger.ZERO);
+
+        // Then expect type queries to include subtypes
+        assertEquals(2, mdibStorage.findEntitiesByType(ChannelDescriptor.class).size());
+        assertEquals(2, mdibStorage.findEntitiesByType(AbstractContextDescriptor.class).size());
+        assertEquals(7, mdibStorage.findEntitiesByType(AbstractDescriptor.class).size());
+        assertEquals(0, mdibStorage.findEntitiesByType(AlertSystemDescriptor.class).size());
+        assertEquals(2, mdibStorage.getStatesByType(ChannelState.class).size());
+        assertEquals(3, mdibStorage.getStatesByType(AbstractContextState.class).size());
+        assertEquals(2, mdibStorage.findContextStatesByType(PatientContextState.class).size());
+        assertEquals(3, mdibStorage.findContextStatesByType(AbstractContextState.class).size());
+
+        // When states are replaced
+        applyDescriptionWithVersion(MdibDescriptionModification.Type.UPDATE, BigInteger.ONE);
+
+        // Then expect the results to be unchanged
+        assertEquals(2, mdibStorage.findEntitiesByType(ChannelDescriptor.class).size());
+        assertEquals(2, mdibStorage.getStatesByType(ChannelState.class).size());
+        assertEquals(1, mdibStorage.findContextStatesByType(LocationContextState.class).size());
+
+        // When entities are deleted
+        applyDescriptionWithVersion(MdibDescriptionModification.Type.DELETE, BigInteger.ONE);
+
+        // Then expect no results anymore
+        assertTrue(mdibStorage.findEntitiesByType(AbstractDescriptor.class).isEmpty());
+        assertTrue(mdibStorage.getStatesByType(AbstractState.class).isEmpty());
+        assertTrue(mdibStorage.findContextStatesByType(AbstractContextState.class).isEmpty());
+    }
+
+    @Test
+    void findByQuery() {
+        var metric0 = MockModelFactory.createDescriptor(Handles.METRIC_0, NumericMetricDescriptor.class);
+        metric0.setType(codedValue("1"));
+        metric0.setMetricCategory(MetricCategory.MSRMT);
+        var metric1 = MockModelFactory.createDescriptor(Handles.METRIC_1, StringMetricDescriptor.class);
+        metric1.setType(codedValue("2"));
+        metric1.setMetricCategory(MetricCategory.SET);
+        var metric1State = MockModelFactory.createState(Handles.METRIC_1, StringMetricState.class);
+        metric1State.setActivationState(ComponentActivation.ON);
+        var alertCondition = MockModelFactory.createDescriptor(Handles.ALERTCONDITION_0,
+                AlertConditionDescriptor.class);
+        alertCondition.setType(codedValue("1"));
+        alertCondition.setKind(AlertConditionKind.PHY);
+        alertCondition.setPriority(AlertConditionPriority.HI);
+
+        var modifications = MdibDescriptionModifications.create()
+                .insert(MockModelFactory.createDescriptor(Handles.MDS_0, MdsDescriptor.class),
+                        MockModelFactory.createState(Handles.MDS_0, MdsState.class))
+                .insert(MockModelFactory.createDescriptor(Handles.VMD_0, VmdDescriptor.class),
+                        MockModelFactory.createState(Handles.VMD_0, VmdState.class), Handles.MDS_0)
+                .insert(MockModelFactory.createDescriptor(Handles.CHANNEL_0, ChannelDescriptor.class),
+                        MockModelFactory.createState(Handles.CHANNEL_0, ChannelState.class), Handles.VMD_0)
+                .insert(MockModelFactory.createDescriptor(Handles.CHANNEL_1, ChannelDescriptor.class),
+                        MockModelFactory.createState(Handles.CHANNEL_1, ChannelState.class), Handles.VMD_0)
+                .insert(metric0, MockModelFactory.createState(Handles.METRIC_0, NumericMetricState.class),
+                        Handles.CHANNEL_0)
+                .insert(metric1, metric1State, Handles.CHANNEL_1)
+                .insert(MockModelFactory.createDescriptor(Handles.MDS_1, MdsDescriptor.class),
+                        MockModelFactory.createState(Handles.MDS_1, MdsState.class))
+                .insert(MockModelFactory.createDescriptor(Handles.ALERTSYSTEM_0, AlertSystemDescriptor.class),
+                        MockModelFactory.createState(Handles.ALERTSYSTEM_0, AlertSystemState.class), Handles.MDS_1)
+                .insert(alertCondition, MockModelFactory.createState(Handles.ALERTCONDITION_0,
+                        AlertConditionState.class), Handles.ALERTSYSTEM_0);
+        mdibStorage.apply(mock(MdibVersion.class), mock(BigInteger.class), mock(BigInteger.class), modifications);
+
+        // Then expect indexed criteria to be combined
+        assertEquals(Set.of(Handles.METRIC_0, Handles.ALERTCONDITION_0), find(MdibQuery.create().code("1")));
+        assertEquals(Set.of(Handles.METRIC_0, Handles.ALERTCONDITION_0),
+                find(MdibQuery.create().code(CommonConstants.DEFAULT_CODING_SYSTEM, "1")));
+        assertEquals(Set.of(), find(MdibQuery.create().code("urn:oid:1.2.3", "1")));
+        assertEquals(Set.of(Handles.VMD_0, Handles.CHANNEL_0, Handles.CHANNEL_1, Handles.METRIC_0, Handles.METRIC_1),
+                find(MdibQuery.create().descendantOf(Handles.MDS_0)));
+        assertEquals(Set.of(Handles.METRIC_0, Handles.METRIC_1),
+                find(MdibQuery.create().descendantOf(Handles.VMD_0).descriptorType(AbstractMetricDescriptor.class)));
+        assertEquals(Set.of(Handles.METRIC_0), find(MdibQuery.create().descendantOf(Handles.MDS_0).code("1")));
+        assertEquals(Set.of(Handles.METRIC_0), find(MdibQuery.create().metricCategory(MetricCategory.MSRMT)));
+        assertEquals(Set.of(Handles.METRIC_0), find(MdibQuery.create().stateType(NumericMetricState.class)));
+        assertEquals(Set.of(Handles.ALERTCONDITION_0), find(MdibQuery.create()
+                .alertConditionKind(AlertConditionKind.PHY)
+                .alertConditionPriority(AlertConditionPriority.HI)));
+        assertEquals(Set.of(), find(MdibQuery.create().alertConditionPriority(AlertConditionPriority.LO)));
+
+        // Then expect predicates to be applied on candidates or on all entities if there is no indexed criterion
+        assertEquals(Set.of(Handles.METRIC_1), find(MdibQuery.create()
+                .descriptorType(AbstractMetricDescriptor.class)
+                .stateMatches(state -> ComponentActivation.ON.equals(
+                        ((AbstractMetricState) state).getActivationState()))));
+        assertEquals(Set.of(Handles.CHANNEL_1), find(MdibQuery.create()
+                .descriptorMatches(descriptor -> Handles.CHANNEL_1.equals(descriptor.getHandle()))));
+        assertEquals(9, find(MdibQuery.create()).size());
+
+        // Then expect ancestor paths to be resolved from parent to MDS
+        assertEquals(List.of(Handles.CHANNEL_1, Handles.VMD_0, Handles.MDS_0),
+                mdibStorage.getAncestorHandles(Handles.METRIC_1));
+        assertEquals(List.of(Handles.ALERTSYSTEM_0, Handles.MDS_1),
+                mdibStorage.getAncestorHandles(Handles.ALERTCONDITION_0));
+        assertEquals(List.of(), mdibStorage.getAncestorHandles(Handles.MDS_0));
+        assertEquals(List.of(), mdibStorage.getAncestorHandles(Handles.UNKNOWN));
+
+        // When a descriptor attribute is updated
+        var updatedMetric0 = MockModelFactory.createDescriptor(Handles.METRIC_0, NumericMetricDescriptor.class);
+        updatedMetric0.setType(codedValue("1"));
+        updatedMetric0.setMetricCategory(MetricCategory.CLC);
+        mdibStorage.apply(mock(MdibVersion.class), mock(BigInteger.class), mock(BigInteger.class),
+                MdibDescriptionModifications.create().update(updatedMetric0,
+                        MockModelFactory.createState(Handles.METRIC_0, NumericMetricState.class)));
+
+        // Then expect the index to reflect the update
+        assertEquals(Set.of(), find(MdibQuery.create().metricCategory(MetricCategory.MSRMT)));
+        assertEquals(Set.of(Handles.METRIC_0), find(MdibQuery.create().metricCategory(MetricCategory.CLC)));
+        assertEquals(Set.of(Handles.METRIC_0), find(MdibQuery.create().descendantOf(Handles.CHANNEL_0)));
+        assertEquals(List.of(Handles.CHANNEL_0, Handles.VMD_0, Handles.MDS_0),
+                mdibStorage.getAncestorHandles(Handles.METRIC_0));
+
+        // When an entity is deleted
+        mdibStorage.apply(mock(MdibVersion.class), mock(BigInteger.class), mock(BigInteger.class),
+                MdibDescriptionModifications.create().delete(updatedMetric0));
+
+        // Then expect it to be removed from the index
+        assertEquals(Set.of(Handles.ALERTCONDITION_0), find(MdibQuery.create().code("1")));
+        assertEquals(Set.of(), find(MdibQuery.create().descendantOf(Handles.CHANNEL_0)));
+        assertEquals(List.of(), mdibStorage.getAncestorHandles(Handles.METRIC_0));
+    }
+
+    private Set<String> find(MdibQuery query) {
+        return mdibStorage.findEntities(query).stream().map(MdibEntity::getHandle).collect(Collectors.toSet());
+    }
+
+    private static CodedValue codedValue(String code) {
+        var codedValue = new CodedValue();
+        codedValue.setCode(code);
+        return codedValue;
+    }
+
     @Test
     void deleteChildUpdateParent() {
         // create content
@@ -196,6 +360,59 @@ class MdibStorageImplTest {
         assertEquals(1, result.getUpdatedEntities().size());
     }
 
+    @Test
+    void insertAndDeleteManyChildren() {
+        applyDescriptionWithVersion(MdibDescriptionModification.Type.INSERT, BigInteger.ZERO);
+
+        // When a large number of children is inserted below one parent
+        final int childCount = 5000;
+        final var insertions = MdibDescriptionModifications.create();
+        for (int i = 0; i < childCount; ++i) {
+            insertions.insert(
+                    MockModelFactory.createDescriptor("channel_bulk_" + i, BigInteger.ZERO, ChannelDescriptor.class),
+                    MockModelFactory.createState("channel_bulk_" + i, BigInteger.ZERO, ChannelState.class),
+                    Handles.VMD_0);
+        }
+        var insertResult = mdibStorage.apply(mock(MdibVersion.class), mock(BigInteger.class),
+                mock(BigInteger.class), insertions);
+
+        // Then expect the parent to be reported once and the children to be in insertion order
+        assertEquals(childCount, insertResult.getInsertedEntities().size());
+        assertEquals(1, insertResult.getUpdatedEntities().size());
+        var children = mdibStorage.getEntity(Handles.VMD_0).orElseThrow().getChildren();
+        assertEquals(childCount + 2, children.size());
+        assertEquals(Handles.CHANNEL_0, children.get(0));
+        assertEquals(Handles.CHANNEL_1, children.get(1));
+        assertEquals("channel_bulk_0", children.get(2));
+        assertEquals("channel_bulk_" + (childCount - 1), children.get(childCount + 1));
+
+        // When every other child is deleted
+        final var deletions = MdibDescriptionModifications.create();
+        for (int i = 0; i < childCount; i += 2) {
+            deletions.delete(
+                    MockModelFactory.createDescriptor("channel_bulk_" + i, BigInteger.ZERO, ChannelDescriptor.class));
+        }
+        mdibStorage.apply(mock(MdibVersion.class), mock(BigInteger.class), mock(BigInteger.class), deletions);
+
+        // Then expect the remaining children to keep their order
+        children = mdibStorage.getEntity(Handles.VMD_0).orElseThrow().getChildren();
+        assertEquals(childCount / 2 + 2, children.size());
+        assertEquals("channel_bulk_1", children.get(2));
+        assertEquals("channel_bulk_3", children.get(3));
+        assertFalse(mdibStorage.getEntity("channel_bulk_0").isPresent());
+
+        // When a context descriptor is deleted
+        final var contextDeletion = MdibDescriptionModifications.create().delete(
+                MockModelFactory.createDescriptor(Handles.CONTEXTDESCRIPTOR_0, PatientContextDescriptor.class));
+        mdibStorage.apply(mock(MdibVersion.class), mock(BigInteger.class), mock(BigInteger.class), contextDeletion);
+
+        // Then expect its context states to be removed as well
+        assertFalse(mdibStorage.getState(Handles.CONTEXT_0).isPresent());
+        assertFalse(mdibStorage.getState(Handles.CONTEXT_1).isPresent());
+        assertTrue(mdibStorage.getState(Handles.CONTEXT_2).isPresent());
+        assertEquals(1, mdibStorage.getContextStates().size());
+    }
+
     @Test
     void mdibAccess() {
         applyDescriptionWithVersion(MdibDescriptionModification.Type.INSERT, BigInteger.ZERO);
@@ -498,6 +715,22 @@ class MdibStorageImplTest {
                 bind(CommonConfig.COPY_MDIB_OUTPUT, Boolean.class, true);
                 bind(CommonConfig.STORE_NOT_ASSOCIATED_CONTEXT_STATES, Boolean.class, true);
                 bind(CommonConfig.ALLOW_STATES_WITHOUT_DESCRIPTORS, Boolean.class, true);
+                bind(CommonConfig.MDIB_STORAGE_SNAPSHOTS, Boolean.class, false);
+                bind(CommonConfig.FREEZE_MDIB_DATA, Boolean.class, false);
+                bind(CommonConfig.ASYNC_EVENT_DISTRIBUTION, Boolean.class, false);
+                bind(CommonConfig.EVENT_QUEUE_CAPACITY, Integer.class, 1000);
+                bind(CommonConfig.EVENT_QUEUE_OVERFLOW_POLICY, EventQueueOverflowPolicy.class,
+                        EventQueueOverflowPolicy.BLOCK);
+                bind(CommonConfig.STATE_COALESCING_WINDOW, Duration.class, Duration.ofMillis(100));
+                bind(CommonConfig.PARALLEL_PREPROCESSING_THRESHOLD, Integer.class, 0);
+                bind(CommonConfig.STATE_HISTORY_CAPACITY, Integer.class, 0);
+                bind(CommonConfig.STATE_HISTORY_RETENTION, Duration.class, Duration.ZERO);
+                bind(CommonConfig.INTERN_HANDLES, Boolean.class, false);
+                bind(CommonConfig.WAVEFORM_STORE_DURATION, Duration.class, Duration.ZERO);
+                bind(CommonConfig.MDIB_PERSISTENCE_DIRECTORY, String.class, "");
+                bind(CommonConfig.MDIB_PERSISTENCE_SNAPSHOT_INTERVAL, Integer.class, 10000);
+                bind(CommonConfig.MDIB_PERSISTENCE_SYNC_INTERVAL, Duration.class, Duration.ofMillis(100));
+                bind(CommonConfig.MDIB_STORAGE_SHARDING, Boolean.class, false);
                 bind(CommonConfig.CONSUMER_STATE_PREPROCESSING_SEGMENTS,
                         new TypeLiteral<List<Class<? extends StatePreprocessingSegment>>>() {
                         },
@@ -669,6 +902,22 @@ class MdibStorageImplTest {
                 bind(CommonConfig.COPY_MDIB_OUTPUT, Boolean.class, true);
                 bind(CommonConfig.STORE_NOT_ASSOCIATED_CONTEXT_STATES, Boolean.class, true);
                 bind(CommonConfig.ALLOW_STATES_WITHOUT_DESCRIPTORS, Boolean.class, false);
+                bind(CommonConfig.MDIB_STORAGE_SNAPSHOTS, Boolean.class, false);
+                bind(CommonConfig.FREEZE_MDIB_DATA, Boolean.class, false);
+                bind(CommonConfig.ASYNC_EVENT_DISTRIBUTION, Boolean.class, false);
+                bind(CommonConfig.EVENT_QUEUE_CAPACITY, Integer.class, 1000);
+                bind(CommonConfig.EVENT_QUEUE_OVERFLOW_POLICY, EventQueueOverflowPolicy.class,
+                        EventQueueOverflowPolicy.BLOCK);
+                bind(CommonConfig.STATE_COALESCING_WINDOW, Duration.class, Duration.ofMillis(100));
+                bind(CommonConfig.PARALLEL_PREPROCESSING_THRESHOLD, Integer.class, 0);
+                bind(CommonConfig.STATE_HISTORY_CAPACITY, Integer.class, 0);
+                bind(CommonConfig.STATE_HISTORY_RETENTION, Duration.class, Duration.ZERO);
+                bind(CommonConfig.INTERN_HANDLES, Boolean.class, false);
+                bind(CommonConfig.WAVEFORM_STORE_DURATION, Duration.class, Duration.ZERO);
+                bind(CommonConfig.MDIB_PERSISTENCE_DIRECTORY, String.class, "");
+                bind(CommonConfig.MDIB_PERSISTENCE_SNAPSHOT_INTERVAL, Integer.class, 10000);
+                bind(CommonConfig.MDIB_PERSISTENCE_SYNC_INTERVAL, Duration.class, Duration.ofMillis(100));
+                bind(CommonConfig.MDIB_STORAGE_SHARDING, Boolean.class, false);
                 bind(CommonConfig.CONSUMER_STATE_PREPROCESSING_SEGMENTS,
                         new TypeLiteral<List<Class<? extends StatePreprocessingSegment>>>() {
                         },
@@ -733,4 +982,132 @@ class MdibStorageImplTest {
         }
     }
 
+    @Test
+    void snapshotsAreIsolatedFromSubsequentWrites() {
+        var injector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.MDIB_STORAGE_SNAPSHOTS, Boolean.class, true);
+            }
+        }).getInjector();
+        var localMdibStorage = injector.getInstance(MdibStorageFactory.class).createMdibStorage();
+
+        // storages without snapshot configuration do not publish snapshots
+        assertFalse(mdibStorage.getSnapshot().isPresent());
+
+        var emptySnapshot = localMdibStorage.getSnapshot().orElseThrow();
+        applyDescriptionWithVersion(localMdibStorage, MdibDescriptionModification.Type.INSERT, BigInteger.ZERO);
+        var insertedSnapshot = localMdibStorage.getSnapshot().orElseThrow();
+
+        // Then expect the previous snapshot to be unaffected by the write
+        assertTrue(emptySnapshot.getRootEntities().isEmpty());
+        assertFalse(emptySnapshot.getEntity(Handles.MDS_0).isPresent());
+        assertTrue(emptySnapshot.getContextStates().isEmpty());
+
+        // Then expect the new snapshot to reflect the storage
+        assertEquals(1, insertedSnapshot.getRootEntities().size());
+        assertEquals(Handles.MDS_0, insertedSnapshot.getRootEntities().get(0).getHandle());
+        assertEquals(3, insertedSnapshot.getContextStates().size());
+        assertEquals(2, insertedSnapshot.getChildrenByType(Handles.VMD_0, ChannelDescriptor.class).size());
+        assertEquals(localMdibStorage.findEntitiesByType(ChannelDescriptor.class).size(),
+                insertedSnapshot.findEntitiesByType(ChannelDescriptor.class).size());
+        assertTrue(insertedSnapshot.getState(Handles.CONTEXT_2, LocationContextState.class).isPresent());
+
+        // snapshots are read-only
+        assertThrows(UnsupportedOperationException.class, () -> insertedSnapshot.apply(
+                mock(MdibVersion.class), mock(BigInteger.class),
+                MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)));
+
+        applyDescriptionWithVersion(localMdibStorage, MdibDescriptionModification.Type.DELETE, BigInteger.ZERO);
+        var deletedSnapshot = localMdibStorage.getSnapshot().orElseThrow();
+
+        assertTrue(deletedSnapshot.getRootEntities().isEmpty());
+        assertFalse(deletedSnapshot.getEntity(Handles.CHANNEL_0).isPresent());
+        assertTrue(deletedSnapshot.getContextStates().isEmpty());
+        assertTrue(insertedSnapshot.getEntity(Handles.CHANNEL_0).isPresent());
+        assertEquals(3, insertedSnapshot.getContextStates().size());
+    }
+
+    @Test
+    void snapshotsArePublishedOncePerBatch() throws Exception {
+        var injector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.MDIB_STORAGE_SNAPSHOTS, Boolean.class, true);
+            }
+        }).getInjector();
+        var localMdibStorage = injector.getInstance(MdibStorageFactory.class).createMdibStorage();
+        var emptySnapshot = localMdibStorage.getSnapshot().orElseThrow();
+
+        // When several modifications are applied as a batch
+        localMdibStorage.applyBatch(() -> {
+            applyDescriptionWithVersion(localMdibStorage, MdibDescriptionModification.Type.INSERT, BigInteger.ZERO);
+
+            // Then expect no snapshot to be published before the batch is complete
+            assertSame(emptySnapshot, localMdibStorage.getSnapshot().orElseThrow());
+            return null;
+        });
+
+        // Then expect one snapshot that reflects the whole batch
+        var batchSnapshot = localMdibStorage.getSnapshot().orElseThrow();
+        assertEquals(1, batchSnapshot.getRootEntities().size());
+        assertTrue(batchSnapshot.getEntity(Handles.CHANNEL_0).isPresent());
+    }
+
+    @Test
+    void snapshotsReadPastStatesAndWaveformsAsOfTheirVersion() {
+        // Given a storage with snapshots, a state history and 4 seconds of waveform samples, i.e., 4 samples
+        var injector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.MDIB_STORAGE_SNAPSHOTS, Boolean.class, true);
+                bind(CommonConfig.STATE_HISTORY_CAPACITY, Integer.class, 10);
+                bind(CommonConfig.WAVEFORM_STORE_DURATION, Duration.class, Duration.ofSeconds(4));
+            }
+        }).getInjector();
+        var localMdibStorage = injector.getInstance(MdibStorageFactory.class).createMdibStorage();
+        var descriptor = MockModelFactory.createDescriptor(Handles.METRIC_3, RealTimeSampleArrayMetricDescriptor.class);
+        descriptor.setSamplePeriod(Duration.ofSeconds(1));
+        var firstVersion = MdibVersion.create();
+        localMdibStorage.apply(firstVersion, null, null,
+                MdibDescriptionModifications.create().insert(descriptor, waveformState(1, 2, 3)));
+        var firstSnapshot = localMdibStorage.getSnapshot().orElseThrow();
+
+        // When another sample array is written
+        var secondVersion = MdibVersion.increment(firstVersion);
+        localMdibStorage.apply(secondVersion, null,
+                MdibStateModifications.create(MdibStateModifications.Type.WAVEFORM).add(waveformState(4, 5)));
+
+        // Then expect the first snapshot to look up past states as of its version
+        var pastState = firstSnapshot.getStateAt(Handles.METRIC_3, secondVersion).orElseThrow();
+        assertArrayEquals(new double[]{1, 2, 3}, samplesOf(pastState));
+        var pastStates = firstSnapshot.getStatesAt(List.of(Handles.METRIC_3), secondVersion);
+        assertArrayEquals(new double[]{1, 2, 3}, samplesOf(pastStates.get(Handles.METRIC_3)));
+        assertTrue(firstSnapshot.getStateAt(Handles.METRIC_3, MdibVersion.create()).isEmpty());
+
+        // Then expect the first snapshot to see the retained samples of its version only
+        var samples = firstSnapshot.getWaveformSamples(Handles.METRIC_3, 10).orElseThrow();
+        assertEquals(2, samples.size());
+        assertEquals(2.0, samples.get(0));
+        assertEquals(3.0, samples.get(1));
+        var state = firstSnapshot.getWaveformState(Handles.METRIC_3, 10).orElseThrow();
+        assertArrayEquals(new double[]{2, 3}, samplesOf(state));
+
+        // Then expect the current snapshot to see all retained samples
+        state = localMdibStorage.getSnapshot().orElseThrow().getWaveformState(Handles.METRIC_3, 10).orElseThrow();
+        assertArrayEquals(new double[]{2, 3, 4, 5}, samplesOf(state));
+        assertEquals(4, localMdibStorage.getWaveformSamples(Handles.METRIC_3, 10).orElseThrow().size());
+    }
+
+    private RealTimeSampleArrayMetricState waveformState(double... samples) {
+        var state = MockModelFactory.createState(Handles.METRIC_3, RealTimeSampleArrayMetricState.class);
+        var metricValue = new SampleArrayValue();
+        metricValue.setSamples(SampleList.ofDoubles(samples));
+        state.setMetricValue(metricValue);
+        return state;
+    }
+
+    private double[] samplesOf(AbstractState state) {
+        return SampleList.toDoubleArray(((RealTimeSampleArrayMetricState) state).getMetricValue().getSamples());
+    }
 }
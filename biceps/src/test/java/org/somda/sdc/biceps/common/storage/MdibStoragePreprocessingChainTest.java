@@ -2,12 +2,16 @@ package org.somda.sdc.biceps.common.storage;
 
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.somda.sdc.biceps.UnitTestUtil;
+import org.somda.sdc.biceps.common.CommonConfig;
 import org.somda.sdc.biceps.common.MdibDescriptionModification;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.storage.factory.MdibStoragePreprocessingChainFactory;
+import org.somda.sdc.biceps.guice.DefaultBicepsConfigModule;
+import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.MdsDescriptor;
 import org.somda.sdc.biceps.model.participant.NumericMetricState;
+import org.somda.sdc.biceps.model.participant.StringMetricState;
 import org.somda.sdc.biceps.model.participant.VmdDescriptor;
 import org.somda.sdc.biceps.testutil.MockModelFactory;
 import org.junit.jupiter.api.Assertions;
@@ -16,7 +20,9 @@ import org.junit.jupiter.api.Test;
 import test.org.somda.common.LoggingTestWatcher;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static org.mockito.Mockito.*;
 
@@ -222,4 +228,172 @@ class MdibStoragePreprocessingChainTest {
             verify(segment, times(1)).afterLastModification(modifications,mockStorage);
         });
     }
+
+    @Test
+    void fastPathForKnownStates() throws Exception {
+        // Given a preprocessing chain with a segment that is required for known states and one that is not
+        final MdibStorage mockStorage = mock(MdibStorage.class);
+        final StatePreprocessingSegment requiredSegment = mock(StatePreprocessingSegment.class);
+        final StatePreprocessingSegment skippableSegment = mock(StatePreprocessingSegment.class);
+        when(requiredSegment.isRequiredForKnownStates()).thenReturn(true);
+        when(skippableSegment.isRequiredForKnownStates()).thenReturn(false);
+        final MdibStoragePreprocessingChain chain = chainFactory.createMdibStoragePreprocessingChain(
+                mockStorage,
+                List.of(),
+                List.of(requiredSegment, skippableSegment));
+
+        // Given a storage that contains a numeric metric state
+        final String knownHandle = "knownHandle";
+        when(mockStorage.getStatesByType(AbstractState.class)).thenReturn(
+                List.of(MockModelFactory.createState(knownHandle, NumericMetricState.class)));
+
+        {
+            // When a known state is updated
+            final MdibStateModifications modifications = MdibStateModifications.create(
+                    MdibStateModifications.Type.METRIC)
+                    .add(MockModelFactory.createState(knownHandle, NumericMetricState.class));
+            chain.processStateModifications(modifications);
+
+            // Then expect the skippable segment to be bypassed
+            verify(requiredSegment, times(1)).process(modifications, modifications.getStates().get(0), mockStorage);
+            verify(skippableSegment, never()).beforeFirstModification(any(), any());
+            verify(skippableSegment, never()).process(any(), any(), any());
+            Assertions.assertEquals(1, chain.getStatistics().getFastPathStateModifications());
+        }
+
+        {
+            // When a state with a different type or an unknown handle is written
+            final MdibStateModifications modifications = MdibStateModifications.create(
+                    MdibStateModifications.Type.METRIC)
+                    .add(MockModelFactory.createState(knownHandle, StringMetricState.class))
+                    .add(MockModelFactory.createState("unknownHandle", NumericMetricState.class));
+            chain.processStateModifications(modifications);
+
+            // Then expect all segments to be processed
+            for (AbstractState state : modifications.getStates()) {
+                verify(requiredSegment, times(1)).process(modifications, state, mockStorage);
+                verify(skippableSegment, times(1)).process(modifications, state, mockStorage);
+            }
+            Assertions.assertEquals(1, chain.getStatistics().getRegularStateModifications());
+        }
+
+        {
+            // When the description changes
+            chain.processDescriptionModifications(MdibDescriptionModifications.create());
+            when(mockStorage.getStatesByType(AbstractState.class)).thenReturn(List.of());
+            final MdibStateModifications modifications = MdibStateModifications.create(
+                    MdibStateModifications.Type.METRIC)
+                    .add(MockModelFactory.createState(knownHandle, NumericMetricState.class));
+            chain.processStateModifications(modifications);
+
+            // Then expect known states to be determined again
+            verify(mockStorage, times(2)).getStatesByType(AbstractState.class);
+            verify(skippableSegment, times(1)).process(modifications, modifications.getStates().get(0), mockStorage);
+        }
+
+        // Then expect timings for every segment
+        final PreprocessingStatistics statistics = chain.getStatistics();
+        Assertions.assertEquals(2, statistics.getStateSegmentTimings().size());
+        Assertions.assertEquals(3, statistics.getStateSegmentTimings().get(0).getInvocations());
+        Assertions.assertEquals(2, statistics.getStateSegmentTimings().get(1).getInvocations());
+        Assertions.assertEquals(skippableSegment.toString(), statistics.getStateSegmentTimings().get(1).getSegment());
+    }
+
+    @Test
+    void bulkLoad() throws Exception {
+        // Given a preprocessing chain in bulk-load mode with a sequential segment between two parallel segments
+        final var bulkChainFactory = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.PARALLEL_PREPROCESSING_THRESHOLD, Integer.class, 10);
+            }
+        }).getInjector().getInstance(MdibStoragePreprocessingChainFactory.class);
+        final MdibStorage mockStorage = mock(MdibStorage.class);
+        final var processed = new ConcurrentLinkedQueue<String>();
+        final DescriptionPreprocessingSegment parallelSegment1 = new RecordingSegment("p1", true, processed);
+        final DescriptionPreprocessingSegment sequentialSegment = new RecordingSegment("s", false, processed);
+        final DescriptionPreprocessingSegment parallelSegment2 = new RecordingSegment("p2", true, processed);
+        final MdibStoragePreprocessingChain chain = bulkChainFactory.createMdibStoragePreprocessingChain(
+                mockStorage,
+                List.of(parallelSegment1, sequentialSegment, parallelSegment2),
+                List.of());
+
+        final int modificationCount = 100;
+        final MdibDescriptionModifications modifications = MdibDescriptionModifications.create();
+        for (int i = 0; i < modificationCount; ++i) {
+            modifications.insert(MockModelFactory.createDescriptor("handle" + i, VmdDescriptor.class), "mds");
+        }
+
+        {
+            // When the modifications are processed
+            chain.processDescriptionModifications(modifications);
+
+            // Then expect every segment to process every modification, one segment after the other
+            final List<String> processedList = List.copyOf(processed);
+            Assertions.assertEquals(3 * modificationCount, processedList.size());
+            for (int i = 0; i < modificationCount; ++i) {
+                Assertions.assertTrue(processedList.get(i).startsWith("p1:"));
+                Assertions.assertEquals("s:handle" + i, processedList.get(modificationCount + i));
+                Assertions.assertTrue(processedList.get(2 * modificationCount + i).startsWith("p2:"));
+            }
+        }
+
+        {
+            // When processing of two modifications fails in the first parallel segment
+            processed.clear();
+            final DescriptionPreprocessingSegment failingSegment = new RecordingSegment("f", true, processed) {
+                @Override
+                public void process(MdibDescriptionModifications allModifications,
+                                    MdibDescriptionModification currentModification,
+                                    MdibStorage storage) throws Exception {
+                    super.process(allModifications, currentModification, storage);
+                    if (currentModification.getHandle().equals("handle80")
+                            || currentModification.getHandle().equals("handle20")) {
+                        throw new Exception("failed " + currentModification.getHandle());
+                    }
+                }
+            };
+            final MdibStoragePreprocessingChain failingChain = bulkChainFactory.createMdibStoragePreprocessingChain(
+                    mockStorage,
+                    List.of(failingSegment, sequentialSegment),
+                    List.of());
+            final PreprocessingException exception = Assertions.assertThrows(PreprocessingException.class,
+                    () -> failingChain.processDescriptionModifications(modifications));
+
+            // Then expect the failure of the first modification to be reported and the next stage not to be started
+            Assertions.assertEquals("handle20", exception.getHandle());
+            Assertions.assertEquals("failed handle20", exception.getMessage());
+            Assertions.assertEquals(failingSegment.toString(), exception.getSegment());
+            Assertions.assertTrue(processed.stream().noneMatch(entry -> entry.startsWith("s:")));
+        }
+    }
+
+    private static class RecordingSegment implements DescriptionPreprocessingSegment {
+        private final String name;
+        private final boolean parallel;
+        private final Collection<String> processed;
+
+        RecordingSegment(String name, boolean parallel, Collection<String> processed) {
+            this.name = name;
+            this.parallel = parallel;
+            this.processed = processed;
+        }
+
+        @Override
+        public void process(MdibDescriptionModifications allModifications,
+                            MdibDescriptionModification currentModification,
+                            MdibStorage storage) throws Exception {
+            processed.add(name + ":" + currentModification.getHandle());
+        }
+
+        @Override
+        public boolean supportsParallelProcessing() {
+            return parallel;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
 }
\ No newline at end of file
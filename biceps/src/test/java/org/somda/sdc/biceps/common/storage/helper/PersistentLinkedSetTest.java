@@ -0,0 +1,72 @@
+package org.somda.sdc.biceps.common.storage.helper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import test.org.somda.common.LoggingTestWatcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LoggingTestWatcher.class)
+class PersistentLinkedSetTest {
+    @Test
+    void addAndRemovePreserveOrder() {
+        final var set = PersistentLinkedSet.<String>empty().add("a").add("b").add("c").add("d");
+        assertEquals(List.of("a", "b", "c", "d"), set.asList());
+        assertSame(set, set.add("b"));
+
+        final var withoutMiddle = set.remove("b");
+        assertEquals(List.of("a", "c", "d"), withoutMiddle.asList());
+        assertFalse(withoutMiddle.contains("b"));
+        assertTrue(set.contains("b"));
+
+        final var withoutEnds = withoutMiddle.remove("a").remove("d");
+        assertEquals(List.of("c"), withoutEnds.asList());
+        assertEquals(List.of("c", "a"), withoutEnds.add("a").asList());
+        assertTrue(withoutEnds.remove("c").isEmpty());
+        assertSame(withoutEnds, withoutEnds.remove("x"));
+
+        // previous versions are not affected
+        assertEquals(List.of("a", "b", "c", "d"), set.asList());
+        assertThrows(UnsupportedOperationException.class, () -> set.asList().add("e"));
+    }
+
+    @Test
+    void copyOf() {
+        final var set = PersistentLinkedSet.copyOf(List.of("a", "b", "a", "c"));
+        assertEquals(List.of("a", "b", "c"), set.asList());
+        assertSame(set, PersistentLinkedSet.copyOf(set.asList()));
+    }
+
+    @Test
+    void randomizedComparisonWithLinkedHashSet() {
+        final var random = new Random(42);
+        final var expected = new LinkedHashSet<Integer>();
+        var actual = PersistentLinkedSet.<Integer>empty();
+
+        for (int i = 0; i < 10000; ++i) {
+            final int element = random.nextInt(500);
+            if (random.nextBoolean()) {
+                expected.remove(element);
+                actual = actual.remove(element);
+            } else {
+                expected.add(element);
+                actual = actual.add(element);
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+
+        final var iterated = new ArrayList<Integer>();
+        actual.forEach(iterated::add);
+        assertEquals(new ArrayList<>(expected), iterated);
+        assertEquals(new ArrayList<>(expected), actual.asList());
+    }
+}
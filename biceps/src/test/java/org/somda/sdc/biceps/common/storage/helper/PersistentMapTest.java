@@ -0,0 +1,120 @@
+package org.somda.sdc.biceps.common.storage.helper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import test.org.somda.common.LoggingTestWatcher;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LoggingTestWatcher.class)
+class PersistentMapTest {
+    @Test
+    void putGetRemove() {
+        final PersistentMap<String, String> empty = PersistentMap.empty();
+        assertTrue(empty.isEmpty());
+
+        final var map = empty.put("a", "1").put("b", "2");
+        assertEquals(2, map.size());
+        assertEquals("1", map.get("a"));
+        assertEquals("2", map.get("b"));
+        assertNull(map.get("c"));
+
+        // previous versions are not affected
+        assertTrue(empty.isEmpty());
+        assertNull(empty.get("a"));
+
+        final var replaced = map.put("a", "3");
+        assertEquals(2, replaced.size());
+        assertEquals("3", replaced.get("a"));
+        assertEquals("1", map.get("a"));
+
+        final var removed = replaced.remove("a");
+        assertEquals(1, removed.size());
+        assertFalse(removed.containsKey("a"));
+        assertTrue(replaced.containsKey("a"));
+
+        assertSame(removed, removed.remove("a"));
+        assertSame(removed, removed.put("b", "2"));
+        assertTrue(removed.remove("b").isEmpty());
+    }
+
+    @Test
+    void hashCollisions() {
+        final var first = new CollidingKey("first");
+        final var second = new CollidingKey("second");
+        final var third = new CollidingKey("third");
+
+        PersistentMap<CollidingKey, Integer> map = PersistentMap.empty();
+        map = map.put(first, 1).put(second, 2).put(third, 3);
+        assertEquals(3, map.size());
+        assertEquals(1, map.get(first));
+        assertEquals(2, map.get(second));
+        assertEquals(3, map.get(third));
+        assertNull(map.get(new CollidingKey("fourth")));
+
+        final var removed = map.remove(second);
+        assertEquals(2, removed.size());
+        assertEquals(1, removed.get(first));
+        assertNull(removed.get(second));
+        assertEquals(3, removed.get(third));
+        assertEquals(2, map.get(second));
+
+        assertTrue(removed.remove(first).remove(third).isEmpty());
+    }
+
+    @Test
+    void randomizedComparisonWithHashMap() {
+        final var random = new Random(42);
+        final var expected = new HashMap<Object, Integer>();
+        PersistentMap<Object, Integer> actual = PersistentMap.empty();
+
+        for (int i = 0; i < 20000; ++i) {
+            // mix regular and colliding keys in order to cover all node types
+            final Object key = random.nextInt(4) == 0
+                    ? new CollidingKey("key" + random.nextInt(50))
+                    : "key" + random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                actual = actual.remove(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.put(key, i);
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+
+        final var iterated = new HashMap<Object, Integer>();
+        actual.forEach(iterated::put);
+        assertEquals(expected, iterated);
+        assertEquals(expected.size(), actual.values().size());
+        for (Map.Entry<Object, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    private static class CollidingKey {
+        private final String name;
+
+        CollidingKey(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CollidingKey && ((CollidingKey) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
@@ -138,4 +138,35 @@ class MdibVersionTest {
             assertEquals(Integer.valueOf(1), lhs.compareToMdibVersion(rhs).get());
         }
     }
+
+    @Test
+    void incrementBeyondLongRange() {
+        var maxLong = BigInteger.valueOf(Long.MAX_VALUE);
+        var beforeOverflow = new MdibVersion("seq", maxLong, BigInteger.ONE);
+
+        var overflow = MdibVersion.increment(beforeOverflow);
+        assertEquals(maxLong.add(BigInteger.ONE), overflow.getVersion());
+        assertEquals(BigInteger.ONE, overflow.getInstanceId());
+        assertEquals(Integer.valueOf(1), overflow.compareToMdibVersion(beforeOverflow).orElseThrow());
+        assertEquals(Integer.valueOf(-1), beforeOverflow.compareToMdibVersion(overflow).orElseThrow());
+
+        var afterOverflow = MdibVersion.increment(overflow);
+        assertEquals(maxLong.add(BigInteger.TWO), afterOverflow.getVersion());
+
+        var constructed = new MdibVersion("seq", maxLong.add(BigInteger.ONE), BigInteger.ONE);
+        assertEquals(constructed, overflow);
+        assertEquals(constructed.hashCode(), overflow.hashCode());
+        assertEquals(constructed.toString(), overflow.toString());
+    }
+
+    @Test
+    void incrementWithinLongRange() {
+        var mdibVersion = new MdibVersion("seq", BigInteger.valueOf(41));
+        var incremented = MdibVersion.increment(mdibVersion);
+
+        assertEquals(BigInteger.valueOf(42), incremented.getVersion());
+        assertEquals(new MdibVersion("seq", BigInteger.valueOf(42)), incremented);
+        assertEquals(new MdibVersion("seq", BigInteger.valueOf(42)).hashCode(), incremented.hashCode());
+        assertTrue(incremented.toString().contains("version=42"));
+    }
 }
\ No newline at end of file
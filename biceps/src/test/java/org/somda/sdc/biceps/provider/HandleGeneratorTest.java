@@ -0,0 +1,144 @@
+package org.somda.sdc.biceps.provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.somda.sdc.biceps.UnitTestUtil;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.model.participant.ContextAssociation;
+import org.somda.sdc.biceps.model.participant.PatientContextState;
+import org.somda.sdc.biceps.provider.access.LocalMdibAccess;
+import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
+import org.somda.sdc.biceps.testutil.BaseTreeModificationsSet;
+import org.somda.sdc.biceps.testutil.Handles;
+import org.somda.sdc.biceps.testutil.MockEntryFactory;
+import test.org.somda.common.LoggingTestWatcher;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LoggingTestWatcher.class)
+class HandleGeneratorTest {
+    private static final UnitTestUtil UT = new UnitTestUtil();
+
+    private LocalMdibAccess mdibAccess;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        var injector = UT.getInjector();
+        mdibAccess = injector.getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        var mockEntryFactory = new MockEntryFactory(injector.getInstance(MdibTypeValidator.class));
+        mdibAccess.writeDescription(new BaseTreeModificationsSet(mockEntryFactory).createBaseTree());
+    }
+
+    @Test
+    void sequenceStartsAfterMdibHandles() throws Exception {
+        // Given a generator for context state handles of an MDIB that contains context_0 to context_5
+        var handleGenerator = HandleGenerator.create("context_", mdibAccess);
+
+        // When new handles are generated
+        var handle = handleGenerator.next();
+
+        // Then expect the sequence to continue after the existing handles
+        assertEquals("context_6", handle);
+        assertEquals("context_7", handleGenerator.next());
+
+        // And the generated handle to be accepted by the MDIB
+        var state = new PatientContextState();
+        state.setDescriptorHandle(Handles.CONTEXTDESCRIPTOR_0);
+        state.setHandle(handle);
+        state.setContextAssociation(ContextAssociation.ASSOC);
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.CONTEXT).add(state));
+        assertTrue(mdibAccess.getState(handle).isPresent());
+    }
+
+    @Test
+    void generatorsShareCounterPerMdibAndPrefix() throws Exception {
+        // Given two generators for the same MDIB and prefix
+        var firstGenerator = HandleGenerator.create("context_", mdibAccess);
+        var secondGenerator = HandleGenerator.create("context_", mdibAccess);
+
+        // When handles are generated by both of them
+        var firstHandle = firstGenerator.next();
+        var secondHandle = secondGenerator.next();
+
+        // Then expect them to continue one sequence
+        assertEquals("context_6", firstHandle);
+        assertEquals("context_7", secondHandle);
+        assertEquals("context_8", HandleGenerator.create("context_", mdibAccess).reserve(1).next());
+
+        // And generators of other prefixes and MDIBs to use their own counters
+        assertEquals("handle_1", HandleGenerator.create("handle_", mdibAccess).next());
+        var otherMdibAccess = UT.getInjector().getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        assertEquals("context_1", HandleGenerator.create("context_", otherMdibAccess).next());
+    }
+
+    @Test
+    void reserve() {
+        var handleGenerator = HandleGenerator.create("handle_", mdibAccess);
+
+        // When a block of handles is reserved
+        var block = handleGenerator.reserve(3);
+
+        // Then expect the block to hand out the reserved handles only
+        assertEquals(3, block.remaining());
+        assertEquals("handle_1", block.next());
+        assertEquals("handle_4", handleGenerator.next());
+        assertEquals("handle_2", block.next());
+        assertEquals("handle_3", block.next());
+        assertFalse(block.hasNext());
+        assertThrows(NoSuchElementException.class, block::next);
+        assertFalse(handleGenerator.reserve(0).hasNext());
+        assertThrows(IllegalArgumentException.class, () -> handleGenerator.reserve(-1));
+    }
+
+    @Test
+    void concurrentGeneration() throws Exception {
+        var handleGenerator = HandleGenerator.create("handle_", mdibAccess);
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            // When handles are generated by several threads, either one by one or in blocks
+            var futures = new ArrayList<Future<List<String>>>();
+            for (int i = 0; i < 8; i++) {
+                boolean useBlocks = i % 2 == 0;
+                futures.add(executor.submit((Callable<List<String>>) () -> {
+                    var handles = new ArrayList<String>();
+                    for (int j = 0; j < 10; j++) {
+                        if (useBlocks) {
+                            var block = handleGenerator.reserve(100);
+                            while (block.hasNext()) {
+                                handles.add(block.next());
+                            }
+                        } else {
+                            for (int k = 0; k < 100; k++) {
+                                handles.add(handleGenerator.next());
+                            }
+                        }
+                    }
+                    return handles;
+                }));
+            }
+
+            // Then expect every handle to be generated once
+            var allHandles = new HashSet<String>();
+            for (Future<List<String>> future : futures) {
+                allHandles.addAll(future.get());
+            }
+            assertEquals(8000, allHandles.size());
+            assertEquals("handle_8001", handleGenerator.next());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.somda.sdc.biceps.provider.access;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.somda.sdc.biceps.UnitTestUtil;
+import org.somda.sdc.biceps.common.CommonConfig;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.common.event.ComponentStateModificationMessage;
+import org.somda.sdc.biceps.common.event.MetricStateModificationMessage;
+import org.somda.sdc.biceps.guice.DefaultBicepsConfigModule;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.MdsState;
+import org.somda.sdc.biceps.model.participant.NumericMetricState;
+import org.somda.sdc.biceps.model.participant.NumericMetricValue;
+import org.somda.sdc.biceps.model.participant.PatientContextState;
+import org.somda.sdc.biceps.provider.access.factory.CoalescingStateWriterFactory;
+import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
+import org.somda.sdc.biceps.testutil.BaseTreeModificationsSet;
+import org.somda.sdc.biceps.testutil.Handles;
+import org.somda.sdc.biceps.testutil.MdibAccessObserverSpy;
+import org.somda.sdc.biceps.testutil.MockEntryFactory;
+import org.somda.sdc.biceps.testutil.MockModelFactory;
+import test.org.somda.common.LoggingTestWatcher;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LoggingTestWatcher.class)
+class CoalescingStateWriterTest {
+    private static final Duration WAIT_TIME = Duration.ofSeconds(10);
+    private static final String NEW_CONTEXT = "new_context";
+
+    private LocalMdibAccess mdibAccess;
+    private CoalescingStateWriter coalescingStateWriter;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        var injector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.STATE_COALESCING_WINDOW, Duration.class, Duration.ofMillis(500));
+            }
+        }).getInjector();
+        mdibAccess = injector.getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        mdibAccess.writeDescription(new BaseTreeModificationsSet(
+                new MockEntryFactory(injector.getInstance(MdibTypeValidator.class))).createBaseTree());
+        coalescingStateWriter = injector.getInstance(CoalescingStateWriterFactory.class)
+                .createCoalescingStateWriter(mdibAccess);
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (coalescingStateWriter.isRunning()) {
+            coalescingStateWriter.stopAsync().awaitTerminated();
+        }
+    }
+
+    @Test
+    void latestStateWins() throws Exception {
+        var previousMdibVersion = mdibAccess.getMdibVersion();
+        var spy = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(spy);
+        coalescingStateWriter.startAsync().awaitRunning();
+
+        // When a metric is updated several times within one window and another state is updated once
+        var metricState = MockModelFactory.createState(Handles.METRIC_0, NumericMetricState.class);
+        for (int i = 0; i < 10; i++) {
+            var metricValue = new NumericMetricValue();
+            metricValue.setValue(BigDecimal.valueOf(i));
+            metricState.setMetricValue(metricValue);
+            coalescingStateWriter.writeStates(MdibStateModifications.create(MdibStateModifications.Type.METRIC)
+                    .add(metricState));
+        }
+        coalescingStateWriter.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+
+        // Then expect nothing to be written before the window has elapsed
+        assertEquals(previousMdibVersion, mdibAccess.getMdibVersion());
+
+        // Then expect the latest state of each handle to be written with one MDIB version after the window
+        assertTrue(spy.waitForNumberOfRecordedMessages(2, WAIT_TIME));
+        assertEquals(MdibVersion.increment(previousMdibVersion), mdibAccess.getMdibVersion());
+        var metricMessage = (MetricStateModificationMessage) spy.getRecordedMessages().get(0);
+        assertEquals(1, metricMessage.getStates().size());
+        assertEquals(BigDecimal.valueOf(9), ((NumericMetricState) metricMessage.getStates().get(0))
+                .getMetricValue().getValue());
+        assertTrue(spy.getRecordedMessages().get(1) instanceof ComponentStateModificationMessage);
+        assertEquals(11, coalescingStateWriter.getSubmittedStates());
+        assertEquals(9, coalescingStateWriter.getCoalescedStates());
+    }
+
+    @Test
+    void flushAndShutdown() throws Exception {
+        var previousMdibVersion = mdibAccess.getMdibVersion();
+
+        // Then expect writes to be rejected as long as the writer is not running
+        assertThrows(IllegalStateException.class, () -> coalescingStateWriter.writeStates(
+                MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                        .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class))));
+
+        // When states are flushed explicitly
+        coalescingStateWriter.startAsync().awaitRunning();
+        assertFalse(coalescingStateWriter.flush().isPresent());
+        coalescingStateWriter.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+        var result = coalescingStateWriter.flush().orElseThrow();
+
+        // Then expect them to be written immediately
+        assertEquals(MdibVersion.increment(previousMdibVersion), result.getMdibVersion());
+        assertEquals(result.getMdibVersion(), mdibAccess.getMdibVersion());
+
+        // When the writer is stopped with buffered states
+        coalescingStateWriter.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+        coalescingStateWriter.stopAsync().awaitTerminated();
+
+        // Then expect the buffered states to be written on shutdown
+        assertEquals(MdibVersion.increment(result.getMdibVersion()), mdibAccess.getMdibVersion());
+    }
+
+    @Test
+    void writeWhileShuttingDown() throws Exception {
+        coalescingStateWriter.startAsync().awaitRunning();
+
+        // When states are written concurrently while the writer is stopped
+        var executor = Executors.newFixedThreadPool(4);
+        var writers = new ArrayList<Future<?>>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                writers.add(executor.submit(() -> {
+                    while (true) {
+                        try {
+                            coalescingStateWriter.writeStates(MdibStateModifications
+                                    .create(MdibStateModifications.Type.COMPONENT)
+                                    .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+                        } catch (IllegalStateException e) {
+                            return;
+                        }
+                    }
+                }));
+            }
+            Thread.sleep(50);
+            coalescingStateWriter.stopAsync().awaitTerminated();
+
+            // Then expect writes to be either rejected as the writer is not running or written by the final flush
+            for (Future<?> writer : writers) {
+                writer.get(WAIT_TIME.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            assertEquals(0, coalescingStateWriter.discard());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedStates() throws Exception {
+        var previousMdibVersion = mdibAccess.getMdibVersion();
+        var spy = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(spy);
+        var rejection = new CompletableFuture<List<AbstractState>>();
+        coalescingStateWriter.registerFlushFailureListener((rejectedStates, exception) ->
+                rejection.complete(rejectedStates));
+        coalescingStateWriter.startAsync().awaitRunning();
+
+        // When a buffered state fails preprocessing after the window has elapsed
+        coalescingStateWriter.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+        coalescingStateWriter.writeStates(MdibStateModifications.create(MdibStateModifications.Type.CONTEXT)
+                .add(MockModelFactory.createContextState(Handles.CONTEXT_0, Handles.UNKNOWN,
+                        PatientContextState.class))
+                .add(MockModelFactory.createContextState(NEW_CONTEXT, Handles.CONTEXTDESCRIPTOR_0,
+                        PatientContextState.class)));
+
+        // Then expect the rejected state to be reported and dropped
+        var rejectedStates = rejection.get(WAIT_TIME.toMillis(), TimeUnit.MILLISECONDS);
+        assertEquals(1, rejectedStates.size());
+        assertEquals(Handles.CONTEXT_0, ((PatientContextState) rejectedStates.get(0)).getHandle());
+
+        // And all other states to be written with one MDIB version
+        assertTrue(spy.waitForNumberOfRecordedMessages(2, WAIT_TIME));
+        assertEquals(MdibVersion.increment(previousMdibVersion), mdibAccess.getMdibVersion());
+        assertTrue(mdibAccess.getState(NEW_CONTEXT).isPresent());
+        assertEquals(0, coalescingStateWriter.discard());
+
+        // And following states to be written as well
+        coalescingStateWriter.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(MockModelFactory.createState(Handles.MDS_0, MdsState.class)));
+        var result = coalescingStateWriter.flush().orElseThrow();
+        assertEquals(MdibVersion.increment(MdibVersion.increment(previousMdibVersion)), result.getMdibVersion());
+    }
+}
@@ -1,19 +1,26 @@
 package org.somda.sdc.biceps.provider.access;
 
 
+import com.google.common.eventbus.Subscribe;
 import com.google.inject.Injector;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.somda.sdc.biceps.UnitTestUtil;
 import org.somda.sdc.biceps.common.CommonConfig;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.common.access.MdibAccessObserver;
 import org.somda.sdc.biceps.common.access.WriteDescriptionResult;
 import org.somda.sdc.biceps.common.access.WriteStateResult;
+import org.somda.sdc.biceps.common.event.AbstractMdibAccessMessage;
+import org.somda.sdc.biceps.common.event.ComponentStateModificationMessage;
 import org.somda.sdc.biceps.common.event.DescriptionModificationMessage;
+import org.somda.sdc.biceps.common.event.MetricStateModificationMessage;
+import org.somda.sdc.biceps.common.storage.PreprocessingException;
 import org.somda.sdc.biceps.guice.DefaultBicepsConfigModule;
 import org.somda.sdc.biceps.model.participant.AbstractContextState;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
@@ -25,24 +32,44 @@ import org.somda.sdc.biceps.model.participant.ChannelState;
 import org.somda.sdc.biceps.model.participant.MdibVersion;
 import org.somda.sdc.biceps.model.participant.MdsDescriptor;
 import org.somda.sdc.biceps.model.participant.MdsState;
+import org.somda.sdc.biceps.model.participant.NumericMetricState;
 import org.somda.sdc.biceps.model.participant.PatientContextState;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+import org.somda.sdc.biceps.model.participant.SampleArrayValue;
 import org.somda.sdc.biceps.model.participant.ScoDescriptor;
 import org.somda.sdc.biceps.model.participant.VmdDescriptor;
+import org.somda.sdc.biceps.model.participant.VmdState;
 import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
 import org.somda.sdc.biceps.testutil.BaseTreeModificationsSet;
 import org.somda.sdc.biceps.testutil.Handles;
 import org.somda.sdc.biceps.testutil.MdibAccessObserverSpy;
 import org.somda.sdc.biceps.testutil.MockEntryFactory;
 import org.somda.sdc.biceps.testutil.MockModelFactory;
+import org.somda.sdc.common.util.SampleList;
 import test.org.somda.common.LoggingTestWatcher;
 
 import javax.annotation.Nullable;
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(LoggingTestWatcher.class)
@@ -232,6 +259,494 @@ class LocalMdibAccessImplTest {
         }
     }
 
+    @Test
+    void frozenData() throws Exception {
+        // Given a local mdib access that freezes its data
+        var localMdibAccess = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.FREEZE_MDIB_DATA, Boolean.class, true);
+            }
+        }).getInjector().getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        var modifications = setupBaseTree();
+        localMdibAccess.writeDescription(modifications);
+
+        // Then expect stored data to be frozen and exposed without copies
+        var mdsState = localMdibAccess.getState(Handles.MDS_0, MdsState.class).orElseThrow();
+        assertTrue(mdsState.isFrozen());
+        assertSame(mdsState, localMdibAccess.getState(Handles.MDS_0, MdsState.class).orElseThrow());
+        assertThrows(UnsupportedOperationException.class, () -> mdsState.setStateVersion(BigInteger.TEN));
+        var entity = localMdibAccess.getEntity(Handles.MDS_0).orElseThrow();
+        assertThrows(UnsupportedOperationException.class, () -> entity.getStates().clear());
+        assertThrows(UnsupportedOperationException.class, () -> entity.getDescriptor().getType().setCode("70002"));
+
+        // Then expect input data not to be frozen as it is copied before writing
+        assertFalse(modifications.getModifications().get(0).getDescriptor().isFrozen());
+
+        // When frozen data is written back
+        localMdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(mdsState));
+
+        // Then expect a versioned copy to be stored while the frozen state remains unchanged
+        var updatedMdsState = localMdibAccess.getState(Handles.MDS_0, MdsState.class).orElseThrow();
+        assertTrue(updatedMdsState.isFrozen());
+        assertEquals(mdsState.getStateVersion().add(BigInteger.ONE), updatedMdsState.getStateVersion());
+    }
+
+    @Test
+    void bulkLoad() throws Exception {
+        // Given a local mdib access that preprocesses all description modifications in bulk-load mode
+        var bulkInjector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.PARALLEL_PREPROCESSING_THRESHOLD, Integer.class, 1);
+            }
+        }).getInjector();
+        var bulkMdibAccess = bulkInjector.getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+
+        // When the base tree is written to the bulk-loading and the regular mdib access
+        var bulkResult = bulkMdibAccess.writeDescription(setupBaseTree());
+        var regularResult = mdibAccess.writeDescription(setupBaseTree());
+
+        // Then expect both mdib accesses to store the same entities with the same versions
+        assertEquals(regularResult.getInsertedEntities().size(), bulkResult.getInsertedEntities().size());
+        for (MdibEntity insertedEntity : regularResult.getInsertedEntities()) {
+            var regularEntity = mdibAccess.getEntity(insertedEntity.getHandle()).orElseThrow();
+            var bulkEntity = bulkMdibAccess.getEntity(regularEntity.getHandle()).orElseThrow();
+            assertEquals(regularEntity.getParent(), bulkEntity.getParent());
+            assertEquals(regularEntity.getChildren(), bulkEntity.getChildren());
+            assertEquals(regularEntity.getDescriptor().getDescriptorVersion(),
+                    bulkEntity.getDescriptor().getDescriptorVersion());
+            assertEquals(regularEntity.getStates().size(), bulkEntity.getStates().size());
+            for (int i = 0; i < regularEntity.getStates().size(); ++i) {
+                assertEquals(regularEntity.getStates().get(i).getDescriptorHandle(),
+                        bulkEntity.getStates().get(i).getDescriptorHandle());
+                assertEquals(regularEntity.getStates().get(i).getStateVersion(),
+                        bulkEntity.getStates().get(i).getStateVersion());
+            }
+        }
+
+        // When an entity is inserted below a parent of an invalid type
+        var invalidModifications = MdibDescriptionModifications.create()
+                .insert(mockEntryFactory.entry("newVmd", VmdDescriptor.class, Handles.CHANNEL_0));
+
+        // Then expect the type consistency check to fail in bulk-load mode as well
+        var exception = assertThrows(PreprocessingException.class,
+                () -> bulkMdibAccess.writeDescription(invalidModifications));
+        assertEquals("TypeConsistencyChecker", exception.getSegment());
+        assertTrue(bulkMdibAccess.getPreprocessingStatistics().getDescriptionSegmentTimings().stream()
+                .allMatch(timing -> timing.getInvocations() == 2));
+    }
+
+    @Test
+    void stateHistory() throws Exception {
+        // Given a local mdib access that retains two states per handle
+        var historyInjector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.STATE_HISTORY_CAPACITY, Integer.class, 2);
+            }
+        }).getInjector();
+        var historyMdibAccess = historyInjector.getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+
+        // When the base tree is written and the MDS state is updated twice
+        var insertVersion = historyMdibAccess.writeDescription(setupBaseTree()).getMdibVersion();
+        var firstUpdateVersion = historyMdibAccess.writeStates(MdibStateModifications
+                .create(MdibStateModifications.Type.COMPONENT)
+                .add(state(Handles.MDS_0, MdsState.class))).getMdibVersion();
+        var secondUpdateVersion = historyMdibAccess.writeStates(MdibStateModifications
+                .create(MdibStateModifications.Type.COMPONENT)
+                .add(state(Handles.MDS_0, MdsState.class))).getMdibVersion();
+
+        // Then expect the two latest MDS states to be retained
+        assertTrue(historyMdibAccess.getStateAt(Handles.MDS_0, insertVersion).isEmpty());
+        assertEquals(BigInteger.ONE,
+                historyMdibAccess.getStateAt(Handles.MDS_0, firstUpdateVersion).orElseThrow().getStateVersion());
+        assertEquals(BigInteger.TWO,
+                historyMdibAccess.getStateAt(Handles.MDS_0, secondUpdateVersion).orElseThrow().getStateVersion());
+
+        // Then expect unchanged single and multi-states to be found as of their insertion
+        var statesAtInsertion = historyMdibAccess.getStatesAt(
+                List.of(Handles.METRIC_0, Handles.CONTEXT_0, Handles.UNKNOWN), secondUpdateVersion);
+        assertEquals(List.of(Handles.METRIC_0, Handles.CONTEXT_0), List.copyOf(statesAtInsertion.keySet()));
+        assertEquals(BigInteger.ZERO, statesAtInsertion.get(Handles.METRIC_0).getStateVersion());
+
+        // When the metric is deleted
+        var deleteVersion = historyMdibAccess.writeDescription(MdibDescriptionModifications.create()
+                .delete(Handles.METRIC_0)).getMdibVersion();
+
+        // Then expect the metric state to be found before, but not after the deletion
+        assertTrue(historyMdibAccess.getStateAt(Handles.METRIC_0, secondUpdateVersion).isPresent());
+        assertTrue(historyMdibAccess.getStateAt(Handles.METRIC_0, deleteVersion).isEmpty());
+
+        // Then expect no states for MDIB versions of another sequence or if the history is disabled
+        assertTrue(historyMdibAccess.getStateAt(Handles.MDS_0, MdibVersion.create()).isEmpty());
+        mdibAccess.writeDescription(setupBaseTree());
+        assertTrue(mdibAccess.getStateAt(Handles.MDS_0, mdibAccess.getMdibVersion()).isEmpty());
+    }
+
+    @Test
+    void waveformStore() throws Exception {
+        // Given a local mdib access that retains 4 seconds of waveform samples, i.e., 4 samples of METRIC_3
+        var waveformInjector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.WAVEFORM_STORE_DURATION, Duration.class, Duration.ofSeconds(4));
+            }
+        }).getInjector();
+        var waveformMdibAccess = waveformInjector.getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        waveformMdibAccess.writeDescription(setupBaseTree());
+
+        // When two sample arrays of three samples each are written
+        var determinationTime = Instant.now();
+        waveformMdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.WAVEFORM)
+                .add(waveformState(determinationTime, 1, 2, 3)));
+        var firstView = waveformMdibAccess.getWaveformSamples(Handles.METRIC_3, 3).orElseThrow();
+        assertEquals(1.0, firstView.get(0));
+        var firstState = waveformMdibAccess.getState(Handles.METRIC_3, RealTimeSampleArrayMetricState.class)
+                .orElseThrow();
+        waveformMdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.WAVEFORM)
+                .add(waveformState(determinationTime.plusSeconds(3), 4, 5, 6)));
+
+        // Then expect the newest 4 samples to be viewable across both sample arrays
+        var view = waveformMdibAccess.getWaveformSamples(Handles.METRIC_3, 10).orElseThrow();
+        assertEquals(4, view.size());
+        assertEquals(2, view.getFirstSampleIndex());
+        var samples = new double[view.size()];
+        view.copyTo(samples, 0);
+        assertArrayEquals(new double[]{3, 4, 5, 6}, samples);
+        assertTrue(view.isValid());
+
+        // Then expect views of overwritten samples to be invalid
+        assertFalse(firstView.isValid());
+        assertThrows(ConcurrentModificationException.class, () -> firstView.get(0));
+
+        // Then expect a materialized state to span both sample arrays with a shifted determination time
+        var state = waveformMdibAccess.getWaveformState(Handles.METRIC_3, 3).orElseThrow();
+        assertEquals(List.of(4.0, 5.0, 6.0), state.getMetricValue().getSamples().stream()
+                .map(BigDecimal::doubleValue)
+                .collect(Collectors.toList()));
+        assertEquals(determinationTime.plusSeconds(3), state.getMetricValue().getDeterminationTime());
+        state = waveformMdibAccess.getWaveformState(Handles.METRIC_3, 4).orElseThrow();
+        assertEquals(4, state.getMetricValue().getSamples().size());
+        assertEquals(determinationTime.plusSeconds(2), state.getMetricValue().getDeterminationTime());
+
+        // Then expect the stored state to read its samples from the store
+        var storedSamples = waveformMdibAccess.getState(Handles.METRIC_3, RealTimeSampleArrayMetricState.class)
+                .orElseThrow().getMetricValue().getSamples();
+        assertTrue(storedSamples instanceof SampleList);
+        assertArrayEquals(new double[]{4, 5, 6}, SampleList.toDoubleArray(storedSamples));
+
+        // Then expect a state that is still referenced to keep its samples although they have been overwritten
+        assertArrayEquals(new double[]{1, 2, 3},
+                SampleList.toDoubleArray(firstState.getMetricValue().getSamples()));
+        assertEquals(List.of(BigDecimal.valueOf(1.0), BigDecimal.valueOf(2.0), BigDecimal.valueOf(3.0)),
+                firstState.getMetricValue().getSamples());
+
+        // When the waveform is deleted
+        waveformMdibAccess.writeDescription(MdibDescriptionModifications.create().delete(Handles.METRIC_3));
+
+        // Then expect no samples, neither after deletion nor if the store is disabled
+        assertTrue(waveformMdibAccess.getWaveformSamples(Handles.METRIC_3, 1).isEmpty());
+        mdibAccess.writeDescription(setupBaseTree());
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.WAVEFORM)
+                .add(waveformState(determinationTime, 1, 2, 3)));
+        assertTrue(mdibAccess.getWaveformSamples(Handles.METRIC_3, 1).isEmpty());
+        assertTrue(mdibAccess.getWaveformState(Handles.METRIC_3, 1).isEmpty());
+    }
+
+    @Test
+    void persistence(@TempDir Path directory) throws Exception {
+        // Given local mdib accesses that persist their MDIB and take a snapshot every three records
+        var persistenceInjector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.MDIB_PERSISTENCE_DIRECTORY, String.class, directory.toString());
+                bind(CommonConfig.MDIB_PERSISTENCE_SNAPSHOT_INTERVAL, Integer.class, 3);
+                bind(CommonConfig.MDIB_PERSISTENCE_SYNC_INTERVAL, Duration.class, Duration.ZERO);
+            }
+        }).getInjector();
+        var factory = persistenceInjector.getInstance(LocalMdibAccessFactory.class);
+        var firstMdibAccess = factory.createLocalMdibAccess();
+
+        // When description and state modifications are written before and after a snapshot
+        firstMdibAccess.writeDescription(setupBaseTree());
+        for (int i = 0; i < 3; i++) {
+            firstMdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                    .add(state(Handles.MDS_0, MdsState.class)));
+        }
+        firstMdibAccess.writeDescription(MdibDescriptionModifications.create().delete(Handles.METRIC_0));
+        firstMdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.CONTEXT)
+                .add(MockModelFactory.createContextState("newContext", Handles.CONTEXTDESCRIPTOR_0,
+                        PatientContextState.class)));
+
+        // Then expect the directory to be locked as long as the mdib access persists its MDIB
+        assertThrows(IllegalStateException.class, factory::createLocalMdibAccess);
+
+        // Then expect a restarted mdib access to restore versions, entities and states
+        firstMdibAccess.closePersistence();
+        var secondMdibAccess = factory.createLocalMdibAccess();
+        assertEquals(firstMdibAccess.getMdibVersion(), secondMdibAccess.getMdibVersion());
+        assertEquals(firstMdibAccess.getMdDescriptionVersion(), secondMdibAccess.getMdDescriptionVersion());
+        assertEquals(firstMdibAccess.getMdStateVersion(), secondMdibAccess.getMdStateVersion());
+        var entities = firstMdibAccess.findEntitiesByType(AbstractDescriptor.class);
+        assertEquals(entities.size(), secondMdibAccess.findEntitiesByType(AbstractDescriptor.class).size());
+        for (MdibEntity entity : entities) {
+            var restoredEntity = secondMdibAccess.getEntity(entity.getHandle()).orElseThrow();
+            assertEquals(entity.getDescriptor(), restoredEntity.getDescriptor());
+            assertEquals(entity.getStates(), restoredEntity.getStates());
+            assertEquals(entity.getChildren(), restoredEntity.getChildren());
+        }
+        assertTrue(secondMdibAccess.getEntity(Handles.METRIC_0).isEmpty());
+        assertTrue(secondMdibAccess.getState("newContext").isPresent());
+
+        // When the restored mdib access is written
+        var mdsStateVersion = secondMdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion();
+        var vmdDescriptorVersion = secondMdibAccess.getDescriptor(Handles.VMD_0).orElseThrow()
+                .getDescriptorVersion();
+        secondMdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(state(Handles.MDS_0, MdsState.class)));
+        secondMdibAccess.writeDescription(MdibDescriptionModifications.create()
+                .update(descriptor(Handles.VMD_0, VmdDescriptor.class), state(Handles.VMD_0, VmdState.class)));
+
+        // Then expect versions to be continued and the modifications to be restored as well
+        assertEquals(mdsStateVersion.add(BigInteger.ONE),
+                secondMdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion());
+        assertEquals(vmdDescriptorVersion.add(BigInteger.ONE),
+                secondMdibAccess.getDescriptor(Handles.VMD_0).orElseThrow().getDescriptorVersion());
+        secondMdibAccess.closePersistence();
+        var thirdMdibAccess = factory.createLocalMdibAccess();
+        assertEquals(secondMdibAccess.getMdibVersion(), thirdMdibAccess.getMdibVersion());
+        assertEquals(secondMdibAccess.getState(Handles.MDS_0), thirdMdibAccess.getState(Handles.MDS_0));
+        assertEquals(secondMdibAccess.getDescriptor(Handles.VMD_0), thirdMdibAccess.getDescriptor(Handles.VMD_0));
+        thirdMdibAccess.closePersistence();
+    }
+
+    @Test
+    void internHandles() throws Exception {
+        // Given two local mdib accesses that intern handles
+        var internInjector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.INTERN_HANDLES, Boolean.class, true);
+            }
+        }).getInjector();
+        var factory = internInjector.getInstance(LocalMdibAccessFactory.class);
+        var firstMdibAccess = factory.createLocalMdibAccess();
+        var secondMdibAccess = factory.createLocalMdibAccess();
+
+        // When equal handles of distinct string instances are written to both mdib accesses
+        for (LocalMdibAccess access : List.of(firstMdibAccess, secondMdibAccess)) {
+            access.writeDescription(MdibDescriptionModifications.create()
+                    .insert(entry(new String(Handles.MDS_0), MdsDescriptor.class))
+                    .insert(entry(new String(Handles.VMD_0), VmdDescriptor.class, new String(Handles.MDS_0))));
+            access.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                    .add(state(new String(Handles.VMD_0), VmdState.class)));
+        }
+
+        // Then expect both mdib accesses to share the handle instances
+        var firstMds = firstMdibAccess.getEntity(Handles.MDS_0).orElseThrow();
+        var secondMds = secondMdibAccess.getEntity(Handles.MDS_0).orElseThrow();
+        assertSame(firstMds.getHandle(), secondMds.getHandle());
+        assertSame(firstMds.getChildren().get(0), secondMds.getChildren().get(0));
+        var firstVmd = firstMdibAccess.getEntity(Handles.VMD_0).orElseThrow();
+        var secondVmd = secondMdibAccess.getEntity(Handles.VMD_0).orElseThrow();
+        assertSame(firstVmd.getParent().orElseThrow(), secondVmd.getParent().orElseThrow());
+        assertSame(firstVmd.getStates().get(0).getDescriptorHandle(),
+                secondVmd.getStates().get(0).getDescriptorHandle());
+        assertSame(firstMds.getHandle(), firstVmd.getParent().orElseThrow());
+    }
+
+    @Test
+    void sharding() throws Exception {
+        // Given a sharded local mdib access and a regular local mdib access with a base tree of two MDSs
+        var shardingInjector = new UnitTestUtil(new DefaultBicepsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                bind(CommonConfig.MDIB_STORAGE_SHARDING, Boolean.class, true);
+                bind(CommonConfig.MDIB_STORAGE_SNAPSHOTS, Boolean.class, true);
+            }
+        }).getInjector();
+        var shardedMdibAccess = shardingInjector.getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        shardedMdibAccess.writeDescription(setupBaseTree());
+        mdibAccess.writeDescription(setupBaseTree());
+        var previousMdibVersion = shardedMdibAccess.getMdibVersion();
+        var previousMds0StateVersion = shardedMdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion();
+        var previousMds1StateVersion = shardedMdibAccess.getState(Handles.MDS_1).orElseThrow().getStateVersion();
+        var eventMdibVersions = Collections.synchronizedList(new ArrayList<BigInteger>());
+        shardedMdibAccess.registerObserver(new MdibAccessObserver() {
+            @Subscribe
+            void onUpdate(AbstractMdibAccessMessage message) {
+                eventMdibVersions.add(message.getMdibAccess().getMdibVersion().getVersion());
+            }
+        });
+
+        // When both MDSs are written concurrently
+        int writesPerMds = 100;
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (String mdsHandle : List.of(Handles.MDS_0, Handles.MDS_1)) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < writesPerMds; i++) {
+                        shardedMdibAccess.writeStates(MdibStateModifications.create(
+                                MdibStateModifications.Type.COMPONENT).add(state(mdsHandle, MdsState.class)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Then expect one global sequence of MDIB versions that are distributed in order
+        var expectedMdibVersion = previousMdibVersion.getVersion().add(BigInteger.valueOf(2L * writesPerMds));
+        assertEquals(expectedMdibVersion, shardedMdibAccess.getMdibVersion().getVersion());
+        assertEquals(2 * writesPerMds, eventMdibVersions.size());
+        for (int i = 0; i < eventMdibVersions.size(); i++) {
+            assertEquals(previousMdibVersion.getVersion().add(BigInteger.valueOf(i + 1)), eventMdibVersions.get(i));
+        }
+        assertEquals(previousMds0StateVersion.add(BigInteger.valueOf(writesPerMds)),
+                shardedMdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion());
+        assertEquals(previousMds1StateVersion.add(BigInteger.valueOf(writesPerMds)),
+                shardedMdibAccess.getState(Handles.MDS_1).orElseThrow().getStateVersion());
+
+        // When modifications of both MDSs are written at once
+        shardedMdibAccess.writeDescription(MdibDescriptionModifications.create()
+                .insert(entry("vmd_3", VmdDescriptor.class, Handles.MDS_1))
+                .insert(entry(Handles.CHANNEL_2, ChannelDescriptor.class, Handles.VMD_1)));
+        shardedMdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(state(Handles.MDS_0, MdsState.class))
+                .add(state(Handles.MDS_1, MdsState.class)));
+
+        // Then expect each of them to be written with one MDIB version and read like an unsharded MDIB
+        assertEquals(expectedMdibVersion.add(BigInteger.TWO), shardedMdibAccess.getMdibVersion().getVersion());
+        assertEquals(previousMds1StateVersion.add(BigInteger.valueOf(writesPerMds + 2)),
+                shardedMdibAccess.getState(Handles.MDS_1).orElseThrow().getStateVersion());
+        assertEquals(Handles.VMD_1, shardedMdibAccess.getEntity(Handles.CHANNEL_2).orElseThrow()
+                .getParent().orElseThrow());
+        assertEquals(List.of(Handles.MDS_0, Handles.MDS_1), shardedMdibAccess.getRootEntities().stream()
+                .map(MdibEntity::getHandle).collect(Collectors.toList()));
+        assertEquals(mdibAccess.findEntitiesByType(AbstractDescriptor.class).size() + 2,
+                shardedMdibAccess.findEntitiesByType(AbstractDescriptor.class).size());
+        assertEquals(mdibAccess.getContextStates().size(), shardedMdibAccess.getContextStates().size());
+        assertTrue(shardedMdibAccess.getState(Handles.CONTEXT_0).isPresent());
+
+        // When states of unknown descriptors are written
+        // Then expect the modifications to be rejected without writing anything
+        assertThrows(PreprocessingException.class, () -> shardedMdibAccess.writeStates(
+                MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                        .add(state(Handles.MDS_0, MdsState.class))
+                        .add(state(Handles.UNKNOWN, MdsState.class))));
+        assertEquals(expectedMdibVersion.add(BigInteger.TWO), shardedMdibAccess.getMdibVersion().getVersion());
+
+        // When a batch of both MDSs fails preprocessing
+        assertThrows(PreprocessingException.class, () -> shardedMdibAccess.writeBatch(null, List.of(
+                MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                        .add(state(Handles.MDS_1, MdsState.class)),
+                MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                        .add(state(Handles.MDS_0, MdsState.class))
+                        .add(state(Handles.UNKNOWN, MdsState.class)))));
+
+        // Then expect nothing to be written
+        assertEquals(expectedMdibVersion.add(BigInteger.TWO), shardedMdibAccess.getMdibVersion().getVersion());
+
+        // When a batch inserts a descriptor and writes its state
+        var batchResult = shardedMdibAccess.writeBatch(MdibDescriptionModifications.create()
+                        .insert(entry("channel_3", ChannelDescriptor.class, Handles.VMD_0)),
+                List.of(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                        .add(state("channel_3", ChannelState.class))
+                        .add(state(Handles.MDS_1, MdsState.class))));
+
+        // Then expect both to be written with the versions that follow the last successful write
+        assertEquals(expectedMdibVersion.add(BigInteger.valueOf(3)), batchResult.getMdibVersion().getVersion());
+        assertEquals(BigInteger.ONE, shardedMdibAccess.getState("channel_3").orElseThrow().getStateVersion());
+        assertEquals(previousMds1StateVersion.add(BigInteger.valueOf(writesPerMds + 3)),
+                shardedMdibAccess.getState(Handles.MDS_1).orElseThrow().getStateVersion());
+    }
+
+    @Test
+    void writeBatch() throws Exception {
+        // Given a local mdib access with a base tree
+        mdibAccess.writeDescription(setupBaseTree());
+        var previousMdibVersion = mdibAccess.getMdibVersion();
+        var previousMdDescriptionVersion = mdibAccess.getMdDescriptionVersion();
+        var previousMdStateVersion = mdibAccess.getMdStateVersion();
+        var previousMdsStateVersion = mdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion();
+        MdibAccessObserverSpy updatesSpy = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(updatesSpy);
+
+        // When a description modification and several state modifications are written as one batch
+        var result = mdibAccess.writeBatch(
+                MdibDescriptionModifications.create().insert(entry(Handles.CHANNEL_2, ChannelDescriptor.class, Handles.VMD_1)),
+                List.of(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                                .add(state(Handles.MDS_0, MdsState.class)),
+                        MdibStateModifications.create(MdibStateModifications.Type.METRIC)
+                                .add(state(Handles.METRIC_0, NumericMetricState.class)),
+                        MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                                .add(state(Handles.MDS_0, MdsState.class))
+                                .add(state(Handles.CHANNEL_2, ChannelState.class))));
+
+        // Then expect all modifications to share one MDIB version
+        var expectedMdibVersion = MdibVersion.increment(previousMdibVersion);
+        assertEquals(expectedMdibVersion, result.getMdibVersion());
+        assertEquals(expectedMdibVersion, mdibAccess.getMdibVersion());
+        assertEquals(previousMdDescriptionVersion.add(BigInteger.ONE), mdibAccess.getMdDescriptionVersion());
+        assertEquals(previousMdStateVersion.add(BigInteger.ONE), mdibAccess.getMdStateVersion());
+        assertEquals(expectedMdibVersion, result.getDescriptionResult().orElseThrow().getMdibVersion());
+        assertEquals(3, result.getStateResults().size());
+        result.getStateResults().forEach(stateResult -> assertEquals(expectedMdibVersion, stateResult.getMdibVersion()));
+        assertTrue(mdibAccess.getEntity(Handles.CHANNEL_2).isPresent());
+
+        // Then expect modifications of the same handle to be versioned one after another
+        assertEquals(previousMdsStateVersion.add(BigInteger.TWO),
+                mdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion());
+
+        // Then expect one event per modification set in the order of the batch
+        assertTrue(updatesSpy.waitForNumberOfRecordedMessages(4, Duration.ofSeconds(10)));
+        var messages = updatesSpy.getRecordedMessages();
+        assertTrue(messages.get(0) instanceof DescriptionModificationMessage);
+        assertTrue(messages.get(1) instanceof ComponentStateModificationMessage);
+        assertTrue(messages.get(2) instanceof MetricStateModificationMessage);
+        assertTrue(messages.get(3) instanceof ComponentStateModificationMessage);
+    }
+
+    @Test
+    void writeBatchWithPreprocessingError() throws Exception {
+        // Given a local mdib access with a base tree
+        mdibAccess.writeDescription(setupBaseTree());
+        var previousMdibVersion = mdibAccess.getMdibVersion();
+        var previousMdsStateVersion = mdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion();
+        MdibAccessObserverSpy updatesSpy = new MdibAccessObserverSpy();
+        mdibAccess.registerObserver(updatesSpy);
+
+        // When the second modification set of a batch fails preprocessing
+        var unknownContextState = MockModelFactory.createContextState(Handles.CONTEXT_0, Handles.UNKNOWN,
+                PatientContextState.class);
+        assertThrows(PreprocessingException.class, () -> mdibAccess.writeBatch(null, List.of(
+                MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                        .add(state(Handles.MDS_0, MdsState.class)),
+                MdibStateModifications.create(MdibStateModifications.Type.CONTEXT)
+                        .add(unknownContextState))));
+
+        // Then expect none of the modification sets to be written and distributed
+        assertEquals(previousMdibVersion, mdibAccess.getMdibVersion());
+        assertEquals(previousMdsStateVersion, mdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion());
+        assertTrue(updatesSpy.getRecordedMessages().isEmpty());
+
+        // And expect the next write to continue with the versions before the batch
+        var result = mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.COMPONENT)
+                .add(state(Handles.MDS_0, MdsState.class)));
+        assertEquals(MdibVersion.increment(previousMdibVersion), result.getMdibVersion());
+        assertEquals(previousMdsStateVersion.add(BigInteger.ONE),
+                mdibAccess.getState(Handles.MDS_0).orElseThrow().getStateVersion());
+        assertTrue(updatesSpy.waitForNumberOfRecordedMessages(1, Duration.ofSeconds(10)));
+        assertTrue(updatesSpy.getRecordedMessages().get(0) instanceof ComponentStateModificationMessage);
+    }
+
     @Test
     void insertUpdateDelete() throws Exception {
         // Given a local mdib access with an initialized base tree
@@ -359,4 +874,13 @@ class LocalMdibAccessImplTest {
     private <T extends AbstractState> T state(String handle, Class<T> theClass) {
         return MockModelFactory.createState(handle, theClass);
     }
+
+    private RealTimeSampleArrayMetricState waveformState(Instant determinationTime, long... samples) {
+        var state = state(Handles.METRIC_3, RealTimeSampleArrayMetricState.class);
+        var metricValue = new SampleArrayValue();
+        metricValue.setDeterminationTime(determinationTime);
+        metricValue.setSamples(Arrays.stream(samples).mapToObj(BigDecimal::valueOf).collect(Collectors.toList()));
+        state.setMetricValue(metricValue);
+        return state;
+    }
 }
\ No newline at end of file
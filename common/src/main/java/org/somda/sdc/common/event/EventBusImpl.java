@@ -1,49 +1,278 @@
 package org.somda.sdc.common.event;
 
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
 import com.google.inject.Inject;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Set;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Default implementation of {@linkplain EventBus}.
+ * <p>
+ * Subscribers are methods annotated with {@link Subscribe} that are dispatched with the semantics of Guava's
+ * {@link com.google.common.eventbus.EventBus}, but without reflection on the dispatch path:
+ * <ul>
+ * <li>the subscriber methods of a class are looked up once and compiled to {@linkplain MethodHandle}s,
+ * <li>the subscribers of an event type including its supertypes are resolved once per registration change,
+ * <li>subscriber methods are only synchronized if they are not annotated with {@link AllowConcurrentEvents}.
+ * </ul>
+ * Events posted by a subscriber are dispatched after the current event has been delivered to all subscribers, events
+ * without subscribers are posted as {@linkplain DeadEvent}, and exceptions thrown by subscribers are logged.
  */
 public class EventBusImpl implements EventBus {
-    private final com.google.common.eventbus.EventBus guiceEventBus;
+    private static final Logger LOG = LogManager.getLogger(EventBusImpl.class);
+    private static final String IDENTIFIER = "default";
+    private static final MethodType SUBSCRIBER_METHOD_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
 
-    private final Set<Object> subscribers;
+    private static final ClassValue<List<SubscriberMethod>> SUBSCRIBER_METHODS = new ClassValue<>() {
+        @Override
+        protected List<SubscriberMethod> computeValue(Class<?> type) {
+            return findSubscriberMethods(type);
+        }
+    };
+
+    private static final ClassValue<List<Class<?>>> EVENT_TYPES = new ClassValue<>() {
+        @Override
+        protected List<Class<?>> computeValue(Class<?> type) {
+            return List.copyOf(TypeToken.of(type).getTypes().rawTypes());
+        }
+    };
+
+    private final List<Subscriber> subscribers;
+    private final Map<Object, List<Subscriber>> subscribersByObject;
+    private final ThreadLocal<Deque<QueuedEvent>> queuedEvents;
+    private volatile Registry registry;
 
     @Inject
     EventBusImpl() {
-        this.guiceEventBus = new com.google.common.eventbus.EventBus();
-        this.subscribers = new HashSet<>();
+        this.subscribers = new ArrayList<>();
+        this.subscribersByObject = new IdentityHashMap<>();
+        this.queuedEvents = new ThreadLocal<>();
+        this.registry = new Registry(Collections.emptyList());
     }
 
     @Override
     public String identifier() {
-        return guiceEventBus.identifier();
+        return IDENTIFIER;
     }
 
     @Override
     public synchronized void register(Object object) {
-        guiceEventBus.register(object);
-        subscribers.add(object);
+        if (subscribersByObject.containsKey(object)) {
+            return;
+        }
+
+        var objectSubscribers = new ArrayList<Subscriber>();
+        for (SubscriberMethod method : SUBSCRIBER_METHODS.get(object.getClass())) {
+            objectSubscribers.add(new Subscriber(object, method));
+        }
+        subscribersByObject.put(object, objectSubscribers);
+        subscribers.addAll(objectSubscribers);
+        registry = new Registry(subscribers);
     }
 
     @Override
     public synchronized void unregister(Object object) {
-        guiceEventBus.unregister(object);
-        subscribers.remove(object);
+        var objectSubscribers = subscribersByObject.remove(object);
+        if (objectSubscribers == null) {
+            if (SUBSCRIBER_METHODS.get(object.getClass()).isEmpty()) {
+                return;
+            }
+            throw new IllegalArgumentException(String.format(
+                    "missing event subscriber for an annotated method. Is %s registered?", object));
+        }
+
+        subscribers.removeAll(objectSubscribers);
+        registry = new Registry(subscribers);
     }
 
     @Override
     public synchronized void unregisterAll() {
-        subscribers.forEach(guiceEventBus::unregister);
+        subscribersByObject.clear();
         subscribers.clear();
+        registry = new Registry(subscribers);
     }
 
     @Override
     public void post(Object event) {
-        guiceEventBus.post(event);
+        var eventSubscribers = registry.resolve(event.getClass());
+        if (eventSubscribers.length == 0) {
+            if (!(event instanceof DeadEvent)) {
+                post(new DeadEvent(this, event));
+            }
+            return;
+        }
+
+        var queue = queuedEvents.get();
+        if (queue != null) {
+            // posted by a subscriber, hence delivered once the current event has been delivered to all subscribers
+            queue.addLast(new QueuedEvent(event, eventSubscribers));
+            return;
+        }
+
+        queue = new ArrayDeque<>();
+        queuedEvents.set(queue);
+        try {
+            dispatch(event, eventSubscribers);
+            while (!queue.isEmpty()) {
+                var queuedEvent = queue.pollFirst();
+                dispatch(queuedEvent.event, queuedEvent.subscribers);
+            }
+        } finally {
+            queuedEvents.remove();
+        }
+    }
+
+    private static void dispatch(Object event, Subscriber[] eventSubscribers) {
+        for (Subscriber subscriber : eventSubscribers) {
+            subscriber.dispatch(event);
+        }
+    }
+
+    private static List<SubscriberMethod> findSubscriberMethods(Class<?> type) {
+        var methods = new ArrayList<SubscriberMethod>();
+        // overridden methods are only subscribed once, by means of the most specific declaration
+        var signatures = new HashSet<List<Object>>();
+        for (Class<?> supertype : TypeToken.of(type).getTypes().rawTypes()) {
+            for (Method method : supertype.getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(Subscribe.class) || method.isSynthetic()) {
+                    continue;
+                }
+
+                var parameterTypes = method.getParameterTypes();
+                if (parameterTypes.length != 1) {
+                    throw new IllegalArgumentException(String.format(
+                            "Method %s has @Subscribe annotation but has %s parameters. "
+                                    + "Subscriber methods must have exactly 1 parameter.",
+                            method, parameterTypes.length));
+                }
+                if (parameterTypes[0].isPrimitive()) {
+                    throw new IllegalArgumentException(String.format(
+                            "@Subscribe method %s's parameter is %s. Subscriber methods cannot accept primitives.",
+                            method, parameterTypes[0].getName()));
+                }
+                if (signatures.add(List.of(method.getName(), Arrays.asList(parameterTypes)))) {
+                    methods.add(new SubscriberMethod(method));
+                }
+            }
+        }
+        return List.copyOf(methods);
+    }
+
+    /**
+     * Subscriber method of a class, compiled to a method handle that accepts the target and the event as objects.
+     */
+    private static final class SubscriberMethod {
+        private final String name;
+        private final Class<?> eventType;
+        private final MethodHandle handle;
+        private final boolean synchronize;
+
+        SubscriberMethod(Method method) {
+            this.name = method.toString();
+            this.eventType = method.getParameterTypes()[0];
+            this.synchronize = !method.isAnnotationPresent(AllowConcurrentEvents.class);
+            try {
+                method.setAccessible(true);
+                var methodHandle = MethodHandles.lookup().unreflect(method);
+                if (Modifier.isStatic(method.getModifiers())) {
+                    methodHandle = MethodHandles.dropArguments(methodHandle, 0, Object.class);
+                }
+                this.handle = methodHandle.asType(SUBSCRIBER_METHOD_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(String.format("Subscriber method %s is not accessible", method), e);
+            }
+        }
+    }
+
+    /**
+     * Subscriber method bound to a registered object.
+     */
+    private static final class Subscriber {
+        private final Object target;
+        private final SubscriberMethod method;
+
+        Subscriber(Object target, SubscriberMethod method) {
+            this.target = target;
+            this.method = method;
+        }
+
+        void dispatch(Object event) {
+            if (method.synchronize) {
+                synchronized (this) {
+                    invoke(event);
+                }
+            } else {
+                invoke(event);
+            }
+        }
+
+        private void invoke(Object event) {
+            try {
+                method.handle.invokeExact(target, event);
+                // CHECKSTYLE.OFF: IllegalCatch
+            } catch (Throwable e) {
+                // CHECKSTYLE.ON: IllegalCatch
+                LOG.error("Exception thrown by subscriber method {} on subscriber {} when dispatching event {}",
+                        method.name, target, event, e);
+            }
+        }
+    }
+
+    /**
+     * Immutable lookup of the subscribers of an event type, which is replaced on every registration change.
+     */
+    private static final class Registry {
+        private final Map<Class<?>, List<Subscriber>> subscribersByEventType;
+        private final Map<Class<?>, Subscriber[]> resolvedSubscribers;
+
+        Registry(List<Subscriber> subscribers) {
+            this.subscribersByEventType = new HashMap<>();
+            for (Subscriber subscriber : subscribers) {
+                subscribersByEventType.computeIfAbsent(subscriber.method.eventType, key -> new ArrayList<>())
+                        .add(subscriber);
+            }
+            this.resolvedSubscribers = new ConcurrentHashMap<>();
+        }
+
+        Subscriber[] resolve(Class<?> eventClass) {
+            return resolvedSubscribers.computeIfAbsent(eventClass, key -> {
+                var result = new ArrayList<Subscriber>();
+                for (Class<?> eventType : EVENT_TYPES.get(key)) {
+                    result.addAll(subscribersByEventType.getOrDefault(eventType, Collections.emptyList()));
+                }
+                return result.toArray(new Subscriber[0]);
+            });
+        }
+    }
+
+    private static final class QueuedEvent {
+        private final Object event;
+        private final Subscriber[] subscribers;
+
+        QueuedEvent(Object event, Subscriber[] subscribers) {
+            this.event = event;
+            this.subscribers = subscribers;
+        }
     }
 }
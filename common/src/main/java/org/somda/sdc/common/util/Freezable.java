@@ -0,0 +1,30 @@
+package org.somda.sdc.common.util;
+
+/**
+ * Object that can be made immutable at runtime.
+ * <p>
+ * Once an object is frozen, any attempt to modify it by using its setters throws an
+ * {@linkplain UnsupportedOperationException}.
+ * Freezing is irreversible; a modifiable version of a frozen object can be obtained by copying it, e.g., by using
+ * {@linkplain ObjectUtil#deepCopy(Object)}, as copies are never frozen.
+ * <p>
+ * Freezable classes of the SDCri models are generated by the XJC {@code -Xfreezable} plugin.
+ */
+public interface Freezable {
+    /**
+     * Freezes this object and all nested freezable objects.
+     * <p>
+     * Lists are replaced by unmodifiable views.
+     * Calling this function on an object that is already frozen has no effect.
+     * <p>
+     * <em>Attention: freezing is not thread-safe. Objects need to be frozen before they are shared.</em>
+     */
+    void freeze();
+
+    /**
+     * Checks if this object is frozen.
+     *
+     * @return true if {@link #freeze()} has been called on this object or one of its containers, false otherwise.
+     */
+    boolean isFrozen();
+}
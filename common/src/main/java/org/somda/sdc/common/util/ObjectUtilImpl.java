@@ -4,27 +4,123 @@ import com.google.inject.Inject;
 import com.rits.cloning.Cloner;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
+import org.jvnet.jaxb2_commons.lang.CopyTo2;
+import org.jvnet.jaxb2_commons.lang.JAXBCopyStrategy;
+import org.jvnet.jaxb2_commons.locator.ObjectLocator;
 
 import javax.annotation.Nullable;
+import javax.xml.bind.annotation.XmlAnyAttribute;
+import javax.xml.namespace.QName;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Default implementation of {@linkplain ObjectUtil}.
+ * <p>
+ * Objects of classes generated with the JAXB copyable plugin ({@code -Xcopyable}) are copied by using the generated,
+ * type-specialized copy code, which does not require any reflection.
+ * Objects of any other class are copied by using {@linkplain Cloner} as a fallback.
  */
 public class ObjectUtilImpl implements ObjectUtil {
     private static final Logger LOG = LogManager.getLogger(ObjectUtilImpl.class);
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = Set.of(
+            String.class, Boolean.class, Character.class, QName.class, AnyDateTime.class,
+            Duration.class, Instant.class, LocalDateTime.class, OffsetDateTime.class);
+
+    /*
+     * Resolved once per class, as repeated instanceof checks against interfaces dominate the copy time otherwise.
+     */
+    private static final ClassValue<CopyKind> COPY_KIND = new ClassValue<>() {
+        @Override
+        protected CopyKind computeValue(Class<?> type) {
+            if (Number.class.isAssignableFrom(type)
+                    || Enum.class.isAssignableFrom(type)
+                    || SampleList.class.isAssignableFrom(type)
+                    || IMMUTABLE_TYPES.contains(type)) {
+                return CopyKind.SHARED;
+            }
+            if (CopyTo2.class.isAssignableFrom(type)) {
+                return hasAnyAttributes(type) ? CopyKind.CLONED : CopyKind.GENERATED;
+            }
+            if (List.class.isAssignableFrom(type)) {
+                return CopyKind.LIST;
+            }
+            return CopyKind.CLONED;
+        }
+    };
+
     private final Cloner cloner;
+    private final FallbackCopyStrategy copyStrategy;
 
     @Inject
     ObjectUtilImpl(Cloner cloner) {
         this.cloner = cloner;
+        this.copyStrategy = new FallbackCopyStrategy();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T deepCopy(@Nullable T obj) {
         if (obj == null) {
             return null;
         }
 
+        if (COPY_KIND.get(obj.getClass()) != CopyKind.CLONED) {
+            return (T) copyStrategy.copy(null, obj);
+        }
+
         return cloner.deepClone(obj);
     }
+
+    /*
+     * The copyable plugin does not copy attribute wildcards, hence such classes are copied by using the cloner.
+     */
+    private static boolean hasAnyAttributes(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(XmlAnyAttribute.class)) {
+                    LOG.debug("Generated copy code of {} does not support attribute wildcards, use cloner", type);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private enum CopyKind {
+        SHARED, GENERATED, LIST, CLONED
+    }
+
+    /**
+     * Copy strategy used by generated code to copy nested objects.
+     * <p>
+     * Dispatches to generated copy code and copies lists as the {@linkplain JAXBCopyStrategy} does, but deep copies
+     * any other mutable objects (e.g., DOM nodes of extensions) by using the cloner instead of sharing references.
+     * {@linkplain SampleList}s are immutable and hence shared.
+     */
+    private class FallbackCopyStrategy extends JAXBCopyStrategy {
+        @Override
+        protected Object copyInternal(ObjectLocator locator, Object object) {
+            if (object == null) {
+                return null;
+            }
+            switch (COPY_KIND.get(object.getClass())) {
+                case SHARED:
+                    return object;
+                case GENERATED:
+                    var copyable = (CopyTo2) object;
+                    return copyable.copyTo(locator, copyable.createNewInstance(), this);
+                case LIST:
+                    return copyInternal(locator, (List<?>) object);
+                default:
+                    return cloner.deepClone(object);
+            }
+        }
+    }
 }
\ No newline at end of file
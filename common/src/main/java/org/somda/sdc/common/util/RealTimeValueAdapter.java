@@ -0,0 +1,203 @@
+package org.somda.sdc.common.util;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter class to convert Participant Model real-time value lists to Java lists of decimals and vice versa.
+ * <p>
+ * A real-time value list is a whitespace-separated list of decimals, e.g., the samples of a waveform.
+ * {@linkplain SampleList}s are marshalled without creating any intermediate {@linkplain BigDecimal}, all other lists
+ * are marshalled like JAXB does for decimals.
+ * <p>
+ * By default, lists are unmarshalled to {@linkplain BigDecimal}s that retain the exact decimal representation.
+ * An adapter instance that is created with {@code unmarshalToSampleList} set to true unmarshals lists to
+ * {@linkplain SampleList}s instead, which is supposed to be configured on unmarshallers by using
+ * {@link javax.xml.bind.Unmarshaller#setAdapter(XmlAdapter)}.
+ */
+public class RealTimeValueAdapter extends XmlAdapter<String, List<BigDecimal>> {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_FAST_PATH_DIGITS = 18;
+    private static final double MAX_PLAIN_INTEGER = 1e15;
+
+    private final boolean unmarshalToSampleList;
+
+    /**
+     * Creates an adapter that unmarshals to {@linkplain BigDecimal}s.
+     */
+    public RealTimeValueAdapter() {
+        this(false);
+    }
+
+    /**
+     * Creates an adapter.
+     *
+     * @param unmarshalToSampleList true to unmarshal to {@linkplain SampleList}s, false to unmarshal to lists of
+     *                              {@linkplain BigDecimal}s.
+     */
+    public RealTimeValueAdapter(boolean unmarshalToSampleList) {
+        this.unmarshalToSampleList = unmarshalToSampleList;
+    }
+
+    @Override
+    public List<BigDecimal> unmarshal(String v) {
+        if (v == null) {
+            return null;
+        }
+        return unmarshalToSampleList ? parseSamples(v) : parseDecimals(v);
+    }
+
+    @Override
+    public String marshal(List<BigDecimal> v) {
+        if (v == null) {
+            return null;
+        }
+
+        var builder = new StringBuilder(v.size() * 8);
+        if (v instanceof SampleList) {
+            var samples = (SampleList) v;
+            for (int i = 0; i < samples.size(); i++) {
+                if (i > 0) {
+                    builder.append(' ');
+                }
+                appendDecimal(builder, samples.getDouble(i));
+            }
+        } else {
+            for (BigDecimal decimal : v) {
+                if (builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append(decimal.toPlainString());
+            }
+        }
+        return builder.toString();
+    }
+
+    private static List<BigDecimal> parseDecimals(String v) {
+        var decimals = new ArrayList<BigDecimal>();
+        forEachToken(v, (start, end) -> decimals.add(new BigDecimal(v.substring(start, end))));
+        return decimals;
+    }
+
+    private static List<BigDecimal> parseSamples(String v) {
+        var count = new int[1];
+        forEachToken(v, (start, end) -> count[0]++);
+        var samples = new double[count[0]];
+        var index = new int[1];
+        forEachToken(v, (start, end) -> samples[index[0]++] = parseDouble(v, start, end));
+        return SampleList.wrap(samples);
+    }
+
+    /**
+     * Parses a decimal without creating intermediate objects if it has up to 15 significant digits and up to 22
+     * fractional digits, in which case the result is exact as it only requires one rounding.
+     * <p>
+     * Tokens are validated against the lexical space of xs:decimal in any case, i.e., exponents, type suffixes and
+     * hexadecimal notations that are accepted by {@link Double#parseDouble(String)} are rejected.
+     */
+    private static double parseDouble(String v, int start, int end) {
+        var index = start;
+        var negative = false;
+        if (v.charAt(index) == '-' || v.charAt(index) == '+') {
+            negative = v.charAt(index) == '-';
+            index++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean anyDigit = false;
+        boolean slowPath = false;
+        for (; index < end; index++) {
+            var c = v.charAt(index);
+            if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (digits == MAX_FAST_PATH_DIGITS) {
+                    // keep on validating the remaining characters
+                    slowPath = true;
+                    continue;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (fraction) {
+                    scale++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                throw notADecimal(v, start, end);
+            }
+        }
+
+        if (!anyDigit) {
+            throw notADecimal(v, start, end);
+        }
+        if (slowPath || mantissa >= MAX_EXACT_MANTISSA || scale >= POWERS_OF_TEN.length) {
+            return parseDoubleSlow(v, start, end);
+        }
+        var value = mantissa / POWERS_OF_TEN[scale];
+        // there is no negative zero decimal
+        return negative ? 0.0 - value : value;
+    }
+
+    private static double parseDoubleSlow(String v, int start, int end) {
+        // the token has been validated already, hence Double.parseDouble() only needs to round
+        var value = Double.parseDouble(v.substring(start, end));
+        if (!Double.isFinite(value)) {
+            throw notADecimal(v, start, end);
+        }
+        return value + 0.0;
+    }
+
+    private static NumberFormatException notADecimal(String v, int start, int end) {
+        return new NumberFormatException(String.format("%s is not a decimal", v.substring(start, end)));
+    }
+
+    private static void appendDecimal(StringBuilder builder, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < MAX_PLAIN_INTEGER) {
+            builder.append((long) value);
+            return;
+        }
+
+        var start = builder.length();
+        builder.append(value);
+        for (int i = start; i < builder.length(); i++) {
+            if (builder.charAt(i) == 'E') {
+                // decimals do not support the scientific notation
+                builder.setLength(start);
+                builder.append(BigDecimal.valueOf(value).stripTrailingZeros().toPlainString());
+                return;
+            }
+        }
+    }
+
+    private static void forEachToken(String v, TokenConsumer consumer) {
+        var length = v.length();
+        var index = 0;
+        while (index < length) {
+            while (index < length && v.charAt(index) <= ' ') {
+                index++;
+            }
+            var start = index;
+            while (index < length && v.charAt(index) > ' ') {
+                index++;
+            }
+            if (index > start) {
+                consumer.accept(start, index);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface TokenConsumer {
+        void accept(int start, int end);
+    }
+}
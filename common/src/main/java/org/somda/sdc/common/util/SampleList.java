@@ -0,0 +1,234 @@
+package org.somda.sdc.common.util;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of decimal samples that is backed by a primitive double array.
+ * <p>
+ * The list is meant to carry real-time samples (e.g., waveforms) through the {@code List<BigDecimal>} properties of
+ * the BICEPS model without creating one {@linkplain BigDecimal} per sample: samples are marshalled from and
+ * unmarshalled to the primitive array by the {@linkplain RealTimeValueAdapter}, and read by using
+ * {@link #getDouble(int)} or {@link #toDoubleArray(List)}.
+ * {@linkplain BigDecimal}s are only created on demand if the list is accessed by {@link #get(int)}.
+ * Alternatively to the primitive array, a sample list can read its samples from a {@linkplain Source}, see
+ * {@link #ofSource(int, Source)}.
+ * <p>
+ * As the list cannot be modified, it is always frozen and shared instead of copied by
+ * {@linkplain ObjectUtil#deepCopy(Object)}.
+ * Note that {@linkplain BigDecimal}s created from a sample list have the smallest scale that represents the double,
+ * hence they are only equal to other {@linkplain BigDecimal}s in terms of {@link BigDecimal#compareTo(BigDecimal)}.
+ */
+public final class SampleList extends AbstractList<BigDecimal> implements RandomAccess, Freezable {
+    private static final SampleList EMPTY = new SampleList(new double[0]);
+
+    // either samples or source is null
+    private final double[] samples;
+    private final Source source;
+    private final int size;
+
+    private SampleList(double[] samples) {
+        this.samples = samples;
+        this.source = null;
+        this.size = samples.length;
+    }
+
+    private SampleList(int size, Source source) {
+        this.samples = null;
+        this.source = source;
+        this.size = size;
+    }
+
+    /**
+     * Creates a sample list from doubles.
+     *
+     * @param samples the samples, which are copied.
+     * @return a new sample list.
+     * @throws IllegalArgumentException if any sample is not finite, as it cannot be represented as a decimal.
+     */
+    public static SampleList ofDoubles(double... samples) {
+        var doubles = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            doubles[i] = requireFinite(samples[i]);
+        }
+        return new SampleList(doubles);
+    }
+
+    /**
+     * Creates a sample list from floats.
+     *
+     * @param samples the samples, which are converted to doubles.
+     * @return a new sample list.
+     * @throws IllegalArgumentException if any sample is not finite, as it cannot be represented as a decimal.
+     */
+    public static SampleList ofFloats(float... samples) {
+        var doubles = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            doubles[i] = requireFinite(samples[i]);
+        }
+        return new SampleList(doubles);
+    }
+
+    /**
+     * Creates a sample list that reads every sample from a source when it is accessed.
+     * <p>
+     * The samples are neither copied nor cached, which allows storing samples outside of the Java heap.
+     *
+     * @param size   the number of samples.
+     * @param source the source of the samples, which has to return the same finite sample for an index on every read.
+     * @return a new sample list.
+     */
+    public static SampleList ofSource(int size, Source source) {
+        if (size < 0) {
+            throw new IllegalArgumentException(String.format("Negative size %s", size));
+        }
+        return size == 0 ? EMPTY : new SampleList(size, Objects.requireNonNull(source));
+    }
+
+    /**
+     * Creates a sample list without copying the given array.
+     *
+     * @param samples finite samples that are not modified afterwards.
+     * @return a new sample list.
+     */
+    static SampleList wrap(double[] samples) {
+        return samples.length == 0 ? EMPTY : new SampleList(samples);
+    }
+
+    /**
+     * Converts any list of decimals to doubles.
+     * <p>
+     * If {@code samples} is a sample list, the primitive array is copied without creating any
+     * {@linkplain BigDecimal}.
+     *
+     * @param samples the samples to convert.
+     * @return the samples as doubles.
+     */
+    public static double[] toDoubleArray(List<BigDecimal> samples) {
+        if (samples instanceof SampleList) {
+            return ((SampleList) samples).toDoubleArray();
+        }
+        var doubles = new double[samples.size()];
+        for (int i = 0; i < doubles.length; i++) {
+            doubles[i] = samples.get(i).doubleValue();
+        }
+        return doubles;
+    }
+
+    /**
+     * Converts any list of decimals to floats.
+     *
+     * @param samples the samples to convert.
+     * @return the samples as floats, which may lose precision.
+     * @see #toDoubleArray(List)
+     */
+    public static float[] toFloatArray(List<BigDecimal> samples) {
+        var floats = new float[samples.size()];
+        if (samples instanceof SampleList) {
+            var sampleList = (SampleList) samples;
+            for (int i = 0; i < floats.length; i++) {
+                floats[i] = (float) sampleList.getDouble(i);
+            }
+        } else {
+            for (int i = 0; i < floats.length; i++) {
+                floats[i] = samples.get(i).floatValue();
+            }
+        }
+        return floats;
+    }
+
+    /**
+     * Gets a sample as double.
+     *
+     * @param index the index of the sample.
+     * @return the sample.
+     * @throws IndexOutOfBoundsException if {@code index} is out of range.
+     */
+    public double getDouble(int index) {
+        if (samples != null) {
+            return samples[index];
+        }
+        return source.getDouble(Objects.checkIndex(index, size));
+    }
+
+    @Override
+    public BigDecimal get(int index) {
+        return BigDecimal.valueOf(getDouble(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Does nothing as sample lists cannot be modified.
+     */
+    @Override
+    public void freeze() {
+        // immutable by design
+    }
+
+    /**
+     * Checks if this object is frozen.
+     *
+     * @return always true.
+     */
+    @Override
+    public boolean isFrozen() {
+        return true;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof SampleList) {
+            var other = (SampleList) o;
+            if (samples != null && other.samples != null) {
+                return Arrays.equals(samples, other.samples);
+            }
+            return Arrays.equals(toDoubleArray(), other.toDoubleArray());
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private double[] toDoubleArray() {
+        if (samples != null) {
+            return samples.clone();
+        }
+        var doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = source.getDouble(i);
+        }
+        return doubles;
+    }
+
+    private static double requireFinite(double sample) {
+        if (!Double.isFinite(sample)) {
+            throw new IllegalArgumentException(String.format("Sample %s is not a decimal", sample));
+        }
+        // there is no negative zero decimal
+        return sample + 0.0;
+    }
+
+    /**
+     * Source of the samples of a sample list that is created by {@link #ofSource(int, Source)}.
+     */
+    public interface Source {
+        /**
+         * Reads a sample.
+         *
+         * @param index the index of the sample, which is within the size of the sample list.
+         * @return the sample.
+         */
+        double getDouble(int index);
+    }
+}
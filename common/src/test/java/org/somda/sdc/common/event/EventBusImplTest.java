@@ -0,0 +1,138 @@
+package org.somda.sdc.common.event;
+
+import com.google.common.eventbus.DeadEvent;
+import com.google.common.eventbus.Subscribe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventBusImplTest {
+    private EventBusImpl eventBus;
+
+    @BeforeEach
+    void beforeEach() {
+        eventBus = new EventBusImpl();
+    }
+
+    @Test
+    void dispatchToSupertypes() {
+        var observer = new Observer();
+        eventBus.register(observer);
+        eventBus.register(observer);
+
+        eventBus.post("event");
+        eventBus.post(42);
+
+        assertEquals(List.of("string:event", "object:event", "object:42"), observer.received);
+    }
+
+    @Test
+    void overriddenSubscriberIsCalledOnce() {
+        var observer = new DerivedObserver();
+        eventBus.register(observer);
+
+        eventBus.post("event");
+
+        assertEquals(List.of("derived:event", "object:event"), observer.received);
+    }
+
+    @Test
+    void nestedEventsAreQueued() {
+        var received = new ArrayList<String>();
+        eventBus.register(new Object() {
+            @Subscribe
+            void onString(String event) {
+                received.add("first:" + event);
+                if (event.equals("outer")) {
+                    eventBus.post("inner");
+                }
+            }
+        });
+        eventBus.register(new Object() {
+            @Subscribe
+            void onString(String event) {
+                received.add("second:" + event);
+            }
+        });
+
+        eventBus.post("outer");
+
+        assertEquals(List.of("first:outer", "second:outer", "first:inner", "second:inner"), received);
+    }
+
+    @Test
+    void deadEvent() {
+        var deadEvents = new ArrayList<Object>();
+        eventBus.register(new Object() {
+            @Subscribe
+            void onDeadEvent(DeadEvent event) {
+                deadEvents.add(event.getEvent());
+            }
+        });
+
+        eventBus.post("event");
+
+        assertEquals(List.of("event"), deadEvents);
+    }
+
+    @Test
+    void exceptionDoesNotAffectOtherSubscribers() {
+        var observer = new Observer();
+        eventBus.register(new Object() {
+            @Subscribe
+            void onString(String event) {
+                throw new IllegalStateException("expected");
+            }
+        });
+        eventBus.register(observer);
+
+        eventBus.post("event");
+
+        assertEquals(List.of("string:event", "object:event"), observer.received);
+    }
+
+    @Test
+    void unregister() {
+        var observer = new Observer();
+        var otherObserver = new Observer();
+        eventBus.register(observer);
+        eventBus.register(otherObserver);
+
+        eventBus.unregister(observer);
+        eventBus.post("first");
+        eventBus.unregisterAll();
+        eventBus.post("second");
+
+        assertTrue(observer.received.isEmpty());
+        assertEquals(List.of("string:first", "object:first"), otherObserver.received);
+        assertThrows(IllegalArgumentException.class, () -> eventBus.unregister(observer));
+    }
+
+    static class Observer {
+        final List<String> received = new ArrayList<>();
+
+        @Subscribe
+        void onString(String event) {
+            received.add("string:" + event);
+        }
+
+        @Subscribe
+        void onObject(Object event) {
+            received.add("object:" + event);
+        }
+    }
+
+    static class DerivedObserver extends Observer {
+        @Subscribe
+        @Override
+        void onString(String event) {
+            received.add("derived:" + event);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.somda.sdc.common.util;
+
+import org.jvnet.jaxb2_commons.lang.CopyStrategy2;
+import org.jvnet.jaxb2_commons.lang.CopyTo2;
+import org.jvnet.jaxb2_commons.lang.JAXBCopyStrategy;
+import org.jvnet.jaxb2_commons.locator.ObjectLocator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mimics code generated by the JAXB copyable plugin.
+ */
+public class CopyablePojoClass implements CopyTo2 {
+    private String str;
+    private StandalonePojoClass pojo;
+    private List<CopyablePojoClass> children = new ArrayList<>();
+    private int copyToCalls;
+
+    public CopyablePojoClass() {
+    }
+
+    public CopyablePojoClass(String str, StandalonePojoClass pojo) {
+        this.str = str;
+        this.pojo = pojo;
+    }
+
+    public String getStr() {
+        return str;
+    }
+
+    public void setStr(String str) {
+        this.str = str;
+    }
+
+    public StandalonePojoClass getPojo() {
+        return pojo;
+    }
+
+    public List<CopyablePojoClass> getChildren() {
+        return children;
+    }
+
+    public int getCopyToCalls() {
+        return copyToCalls;
+    }
+
+    @Override
+    public Object createNewInstance() {
+        return new CopyablePojoClass();
+    }
+
+    @Override
+    public Object copyTo(Object target) {
+        return copyTo(null, target, JAXBCopyStrategy.INSTANCE2);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object copyTo(ObjectLocator locator, Object target, CopyStrategy2 strategy) {
+        copyToCalls++;
+        var copy = (CopyablePojoClass) target;
+        copy.str = (String) strategy.copy(locator, str, str != null);
+        copy.pojo = (StandalonePojoClass) strategy.copy(locator, pojo, pojo != null);
+        copy.children = (List<CopyablePojoClass>) strategy.copy(locator, children, true);
+        return copy;
+    }
+}
@@ -58,4 +58,44 @@ class ObjectUtilImplTest {
 
         assertThat(listCpy.get(1).getStr(), is("test2"));
     }
+
+    @Test
+    void deepCopyWithGeneratedCode() {
+        var child = new CopyablePojoClass("child", new StandalonePojoClass("childPojo", 1, new ArrayList<>()));
+        var obj = new CopyablePojoClass("parent", new StandalonePojoClass("pojo", 2, new ArrayList<>()));
+        obj.getChildren().add(child);
+
+        var objCopy = objectUtil.deepCopy(obj);
+
+        // generated code is used for the object and nested copyable objects
+        assertThat(obj.getCopyToCalls(), is(1));
+        assertThat(child.getCopyToCalls(), is(1));
+
+        assertThat(objCopy.getStr(), is("parent"));
+        assertThat(objCopy.getPojo().getStr(), is("pojo"));
+        assertThat(objCopy.getChildren().size(), is(1));
+        assertThat(objCopy.getChildren().get(0).getStr(), is("child"));
+
+        // nested objects without generated code are copied as well
+        assertThat(objCopy.getPojo() == obj.getPojo(), is(false));
+        obj.getPojo().setStr("pojo2");
+        child.setStr("child2");
+        child.getPojo().setStr("childPojo2");
+
+        assertThat(objCopy.getPojo().getStr(), is("pojo"));
+        assertThat(objCopy.getChildren().get(0).getStr(), is("child"));
+        assertThat(objCopy.getChildren().get(0).getPojo().getStr(), is("childPojo"));
+
+        var listCopy = objectUtil.deepCopy(List.of(obj, child));
+        assertThat(listCopy.size(), is(2));
+        assertThat(listCopy.get(1).getStr(), is("child2"));
+        assertThat(obj.getCopyToCalls(), is(2));
+    }
+
+    @Test
+    void deepCopySampleList() {
+        // sample lists are immutable and hence not copied
+        var samples = SampleList.ofDoubles(1, 2, 3);
+        assertThat(objectUtil.deepCopy(samples) == samples, is(true));
+    }
 }
\ No newline at end of file
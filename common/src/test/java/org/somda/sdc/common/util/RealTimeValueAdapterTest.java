@@ -0,0 +1,83 @@
+package org.somda.sdc.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RealTimeValueAdapterTest {
+    @Test
+    void unmarshalToDecimals() {
+        var adapter = new RealTimeValueAdapter();
+        var samples = adapter.unmarshal(" 1.50  -2\n+0.001 ");
+        assertFalse(samples instanceof SampleList);
+        assertEquals(List.of(new BigDecimal("1.50"), new BigDecimal("-2"), new BigDecimal("0.001")), samples);
+        assertEquals("1.50 -2 0.001", adapter.marshal(samples));
+        assertEquals("", adapter.marshal(adapter.unmarshal("")));
+    }
+
+    @Test
+    void unmarshalToSampleList() {
+        var adapter = new RealTimeValueAdapter(true);
+        var values = List.of("0", "-0", "1.5", "-2.25", "+0.001", "123456789.123456", "0.1234567890123456789",
+                "12345678901234567890", "0.00000000000000000000000001", ".5", "5.");
+        var samples = adapter.unmarshal(String.join(" \t", values));
+        assertTrue(samples instanceof SampleList);
+        var expected = values.stream().mapToDouble(Double::parseDouble).map(value -> value + 0.0).toArray();
+        assertArrayEquals(expected, SampleList.toDoubleArray(samples));
+
+        assertTrue(adapter.unmarshal(" ").isEmpty());
+        assertThrows(NumberFormatException.class, () -> adapter.unmarshal("1 x"));
+        assertThrows(NumberFormatException.class, () -> adapter.unmarshal("NaN"));
+        assertThrows(NumberFormatException.class, () -> adapter.unmarshal("-"));
+        for (String value : List.of("1E3", "1e-3", "1d", "1f", "0x1p3", "1.2.3", "+-1", ".", "123456789012345678901E3")) {
+            assertThrows(NumberFormatException.class, () -> adapter.unmarshal(value), value);
+        }
+    }
+
+    @Test
+    void marshalSampleList() {
+        var adapter = new RealTimeValueAdapter();
+        var samples = SampleList.ofDoubles(0, -0.0, 1, -2.5, 0.1, 1e-7, 1e20, 123456.789);
+        var marshalled = adapter.marshal(samples);
+        assertEquals("0 0 1 -2.5 0.1 0.0000001 100000000000000000000 123456.789", marshalled);
+
+        var unmarshalled = new RealTimeValueAdapter(true).unmarshal(marshalled);
+        assertEquals(samples, unmarshalled);
+    }
+
+    @Test
+    void sampleList() {
+        var samples = SampleList.ofFloats(1.5f, -3f);
+        assertEquals(1.5, samples.getDouble(0));
+        assertEquals(0, new BigDecimal("-3").compareTo(samples.get(1)));
+        assertArrayEquals(new float[]{1.5f, -3f}, SampleList.toFloatArray(samples));
+        assertArrayEquals(new double[]{1.5, -3}, SampleList.toDoubleArray(List.of(new BigDecimal("1.5"),
+                new BigDecimal("-3"))));
+        assertTrue(samples.isFrozen());
+        assertThrows(UnsupportedOperationException.class, () -> samples.add(BigDecimal.ONE));
+        assertThrows(IllegalArgumentException.class, () -> SampleList.ofDoubles(Double.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void sampleListOfSource() {
+        var source = new double[]{1.5, -3, 0.25};
+        var samples = SampleList.ofSource(source.length, index -> source[index]);
+        assertEquals(3, samples.size());
+        assertEquals(-3, samples.getDouble(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> samples.getDouble(3));
+        assertEquals(SampleList.ofDoubles(source), samples);
+        assertEquals("1.5 -3 0.25", new RealTimeValueAdapter().marshal(samples));
+
+        // samples are read on every access
+        source[1] = 4;
+        assertArrayEquals(new float[]{1.5f, 4f, 0.25f}, SampleList.toFloatArray(samples));
+        assertTrue(SampleList.ofSource(0, index -> 0).isEmpty());
+    }
+}
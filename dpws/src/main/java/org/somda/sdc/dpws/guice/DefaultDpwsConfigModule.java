@@ -209,5 +209,8 @@ public class DefaultDpwsConfigModule extends AbstractConfigurationModule {
         bind(SoapConfig.METADATA_COMMENT,
                 Boolean.class,
                 true);
+        bind(SoapConfig.PRIMITIVE_REAL_TIME_SAMPLES,
+                Boolean.class,
+                false);
     }
 }
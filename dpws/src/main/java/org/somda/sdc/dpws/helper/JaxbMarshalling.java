@@ -10,6 +10,7 @@ import org.somda.sdc.common.CommonConfig;
 import org.somda.sdc.common.logging.InstanceLogger;
 import org.somda.sdc.common.util.NamespacePrefixMapperConverter;
 import org.somda.sdc.common.util.PrefixNamespaceMappingParser;
+import org.somda.sdc.common.util.RealTimeValueAdapter;
 import org.somda.sdc.dpws.DpwsConstants;
 import org.somda.sdc.dpws.FrameworkMetadata;
 import org.somda.sdc.dpws.soap.SoapConfig;
@@ -63,6 +64,7 @@ public class JaxbMarshalling extends AbstractIdleService {
     private final Boolean validateSoapMessages;
     private final ObjectFactory soapFactory;
     private final Boolean metadataComment;
+    private final Boolean primitiveRealTimeSamples;
     private final Logger instanceLogger;
     private final String versionString;
 
@@ -76,6 +78,7 @@ public class JaxbMarshalling extends AbstractIdleService {
                     @Named(SoapConfig.JAXB_SCHEMA_PATH) String schemaPath,
                     @Named(SoapConfig.VALIDATE_SOAP_MESSAGES) Boolean validateSoapMessages,
                     @Named(SoapConfig.METADATA_COMMENT) Boolean metadataComment,
+                    @Named(SoapConfig.PRIMITIVE_REAL_TIME_SAMPLES) Boolean primitiveRealTimeSamples,
                     PrefixNamespaceMappingParser namespaceMappingParser,
                     NamespacePrefixMapperConverter namespacePrefixMapperConverter,
                     ObjectFactory soapFactory,
@@ -86,6 +89,7 @@ public class JaxbMarshalling extends AbstractIdleService {
         this.schemaPath = schemaPath;
         this.validateSoapMessages = validateSoapMessages;
         this.metadataComment = metadataComment;
+        this.primitiveRealTimeSamples = primitiveRealTimeSamples;
         this.soapFactory = soapFactory;
 
         // Append internal mappings
@@ -155,12 +159,7 @@ public class JaxbMarshalling extends AbstractIdleService {
      * @throws JAXBException if unmarshalling fails.
      */
     public Object unmarshal(InputStream inputStream) throws JAXBException {
-        checkRunning();
-        Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-        if (schema != null) {
-            unmarshaller.setSchema(schema);
-        }
-        return unmarshaller.unmarshal(inputStream);
+        return createUnmarshaller().unmarshal(inputStream);
     }
 
     /**
@@ -171,12 +170,19 @@ public class JaxbMarshalling extends AbstractIdleService {
      * @throws JAXBException if unmarshalling fails.
      */
     public Object unmarshal(Reader reader) throws JAXBException {
+        return createUnmarshaller().unmarshal(reader);
+    }
+
+    private Unmarshaller createUnmarshaller() throws JAXBException {
         checkRunning();
         Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
         if (schema != null) {
             unmarshaller.setSchema(schema);
         }
-        return unmarshaller.unmarshal(reader);
+        if (primitiveRealTimeSamples) {
+            unmarshaller.setAdapter(RealTimeValueAdapter.class, new RealTimeValueAdapter(true));
+        }
+        return unmarshaller;
     }
 
     private void initializeJaxb() throws SAXException, IOException, ParserConfigurationException {
@@ -100,4 +100,18 @@ public class SoapConfig {
      * </ul>
      */
     public static final String METADATA_COMMENT = "SoapConfig.MetadataComment";
+
+    /**
+     * Defines if real-time sample lists of incoming messages are unmarshalled to primitive arrays (true) or to lists
+     * of {@linkplain java.math.BigDecimal}s (false).
+     * <p>
+     * If enabled, samples are unmarshalled to {@linkplain org.somda.sdc.common.util.SampleList}s, which avoid one
+     * decimal object per sample but cannot be modified and retain values as doubles only.
+     *
+     * <ul>
+     *  <li>Data type: {@linkplain Boolean}
+     *  <li>Use: optional
+     * </ul>
+     */
+    public static final String PRIMITIVE_REAL_TIME_SAMPLES = "SoapConfig.PrimitiveRealTimeSamples";
 }
@@ -0,0 +1,459 @@
+package org.somda.sdc.glue.common;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.Mdib;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.common.util.AnyDateTime;
+import org.somda.sdc.common.util.SampleList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * View on an MDIB in the binary format of {@linkplain MdibBinaryIo}.
+ * <p>
+ * Only the tables of the file are read on creation.
+ * Descriptors and states are decoded on access and are not cached, i.e., every call returns new instances that can
+ * be modified by the caller.
+ * The view is thread-safe.
+ */
+public class MdibBinaryFile {
+    private static final Object SKIPPED = new Object();
+
+    private final ByteBuffer buffer;
+    private final DocumentBuilderFactory documentBuilderFactory;
+    private final int[] stringOffsets;
+    private final String[] strings;
+    private final ClassEntry[] classes;
+    private final int rootOffset;
+    private final int rootLength;
+    private final int[] descriptorHandles;
+    private final int[] descriptorParents;
+    private final int[] descriptorClasses;
+    private final int[] descriptorOffsets;
+    private final int[] descriptorLengths;
+    private final int[] stateClasses;
+    private final int[] stateOffsets;
+    private final int[] stateLengths;
+    private final Map<String, Integer> descriptorIndexes;
+    private final ListMultimap<String, Integer> stateIndexes;
+    private final Mdib root;
+
+    MdibBinaryFile(ByteBuffer buffer, DocumentBuilderFactory documentBuilderFactory) throws IOException {
+        this.buffer = buffer.asReadOnlyBuffer();
+        this.documentBuilderFactory = documentBuilderFactory;
+        try {
+            var in = this.buffer.duplicate();
+            if (in.getInt() != MdibBinaryFormat.MAGIC) {
+                throw new IOException("Input is not a binary MDIB");
+            }
+            var version = in.getInt();
+            if (version != MdibBinaryFormat.VERSION) {
+                throw new IOException(String.format("Unsupported binary MDIB format version %s", version));
+            }
+            in.position(Math.toIntExact(in.getLong()));
+
+            var stringCount = in.getInt();
+            var classCount = in.getInt();
+            this.rootOffset = in.getInt();
+            this.rootLength = in.getInt();
+            var descriptorCount = in.getInt();
+            var stateCount = in.getInt();
+
+            this.stringOffsets = new int[stringCount];
+            this.strings = new String[stringCount];
+            for (int i = 0; i < stringCount; i++) {
+                stringOffsets[i] = in.position();
+                var length = MdibBinaryFormat.readVarInt(in);
+                in.position(in.position() + length);
+            }
+
+            this.classes = new ClassEntry[classCount];
+            for (int i = 0; i < classCount; i++) {
+                var type = loadClass(string(MdibBinaryFormat.readVarInt(in)));
+                if (!MdibBinaryFormat.isModelClass(type)) {
+                    throw new IOException(String.format("Class %s is not part of a JAXB model", type.getName()));
+                }
+                var fieldNames = new String[MdibBinaryFormat.readVarInt(in)];
+                for (int j = 0; j < fieldNames.length; j++) {
+                    fieldNames[j] = string(MdibBinaryFormat.readVarInt(in));
+                }
+                classes[i] = new ClassEntry(type, fieldNames);
+            }
+
+            this.descriptorHandles = new int[descriptorCount];
+            this.descriptorParents = new int[descriptorCount];
+            this.descriptorClasses = new int[descriptorCount];
+            this.descriptorOffsets = new int[descriptorCount];
+            this.descriptorLengths = new int[descriptorCount];
+            this.descriptorIndexes = new HashMap<>(descriptorCount * 2);
+            for (int i = 0; i < descriptorCount; i++) {
+                descriptorHandles[i] = in.getInt();
+                descriptorParents[i] = in.getInt();
+                descriptorClasses[i] = in.getInt();
+                descriptorOffsets[i] = in.getInt();
+                descriptorLengths[i] = in.getInt();
+                descriptorIndexes.put(string(descriptorHandles[i]), i);
+            }
+
+            this.stateClasses = new int[stateCount];
+            this.stateOffsets = new int[stateCount];
+            this.stateLengths = new int[stateCount];
+            this.stateIndexes = ArrayListMultimap.create();
+            for (int i = 0; i < stateCount; i++) {
+                stateIndexes.put(string(in.getInt()), i);
+                stateClasses[i] = in.getInt();
+                stateOffsets[i] = in.getInt();
+                stateLengths[i] = in.getInt();
+            }
+
+            this.root = (Mdib) decodeRecord(rootOffset, rootLength, false);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | IllegalStateException | ArithmeticException | ClassCastException e) {
+            throw new IOException("Input is not a valid binary MDIB", e);
+        }
+    }
+
+    /**
+     * Decodes the whole MDIB.
+     *
+     * @return the MDIB including all descriptors and states.
+     * @throws IllegalStateException if the file is corrupt.
+     */
+    public Mdib getMdib() {
+        return (Mdib) decodeRecord(rootOffset, rootLength, true);
+    }
+
+    /**
+     * Gets the MDIB version of the MDIB.
+     *
+     * @return the MDIB version.
+     */
+    public MdibVersion getMdibVersion() {
+        return new MdibVersion(root.getSequenceId(),
+                Objects.requireNonNullElse(root.getMdibVersion(), BigInteger.ZERO),
+                Objects.requireNonNullElse(root.getInstanceId(), BigInteger.ZERO));
+    }
+
+    /**
+     * Gets the MD description version of the MDIB.
+     *
+     * @return the MD description version or {@link BigInteger#ZERO} if there is none.
+     */
+    public BigInteger getMdDescriptionVersion() {
+        return Optional.ofNullable(root.getMdDescription())
+                .map(mdDescription -> mdDescription.getDescriptionVersion())
+                .orElse(BigInteger.ZERO);
+    }
+
+    /**
+     * Gets the MD state version of the MDIB.
+     *
+     * @return the MD state version or {@link BigInteger#ZERO} if there is none.
+     */
+    public BigInteger getMdStateVersion() {
+        return Optional.ofNullable(root.getMdState())
+                .map(mdState -> mdState.getStateVersion())
+                .orElse(BigInteger.ZERO);
+    }
+
+    /**
+     * Gets the handles of all descriptors.
+     *
+     * @return the descriptor handles, whereby parents precede their children.
+     */
+    public List<String> getDescriptorHandles() {
+        var handles = new ArrayList<String>(descriptorHandles.length);
+        for (int handle : descriptorHandles) {
+            handles.add(string(handle));
+        }
+        return handles;
+    }
+
+    /**
+     * Gets the handle of the parent of a descriptor.
+     *
+     * @param handle the descriptor handle.
+     * @return the parent handle or {@linkplain Optional#empty()} if the descriptor does not exist or is an MDS.
+     */
+    public Optional<String> getParentHandle(String handle) {
+        return Optional.ofNullable(descriptorIndexes.get(handle))
+                .filter(index -> descriptorParents[index] >= 0)
+                .map(index -> string(descriptorHandles[descriptorParents[index]]));
+    }
+
+    /**
+     * Gets the type of a descriptor without decoding it.
+     *
+     * @param handle the descriptor handle.
+     * @return the descriptor type or {@linkplain Optional#empty()} if the descriptor does not exist.
+     */
+    public Optional<Class<? extends AbstractDescriptor>> getDescriptorType(String handle) {
+        return Optional.ofNullable(descriptorIndexes.get(handle))
+                .map(index -> classes[descriptorClasses[index]].type.asSubclass(AbstractDescriptor.class));
+    }
+
+    /**
+     * Decodes a descriptor.
+     * <p>
+     * Child descriptors are not decoded, i.e., the descriptor is returned the way an
+     * {@linkplain org.somda.sdc.biceps.common.MdibEntity} provides it.
+     *
+     * @param handle the descriptor handle.
+     * @return the descriptor or {@linkplain Optional#empty()} if the descriptor does not exist.
+     * @throws IllegalStateException if the file is corrupt.
+     */
+    public Optional<AbstractDescriptor> getDescriptor(String handle) {
+        return getDescriptor(handle, AbstractDescriptor.class);
+    }
+
+    /**
+     * Decodes a descriptor of a specific type.
+     * <p>
+     * Child descriptors are not decoded, i.e., the descriptor is returned the way an
+     * {@linkplain org.somda.sdc.biceps.common.MdibEntity} provides it.
+     *
+     * @param handle the descriptor handle.
+     * @param type   the expected descriptor type.
+     * @param <T>    any descriptor type.
+     * @return the descriptor or {@linkplain Optional#empty()} if the descriptor does not exist or is not of the
+     * expected type.
+     * @throws IllegalStateException if the file is corrupt.
+     */
+    public <T extends AbstractDescriptor> Optional<T> getDescriptor(String handle, Class<T> type) {
+        var index = descriptorIndexes.get(handle);
+        if (index == null || !type.isAssignableFrom(classes[descriptorClasses[index]].type)) {
+            return Optional.empty();
+        }
+        return Optional.of(type.cast(decodeRecord(descriptorOffsets[index], descriptorLengths[index], false)));
+    }
+
+    /**
+     * Decodes the states of a descriptor.
+     *
+     * @param descriptorHandle the descriptor handle.
+     * @return the states of the descriptor, which is an empty list if the descriptor does not exist or has no states.
+     * @throws IllegalStateException if the file is corrupt.
+     */
+    public List<AbstractState> getStates(String descriptorHandle) {
+        var indexes = stateIndexes.get(descriptorHandle);
+        if (indexes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        var states = new ArrayList<AbstractState>(indexes.size());
+        for (Integer index : indexes) {
+            states.add((AbstractState) decodeRecord(stateOffsets[index], stateLengths[index], false));
+        }
+        return states;
+    }
+
+    private Object decodeRecord(int offset, int length, boolean resolve) {
+        var in = buffer.duplicate();
+        in.limit(offset + length);
+        in.position(offset);
+        try {
+            return decodeObject(in, resolve);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | ClassCastException | ReflectiveOperationException | IOException e) {
+            throw new IllegalStateException(String.format("Corrupt record at offset %s", offset), e);
+        }
+    }
+
+    private Object decodeObject(ByteBuffer in, boolean resolve) throws ReflectiveOperationException, IOException {
+        var classEntry = classes[MdibBinaryFormat.readVarInt(in)];
+        var object = classEntry.constructor.newInstance();
+        for (Field field : classEntry.fields) {
+            var value = decodeValue(in, resolve);
+            if (field != null && value != SKIPPED) {
+                field.set(object, value);
+            }
+        }
+        return object;
+    }
+
+    private Object decodeValue(ByteBuffer in, boolean resolve) throws ReflectiveOperationException, IOException {
+        var tag = in.get();
+        switch (tag) {
+            case MdibBinaryFormat.NULL:
+                return null;
+            case MdibBinaryFormat.STRING:
+                return string(MdibBinaryFormat.readVarInt(in));
+            case MdibBinaryFormat.TRUE:
+                return Boolean.TRUE;
+            case MdibBinaryFormat.FALSE:
+                return Boolean.FALSE;
+            case MdibBinaryFormat.INTEGER:
+                return (int) MdibBinaryFormat.readSignedVarLong(in);
+            case MdibBinaryFormat.LONG:
+                return MdibBinaryFormat.readSignedVarLong(in);
+            case MdibBinaryFormat.BIG_INTEGER:
+                return new BigInteger(MdibBinaryFormat.readBytes(in));
+            case MdibBinaryFormat.BIG_DECIMAL:
+                var scale = (int) MdibBinaryFormat.readSignedVarLong(in);
+                return new BigDecimal(new BigInteger(MdibBinaryFormat.readBytes(in)), scale);
+            case MdibBinaryFormat.ENUM:
+                var enumType = classes[MdibBinaryFormat.readVarInt(in)].type;
+                return enumValue(enumType, string(MdibBinaryFormat.readVarInt(in)));
+            case MdibBinaryFormat.INSTANT:
+                return Instant.ofEpochSecond(MdibBinaryFormat.readSignedVarLong(in), MdibBinaryFormat.readVarLong(in));
+            case MdibBinaryFormat.DURATION:
+                return Duration.ofSeconds(MdibBinaryFormat.readSignedVarLong(in), MdibBinaryFormat.readVarLong(in));
+            case MdibBinaryFormat.QNAME:
+                return decodeQName(in);
+            case MdibBinaryFormat.ANY_DATE_TIME_LOCAL:
+                return AnyDateTime.create(LocalDateTime.parse(string(MdibBinaryFormat.readVarInt(in))));
+            case MdibBinaryFormat.ANY_DATE_TIME_OFFSET:
+                return AnyDateTime.create(OffsetDateTime.parse(string(MdibBinaryFormat.readVarInt(in))));
+            case MdibBinaryFormat.LIST:
+                return decodeList(in, resolve);
+            case MdibBinaryFormat.MAP:
+                var size = MdibBinaryFormat.readVarInt(in);
+                var map = new HashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    map.put(decodeValue(in, resolve), decodeValue(in, resolve));
+                }
+                return map;
+            case MdibBinaryFormat.SAMPLES:
+                var samples = new double[MdibBinaryFormat.readVarInt(in)];
+                in.asDoubleBuffer().get(samples);
+                in.position(in.position() + samples.length * Double.BYTES);
+                return SampleList.ofDoubles(samples);
+            case MdibBinaryFormat.OBJECT:
+                return decodeObject(in, resolve);
+            case MdibBinaryFormat.JAXB_ELEMENT:
+                return decodeJaxbElement(in, resolve);
+            case MdibBinaryFormat.DOM_ELEMENT:
+                return parse(string(MdibBinaryFormat.readVarInt(in)));
+            case MdibBinaryFormat.DESCRIPTOR:
+                var descriptor = MdibBinaryFormat.readVarInt(in);
+                return resolve
+                        ? decodeRecord(descriptorOffsets[descriptor], descriptorLengths[descriptor], true)
+                        : SKIPPED;
+            case MdibBinaryFormat.STATE:
+                var state = MdibBinaryFormat.readVarInt(in);
+                return resolve ? decodeRecord(stateOffsets[state], stateLengths[state], false) : SKIPPED;
+            default:
+                throw new IOException(String.format("Unknown tag %s", tag));
+        }
+    }
+
+    private List<Object> decodeList(ByteBuffer in, boolean resolve) throws ReflectiveOperationException, IOException {
+        var size = MdibBinaryFormat.readVarInt(in);
+        var list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            var value = decodeValue(in, resolve);
+            if (value != SKIPPED) {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+
+    private QName decodeQName(ByteBuffer in) {
+        return new QName(string(MdibBinaryFormat.readVarInt(in)), string(MdibBinaryFormat.readVarInt(in)),
+                string(MdibBinaryFormat.readVarInt(in)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private JAXBElement<Object> decodeJaxbElement(ByteBuffer in, boolean resolve)
+            throws ReflectiveOperationException, IOException {
+        var name = decodeQName(in);
+        var declaredType = (Class<Object>) loadClass(string(MdibBinaryFormat.readVarInt(in)));
+        return new JAXBElement<>(name, declaredType, declaredType.cast(decodeValue(in, resolve)));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String name) {
+        return Enum.valueOf((Class<Enum>) type, name);
+    }
+
+    private Object parse(String xml) throws IOException {
+        try {
+            return documentBuilderFactory.newDocumentBuilder()
+                    .parse(new InputSource(new StringReader(xml)))
+                    .getDocumentElement();
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Extension element could not be parsed", e);
+        }
+    }
+
+    private String string(int index) {
+        var value = strings[index];
+        if (value == null) {
+            var in = buffer.duplicate();
+            in.position(stringOffsets[index]);
+            var bytes = MdibBinaryFormat.readBytes(in);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            // races are benign, as concurrently decoded strings are equal
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    private static Class<?> loadClass(String name) throws IOException {
+        try {
+            return Class.forName(name, false, MdibBinaryFile.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IOException(String.format("Unknown class %s", name), e);
+        }
+    }
+
+    /**
+     * Class of the class table including the fields of the class in the order of the file.
+     */
+    private static final class ClassEntry {
+        private final Class<?> type;
+        private final Field[] fields;
+        private final Constructor<?> constructor;
+
+        ClassEntry(Class<?> type, String[] fieldNames) throws IOException {
+            this.type = type;
+            if (type.isEnum()) {
+                this.fields = new Field[0];
+                this.constructor = null;
+                return;
+            }
+
+            var fieldsByName = new HashMap<String, Field>();
+            for (Field field : MdibBinaryFormat.FIELDS.get(type)) {
+                fieldsByName.put(field.getName(), field);
+            }
+            // values of fields that do not exist anymore are decoded and dropped
+            this.fields = Arrays.stream(fieldNames).map(fieldsByName::get).toArray(Field[]::new);
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IOException(String.format("Class %s has no default constructor", type.getName()), e);
+            }
+        }
+    }
+}
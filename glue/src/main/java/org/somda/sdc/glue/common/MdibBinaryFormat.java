@@ -0,0 +1,196 @@
+package org.somda.sdc.glue.common;
+
+import javax.xml.bind.annotation.XmlEnum;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Layout of the binary MDIB format written by {@linkplain MdibBinaryIo} and read by {@linkplain MdibBinaryFile}.
+ * <p>
+ * A file consists of
+ * <ol>
+ * <li>a header with a magic number, the format version and the offset of the tables,
+ * <li>the data section, which contains one record for the MDIB root, each descriptor and each state,
+ * <li>the string table, which contains every string of the MDIB once, e.g., handles and codes,
+ * <li>the class table, which contains the name of every model class and the names of its fields,
+ * <li>the root, descriptor and state tables, which reference the records of the data section.
+ * </ol>
+ * Records are sequences of tagged values.
+ * Objects are written as class table index followed by one value per field as listed in the class table, whereby
+ * descriptors and states are written as reference to their own record.
+ * As field names are part of the file, a file remains readable if fields are added to or removed from the model.
+ */
+final class MdibBinaryFormat {
+    static final int MAGIC = 0x53444342;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    static final byte NULL = 0;
+    static final byte STRING = 1;
+    static final byte TRUE = 2;
+    static final byte FALSE = 3;
+    static final byte INTEGER = 4;
+    static final byte LONG = 5;
+    static final byte BIG_INTEGER = 6;
+    static final byte BIG_DECIMAL = 7;
+    static final byte ENUM = 8;
+    static final byte INSTANT = 9;
+    static final byte DURATION = 10;
+    static final byte QNAME = 11;
+    static final byte ANY_DATE_TIME_LOCAL = 12;
+    static final byte ANY_DATE_TIME_OFFSET = 13;
+    static final byte LIST = 14;
+    static final byte MAP = 15;
+    static final byte SAMPLES = 16;
+    static final byte OBJECT = 17;
+    static final byte JAXB_ELEMENT = 18;
+    static final byte DOM_ELEMENT = 19;
+    static final byte DESCRIPTOR = 20;
+    static final byte STATE = 21;
+
+    /**
+     * Fields that are written for a model class, ordered from the base class to the concrete class.
+     */
+    static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            var types = new ArrayDeque<Class<?>>();
+            for (Class<?> current = type; current != null && current != Object.class;
+                 current = current.getSuperclass()) {
+                types.push(current);
+            }
+
+            var fields = new ArrayList<Field>();
+            for (Class<?> current : types) {
+                var declaredFields = current.getDeclaredFields();
+                Arrays.sort(declaredFields, Comparator.comparing(Field::getName));
+                for (Field field : declaredFields) {
+                    if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()
+                            || field.isAnnotationPresent(XmlTransient.class)) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private MdibBinaryFormat() {
+    }
+
+    /**
+     * Checks if a class is part of a JAXB model, which is the precondition for being written as object.
+     *
+     * @param type the class to check.
+     * @return true if the class is a JAXB type or enum, false otherwise.
+     */
+    static boolean isModelClass(Class<?> type) {
+        if (type.isEnum()) {
+            return type.isAnnotationPresent(XmlEnum.class);
+        }
+        return type.isAnnotationPresent(XmlType.class) || type.isAnnotationPresent(XmlRootElement.class);
+    }
+
+    static int readVarInt(ByteBuffer buffer) {
+        return (int) readVarLong(buffer);
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            var b = buffer.get();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("Malformed variable-length integer");
+    }
+
+    static long readSignedVarLong(ByteBuffer buffer) {
+        var value = readVarLong(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static byte[] readBytes(ByteBuffer buffer) {
+        var bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Growable output buffer with the encodings of the format.
+     */
+    static final class Output {
+        private byte[] bytes;
+        private int size;
+
+        Output(int capacity) {
+            this.bytes = new byte[capacity];
+            this.size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] array() {
+            return bytes;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(Integer.BYTES);
+            bytes[size++] = (byte) (value >>> 24);
+            bytes[size++] = (byte) (value >>> 16);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            var remaining = value;
+            while ((remaining & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((remaining & 0x7f) | 0x80);
+                remaining >>>= 7;
+            }
+            bytes[size++] = (byte) remaining;
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeBytes(byte[] value) {
+            writeVarLong(value.length);
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, size, value.length);
+            size += value.length;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package org.somda.sdc.glue.common;
+
+import com.google.inject.Inject;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.Mdib;
+import org.somda.sdc.common.util.AnyDateTime;
+import org.somda.sdc.common.util.SampleList;
+import org.w3c.dom.Element;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utility class to write an {@linkplain Mdib} to and read it from a compact binary format.
+ * <p>
+ * The binary format is an alternative to {@linkplain MdibXmlIo} for MDIBs that are persisted and loaded by the same
+ * software, e.g., simulator and test fixtures.
+ * Every string is stored once in a string table and every descriptor and state is stored in a record of its own.
+ * Files are memory-mapped by {@link #openMdib(File)}, which decodes descriptors and states on access.
+ * The format is not meant to be exchanged with other SDC participants, use {@linkplain MdibXmlIo} instead.
+ */
+public class MdibBinaryIo {
+    private static final String DISALLOW_DOCTYPE_FEATURE = "http://apache.org/xml/features/disallow-doctype-decl";
+
+    private final DocumentBuilderFactory documentBuilderFactory;
+    private final TransformerFactory transformerFactory;
+
+    @Inject
+    MdibBinaryIo() {
+        this.documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        documentBuilderFactory.setExpandEntityReferences(false);
+        try {
+            documentBuilderFactory.setFeature(DISALLOW_DOCTYPE_FEATURE, true);
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException("XML parser for extension elements could not be set up", e);
+        }
+        this.transformerFactory = TransformerFactory.newInstance();
+        transformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        transformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+    }
+
+    /**
+     * Reads the MDIB from an input stream.
+     *
+     * @param inputStream the input stream to read from.
+     * @return the decoded {@link Mdib}.
+     * @throws IOException if the input stream cannot be read or does not contain a valid binary MDIB.
+     */
+    public Mdib readMdib(InputStream inputStream) throws IOException {
+        return getMdib(new MdibBinaryFile(ByteBuffer.wrap(inputStream.readAllBytes()), documentBuilderFactory));
+    }
+
+    /**
+     * Reads the MDIB from a file.
+     *
+     * @param file the file to read from.
+     * @return the decoded {@link Mdib}.
+     * @throws IOException if the file cannot be read or does not contain a valid binary MDIB.
+     */
+    public Mdib readMdib(File file) throws IOException {
+        return getMdib(openMdib(file));
+    }
+
+    /**
+     * Memory-maps an MDIB file in order to access descriptors and states without decoding the whole MDIB.
+     *
+     * @param file the file to map.
+     * @return a view on the file, which decodes descriptors and states on access.
+     * @throws IOException if the file cannot be mapped or does not contain a valid binary MDIB.
+     */
+    public MdibBinaryFile openMdib(File file) throws IOException {
+        try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(String.format("File %s exceeds the maximum size of a binary MDIB", file));
+            }
+            return new MdibBinaryFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    documentBuilderFactory);
+        }
+    }
+
+    /**
+     * Writes an MDIB to an output stream.
+     *
+     * @param mdib         the MDIB to write.
+     * @param outputStream the output stream where to write the binary MDIB to.
+     * @throws IOException in case the MDIB contains unsupported content or the output stream cannot be written.
+     */
+    public void writeMdib(Mdib mdib, OutputStream outputStream) throws IOException {
+        new Writer().write(mdib, outputStream);
+    }
+
+    /**
+     * Writes an MDIB to a file.
+     *
+     * @param mdib       the MDIB to write.
+     * @param outputFile the output file where to write the binary MDIB to.
+     * @throws IOException in case the MDIB contains unsupported content or the file cannot be written.
+     */
+    public void writeMdib(Mdib mdib, File outputFile) throws IOException {
+        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            writeMdib(mdib, fos);
+        }
+    }
+
+    private static Mdib getMdib(MdibBinaryFile mdibBinaryFile) throws IOException {
+        try {
+            return mdibBinaryFile.getMdib();
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encodes one MDIB, whereby the data section is buffered until the tables are known.
+     */
+    private final class Writer {
+        private final MdibBinaryFormat.Output data;
+        private final MdibBinaryFormat.Output stringTable;
+        private final MdibBinaryFormat.Output classTable;
+        private final MdibBinaryFormat.Output descriptorTable;
+        private final MdibBinaryFormat.Output stateTable;
+        private final Map<String, Integer> strings;
+        private final Map<Class<?>, Integer> classes;
+        private final List<AbstractDescriptor> descriptors;
+        private final List<Integer> descriptorParents;
+        private final List<AbstractState> states;
+        private int currentDescriptor;
+
+        Writer() {
+            this.data = new MdibBinaryFormat.Output(1 << 16);
+            this.stringTable = new MdibBinaryFormat.Output(1 << 14);
+            this.classTable = new MdibBinaryFormat.Output(1 << 12);
+            this.descriptorTable = new MdibBinaryFormat.Output(1 << 12);
+            this.stateTable = new MdibBinaryFormat.Output(1 << 12);
+            this.strings = new HashMap<>();
+            this.classes = new HashMap<>();
+            this.descriptors = new ArrayList<>();
+            this.descriptorParents = new ArrayList<>();
+            this.states = new ArrayList<>();
+            this.currentDescriptor = -1;
+        }
+
+        void write(Mdib mdib, OutputStream outputStream) throws IOException {
+            var rootOffset = position();
+            writeObject(mdib);
+            var rootLength = position() - rootOffset;
+
+            // descriptors are appended while their parents are written, hence parents precede their children
+            for (int i = 0; i < descriptors.size(); i++) {
+                var descriptor = descriptors.get(i);
+                var offset = position();
+                currentDescriptor = i;
+                writeObject(descriptor);
+                descriptorTable.writeInt(stringIndex(descriptor.getHandle()));
+                descriptorTable.writeInt(descriptorParents.get(i));
+                descriptorTable.writeInt(classIndex(descriptor.getClass()));
+                descriptorTable.writeInt(offset);
+                descriptorTable.writeInt(position() - offset);
+            }
+            currentDescriptor = -1;
+
+            for (AbstractState state : states) {
+                var offset = position();
+                writeObject(state);
+                stateTable.writeInt(stringIndex(state.getDescriptorHandle()));
+                stateTable.writeInt(classIndex(state.getClass()));
+                stateTable.writeInt(offset);
+                stateTable.writeInt(position() - offset);
+            }
+
+            var header = new MdibBinaryFormat.Output(MdibBinaryFormat.HEADER_SIZE);
+            header.writeInt(MdibBinaryFormat.MAGIC);
+            header.writeInt(MdibBinaryFormat.VERSION);
+            header.writeLong(position());
+
+            var tables = new MdibBinaryFormat.Output(Integer.BYTES * 6);
+            tables.writeInt(strings.size());
+            tables.writeInt(classes.size());
+            tables.writeInt(rootOffset);
+            tables.writeInt(rootLength);
+            tables.writeInt(descriptors.size());
+            tables.writeInt(states.size());
+
+            write(outputStream, header);
+            write(outputStream, data);
+            write(outputStream, tables);
+            write(outputStream, stringTable);
+            write(outputStream, classTable);
+            write(outputStream, descriptorTable);
+            write(outputStream, stateTable);
+            outputStream.flush();
+        }
+
+        private void write(OutputStream outputStream, MdibBinaryFormat.Output output) throws IOException {
+            outputStream.write(output.array(), 0, output.size());
+        }
+
+        private int position() {
+            return MdibBinaryFormat.HEADER_SIZE + data.size();
+        }
+
+        private void writeObject(Object value) throws IOException {
+            var type = value.getClass();
+            data.writeVarLong(classIndex(type));
+            try {
+                for (Field field : MdibBinaryFormat.FIELDS.get(type)) {
+                    writeValue(field.get(value));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IOException(String.format("Field of %s is not accessible", type.getName()), e);
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                data.writeByte(MdibBinaryFormat.NULL);
+            } else if (value instanceof String) {
+                data.writeByte(MdibBinaryFormat.STRING);
+                data.writeVarLong(stringIndex((String) value));
+            } else if (value instanceof Boolean) {
+                data.writeByte((Boolean) value ? MdibBinaryFormat.TRUE : MdibBinaryFormat.FALSE);
+            } else if (value instanceof Integer) {
+                data.writeByte(MdibBinaryFormat.INTEGER);
+                data.writeSignedVarLong((Integer) value);
+            } else if (value instanceof Long) {
+                data.writeByte(MdibBinaryFormat.LONG);
+                data.writeSignedVarLong((Long) value);
+            } else if (value instanceof BigInteger) {
+                data.writeByte(MdibBinaryFormat.BIG_INTEGER);
+                data.writeBytes(((BigInteger) value).toByteArray());
+            } else if (value instanceof BigDecimal) {
+                data.writeByte(MdibBinaryFormat.BIG_DECIMAL);
+                data.writeSignedVarLong(((BigDecimal) value).scale());
+                data.writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+            } else if (value instanceof Enum) {
+                data.writeByte(MdibBinaryFormat.ENUM);
+                data.writeVarLong(classIndex(((Enum<?>) value).getDeclaringClass()));
+                data.writeVarLong(stringIndex(((Enum<?>) value).name()));
+            } else if (value instanceof Instant) {
+                data.writeByte(MdibBinaryFormat.INSTANT);
+                data.writeSignedVarLong(((Instant) value).getEpochSecond());
+                data.writeVarLong(((Instant) value).getNano());
+            } else if (value instanceof Duration) {
+                data.writeByte(MdibBinaryFormat.DURATION);
+                data.writeSignedVarLong(((Duration) value).getSeconds());
+                data.writeVarLong(((Duration) value).getNano());
+            } else if (value instanceof QName) {
+                data.writeByte(MdibBinaryFormat.QNAME);
+                writeQName((QName) value);
+            } else if (value instanceof AnyDateTime) {
+                writeAnyDateTime((AnyDateTime) value);
+            } else if (value instanceof SampleList) {
+                writeSamples((SampleList) value);
+            } else if (value instanceof List) {
+                data.writeByte(MdibBinaryFormat.LIST);
+                data.writeVarLong(((List<?>) value).size());
+                for (Object element : (List<?>) value) {
+                    writeValue(element);
+                }
+            } else if (value instanceof Map) {
+                data.writeByte(MdibBinaryFormat.MAP);
+                data.writeVarLong(((Map<?, ?>) value).size());
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    writeValue(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            } else if (value instanceof AbstractDescriptor) {
+                descriptors.add((AbstractDescriptor) value);
+                descriptorParents.add(currentDescriptor);
+                data.writeByte(MdibBinaryFormat.DESCRIPTOR);
+                data.writeVarLong(descriptors.size() - 1);
+            } else if (value instanceof AbstractState) {
+                states.add((AbstractState) value);
+                data.writeByte(MdibBinaryFormat.STATE);
+                data.writeVarLong(states.size() - 1);
+            } else if (value instanceof JAXBElement) {
+                data.writeByte(MdibBinaryFormat.JAXB_ELEMENT);
+                writeQName(((JAXBElement<?>) value).getName());
+                data.writeVarLong(stringIndex(((JAXBElement<?>) value).getDeclaredType().getName()));
+                writeValue(((JAXBElement<?>) value).getValue());
+            } else if (value instanceof Element) {
+                data.writeByte(MdibBinaryFormat.DOM_ELEMENT);
+                data.writeVarLong(stringIndex(serialize((Element) value)));
+            } else if (MdibBinaryFormat.isModelClass(value.getClass())) {
+                data.writeByte(MdibBinaryFormat.OBJECT);
+                writeObject(value);
+            } else {
+                throw new IOException(String.format("Unsupported type %s", value.getClass().getName()));
+            }
+        }
+
+        private void writeQName(QName value) {
+            data.writeVarLong(stringIndex(value.getNamespaceURI()));
+            data.writeVarLong(stringIndex(value.getLocalPart()));
+            data.writeVarLong(stringIndex(value.getPrefix()));
+        }
+
+        private void writeAnyDateTime(AnyDateTime value) {
+            var local = value.getLocal();
+            if (local.isPresent()) {
+                data.writeByte(MdibBinaryFormat.ANY_DATE_TIME_LOCAL);
+                data.writeVarLong(stringIndex(local.get().toString()));
+            } else {
+                data.writeByte(MdibBinaryFormat.ANY_DATE_TIME_OFFSET);
+                data.writeVarLong(stringIndex(value.forceOffset().toString()));
+            }
+        }
+
+        private void writeSamples(SampleList value) {
+            data.writeByte(MdibBinaryFormat.SAMPLES);
+            data.writeVarLong(value.size());
+            for (int i = 0; i < value.size(); i++) {
+                data.writeLong(Double.doubleToRawLongBits(value.getDouble(i)));
+            }
+        }
+
+        private String serialize(Element element) throws IOException {
+            try {
+                Transformer transformer = transformerFactory.newTransformer();
+                transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+                var writer = new StringWriter();
+                transformer.transform(new DOMSource(element), new StreamResult(writer));
+                return writer.toString();
+            } catch (TransformerException e) {
+                throw new IOException("Extension element could not be serialized", e);
+            }
+        }
+
+        private int stringIndex(String value) {
+            var index = strings.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.put(value, index);
+                stringTable.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+            return index;
+        }
+
+        private int classIndex(Class<?> type) {
+            var index = classes.get(type);
+            if (index == null) {
+                index = classes.size();
+                classes.put(type, index);
+                classTable.writeVarLong(stringIndex(type.getName()));
+                var fields = type.isEnum() ? new Field[0] : MdibBinaryFormat.FIELDS.get(type);
+                classTable.writeVarLong(fields.length);
+                for (Field field : fields) {
+                    classTable.writeVarLong(stringIndex(field.getName()));
+                }
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package org.somda.sdc.glue.common;
+
+import com.google.inject.Inject;
+import org.somda.sdc.biceps.common.MdibDescriptionModification;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.access.MdibAccess;
+import org.somda.sdc.biceps.model.participant.AbstractAlertState;
+import org.somda.sdc.biceps.model.participant.AbstractContextState;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractDeviceComponentState;
+import org.somda.sdc.biceps.model.participant.AbstractMetricState;
+import org.somda.sdc.biceps.model.participant.AbstractMultiState;
+import org.somda.sdc.biceps.model.participant.AbstractOperationState;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.ContextAssociation;
+import org.somda.sdc.biceps.model.participant.Mdib;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+import org.somda.sdc.common.util.ObjectUtil;
+import org.somda.sdc.glue.common.factory.ModificationsBuilderFactory;
+
+import javax.annotation.Nullable;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Utility class to compute the modifications that transform one MDIB into another.
+ * <p>
+ * MDIBs are either given as {@linkplain MdibAccess}, e.g., a read transaction that is served from an MDIB storage
+ * snapshot, or as {@linkplain Mdib} container.
+ * The resulting {@linkplain MdibDiffResult} only contains entities that have been inserted, updated or deleted and
+ * states that have changed, hence writing it to the source MDIB results in a small description modification report
+ * instead of a re-publication of the whole MDIB.
+ * <p>
+ * In order to avoid deep comparisons, the following shortcuts are applied if both MDIBs are given as
+ * {@linkplain MdibAccess}, whose versions are maintained by an MDIB storage:
+ * <ul>
+ * <li>if both MDIBs are of the same sequence and instance and have equal description and state versions, they are
+ * considered equal without looking at any entity;
+ * <li>entities that are the same instance, as returned by accesses to the same MDIB storage, are considered equal;
+ * <li>if both MDIBs are of the same sequence and instance, descriptors and states with equal versions are considered
+ * equal.
+ * </ul>
+ * Versions of {@linkplain Mdib} containers are not trusted, as they can be modified independently of the content.
+ * All other descriptors and states are compared by content, disregarding descriptor and state versions.
+ * <p>
+ * Entities that move to another parent or change their type are deleted and inserted again along with their subtree.
+ * Context states that are missing in the target MDIB are disassociated, as BICEPS does not allow to delete states.
+ * The order of child entities is not compared.
+ */
+public class MdibDiff {
+    private final ModificationsBuilderFactory modificationsBuilderFactory;
+    private final ObjectUtil objectUtil;
+
+    @Inject
+    MdibDiff(ModificationsBuilderFactory modificationsBuilderFactory,
+             ObjectUtil objectUtil) {
+        this.modificationsBuilderFactory = modificationsBuilderFactory;
+        this.objectUtil = objectUtil;
+    }
+
+    /**
+     * Computes the modifications that transform one MDIB access into another.
+     * <p>
+     * <em>In order to get consistent results, MDIB accesses that are subject to concurrent writes are supposed to be
+     * read transactions.</em>
+     *
+     * @param source the MDIB to transform.
+     * @param target the MDIB to transform to.
+     * @return the modifications that transform {@code source} into {@code target}.
+     */
+    public MdibDiffResult diff(MdibAccess source, MdibAccess target) {
+        return diff(Tree.of(source), Tree.of(target));
+    }
+
+    /**
+     * Computes the modifications that transform an MDIB access into an MDIB container.
+     * <p>
+     * The MDIB container is not modified.
+     * Missing single states are created with {@linkplain RequiredDefaultStateValues}.
+     *
+     * @param source the MDIB to transform.
+     * @param target the MDIB to transform to.
+     * @return the modifications that transform {@code source} into {@code target}.
+     */
+    public MdibDiffResult diff(MdibAccess source, Mdib target) {
+        return diff(Tree.of(source), treeOf(target));
+    }
+
+    /**
+     * Computes the modifications that transform one MDIB container into another.
+     * <p>
+     * The MDIB containers are not modified.
+     * Missing single states are created with {@linkplain RequiredDefaultStateValues}.
+     *
+     * @param source the MDIB to transform.
+     * @param target the MDIB to transform to.
+     * @return the modifications that transform {@code source} into {@code target}.
+     */
+    public MdibDiffResult diff(Mdib source, Mdib target) {
+        return diff(treeOf(source), treeOf(target));
+    }
+
+    private MdibDiffResult diff(Tree source, Tree target) {
+        var descriptionModifications = MdibDescriptionModifications.create();
+        var stateModifications = new EnumMap<MdibStateModifications.Type, MdibStateModifications>(
+                MdibStateModifications.Type.class);
+
+        var trustVersions = source.isVersionedSameLineage(target);
+        if (trustVersions
+                && Objects.equals(source.mdDescriptionVersion, target.mdDescriptionVersion)
+                && Objects.equals(source.mdStateVersion, target.mdStateVersion)) {
+            return new MdibDiffResult(descriptionModifications, new ArrayList<>());
+        }
+
+        // nodes are in pre-order, hence a parent is always marked before its children
+        var deletedHandles = new HashSet<String>();
+        var sourceNodes = new ArrayList<>(source.nodes.values());
+        for (Node sourceNode : sourceNodes) {
+            var targetNode = target.nodes.get(sourceNode.handle);
+            if (targetNode == null
+                    || (sourceNode.parentHandle != null && deletedHandles.contains(sourceNode.parentHandle))
+                    || !Objects.equals(sourceNode.parentHandle, targetNode.parentHandle)
+                    || sourceNode.descriptorClass() != targetNode.descriptorClass()) {
+                deletedHandles.add(sourceNode.handle);
+            }
+        }
+        for (int i = sourceNodes.size() - 1; i >= 0; i--) {
+            var sourceNode = sourceNodes.get(i);
+            if (deletedHandles.contains(sourceNode.handle)) {
+                descriptionModifications.delete(sourceNode.handle);
+            }
+        }
+
+        var updates = new ArrayList<MdibDescriptionModification>();
+        for (Node targetNode : target.nodes.values()) {
+            var sourceNode = source.nodes.get(targetNode.handle);
+            if (sourceNode == null || deletedHandles.contains(targetNode.handle)) {
+                descriptionModifications.add(new MdibDescriptionModification(
+                        MdibDescriptionModification.Type.INSERT,
+                        targetNode.descriptor(), targetNode.states(), targetNode.parentHandle));
+                continue;
+            }
+
+            if (sourceNode.entity != null && sourceNode.entity == targetNode.entity) {
+                continue;
+            }
+
+            var changedStates = new ArrayList<AbstractState>();
+            var disassociatedStates = new ArrayList<AbstractContextState>();
+            collectStateChanges(sourceNode, targetNode, trustVersions, changedStates, disassociatedStates);
+            disassociatedStates.forEach(state -> addStateModification(stateModifications, state));
+
+            if (!isDescriptorUnchanged(sourceNode.descriptor(), targetNode.descriptor(), trustVersions)) {
+                updates.add(new MdibDescriptionModification(
+                        MdibDescriptionModification.Type.UPDATE,
+                        targetNode.descriptor(), targetNode.states(), targetNode.parentHandle));
+            } else {
+                changedStates.forEach(state -> addStateModification(stateModifications, state));
+            }
+        }
+        updates.forEach(descriptionModifications::add);
+
+        return new MdibDiffResult(descriptionModifications, new ArrayList<>(stateModifications.values()));
+    }
+
+    private void collectStateChanges(Node sourceNode,
+                                     Node targetNode,
+                                     boolean trustVersions,
+                                     List<AbstractState> changedStates,
+                                     List<AbstractContextState> disassociatedStates) {
+        var sourceStates = new HashMap<String, AbstractState>();
+        sourceNode.states().forEach(state -> sourceStates.put(stateHandle(state), state));
+
+        for (AbstractState targetState : targetNode.states()) {
+            var sourceState = sourceStates.remove(stateHandle(targetState));
+            if (sourceState == null || !isStateUnchanged(sourceState, targetState, trustVersions)) {
+                changedStates.add(targetState);
+            }
+        }
+
+        for (AbstractState remainingState : sourceStates.values()) {
+            if (remainingState instanceof AbstractContextState) {
+                var contextState = (AbstractContextState) remainingState;
+                if (!ContextAssociation.NO.equals(contextState.getContextAssociation())) {
+                    var disassociatedState = objectUtil.deepCopy(contextState);
+                    disassociatedState.setContextAssociation(ContextAssociation.NO);
+                    disassociatedStates.add(disassociatedState);
+                }
+            }
+        }
+    }
+
+    private boolean isDescriptorUnchanged(AbstractDescriptor source,
+                                          AbstractDescriptor target,
+                                          boolean trustVersions) {
+        if (source == target) {
+            return true;
+        }
+        if (Objects.equals(source.getDescriptorVersion(), target.getDescriptorVersion())) {
+            return trustVersions || source.equals(target);
+        }
+        var alignedTarget = objectUtil.deepCopy(target);
+        alignedTarget.setDescriptorVersion(source.getDescriptorVersion());
+        return source.equals(alignedTarget);
+    }
+
+    private boolean isStateUnchanged(AbstractState source, AbstractState target, boolean trustVersions) {
+        if (source == target) {
+            return true;
+        }
+        var sameVersions = Objects.equals(source.getStateVersion(), target.getStateVersion())
+                && Objects.equals(source.getDescriptorVersion(), target.getDescriptorVersion());
+        if (sameVersions) {
+            return trustVersions || source.equals(target);
+        }
+        var alignedTarget = objectUtil.deepCopy(target);
+        alignedTarget.setStateVersion(source.getStateVersion());
+        alignedTarget.setDescriptorVersion(source.getDescriptorVersion());
+        return source.equals(alignedTarget);
+    }
+
+    private void addStateModification(Map<MdibStateModifications.Type, MdibStateModifications> stateModifications,
+                                      AbstractState state) {
+        stateModifications.computeIfAbsent(changeType(state), MdibStateModifications::create).add(state);
+    }
+
+    private static MdibStateModifications.Type changeType(AbstractState state) {
+        // waveforms are metrics as well, hence they need to be checked first
+        if (state instanceof RealTimeSampleArrayMetricState) {
+            return MdibStateModifications.Type.WAVEFORM;
+        }
+        if (state instanceof AbstractMetricState) {
+            return MdibStateModifications.Type.METRIC;
+        }
+        if (state instanceof AbstractAlertState) {
+            return MdibStateModifications.Type.ALERT;
+        }
+        if (state instanceof AbstractContextState) {
+            return MdibStateModifications.Type.CONTEXT;
+        }
+        if (state instanceof AbstractOperationState) {
+            return MdibStateModifications.Type.OPERATION;
+        }
+        if (state instanceof AbstractDeviceComponentState) {
+            return MdibStateModifications.Type.COMPONENT;
+        }
+        throw new IllegalArgumentException(String.format("State of type %s cannot be assigned to a change type",
+                state.getClass().getSimpleName()));
+    }
+
+    private static String stateHandle(AbstractState state) {
+        return state instanceof AbstractMultiState
+                ? ((AbstractMultiState) state).getHandle()
+                : state.getDescriptorHandle();
+    }
+
+    private Tree treeOf(Mdib mdib) {
+        var tree = new Tree(
+                false,
+                mdib.getSequenceId(),
+                mdib.getInstanceId(),
+                mdib.getMdDescription() == null ? null : mdib.getMdDescription().getDescriptionVersion(),
+                mdib.getMdState() == null ? null : mdib.getMdState().getStateVersion());
+        var modifications = modificationsBuilderFactory
+                .createModificationsBuilder(objectUtil.deepCopy(mdib), true).get();
+        for (MdibDescriptionModification modification : modifications.getModifications()) {
+            tree.add(new Node(modification.getHandle(), modification.getParentHandle().orElse(null),
+                    modification.getDescriptor(), modification.getStates()));
+        }
+        return tree;
+    }
+
+    /**
+     * Flat representation of an MDIB with entities in pre-order.
+     */
+    private static final class Tree {
+        private final boolean versioned;
+        private final String sequenceId;
+        private final BigInteger instanceId;
+        private final BigInteger mdDescriptionVersion;
+        private final BigInteger mdStateVersion;
+        private final Map<String, Node> nodes;
+
+        Tree(boolean versioned,
+             @Nullable String sequenceId,
+             @Nullable BigInteger instanceId,
+             @Nullable BigInteger mdDescriptionVersion,
+             @Nullable BigInteger mdStateVersion) {
+            this.versioned = versioned;
+            this.sequenceId = sequenceId;
+            this.instanceId = instanceId;
+            this.mdDescriptionVersion = mdDescriptionVersion;
+            this.mdStateVersion = mdStateVersion;
+            this.nodes = new LinkedHashMap<>();
+        }
+
+        static Tree of(MdibAccess mdibAccess) {
+            MdibVersion mdibVersion = mdibAccess.getMdibVersion();
+            var tree = new Tree(true, mdibVersion.getSequenceId(), mdibVersion.getInstanceId(),
+                    mdibAccess.getMdDescriptionVersion(), mdibAccess.getMdStateVersion());
+            mdibAccess.getRootEntities().forEach(entity -> tree.addSubtree(mdibAccess, entity));
+            return tree;
+        }
+
+        boolean isVersionedSameLineage(Tree other) {
+            return versioned && other.versioned
+                    && sequenceId != null && sequenceId.equals(other.sequenceId)
+                    && Objects.equals(instanceId, other.instanceId);
+        }
+
+        void add(Node node) {
+            nodes.put(node.handle, node);
+        }
+
+        private void addSubtree(MdibAccess mdibAccess, MdibEntity entity) {
+            add(new Node(entity));
+            for (String child : entity.getChildren()) {
+                mdibAccess.getEntity(child).ifPresent(childEntity -> addSubtree(mdibAccess, childEntity));
+            }
+        }
+    }
+
+    /**
+     * Entity of a {@linkplain Tree}.
+     * <p>
+     * Descriptor and states of MDIB entities are only requested on demand, as MDIB accesses may copy them on output.
+     */
+    private static final class Node {
+        private final String handle;
+        private final String parentHandle;
+        private final MdibEntity entity;
+        private AbstractDescriptor descriptor;
+        private List<AbstractState> states;
+
+        Node(String handle,
+             @Nullable String parentHandle,
+             AbstractDescriptor descriptor,
+             List<AbstractState> states) {
+            this.handle = handle;
+            this.parentHandle = parentHandle;
+            this.entity = null;
+            this.descriptor = descriptor;
+            this.states = states;
+        }
+
+        Node(MdibEntity entity) {
+            this.handle = entity.getHandle();
+            this.parentHandle = entity.getParent().orElse(null);
+            this.entity = entity;
+        }
+
+        Class<? extends AbstractDescriptor> descriptorClass() {
+            return entity == null ? descriptor.getClass() : entity.getDescriptorClass();
+        }
+
+        AbstractDescriptor descriptor() {
+            if (descriptor == null) {
+                descriptor = entity.getDescriptor();
+            }
+            return descriptor;
+        }
+
+        List<AbstractState> states() {
+            if (states == null) {
+                states = entity.getStates();
+            }
+            return states;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.somda.sdc.glue.common;
+
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of an {@linkplain MdibDiff}, i.e., the modifications that transform one MDIB into another.
+ * <p>
+ * Description modifications are supposed to be written before the state modifications.
+ */
+public class MdibDiffResult {
+    private final MdibDescriptionModifications descriptionModifications;
+    private final List<MdibStateModifications> stateModifications;
+
+    MdibDiffResult(MdibDescriptionModifications descriptionModifications,
+                   List<MdibStateModifications> stateModifications) {
+        this.descriptionModifications = descriptionModifications;
+        this.stateModifications = Collections.unmodifiableList(stateModifications);
+    }
+
+    /**
+     * Gets the description modifications.
+     * <p>
+     * Deletions come first in the order children before parents, followed by insertions in the order parents before
+     * children, followed by updates.
+     *
+     * @return the description modifications, which are empty if no descriptor has been inserted, updated or deleted.
+     */
+    public MdibDescriptionModifications getDescriptionModifications() {
+        return descriptionModifications;
+    }
+
+    /**
+     * Gets the state modifications of entities whose descriptors did not change.
+     *
+     * @return one non-empty set of state modifications per change type.
+     */
+    public List<MdibStateModifications> getStateModifications() {
+        return stateModifications;
+    }
+
+    /**
+     * Checks if both MDIBs are equal.
+     *
+     * @return true if there are neither description nor state modifications, false otherwise.
+     */
+    public boolean isEmpty() {
+        return descriptionModifications.getModifications().isEmpty() && stateModifications.isEmpty();
+    }
+}
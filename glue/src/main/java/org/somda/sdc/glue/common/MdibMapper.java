@@ -8,9 +8,12 @@ import org.apache.logging.log4j.Logger;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.access.MdibAccess;
+import org.somda.sdc.biceps.common.access.ReadTransaction;
+import org.somda.sdc.biceps.common.access.ReadTransactionProvider;
 import org.somda.sdc.biceps.model.participant.AbstractComplexDeviceComponentDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractMetricDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractMultiState;
 import org.somda.sdc.biceps.model.participant.AbstractOperationDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractState;
 import org.somda.sdc.biceps.model.participant.AlertConditionDescriptor;
@@ -45,6 +48,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -80,17 +84,19 @@ public class MdibMapper {
      * @return a fully populated {@link Mdib} instance.
      */
     public Mdib mapMdib() {
-        final Mdib mdib = participantModelFactory.createMdib();
+        return read(access -> {
+            final Mdib mdib = participantModelFactory.createMdib();
 
-        final MdibVersion mdibVersion = mdibAccess.getMdibVersion();
-        mdib.setSequenceId(mdibVersion.getSequenceId());
-        mdib.setInstanceId(mdibVersion.getInstanceId());
-        mdib.setMdibVersion(mdibVersion.getVersion());
+            final MdibVersion mdibVersion = access.getMdibVersion();
+            mdib.setSequenceId(mdibVersion.getSequenceId());
+            mdib.setInstanceId(mdibVersion.getInstanceId());
+            mdib.setMdibVersion(mdibVersion.getVersion());
 
-        mdib.setMdDescription(mapMdDescription(Collections.emptyList()));
-        mdib.setMdState(mapMdState(Collections.emptyList()));
+            mdib.setMdDescription(mapMdDescription(access, Collections.emptyList()));
+            mdib.setMdState(mapMdState(access, Collections.emptyList()));
 
-        return mdib;
+            return mdib;
+        });
     }
 
     /**
@@ -105,24 +111,11 @@ public class MdibMapper {
      *                     <li>If a handle reference does match a descriptor handle,
      *                     all states that belong to the corresponding descriptor are included in the result list.
      *                     </ul>
+     *                     Filtered states are ordered by the handle references they match.
      * @return the mapped instance.
      */
     public MdState mapMdState(List<String> handleFilter) {
-        final MdState mdState = participantModelFactory.createMdState();
-        mdState.setStateVersion(mdibAccess.getMdStateVersion());
-
-        if (handleFilter.isEmpty()) {
-            for (MdibEntity rootEntity : mdibAccess.getRootEntities()) {
-                appendStates(mdState.getState(), rootEntity);
-            }
-        } else {
-            Set<String> handleSet = new HashSet<>(handleFilter);
-            for (MdibEntity rootEntity : mdibAccess.getRootEntities()) {
-                appendStatesIfMatch(mdState.getState(), rootEntity, handleSet);
-            }
-        }
-
-        return mdState;
+        return read(access -> mapMdState(access, handleFilter));
     }
 
     /**
@@ -138,93 +131,98 @@ public class MdibMapper {
      *                     the MDS descriptor that is in the parent tree of the handle reference
      *                     is included in the result list.
      *                     </ul>
+     *                     MDS descriptors are ordered as in the MDIB.
      * @return the mapped instance.
      */
     public MdDescription mapMdDescription(List<String> handleFilter) {
-        Set<String> handleFilterCopy = new HashSet<>(handleFilter);
-        final MdDescription mdDescription = participantModelFactory.createMdDescription();
-        mdDescription.setDescriptionVersion(mdibAccess.getMdDescriptionVersion());
+        return read(access -> mapMdDescription(access, handleFilter));
+    }
+
+    /*
+     * Runs a mapping within one read transaction if supported by the MDIB access, which provides a consistent view
+     * across all lookups and avoids acquiring the read lock for every single lookup.
+     */
+    private <T> T read(Function<MdibAccess, T> mapping) {
+        if (mdibAccess instanceof ReadTransactionProvider) {
+            try (ReadTransaction transaction = ((ReadTransactionProvider) mdibAccess).startTransaction()) {
+                return mapping.apply(transaction);
+            }
+        }
+        return mapping.apply(mdibAccess);
+    }
+
+    private MdState mapMdState(MdibAccess access, List<String> handleFilter) {
+        final MdState mdState = participantModelFactory.createMdState();
+        mdState.setStateVersion(access.getMdStateVersion());
 
-        List<MdibEntity> rootEntities;
         if (handleFilter.isEmpty()) {
-            rootEntities = mdibAccess.getRootEntities();
+            for (MdibEntity rootEntity : access.getRootEntities()) {
+                appendStates(access, mdState.getState(), rootEntity);
+            }
         } else {
-            List<MdibEntity> allRootEntities = mdibAccess.getRootEntities();
-            rootEntities = allRootEntities.stream()
-                    .filter(mdibEntity -> handleFilterCopy.stream()
-                            .anyMatch(handle -> mdibEntity.getHandle().equals(handle)))
-                    .collect(Collectors.toList());
-            rootEntities.forEach(mdibEntity -> {
-                handleFilterCopy.remove(mdibEntity.getHandle());
-                allRootEntities.remove(mdibEntity);
-            });
+            appendStatesIfMatch(access, mdState.getState(), handleFilter);
+        }
 
-            for (MdibEntity entity : allRootEntities) {
-                for (String handle : handleFilterCopy) {
-                    if (findHandleInSubtree(handle, entity)) {
-                        rootEntities.add(entity);
-                        handleFilterCopy.remove(handle);
-                        break;
-                    }
-                }
+        return mdState;
+    }
+
+    private MdDescription mapMdDescription(MdibAccess access, List<String> handleFilter) {
+        final MdDescription mdDescription = participantModelFactory.createMdDescription();
+        mdDescription.setDescriptionVersion(access.getMdDescriptionVersion());
+
+        List<MdibEntity> rootEntities = access.getRootEntities();
+        if (!handleFilter.isEmpty()) {
+            // the last ancestor of any descriptor is its MDS, MDS descriptors do not have ancestors
+            Set<String> mdsHandles = new HashSet<>();
+            for (String handle : handleFilter) {
+                final List<String> ancestorHandles = access.getAncestorHandles(handle);
+                mdsHandles.add(ancestorHandles.isEmpty() ? handle : ancestorHandles.get(ancestorHandles.size() - 1));
             }
+            rootEntities = rootEntities.stream()
+                    .filter(mdibEntity -> mdsHandles.contains(mdibEntity.getHandle()))
+                    .collect(Collectors.toList());
         }
 
         for (MdibEntity rootEntity : rootEntities) {
-            mapMds(mdDescription, rootEntity);
+            mapMds(access, mdDescription, rootEntity);
         }
 
         return mdDescription;
     }
 
-
-    private void appendStates(List<AbstractState> states, MdibEntity entity) {
+    private void appendStates(MdibAccess access, List<AbstractState> states, MdibEntity entity) {
         states.addAll(entity.getStates());
         for (String childHandle : entity.getChildren()) {
-            mdibAccess.getEntity(childHandle).ifPresent(childEntity ->
-                    appendStates(states, childEntity));
+            access.getEntity(childHandle).ifPresent(childEntity ->
+                    appendStates(access, states, childEntity));
         }
     }
 
-    private void appendStatesIfMatch(List<AbstractState> states, MdibEntity entity, Set<String> filterSet) {
-        if (filterSet.contains(entity.getHandle())) {
-            filterSet.remove(entity.getHandle());
-            states.addAll(entity.getStates());
-            entity.doIfMultiState(multiStates ->
-                    multiStates.forEach(state -> filterSet.remove(state.getHandle())));
-
-        }
-
-        entity.doIfMultiState(multiStates ->
-                multiStates.forEach(state -> {
-                    if (filterSet.contains(state.getHandle())) {
-                        states.add(state);
-                        filterSet.remove(state.getHandle());
-                    }
-                }));
-
-        for (String childHandle : entity.getChildren()) {
-            mdibAccess.getEntity(childHandle).ifPresent(childEntity ->
-                    appendStatesIfMatch(states, childEntity, filterSet));
+    private void appendStatesIfMatch(MdibAccess access, List<AbstractState> states, List<String> handleFilter) {
+        Set<String> matchedHandles = new HashSet<>();
+        for (String handle : handleFilter) {
+            access.getEntity(handle).ifPresent(entity -> {
+                if (matchedHandles.add(handle)) {
+                    states.addAll(entity.getStates());
+                }
+            });
         }
-    }
 
-    private boolean findHandleInSubtree(String handle, MdibEntity mdibEntity) {
-        for (String childHandle : mdibEntity.getChildren()) {
-            Optional<MdibEntity> childEntity = mdibAccess.getEntity(childHandle);
-            if (childEntity.isPresent()) {
-                if (childEntity.get().getHandle().equals(handle)) {
-                    return true;
-                }
-                if (findHandleInSubtree(handle, childEntity.get())) {
-                    return true;
-                }
+        // multi-states are only included separately if the states of their descriptor are not included already
+        for (String handle : handleFilter) {
+            if (matchedHandles.contains(handle)) {
+                continue;
             }
+            access.getState(handle, AbstractMultiState.class)
+                    .filter(multiState -> !matchedHandles.contains(multiState.getDescriptorHandle()))
+                    .ifPresent(multiState -> {
+                        matchedHandles.add(handle);
+                        states.add(multiState);
+                    });
         }
-        return false;
     }
 
-    private void mapMds(MdDescription mdDescription, MdibEntity mds) {
+    private void mapMds(MdibAccess access, MdDescription mdDescription, MdibEntity mds) {
         final Optional<MdsDescriptor> descriptor = mds.getDescriptor(MdsDescriptor.class);
         if (descriptor.isEmpty()) {
             return;
@@ -234,67 +232,67 @@ public class MdibMapper {
 
         mapZeroOrMoreDescriptors(
                 descriptorCopy,
-                mdibAccess.getChildrenByType(mds.getHandle(), BatteryDescriptor.class),
+                access.getChildrenByType(mds.getHandle(), BatteryDescriptor.class),
                 "getBattery");
         mapZeroOrOneDescriptor(
                 descriptorCopy,
-                mdibAccess.getChildrenByType(mds.getHandle(), ClockDescriptor.class),
+                access.getChildrenByType(mds.getHandle(), ClockDescriptor.class),
                 "setClock");
-        mapAlertSystem(descriptorCopy, mdibAccess.getChildrenByType(mds.getHandle(),
+        mapAlertSystem(access, descriptorCopy, access.getChildrenByType(mds.getHandle(),
                 AlertSystemDescriptor.class));
-        mapSco(descriptorCopy, mdibAccess.getChildrenByType(mds.getHandle(),
+        mapSco(access, descriptorCopy, access.getChildrenByType(mds.getHandle(),
                 ScoDescriptor.class));
-        mapSystemContext(descriptorCopy, mdibAccess.getChildrenByType(mds.getHandle(),
+        mapSystemContext(access, descriptorCopy, access.getChildrenByType(mds.getHandle(),
                 SystemContextDescriptor.class));
-        mapVmds(descriptorCopy, mdibAccess.getChildrenByType(mds.getHandle(),
+        mapVmds(access, descriptorCopy, access.getChildrenByType(mds.getHandle(),
                 VmdDescriptor.class));
 
         mdDescription.getMds().add(descriptorCopy);
     }
 
-    private void mapVmds(MdsDescriptor parent, List<MdibEntity> vmds) {
+    private void mapVmds(MdibAccess access, MdsDescriptor parent, List<MdibEntity> vmds) {
         for (MdibEntity vmd : vmds) {
             vmd.getDescriptor(VmdDescriptor.class).ifPresent(vmdDescriptor -> {
                 VmdDescriptor vmdDescriptorCopy = objectUtil.deepCopy(vmdDescriptor);
                 parent.getVmd().add(vmdDescriptorCopy);
-                mapAlertSystem(vmdDescriptorCopy, mdibAccess.getChildrenByType(vmdDescriptorCopy.getHandle(),
+                mapAlertSystem(access, vmdDescriptorCopy, access.getChildrenByType(vmdDescriptorCopy.getHandle(),
                         AlertSystemDescriptor.class));
-                mapSco(vmdDescriptorCopy, mdibAccess.getChildrenByType(vmdDescriptorCopy.getHandle(),
+                mapSco(access, vmdDescriptorCopy, access.getChildrenByType(vmdDescriptorCopy.getHandle(),
                         ScoDescriptor.class));
-                mapChannels(vmdDescriptorCopy, mdibAccess.getChildrenByType(vmdDescriptorCopy.getHandle(),
+                mapChannels(access, vmdDescriptorCopy, access.getChildrenByType(vmdDescriptorCopy.getHandle(),
                         ChannelDescriptor.class));
             });
         }
     }
 
-    private void mapChannels(VmdDescriptor parent, List<MdibEntity> channels) {
+    private void mapChannels(MdibAccess access, VmdDescriptor parent, List<MdibEntity> channels) {
         for (MdibEntity channel : channels) {
             channel.getDescriptor(ChannelDescriptor.class).ifPresent(channelDescriptor -> {
                 ChannelDescriptor channelDescriptorCopy = objectUtil.deepCopy(channelDescriptor);
                 parent.getChannel().add(channelDescriptorCopy);
                 mapZeroOrMoreDescriptors(
                         channelDescriptorCopy,
-                        mdibAccess.getChildrenByType(channelDescriptorCopy.getHandle(), AbstractMetricDescriptor.class),
+                        access.getChildrenByType(channelDescriptorCopy.getHandle(), AbstractMetricDescriptor.class),
                         "getMetric");
             });
         }
     }
 
-    private void mapSco(AbstractComplexDeviceComponentDescriptor parent, List<MdibEntity> scos) {
+    private void mapSco(MdibAccess access, AbstractComplexDeviceComponentDescriptor parent, List<MdibEntity> scos) {
         for (MdibEntity sco : scos) {
             sco.getDescriptor(ScoDescriptor.class).ifPresent(scoDescriptor -> {
                 ScoDescriptor scoDescriptorCopy = objectUtil.deepCopy(scoDescriptor);
                 parent.setSco(scoDescriptorCopy);
                 mapZeroOrMoreDescriptors(
                         scoDescriptorCopy,
-                        mdibAccess.getChildrenByType(sco.getHandle(), AbstractOperationDescriptor.class),
+                        access.getChildrenByType(sco.getHandle(), AbstractOperationDescriptor.class),
                         "getOperation");
             });
             break;
         }
     }
 
-    private void mapSystemContext(MdsDescriptor parent, List<MdibEntity> systemContexts) {
+    private void mapSystemContext(MdibAccess access, MdsDescriptor parent, List<MdibEntity> systemContexts) {
         for (MdibEntity systemContext : systemContexts) {
             systemContext.getDescriptor(SystemContextDescriptor.class).ifPresent(systemContextDescriptor -> {
                 SystemContextDescriptor systemContextDescriptorCopy = objectUtil.deepCopy(systemContextDescriptor);
@@ -302,34 +300,36 @@ public class MdibMapper {
                 String parentHandle = systemContextDescriptorCopy.getHandle();
                 mapZeroOrOneDescriptor(
                         systemContextDescriptorCopy,
-                        mdibAccess.getChildrenByType(parentHandle, PatientContextDescriptor.class),
+                        access.getChildrenByType(parentHandle, PatientContextDescriptor.class),
                         "setPatientContext");
                 mapZeroOrOneDescriptor(
                         systemContextDescriptorCopy,
-                        mdibAccess.getChildrenByType(parentHandle, LocationContextDescriptor.class),
+                        access.getChildrenByType(parentHandle, LocationContextDescriptor.class),
                         "setLocationContext");
                 mapZeroOrMoreDescriptors(
                         systemContextDescriptorCopy,
-                        mdibAccess.getChildrenByType(parentHandle, EnsembleContextDescriptor.class),
+                        access.getChildrenByType(parentHandle, EnsembleContextDescriptor.class),
                         "getEnsembleContext");
                 mapZeroOrMoreDescriptors(
                         systemContextDescriptorCopy,
-                        mdibAccess.getChildrenByType(parentHandle, WorkflowContextDescriptor.class),
+                        access.getChildrenByType(parentHandle, WorkflowContextDescriptor.class),
                         "getWorkflowContext");
                 mapZeroOrMoreDescriptors(
                         systemContextDescriptorCopy,
-                        mdibAccess.getChildrenByType(parentHandle, OperatorContextDescriptor.class),
+                        access.getChildrenByType(parentHandle, OperatorContextDescriptor.class),
                         "getOperatorContext");
                 mapZeroOrMoreDescriptors(
                         systemContextDescriptorCopy,
-                        mdibAccess.getChildrenByType(parentHandle, MeansContextDescriptor.class),
+                        access.getChildrenByType(parentHandle, MeansContextDescriptor.class),
                         "getMeansContext");
             });
             break;
         }
     }
 
-    private void mapAlertSystem(AbstractComplexDeviceComponentDescriptor parent, List<MdibEntity> alertSystems) {
+    private void mapAlertSystem(MdibAccess access,
+                                AbstractComplexDeviceComponentDescriptor parent,
+                                List<MdibEntity> alertSystems) {
         if (alertSystems.isEmpty()) {
             return;
         }
@@ -345,11 +345,11 @@ public class MdibMapper {
         parent.setAlertSystem(descriptorCopy);
         mapZeroOrMoreDescriptors(
                 descriptorCopy,
-                mdibAccess.getChildrenByType(descriptorCopy.getHandle(), AlertConditionDescriptor.class),
+                access.getChildrenByType(descriptorCopy.getHandle(), AlertConditionDescriptor.class),
                 "getAlertCondition");
         mapZeroOrMoreDescriptors(
                 descriptorCopy,
-                mdibAccess.getChildrenByType(descriptorCopy.getHandle(), AlertSignalDescriptor.class),
+                access.getChildrenByType(descriptorCopy.getHandle(), AlertSignalDescriptor.class),
                 "getAlertSignal");
     }
 
@@ -5,6 +5,10 @@ import com.google.inject.name.Named;
 import com.sun.xml.bind.marshaller.NamespacePrefixMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.somda.sdc.biceps.common.HandleInterner;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.common.storage.PreprocessingException;
 import org.somda.sdc.biceps.model.message.GetMdibResponse;
 import org.somda.sdc.biceps.model.message.ObjectFactory;
 import org.somda.sdc.biceps.model.participant.Mdib;
@@ -15,15 +19,19 @@ import org.somda.sdc.common.util.PrefixNamespaceMappingParser;
 import org.somda.sdc.dpws.soap.SoapConstants;
 import org.somda.sdc.glue.GlueConstants;
 
+import javax.annotation.Nullable;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigInteger;
 
 /**
  * Utility class to read an {@linkplain Mdib} from an input stream (or file).
@@ -33,6 +41,9 @@ public class MdibXmlIo {
     private final ObjectFactory messageModelFactory;
     private final MdibVersionUtil mdibVersionUtil;
     private final NamespacePrefixMapper namespacePrefixMapper;
+    private final HandleInterner handleInterner;
+    private final MdibTypeValidator typeValidator;
+    private final String frameworkIdentifier;
     private final Logger instanceLogger;
 
     private JAXBContext jaxbContext;
@@ -42,11 +53,16 @@ public class MdibXmlIo {
               MdibVersionUtil mdibVersionUtil,
               PrefixNamespaceMappingParser prefixNamespaceMappingParser,
               NamespacePrefixMapperConverter namespacePrefixMapperConverter,
+              HandleInterner handleInterner,
+              MdibTypeValidator typeValidator,
               @Named(CommonConfig.NAMESPACE_MAPPINGS) String namespaceMappings,
               @Named(org.somda.sdc.common.CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier) {
         this.instanceLogger = InstanceLogger.wrapLogger(LOG, frameworkIdentifier);
         this.messageModelFactory = messageModelFactory;
         this.mdibVersionUtil = mdibVersionUtil;
+        this.handleInterner = handleInterner;
+        this.typeValidator = typeValidator;
+        this.frameworkIdentifier = frameworkIdentifier;
 
         // Append internal namespace prefix mappings
         var namespaceMappingsExtended = namespaceMappings + CommonConstants.NAMESPACE_PREFIX_MAPPINGS_MDPWS +
@@ -61,6 +77,8 @@ public class MdibXmlIo {
 
     /**
      * Reads the MDIB from an input stream.
+     * <p>
+     * Handles are interned if {@link org.somda.sdc.biceps.common.CommonConfig#INTERN_HANDLES} is enabled.
      *
      * @param getMdibResponseStream the input stream to read from.
      * @return the parsed {@link Mdib}.
@@ -68,7 +86,9 @@ public class MdibXmlIo {
      * @throws ClassCastException if something unexpected was read in.
      */
     public Mdib readMdib(InputStream getMdibResponseStream) throws JAXBException, ClassCastException {
-        return ((GetMdibResponse) (jaxbContext.createUnmarshaller().unmarshal(getMdibResponseStream))).getMdib();
+        final Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        unmarshaller.setListener(handleInterner.createUnmarshallerListener());
+        return ((GetMdibResponse) (unmarshaller.unmarshal(getMdibResponseStream))).getMdib();
     }
 
     /**
@@ -86,6 +106,42 @@ public class MdibXmlIo {
         }
     }
 
+    /**
+     * Streams an MDIB from a file into chunks of {@linkplain MdibDescriptionModifications}.
+     * <p>
+     * In contrast to {@link #readMdib(File)} followed by a {@linkplain ModificationsBuilder}, the MDIB is not
+     * unmarshalled at once.
+     * Instead, every MDS, VMD and channel is unmarshalled separately and passed to the consumer as one chunk of
+     * modifications, which includes all descriptors of the MDS, VMD or channel except for VMDs and channels.
+     * Chunks are passed in document order, hence parents precede their children and chunks can be applied one after
+     * another, e.g., by means of {@code remoteMdibAccess::writeDescription}.
+     * As states are required to insert descriptors, the file is read twice: first to count the states of every
+     * descriptor handle, then to read the descriptors along with their states.
+     * Peak memory is thus bounded by the largest MDS, VMD or channel instead of the whole MDIB, provided that states
+     * are in the order of their descriptors; states that are read ahead of their descriptors are buffered.
+     * <p>
+     * Handles are interned if {@link org.somda.sdc.biceps.common.CommonConfig#INTERN_HANDLES} is enabled.
+     *
+     * @param getMdibResponseFile        the GetMdibResponse file to read from.
+     * @param createSingleStateIfMissing if true then missing single states are created, otherwise a runtime exception
+     *                                   is thrown if a single state is missing, see
+     *                                   {@link ModificationsBuilder}.
+     * @param consumer                   the consumer of the modification chunks.
+     * @throws JAXBException          in case JAXB cannot parse an MDS, VMD, channel or state.
+     * @throws XMLStreamException     in case the file is not well-formed or does not contain an MDIB.
+     * @throws IOException            if any IO issues come up, e.g., the file does not exist.
+     * @throws PreprocessingException if the consumer fails to apply a chunk.
+     */
+    public void readMdib(File getMdibResponseFile, Boolean createSingleStateIfMissing, ModificationsConsumer consumer)
+            throws JAXBException, XMLStreamException, IOException, PreprocessingException {
+        final Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
+        unmarshaller.setListener(handleInterner.createUnmarshallerListener());
+        final MdibXmlStreamReader streamReader = new MdibXmlStreamReader(getMdibResponseFile, unmarshaller);
+        final ModificationsBuilder modificationsBuilder = new ModificationsBuilder(streamReader::loadStates,
+                createSingleStateIfMissing, null, typeValidator, frameworkIdentifier);
+        streamReader.read(modificationsBuilder, consumer);
+    }
+
     /**
      * Writes an MDIB to an output stream.
      *
@@ -136,4 +192,24 @@ public class MdibXmlIo {
                     GlueConstants.JAXB_CONTEXT_PATH), e);
         }
     }
+
+    /**
+     * Consumer of the modification chunks of {@link #readMdib(File, Boolean, ModificationsConsumer)}.
+     */
+    @FunctionalInterface
+    public interface ModificationsConsumer {
+        /**
+         * Accepts a chunk of modifications.
+         *
+         * @param mdibVersion          the MDIB version of the MDIB.
+         * @param mdDescriptionVersion the MD description version of the MDIB or null if there is none.
+         * @param mdStateVersion       the MD state version of the MDIB or null if there is none.
+         * @param modifications        the modifications of one MDS, VMD or channel.
+         * @throws PreprocessingException if the modifications cannot be applied.
+         */
+        void accept(MdibVersion mdibVersion,
+                    @Nullable BigInteger mdDescriptionVersion,
+                    @Nullable BigInteger mdStateVersion,
+                    MdibDescriptionModifications modifications) throws PreprocessingException;
+    }
 }
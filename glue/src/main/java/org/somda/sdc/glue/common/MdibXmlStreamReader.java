@@ -0,0 +1,397 @@
+package org.somda.sdc.glue.common;
+
+import com.google.common.collect.ArrayListMultimap;
+import org.somda.sdc.biceps.common.storage.PreprocessingException;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.ChannelDescriptor;
+import org.somda.sdc.biceps.model.participant.MdibVersion;
+import org.somda.sdc.biceps.model.participant.MdsDescriptor;
+import org.somda.sdc.biceps.model.participant.VmdDescriptor;
+
+import javax.annotation.Nullable;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.somda.sdc.biceps.common.CommonConstants.NAMESPACE_MESSAGE;
+import static org.somda.sdc.biceps.common.CommonConstants.NAMESPACE_PARTICIPANT;
+
+/**
+ * Streams an MDIB from a GetMdibResponse file into
+ * {@linkplain org.somda.sdc.biceps.common.MdibDescriptionModifications} chunks, see {@link MdibXmlIo#readMdib(File, Boolean, MdibXmlIo.ModificationsConsumer)}.
+ * <p>
+ * The file is read twice as states succeed descriptors in an MDIB, but are required to insert descriptors:
+ * <ol>
+ * <li>the first pass reads the MDIB versions and counts the states of every descriptor handle,
+ * <li>the second pass unmarshals one MDS, VMD or channel at a time.
+ * </ol>
+ * States are loaded on demand during the second pass by means of {@link #loadStates(String)}, which unmarshals the
+ * states from a second reader that moves forward through the states of the file.
+ * States that are read before their descriptor has been requested are buffered until it is requested, hence states
+ * that are in the order of their descriptors are never held longer than their MDS, VMD or channel.
+ * MDS and VMD elements are unmarshalled without their VMD and channel children, which are always the last
+ * children of an MDS and VMD, respectively.
+ * Therefore, the content preceding the first VMD or channel is copied into a separate document and unmarshalled from
+ * there, whereas channels are unmarshalled from the file.
+ */
+class MdibXmlStreamReader {
+    private static final QName MDIB = new QName(NAMESPACE_MESSAGE, "Mdib");
+    private static final QName MD_DESCRIPTION = new QName(NAMESPACE_PARTICIPANT, "MdDescription");
+    private static final QName MD_STATE = new QName(NAMESPACE_PARTICIPANT, "MdState");
+    private static final QName MDS = new QName(NAMESPACE_PARTICIPANT, "Mds");
+    private static final QName VMD = new QName(NAMESPACE_PARTICIPANT, "Vmd");
+    private static final QName CHANNEL = new QName(NAMESPACE_PARTICIPANT, "Channel");
+    private static final QName STATE = new QName(NAMESPACE_PARTICIPANT, "State");
+
+    private final File file;
+    private final Unmarshaller unmarshaller;
+    private final XMLInputFactory inputFactory;
+    private final XMLOutputFactory outputFactory;
+    private final Deque<Map<String, String>> namespaces;
+    private final Map<String, Integer> stateCounts;
+    private final ArrayListMultimap<String, AbstractState> bufferedStates;
+
+    private MdibVersion mdibVersion;
+    private BigInteger mdDescriptionVersion;
+    private BigInteger mdStateVersion;
+    private XMLStreamReader stateReader;
+
+    MdibXmlStreamReader(File file, Unmarshaller unmarshaller) {
+        this.file = file;
+        this.unmarshaller = unmarshaller;
+        this.inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.outputFactory = XMLOutputFactory.newFactory();
+        this.namespaces = new ArrayDeque<>();
+        this.stateCounts = new HashMap<>();
+        this.bufferedStates = ArrayListMultimap.create();
+    }
+
+    /**
+     * Reads the file.
+     *
+     * @param modificationsBuilder builder that converts each MDS, VMD and channel and is supposed to take states from
+     *                             {@link #loadStates(String)}.
+     * @param consumer             the consumer of the resulting chunks.
+     */
+    void read(ModificationsBuilder modificationsBuilder, MdibXmlIo.ModificationsConsumer consumer)
+            throws IOException, XMLStreamException, JAXBException, PreprocessingException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            countStates(inputFactory.createXMLStreamReader(inputStream));
+        }
+        if (mdibVersion == null) {
+            throw new XMLStreamException(String.format("File %s does not contain an MDIB", file));
+        }
+
+        try (InputStream inputStream = new FileInputStream(file);
+             InputStream stateInputStream = new FileInputStream(file)) {
+            stateReader = inputFactory.createXMLStreamReader(stateInputStream);
+            readDescription(inputFactory.createXMLStreamReader(inputStream), (descriptor, parentHandle) ->
+                    consumer.accept(mdibVersion, mdDescriptionVersion, mdStateVersion,
+                            modificationsBuilder.build(descriptor, parentHandle)));
+        } catch (StateLoadingException e) {
+            e.rethrowCause();
+        } finally {
+            stateReader = null;
+            bufferedStates.clear();
+        }
+    }
+
+    /**
+     * Loads the states of a descriptor.
+     * <p>
+     * Each descriptor handle is supposed to be requested once while {@link #read(ModificationsBuilder,
+     * MdibXmlIo.ModificationsConsumer)} is in progress.
+     *
+     * @param descriptorHandle the handle of the descriptor to load the states of.
+     * @return the states of the descriptor, which is empty if the file does not contain any.
+     */
+    List<AbstractState> loadStates(String descriptorHandle) {
+        var stateCount = stateCounts.remove(descriptorHandle);
+        var states = new ArrayList<AbstractState>(bufferedStates.removeAll(descriptorHandle));
+        if (stateCount == null) {
+            return states;
+        }
+
+        try {
+            while (states.size() < stateCount) {
+                var state = nextState();
+                if (descriptorHandle.equals(state.getDescriptorHandle())) {
+                    states.add(state);
+                } else {
+                    bufferedStates.put(state.getDescriptorHandle(), state);
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new StateLoadingException(e);
+        } catch (JAXBException e) {
+            throw new StateLoadingException(e);
+        }
+        return states;
+    }
+
+    private AbstractState nextState() throws XMLStreamException, JAXBException {
+        var event = stateReader.getEventType();
+        while (true) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                var name = stateReader.getName();
+                if (STATE.equals(name)) {
+                    // the unmarshaller leaves the reader at the event following the end of the state
+                    return unmarshaller.unmarshal(stateReader, AbstractState.class).getValue();
+                }
+                if (MD_DESCRIPTION.equals(name)) {
+                    skipElement(stateReader);
+                }
+            }
+            if (!stateReader.hasNext()) {
+                throw new XMLStreamException(String.format("File %s ended before all states have been read", file));
+            }
+            event = stateReader.next();
+        }
+    }
+
+    private void countStates(XMLStreamReader reader) throws XMLStreamException {
+        var event = reader.getEventType();
+        while (true) {
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                var name = reader.getName();
+                if (MDIB.equals(name)) {
+                    mdibVersion = new MdibVersion(reader.getAttributeValue(null, "SequenceId"),
+                            integerAttribute(reader, "MdibVersion", BigInteger.ZERO),
+                            integerAttribute(reader, "InstanceId", BigInteger.ZERO));
+                } else if (MD_DESCRIPTION.equals(name)) {
+                    mdDescriptionVersion = integerAttribute(reader, "DescriptionVersion", null);
+                    skipElement(reader);
+                } else if (MD_STATE.equals(name)) {
+                    mdStateVersion = integerAttribute(reader, "StateVersion", null);
+                } else if (STATE.equals(name)) {
+                    stateCounts.merge(reader.getAttributeValue(null, "DescriptorHandle"), 1, Integer::sum);
+                    skipElement(reader);
+                }
+            }
+            if (!reader.hasNext()) {
+                return;
+            }
+            event = reader.next();
+        }
+    }
+
+    private void readDescription(XMLStreamReader reader, DescriptorConsumer consumer)
+            throws XMLStreamException, JAXBException, PreprocessingException {
+        var inDescription = false;
+        while (reader.hasNext()) {
+            var event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                var name = reader.getName();
+                if (MDS.equals(name) && inDescription) {
+                    readContainer(reader, null, consumer);
+                    continue;
+                }
+                if (inDescription) {
+                    skipElement(reader);
+                    continue;
+                }
+                pushNamespaces(reader);
+                inDescription = MD_DESCRIPTION.equals(name);
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (MD_DESCRIPTION.equals(reader.getName())) {
+                    return;
+                }
+                namespaces.pop();
+            }
+        }
+    }
+
+    /**
+     * Reads an MDS or VMD and its VMD or channel children.
+     * <p>
+     * The reader is expected to be positioned at the start of the element and is left at the end of the element.
+     */
+    private void readContainer(XMLStreamReader reader, @Nullable String parentHandle, DescriptorConsumer consumer)
+            throws XMLStreamException, JAXBException, PreprocessingException {
+        final boolean isMds = MDS.equals(reader.getName());
+        final QName childName = isMds ? VMD : CHANNEL;
+        final Class<? extends AbstractDescriptor> type = isMds ? MdsDescriptor.class : VmdDescriptor.class;
+
+        pushNamespaces(reader);
+        var copy = new ByteArrayOutputStream();
+        var writer = outputFactory.createXMLStreamWriter(copy, StandardCharsets.UTF_8.name());
+        writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+        copyStartElement(reader, writer, true);
+
+        AbstractDescriptor container = null;
+        var depth = 0;
+        var event = reader.next();
+        while (true) {
+            if (event == XMLStreamConstants.START_ELEMENT && depth == 0 && childName.equals(reader.getName())) {
+                if (container == null) {
+                    container = unmarshalCopy(writer, copy, type);
+                    consumer.accept(container, parentHandle);
+                }
+                if (isMds) {
+                    readContainer(reader, container.getHandle(), consumer);
+                    event = reader.next();
+                } else {
+                    var channel = unmarshaller.unmarshal(reader, ChannelDescriptor.class).getValue();
+                    consumer.accept(channel, container.getHandle());
+                    event = reader.getEventType();
+                }
+                continue;
+            }
+
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (container != null) {
+                        throw new XMLStreamException(String.format("Unexpected element %s after %s",
+                                reader.getName(), childName), reader.getLocation());
+                    }
+                    copyStartElement(reader, writer, false);
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == 0) {
+                        if (container == null) {
+                            consumer.accept(unmarshalCopy(writer, copy, type), parentHandle);
+                        }
+                        namespaces.pop();
+                        return;
+                    }
+                    writer.writeEndElement();
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (container == null) {
+                        writer.writeCharacters(reader.getText());
+                    }
+                    break;
+                default:
+                    break;
+            }
+            event = reader.next();
+        }
+    }
+
+    private <T extends AbstractDescriptor> T unmarshalCopy(XMLStreamWriter writer,
+                                                           ByteArrayOutputStream copy,
+                                                           Class<T> type) throws XMLStreamException, JAXBException {
+        writer.writeEndDocument();
+        writer.close();
+        var copyReader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(copy.toByteArray()));
+        return unmarshaller.unmarshal(copyReader, type).getValue();
+    }
+
+    private void copyStartElement(XMLStreamReader reader, XMLStreamWriter writer, boolean declareInScopeNamespaces)
+            throws XMLStreamException {
+        writer.writeStartElement(reader.getPrefix(), reader.getLocalName(), reader.getNamespaceURI());
+        Map<String, String> declarations = new LinkedHashMap<>();
+        if (declareInScopeNamespaces) {
+            // prefixes of the copied document, including the ones used in attribute values like xsi:type
+            namespaces.descendingIterator().forEachRemaining(declarations::putAll);
+        } else {
+            for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                declarations.put(prefix(reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
+            }
+        }
+        for (Map.Entry<String, String> declaration : declarations.entrySet()) {
+            if (declaration.getKey().isEmpty()) {
+                writer.writeDefaultNamespace(declaration.getValue());
+            } else {
+                writer.writeNamespace(declaration.getKey(), declaration.getValue());
+            }
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            var namespace = reader.getAttributeNamespace(i);
+            if (namespace == null || namespace.isEmpty()) {
+                writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            } else {
+                writer.writeAttribute(prefix(reader.getAttributePrefix(i)), namespace,
+                        reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+            }
+        }
+    }
+
+    private void pushNamespaces(XMLStreamReader reader) {
+        Map<String, String> declarations = new LinkedHashMap<>();
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            declarations.put(prefix(reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
+        }
+        namespaces.push(declarations);
+    }
+
+    private static String prefix(@Nullable String prefix) {
+        return prefix == null ? "" : prefix;
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        var depth = 0;
+        while (reader.hasNext()) {
+            var event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+            }
+        }
+    }
+
+    private static BigInteger integerAttribute(XMLStreamReader reader, String name, @Nullable BigInteger defaultValue) {
+        var value = reader.getAttributeValue(null, name);
+        return value == null ? defaultValue : new BigInteger(value.trim());
+    }
+
+    /**
+     * Transports exceptions of {@link #loadStates(String)} through the {@linkplain ModificationsBuilder}.
+     */
+    private static final class StateLoadingException extends RuntimeException {
+        StateLoadingException(XMLStreamException cause) {
+            super(cause);
+        }
+
+        StateLoadingException(JAXBException cause) {
+            super(cause);
+        }
+
+        void rethrowCause() throws XMLStreamException, JAXBException {
+            if (getCause() instanceof XMLStreamException) {
+                throw (XMLStreamException) getCause();
+            }
+            throw (JAXBException) getCause();
+        }
+    }
+
+    /**
+     * Receives an MDS, VMD or channel.
+     */
+    @FunctionalInterface
+    private interface DescriptorConsumer {
+        void accept(AbstractDescriptor descriptor, @Nullable String parentHandle) throws PreprocessingException;
+    }
+}
@@ -25,6 +25,7 @@ import org.somda.sdc.glue.common.helper.DefaultStateValuesDispatcher;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Utility class to create an {@linkplain MdibDescriptionModifications} object from an {@linkplain Mdib} container.
@@ -37,8 +38,8 @@ import java.util.List;
 public class ModificationsBuilder {
     private static final Logger LOG = LogManager.getLogger(ModificationsBuilder.class);
 
-    private final ArrayListMultimap<String, AbstractState> states;
-    private final MdibDescriptionModifications modifications;
+    private final Function<String, List<AbstractState>> stateLoader;
+    private MdibDescriptionModifications modifications;
 
     private final Boolean createSingleStateIfMissing;
     private final MdibTypeValidator typeValidator;
@@ -66,6 +67,22 @@ public class ModificationsBuilder {
                          @Assisted @Nullable DefaultStateValues defaultStateValues,
                          MdibTypeValidator typeValidator,
                          @Named(org.somda.sdc.common.CommonConfig.INSTANCE_IDENTIFIER) String frameworkIdentifier) {
+        this(indexStates(mdib, createSingleStateIfMissing)::removeAll, createSingleStateIfMissing, defaultStateValues,
+                typeValidator, frameworkIdentifier);
+        mdib.getMdDescription().getMds().forEach(this::build);
+    }
+
+    /**
+     * Creates a builder that converts descriptor subtrees one at a time by means of
+     * {@link #build(AbstractDescriptor, String)}.
+     * <p>
+     * The states of a descriptor are requested once from the given loader, which allows to load them on demand.
+     */
+    ModificationsBuilder(Function<String, List<AbstractState>> stateLoader,
+                         Boolean createSingleStateIfMissing,
+                         @Nullable DefaultStateValues defaultStateValues,
+                         MdibTypeValidator typeValidator,
+                         String frameworkIdentifier) {
         this.instanceLogger = InstanceLogger.wrapLogger(LOG, frameworkIdentifier);
         this.createSingleStateIfMissing = createSingleStateIfMissing;
         this.typeValidator = typeValidator;
@@ -74,19 +91,8 @@ public class ModificationsBuilder {
             copyDefaultStateValues = new RequiredDefaultStateValues();
         }
         this.defaultStateValuesDispatcher = new DefaultStateValuesDispatcher(copyDefaultStateValues);
-
-        if (!createSingleStateIfMissing && mdib.getMdState() == null) {
-            throw new RuntimeException("No states found but required. " +
-                    "Try using createSingleStateIfMissing=false to auto-create states");
-        }
-
-        this.states = ArrayListMultimap.create();
-        if (mdib.getMdState() != null) {
-            mdib.getMdState().getState().forEach(state -> states.put(state.getDescriptorHandle(), state));
-        }
-
+        this.stateLoader = stateLoader;
         this.modifications = MdibDescriptionModifications.create();
-        mdib.getMdDescription().getMds().forEach(this::build);
     }
 
     /**
@@ -99,6 +105,43 @@ public class ModificationsBuilder {
         return modifications;
     }
 
+    /**
+     * Creates the modifications of a single MDS, VMD or channel and the descriptors it contains.
+     *
+     * @param descriptor   the MDS, VMD or channel to convert.
+     * @param parentHandle the handle of the parent of the descriptor, which is null for an MDS.
+     * @return the modifications that insert the descriptor subtree.
+     * @throws IllegalArgumentException if the descriptor is not an MDS, VMD or channel.
+     */
+    MdibDescriptionModifications build(AbstractDescriptor descriptor, @Nullable String parentHandle) {
+        this.modifications = MdibDescriptionModifications.create();
+        if (descriptor instanceof MdsDescriptor) {
+            build((MdsDescriptor) descriptor);
+        } else if (descriptor instanceof VmdDescriptor) {
+            build((VmdDescriptor) descriptor, parentHandle);
+        } else if (descriptor instanceof ChannelDescriptor) {
+            build((ChannelDescriptor) descriptor, parentHandle);
+        } else {
+            throw new IllegalArgumentException(String.format("Descriptor %s is not an MDS, VMD or channel",
+                    descriptor.getHandle()));
+        }
+        return modifications;
+    }
+
+    private static ArrayListMultimap<String, AbstractState> indexStates(Mdib mdib,
+                                                                        Boolean createSingleStateIfMissing) {
+        if (!createSingleStateIfMissing && mdib.getMdState() == null) {
+            throw new RuntimeException("No states found but required. " +
+                    "Try using createSingleStateIfMissing=false to auto-create states");
+        }
+
+        final ArrayListMultimap<String, AbstractState> states = ArrayListMultimap.create();
+        if (mdib.getMdState() != null) {
+            mdib.getMdState().getState().forEach(state -> states.put(state.getDescriptorHandle(), state));
+        }
+        return states;
+    }
+
     private void build(MdsDescriptor mds) {
         insert(mds, null);
 
@@ -113,7 +156,7 @@ public class ModificationsBuilder {
         mds.setClock(null);
         mds.getBattery().forEach(descr -> buildLeaf(descr, mds));
         mds.setBattery(null);
-        mds.getVmd().forEach(descr -> build(descr, mds));
+        mds.getVmd().forEach(descr -> build(descr, mds.getHandle()));
         mds.setVmd(null);
     }
 
@@ -121,7 +164,7 @@ public class ModificationsBuilder {
         if (sco == null) {
             return;
         }
-        insert(sco, parent);
+        insert(sco, parent.getHandle());
 
         sco.getOperation().forEach(descriptor -> buildLeaf(descriptor, sco));
         sco.setOperation(null);
@@ -131,7 +174,7 @@ public class ModificationsBuilder {
         if (systemContext == null) {
             return;
         }
-        insert(systemContext, parent);
+        insert(systemContext, parent.getHandle());
 
         buildMultiStateLeaf(systemContext.getLocationContext(), systemContext);
         systemContext.setLocationContext(null);
@@ -151,7 +194,7 @@ public class ModificationsBuilder {
         if (alertSystem == null) {
             return;
         }
-        insert(alertSystem, parent);
+        insert(alertSystem, parent.getHandle());
 
         alertSystem.getAlertCondition().forEach(descr -> buildLeaf(descr, alertSystem));
         alertSystem.setAlertCondition(null);
@@ -159,25 +202,25 @@ public class ModificationsBuilder {
         alertSystem.setAlertSignal(null);
     }
 
-    private void build(@Nullable VmdDescriptor vmd, AbstractDescriptor parent) {
+    private void build(@Nullable VmdDescriptor vmd, String parentHandle) {
         if (vmd == null) {
             return;
         }
-        insert(vmd, parent);
+        insert(vmd, parentHandle);
 
         build(vmd.getSco(), vmd);
         vmd.setSco(null);
         build(vmd.getAlertSystem(), vmd);
         vmd.setAlertSystem(null);
-        vmd.getChannel().forEach(descr -> build(descr, vmd));
+        vmd.getChannel().forEach(descr -> build(descr, vmd.getHandle()));
         vmd.setChannel(null);
     }
 
-    private void build(@Nullable ChannelDescriptor channel, AbstractDescriptor parent) {
+    private void build(@Nullable ChannelDescriptor channel, String parentHandle) {
         if (channel == null) {
             return;
         }
-        insert(channel, parent);
+        insert(channel, parentHandle);
         channel.getMetric().forEach(descr -> buildLeaf(descr, channel));
         channel.setMetric(null);
     }
@@ -195,7 +238,7 @@ public class ModificationsBuilder {
     }
 
     private AbstractState singleState(AbstractDescriptor descriptor) {
-        final List<AbstractState> statesCollection = states.get(descriptor.getHandle());
+        final List<AbstractState> statesCollection = stateLoader.apply(descriptor.getHandle());
         if (statesCollection.isEmpty()) {
             if (createSingleStateIfMissing) {
                 try {
@@ -219,7 +262,7 @@ public class ModificationsBuilder {
     }
 
     private List<AbstractMultiState> multiStates(AbstractDescriptor descriptor) {
-        final List<AbstractState> abstractStates = states.get(descriptor.getHandle());
+        final List<AbstractState> abstractStates = stateLoader.apply(descriptor.getHandle());
         ArrayList<AbstractMultiState> abstractMultiStates = new ArrayList<>(abstractStates.size());
         abstractStates.forEach(abstractState -> {
             if (abstractState instanceof AbstractMultiState) {
@@ -230,11 +273,7 @@ public class ModificationsBuilder {
         return abstractMultiStates;
     }
 
-    private void insert(AbstractDescriptor descriptor, @Nullable AbstractDescriptor parent) {
-        String parentHandle = null;
-        if (parent != null) {
-            parentHandle = parent.getHandle();
-        }
+    private void insert(AbstractDescriptor descriptor, @Nullable String parentHandle) {
         modifications.insert(descriptor, singleState(descriptor), parentHandle);
     }
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package org.somda.sdc.glue.common;
+
+import com.google.inject.Injector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.somda.sdc.biceps.common.CommonConstants;
+import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
+import org.somda.sdc.biceps.model.participant.MdsDescriptor;
+import org.somda.sdc.biceps.model.participant.Mdib;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+import org.somda.sdc.biceps.provider.access.LocalMdibAccess;
+import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
+import org.somda.sdc.biceps.testutil.BaseTreeModificationsSet;
+import org.somda.sdc.biceps.testutil.MockEntryFactory;
+import org.somda.sdc.common.util.SampleList;
+import org.somda.sdc.glue.GlueConstants;
+import org.somda.sdc.glue.UnitTestUtil;
+import org.somda.sdc.glue.common.factory.MdibMapperFactory;
+import test.org.somda.common.LoggingTestWatcher;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LoggingTestWatcher.class)
+class MdibBinaryIoTest {
+    private static final UnitTestUtil UT = new UnitTestUtil();
+
+    private MdibBinaryIo mdibBinaryIo;
+    private LocalMdibAccess localMdibAccess;
+    private Mdib expectedMdib;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        Injector injector = UT.getInjector();
+        mdibBinaryIo = injector.getInstance(MdibBinaryIo.class);
+        final BaseTreeModificationsSet baseTreeModificationsSet = new BaseTreeModificationsSet(
+                new MockEntryFactory(injector.getInstance(MdibTypeValidator.class)));
+
+        localMdibAccess = injector.getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        localMdibAccess.writeDescription(baseTreeModificationsSet.createFullyPopulatedTree());
+
+        final MdibMapper mdibMapper = injector.getInstance(MdibMapperFactory.class).createMdibMapper(localMdibAccess);
+        expectedMdib = mdibMapper.mapMdib();
+
+        // add content that is not part of the fully populated tree
+        var document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        var element = document.createElementNS("urn:example", "ex:Unknown");
+        element.setAttribute("Attribute", "value");
+        element.setTextContent("text");
+        expectedMdib.getMdDescription().getMds().get(0).getExtension().getAny().add(element);
+        expectedMdib.getMdState().getState().stream()
+                .filter(state -> state instanceof RealTimeSampleArrayMetricState)
+                .map(state -> (RealTimeSampleArrayMetricState) state)
+                .filter(state -> state.getMetricValue() != null)
+                .forEach(state -> state.getMetricValue().setSamples(SampleList.ofDoubles(1.5, -2.25, 3.0)));
+    }
+
+    @Test
+    void ioRoundTrip() throws Exception {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        mdibBinaryIo.writeMdib(expectedMdib, outputStream);
+        final Mdib actualMdib = mdibBinaryIo.readMdib(new ByteArrayInputStream(outputStream.toByteArray()));
+
+        assertEquals(marshal(expectedMdib), marshal(actualMdib));
+    }
+
+    @Test
+    void lazyAccess(@TempDir Path directory) throws Exception {
+        final var file = directory.resolve("mdib.bin").toFile();
+        mdibBinaryIo.writeMdib(expectedMdib, file);
+        final MdibBinaryFile mdibBinaryFile = mdibBinaryIo.openMdib(file);
+
+        assertEquals(expectedMdib.getMdibVersion(), mdibBinaryFile.getMdibVersion().getVersion());
+        assertEquals(expectedMdib.getSequenceId(), mdibBinaryFile.getMdibVersion().getSequenceId());
+        assertEquals(expectedMdib.getMdDescription().getDescriptionVersion(),
+                mdibBinaryFile.getMdDescriptionVersion());
+        assertEquals(expectedMdib.getMdState().getStateVersion(), mdibBinaryFile.getMdStateVersion());
+
+        final var handles = mdibBinaryFile.getDescriptorHandles();
+        assertEquals(expectedMdib.getMdDescription().getMds().get(0).getHandle(), handles.get(0));
+        for (String handle : handles) {
+            final MdibEntity entity = localMdibAccess.getEntity(handle).orElseThrow();
+            assertEquals(entity.getParent(), mdibBinaryFile.getParentHandle(handle));
+            assertEquals(entity.getDescriptorClass(), mdibBinaryFile.getDescriptorType(handle).orElseThrow());
+            assertEquals(entity.getDescriptor().getDescriptorVersion(),
+                    mdibBinaryFile.getDescriptor(handle).orElseThrow().getDescriptorVersion());
+            assertEquals(entity.getStates().size(), mdibBinaryFile.getStates(handle).size());
+            entity.getParent().ifPresent(parent -> assertTrue(handles.indexOf(parent) < handles.indexOf(handle)));
+        }
+
+        final var mdsHandle = expectedMdib.getMdDescription().getMds().get(0).getHandle();
+        final var mds = mdibBinaryFile.getDescriptor(mdsHandle, MdsDescriptor.class).orElseThrow();
+        assertTrue(mds.getVmd().isEmpty());
+        assertEquals(expectedMdib.getMdDescription().getMds().get(0).getExtension().getAny().size(),
+                mds.getExtension().getAny().size());
+        assertFalse(mdibBinaryFile.getDescriptor("unknown").isPresent());
+        assertTrue(mdibBinaryFile.getStates("unknown").isEmpty());
+
+        assertEquals(marshal(expectedMdib), marshal(mdibBinaryIo.readMdib(file)));
+    }
+
+    @Test
+    void invalidInput() {
+        assertThrows(IOException.class, () -> mdibBinaryIo.readMdib(new ByteArrayInputStream(new byte[32])));
+        assertThrows(IOException.class, () -> mdibBinaryIo.readMdib(new ByteArrayInputStream(new byte[0])));
+    }
+
+    private static String marshal(Mdib mdib) throws Exception {
+        final var writer = new StringWriter();
+        JAXBContext.newInstance(GlueConstants.JAXB_CONTEXT_PATH).createMarshaller().marshal(new JAXBElement<>(
+                new QName(CommonConstants.NAMESPACE_PARTICIPANT, "Mdib"), Mdib.class, mdib), writer);
+        return writer.toString();
+    }
+}
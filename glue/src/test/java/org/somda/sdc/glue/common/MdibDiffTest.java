@@ -0,0 +1,154 @@
+package org.somda.sdc.glue.common;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.somda.sdc.biceps.common.MdibDescriptionModification;
+import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibStateModifications;
+import org.somda.sdc.biceps.common.MdibTypeValidator;
+import org.somda.sdc.biceps.model.participant.ChannelDescriptor;
+import org.somda.sdc.biceps.model.participant.ComponentActivation;
+import org.somda.sdc.biceps.model.participant.Mdib;
+import org.somda.sdc.biceps.model.participant.NumericMetricState;
+import org.somda.sdc.biceps.model.participant.SafetyClassification;
+import org.somda.sdc.biceps.model.participant.VmdDescriptor;
+import org.somda.sdc.biceps.provider.access.LocalMdibAccess;
+import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
+import org.somda.sdc.biceps.testutil.BaseTreeModificationsSet;
+import org.somda.sdc.biceps.testutil.Handles;
+import org.somda.sdc.biceps.testutil.MockEntryFactory;
+import org.somda.sdc.common.util.ObjectUtil;
+import org.somda.sdc.glue.UnitTestUtil;
+import org.somda.sdc.glue.common.factory.MdibMapperFactory;
+import org.somda.sdc.glue.common.factory.ModificationsBuilderFactory;
+import test.org.somda.common.LoggingTestWatcher;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LoggingTestWatcher.class)
+class MdibDiffTest {
+    private static final UnitTestUtil UT = new UnitTestUtil();
+
+    private MockEntryFactory mockEntryFactory;
+    private LocalMdibAccess mdibAccess;
+    private MdibMapper mdibMapper;
+    private MdibDiff mdibDiff;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        mockEntryFactory = new MockEntryFactory(UT.getInjector().getInstance(MdibTypeValidator.class));
+        mdibAccess = UT.getInjector().getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        mdibAccess.writeDescription(new BaseTreeModificationsSet(mockEntryFactory).createBaseTree());
+        mdibMapper = UT.getInjector().getInstance(MdibMapperFactory.class).createMdibMapper(mdibAccess);
+        mdibDiff = UT.getInjector().getInstance(MdibDiff.class);
+    }
+
+    @Test
+    void equalMdibs() {
+        // When an MDIB is compared to itself or a mapped version of itself
+        // Then expect no modifications
+        assertTrue(mdibDiff.diff(mdibAccess, mdibAccess).isEmpty());
+        assertTrue(mdibDiff.diff(mdibAccess, mdibMapper.mapMdib()).isEmpty());
+        assertTrue(mdibDiff.diff(mdibMapper.mapMdib(), mdibMapper.mapMdib()).isEmpty());
+    }
+
+    @Test
+    void minimalModifications() throws Exception {
+        // Given an MDIB container of the initial MDIB
+        var initialMdib = mdibMapper.mapMdib();
+
+        // When a state is updated, a descriptor is updated, a channel is inserted and a metric is deleted
+        modifyMdib();
+        var modifiedMdib = mdibMapper.mapMdib();
+        var result = mdibDiff.diff(initialMdib, modifiedMdib);
+
+        // Then expect only the affected entities to be part of the description modifications
+        var modifications = result.getDescriptionModifications().getModifications();
+        assertEquals(3, modifications.size());
+        assertEquals(MdibDescriptionModification.Type.DELETE, modifications.get(0).getModificationType());
+        assertEquals(Handles.METRIC_4, modifications.get(0).getHandle());
+        assertEquals(MdibDescriptionModification.Type.INSERT, modifications.get(1).getModificationType());
+        assertEquals(Handles.CHANNEL_2, modifications.get(1).getHandle());
+        assertEquals(Handles.VMD_1, modifications.get(1).getParentHandle().orElseThrow());
+        assertEquals(MdibDescriptionModification.Type.UPDATE, modifications.get(2).getModificationType());
+        assertEquals(Handles.VMD_0, modifications.get(2).getHandle());
+
+        // Then expect only the updated state to be part of the state modifications
+        assertEquals(1, result.getStateModifications().size());
+        var stateModifications = result.getStateModifications().get(0);
+        assertEquals(MdibStateModifications.Type.METRIC, stateModifications.getChangeType());
+        assertEquals(List.of(Handles.METRIC_0), stateModifications.getStates().stream()
+                .map(state -> state.getDescriptorHandle())
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void containerVersionsNotTrusted() {
+        // Given MDIB containers with equal versions that differ in a descriptor and a state
+        var initialMdib = mdibMapper.mapMdib();
+        var modifiedMdib = mdibMapper.mapMdib();
+        var mds = modifiedMdib.getMdDescription().getMds().get(0);
+        mds.getVmd().get(0).setSafetyClassification(SafetyClassification.MED_A);
+        var metricState = modifiedMdib.getMdState().getState().stream()
+                .filter(state -> Handles.METRIC_0.equals(state.getDescriptorHandle()))
+                .findFirst().orElseThrow();
+        ((NumericMetricState) metricState).setActivationState(ComponentActivation.OFF);
+
+        // When the containers are compared
+        var result = mdibDiff.diff(initialMdib, modifiedMdib);
+
+        // Then expect the changes to be detected by content
+        var modifications = result.getDescriptionModifications().getModifications();
+        assertEquals(1, modifications.size());
+        assertEquals(MdibDescriptionModification.Type.UPDATE, modifications.get(0).getModificationType());
+        assertEquals(mds.getVmd().get(0).getHandle(), modifications.get(0).getHandle());
+        assertEquals(1, result.getStateModifications().size());
+        assertEquals(Handles.METRIC_0, result.getStateModifications().get(0).getStates().get(0)
+                .getDescriptorHandle());
+    }
+
+    @Test
+    void applyToOtherSequence() throws Exception {
+        // Given an MDIB of another sequence that has been loaded from the initial MDIB
+        var initialMdib = mdibMapper.mapMdib();
+        var otherMdibAccess = UT.getInjector().getInstance(LocalMdibAccessFactory.class).createLocalMdibAccess();
+        otherMdibAccess.writeDescription(UT.getInjector().getInstance(ModificationsBuilderFactory.class)
+                .createModificationsBuilder(UT.getInjector().getInstance(ObjectUtil.class).deepCopy(initialMdib))
+                .get());
+        assertTrue(mdibDiff.diff(otherMdibAccess, initialMdib).isEmpty());
+
+        // When the initial MDIB is modified and the difference is written to the other MDIB
+        modifyMdib();
+        Mdib modifiedMdib = mdibMapper.mapMdib();
+        var result = mdibDiff.diff(otherMdibAccess, modifiedMdib);
+        assertFalse(result.isEmpty());
+        otherMdibAccess.writeDescription(result.getDescriptionModifications());
+        for (MdibStateModifications stateModifications : result.getStateModifications()) {
+            otherMdibAccess.writeStates(stateModifications);
+        }
+
+        // Then expect both MDIBs to be equal regardless of versions
+        assertTrue(mdibDiff.diff(otherMdibAccess, modifiedMdib).isEmpty());
+        assertTrue(mdibDiff.diff(mdibAccess, otherMdibAccess).isEmpty());
+    }
+
+    private void modifyMdib() throws Exception {
+        var metricState = mdibAccess.getState(Handles.METRIC_0, NumericMetricState.class).orElseThrow();
+        metricState.setActivationState(ComponentActivation.OFF);
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.METRIC).add(metricState));
+
+        var vmd = mdibAccess.getDescriptor(Handles.VMD_0, VmdDescriptor.class).orElseThrow();
+        vmd.setSafetyClassification(SafetyClassification.MED_A);
+        mdibAccess.writeDescription(MdibDescriptionModifications.create().update(vmd));
+
+        mdibAccess.writeDescription(MdibDescriptionModifications.create()
+                .insert(mockEntryFactory.entry(Handles.CHANNEL_2, ChannelDescriptor.class, Handles.VMD_1))
+                .delete(Handles.METRIC_4));
+    }
+}
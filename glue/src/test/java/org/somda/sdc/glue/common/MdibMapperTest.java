@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
 import org.somda.sdc.biceps.common.MdibEntity;
+import org.somda.sdc.biceps.common.MdibStateModifications;
 import org.somda.sdc.biceps.common.MdibTypeValidator;
 import org.somda.sdc.biceps.common.storage.PreprocessingException;
 import org.somda.sdc.biceps.model.participant.*;
@@ -19,7 +20,9 @@ import test.org.somda.common.LoggingTestWatcher;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -142,6 +145,43 @@ class MdibMapperTest {
         }
     }
 
+    @Test
+    void mapMdStateWithFilter() throws PreprocessingException {
+        final String secondEnsembleContext = "ensemble_context_2";
+        mdibAccess.writeDescription(baseTreeModificationsSet.createBaseTree());
+        final EnsembleContextState ensembleContextState = new EnsembleContextState();
+        ensembleContextState.setHandle(secondEnsembleContext);
+        ensembleContextState.setDescriptorHandle(Handles.CONTEXTDESCRIPTOR_2);
+        ensembleContextState.setContextAssociation(ContextAssociation.ASSOC);
+        mdibAccess.writeStates(MdibStateModifications.create(MdibStateModifications.Type.CONTEXT)
+                .add(ensembleContextState));
+
+        // states are ordered by the handle references they match rather than by their position in the MDIB
+        assertEquals(List.of(Handles.CHANNEL_1, Handles.MDS_0, Handles.VMD_0),
+                stateHandles(mdibMapper.mapMdState(Arrays.asList(Handles.CHANNEL_1, Handles.MDS_0, Handles.VMD_0))));
+
+        // duplicate and unknown handle references are ignored
+        assertEquals(List.of(Handles.MDS_0, Handles.CHANNEL_1),
+                stateHandles(mdibMapper.mapMdState(Arrays.asList(Handles.MDS_0, Handles.UNKNOWN, Handles.CHANNEL_1,
+                        Handles.MDS_0, Handles.CHANNEL_1))));
+        assertEquals(List.of(Handles.CONTEXT_2),
+                stateHandles(mdibMapper.mapMdState(Arrays.asList(Handles.CONTEXT_2, Handles.CONTEXT_2))));
+
+        // a multi-state descriptor handle includes all of its states
+        assertEquals(List.of(Handles.CONTEXT_2, secondEnsembleContext),
+                stateHandles(mdibMapper.mapMdState(Arrays.asList(Handles.CONTEXTDESCRIPTOR_2))));
+
+        // multi-state handles select single multi-states in filter order
+        assertEquals(List.of(secondEnsembleContext, Handles.CONTEXT_0, Handles.CONTEXT_2),
+                stateHandles(mdibMapper.mapMdState(Arrays.asList(secondEnsembleContext, Handles.CONTEXT_0,
+                        Handles.CONTEXT_2))));
+
+        // multi-states are not repeated if their descriptor handle is part of the filter as well
+        assertEquals(List.of(Handles.CONTEXT_2, secondEnsembleContext),
+                stateHandles(mdibMapper.mapMdState(Arrays.asList(secondEnsembleContext,
+                        Handles.CONTEXTDESCRIPTOR_2))));
+    }
+
     @Test
     void mapMdDescription() throws PreprocessingException {
         final MdibDescriptionModifications baseTree = baseTreeModificationsSet.createBaseTree();
@@ -168,5 +208,22 @@ class MdibMapperTest {
             assertEquals(1, mdDescription.getMds().size());
             assertEquals(Handles.MDS_0, mdDescription.getMds().get(0).getHandle());
         }
+
+        {
+            final MdDescription mdDescription = mdibMapper.mapMdDescription(Arrays.asList(Handles.MDS_1,
+                    Handles.METRIC_0, Handles.CHANNEL_1, Handles.UNKNOWN));
+
+            assertEquals(2, mdDescription.getMds().size());
+            assertEquals(Handles.MDS_0, mdDescription.getMds().get(0).getHandle());
+            assertEquals(Handles.MDS_1, mdDescription.getMds().get(1).getHandle());
+        }
+    }
+
+    private List<String> stateHandles(MdState mdState) {
+        return mdState.getState().stream()
+                .map(state -> state instanceof AbstractMultiState
+                        ? ((AbstractMultiState) state).getHandle()
+                        : state.getDescriptorHandle())
+                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
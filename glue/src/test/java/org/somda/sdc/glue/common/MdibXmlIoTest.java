@@ -4,22 +4,39 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.inject.Injector;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.somda.sdc.biceps.common.MdibDescriptionModifications;
+import org.somda.sdc.biceps.common.MdibEntity;
 import org.somda.sdc.biceps.common.MdibTypeValidator;
 import org.somda.sdc.biceps.common.storage.PreprocessingException;
+import org.somda.sdc.biceps.model.participant.AbstractDescriptor;
 import org.somda.sdc.biceps.model.participant.AbstractState;
+import org.somda.sdc.biceps.model.participant.ChannelDescriptor;
 import org.somda.sdc.biceps.model.participant.Mdib;
+import org.somda.sdc.biceps.model.participant.MdsDescriptor;
+import org.somda.sdc.biceps.model.participant.VmdDescriptor;
 import org.somda.sdc.biceps.provider.access.LocalMdibAccess;
 import org.somda.sdc.biceps.provider.access.factory.LocalMdibAccessFactory;
 import org.somda.sdc.biceps.testutil.BaseTreeModificationsSet;
 import org.somda.sdc.biceps.testutil.MockEntryFactory;
+import org.somda.sdc.glue.GlueConstants;
 import org.somda.sdc.glue.UnitTestUtil;
 import org.somda.sdc.glue.common.factory.MdibMapperFactory;
+import org.somda.sdc.glue.common.factory.ModificationsBuilderFactory;
 import test.org.somda.common.LoggingTestWatcher;
 
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -27,6 +44,7 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 @ExtendWith(LoggingTestWatcher.class)
 class MdibXmlIoTest {
     private static final UnitTestUtil UT = new UnitTestUtil();
+    private static JAXBContext jaxbContext;
 
     @Test
     void ioRoundTrip() throws PreprocessingException, JAXBException {
@@ -62,4 +80,76 @@ class MdibXmlIoTest {
                 assertFalse(states.get(expectedState.getDescriptorHandle()).isEmpty()));
     }
 
+    @Test
+    void streamingRead(@TempDir Path directory) throws Exception {
+        assertStreamingRead(directory, false);
+    }
+
+    @Test
+    void streamingReadWithStatesInReverseOrder(@TempDir Path directory) throws Exception {
+        // states precede the states of preceding descriptors, which requires buffering them while streaming
+        assertStreamingRead(directory, true);
+    }
+
+    private void assertStreamingRead(Path directory, boolean reverseStates) throws Exception {
+        Injector injector = UT.getInjector();
+        final MdibXmlIo mdibXmlIo = injector.getInstance(MdibXmlIo.class);
+        final BaseTreeModificationsSet baseTreeModificationsSet = new BaseTreeModificationsSet(
+                new MockEntryFactory(injector.getInstance(MdibTypeValidator.class)));
+
+        final LocalMdibAccessFactory localMdibAccessFactory = injector.getInstance(LocalMdibAccessFactory.class);
+        final LocalMdibAccess localMdibAccess = localMdibAccessFactory.createLocalMdibAccess();
+        localMdibAccess.writeDescription(baseTreeModificationsSet.createFullyPopulatedTree());
+        final Mdib mdib = injector.getInstance(MdibMapperFactory.class).createMdibMapper(localMdibAccess).mapMdib();
+        if (reverseStates) {
+            Collections.reverse(mdib.getMdState().getState());
+        }
+        final File file = directory.resolve("mdib.xml").toFile();
+        mdibXmlIo.writeMdib(mdib, file);
+
+        final LocalMdibAccess expectedMdibAccess = localMdibAccessFactory.createLocalMdibAccess();
+        expectedMdibAccess.writeDescription(injector.getInstance(ModificationsBuilderFactory.class)
+                .createModificationsBuilder(mdibXmlIo.readMdib(file)).get());
+
+        final LocalMdibAccess actualMdibAccess = localMdibAccessFactory.createLocalMdibAccess();
+        final List<MdibDescriptionModifications> chunks = new ArrayList<>();
+        mdibXmlIo.readMdib(file, false, (mdibVersion, mdDescriptionVersion, mdStateVersion, modifications) -> {
+            assertEquals(mdib.getSequenceId(), mdibVersion.getSequenceId());
+            assertEquals(mdib.getMdibVersion(), mdibVersion.getVersion());
+            assertEquals(mdib.getMdDescription().getDescriptionVersion(), mdDescriptionVersion);
+            assertEquals(mdib.getMdState().getStateVersion(), mdStateVersion);
+            chunks.add(modifications);
+            actualMdibAccess.writeDescription(modifications);
+        });
+
+        // one chunk per MDS, VMD and channel
+        final long containerCount = expectedMdibAccess.findEntitiesByType(AbstractDescriptor.class).stream()
+                .filter(entity -> entity.getDescriptor() instanceof MdsDescriptor
+                        || entity.getDescriptor() instanceof VmdDescriptor
+                        || entity.getDescriptor() instanceof ChannelDescriptor)
+                .count();
+        assertEquals(containerCount, chunks.size());
+
+        assertEquals(expectedMdibAccess.findEntitiesByType(AbstractDescriptor.class).size(), actualMdibAccess.findEntitiesByType(AbstractDescriptor.class).size());
+        for (MdibEntity expectedEntity : expectedMdibAccess.findEntitiesByType(AbstractDescriptor.class)) {
+            final MdibEntity actualEntity = actualMdibAccess.getEntity(expectedEntity.getHandle()).orElseThrow();
+            assertEquals(expectedEntity.getParent(), actualEntity.getParent());
+            assertEquals(expectedEntity.getChildren(), actualEntity.getChildren());
+            assertEquals(marshal(expectedEntity.getDescriptor()), marshal(actualEntity.getDescriptor()));
+            assertEquals(expectedEntity.getStates().size(), actualEntity.getStates().size());
+            for (int i = 0; i < expectedEntity.getStates().size(); i++) {
+                assertEquals(marshal(expectedEntity.getStates().get(i)), marshal(actualEntity.getStates().get(i)));
+            }
+        }
+    }
+
+    private static String marshal(Object object) throws JAXBException {
+        if (jaxbContext == null) {
+            jaxbContext = JAXBContext.newInstance(GlueConstants.JAXB_CONTEXT_PATH);
+        }
+        final StringWriter writer = new StringWriter();
+        jaxbContext.createMarshaller().marshal(
+                new JAXBElement<>(new QName("urn:test", "Element"), Object.class, object), writer);
+        return writer.toString();
+    }
 }
\ No newline at end of file
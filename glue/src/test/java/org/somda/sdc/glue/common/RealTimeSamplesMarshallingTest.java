@@ -0,0 +1,117 @@
+package org.somda.sdc.glue.common;
+
+import com.google.inject.Injector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.somda.sdc.biceps.model.message.WaveformStream;
+import org.somda.sdc.biceps.model.participant.AbstractMetricValue;
+import org.somda.sdc.biceps.model.participant.MeasurementValidity;
+import org.somda.sdc.biceps.model.participant.RealTimeSampleArrayMetricState;
+import org.somda.sdc.biceps.model.participant.SampleArrayValue;
+import org.somda.sdc.common.util.ObjectUtil;
+import org.somda.sdc.common.util.SampleList;
+import org.somda.sdc.dpws.helper.JaxbMarshalling;
+import org.somda.sdc.dpws.soap.SoapConfig;
+import org.somda.sdc.glue.UnitTestUtil;
+import org.somda.sdc.glue.guice.GlueDpwsConfigModule;
+import test.org.somda.common.LoggingTestWatcher;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(LoggingTestWatcher.class)
+class RealTimeSamplesMarshallingTest {
+    private static final UnitTestUtil UT = new UnitTestUtil();
+    private static final QName WAVEFORM_STREAM = new QName(
+            "http://standards.ieee.org/downloads/11073/11073-10207-2017/message", "WaveformStream");
+
+    @Test
+    void primitiveSamples() throws JAXBException {
+        var marshalling = startMarshalling(true);
+        var samples = SampleList.ofDoubles(0.5, -1, 1e-4, 1234.5678);
+
+        var xml = marshal(marshalling, waveformStream(samples));
+        assertTrue(xml.contains("Samples=\"0.5 -1 0.0001 1234.5678\""), xml);
+
+        var actualSamples = unmarshal(marshalling, xml).getState().get(0).getMetricValue().getSamples();
+        assertTrue(actualSamples instanceof SampleList);
+        assertArrayEquals(SampleList.toDoubleArray(samples), SampleList.toDoubleArray(actualSamples));
+    }
+
+    @Test
+    void decimalSamples() throws JAXBException {
+        var marshalling = startMarshalling(false);
+        var samples = List.of(new BigDecimal("0.50"), new BigDecimal("-1"));
+
+        var xml = marshal(marshalling, waveformStream(samples));
+        assertTrue(xml.contains("Samples=\"0.50 -1\""), xml);
+
+        var actualSamples = unmarshal(marshalling, xml).getState().get(0).getMetricValue().getSamples();
+        assertFalse(actualSamples instanceof SampleList);
+        assertEquals(samples, actualSamples);
+    }
+
+    @Test
+    void sampleListsAreNotCopied() {
+        var objectUtil = UT.getInjector().getInstance(ObjectUtil.class);
+        var samples = SampleList.ofFloats(1, 2, 3);
+        var state = waveformStream(samples).getState().get(0);
+
+        var copy = objectUtil.deepCopy(state);
+        assertSame(samples, copy.getMetricValue().getSamples());
+
+        state.freeze();
+        assertSame(samples, state.getMetricValue().getSamples());
+    }
+
+    private JaxbMarshalling startMarshalling(boolean primitiveRealTimeSamples) {
+        Injector injector = UT.createInjectorWithOverrides(new GlueDpwsConfigModule() {
+            @Override
+            protected void customConfigure() {
+                super.customConfigure();
+                bind(SoapConfig.PRIMITIVE_REAL_TIME_SAMPLES, Boolean.class, primitiveRealTimeSamples);
+            }
+        });
+        var marshalling = injector.getInstance(JaxbMarshalling.class);
+        marshalling.startAsync().awaitRunning();
+        return marshalling;
+    }
+
+    private static WaveformStream waveformStream(List<BigDecimal> samples) {
+        var quality = new AbstractMetricValue.MetricQuality();
+        quality.setValidity(MeasurementValidity.VLD);
+        var metricValue = new SampleArrayValue();
+        metricValue.setMetricQuality(quality);
+        metricValue.setSamples(samples);
+        var state = new RealTimeSampleArrayMetricState();
+        state.setDescriptorHandle("waveform");
+        state.setMetricValue(metricValue);
+        var waveformStream = new WaveformStream();
+        waveformStream.setSequenceId("urn:uuid:00000000-0000-0000-0000-000000000000");
+        waveformStream.getState().add(state);
+        return waveformStream;
+    }
+
+    private static String marshal(JaxbMarshalling marshalling, WaveformStream waveformStream) throws JAXBException {
+        var outputStream = new ByteArrayOutputStream();
+        marshalling.marshal(new JAXBElement<>(WAVEFORM_STREAM, WaveformStream.class, waveformStream), outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private static WaveformStream unmarshal(JaxbMarshalling marshalling, String xml) throws JAXBException {
+        return (WaveformStream) marshalling.unmarshal(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,160 @@
+package org.somda.sdc.xjc;
+
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JForEach;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JType;
+import com.sun.tools.xjc.Options;
+import com.sun.tools.xjc.Plugin;
+import com.sun.tools.xjc.outline.ClassOutline;
+import com.sun.tools.xjc.outline.Outline;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.bind.annotation.XmlTransient;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * XJC plugin that makes generated classes implement {@code org.somda.sdc.common.util.Freezable}.
+ * <p>
+ * The plugin adds a frozen flag to each class that does not extend another generated class, a {@code freeze()}
+ * function to each class that recursively freezes nested objects and replaces lists by unmodifiable views, and a guard
+ * to each setter that rejects modifications of frozen objects.
+ * <p>
+ * The frozen flag is no property of the generated classes, hence it is neither marshalled nor copied by code that
+ * has been generated by other plugins.
+ * As setters generated by other plugins are guarded as well, {@code -Xfreezable} is supposed to be the last plugin
+ * option.
+ */
+public class FreezablePlugin extends Plugin {
+    private static final String OPTION_NAME = "Xfreezable";
+    private static final String FREEZABLE_INTERFACE = "org.somda.sdc.common.util.Freezable";
+    private static final String FROZEN_FIELD = "frozen";
+    private static final String FREEZE_METHOD = "freeze";
+    private static final String IS_FROZEN_METHOD = "isFrozen";
+
+    @Override
+    public String getOptionName() {
+        return OPTION_NAME;
+    }
+
+    @Override
+    public String getUsage() {
+        return "  -" + OPTION_NAME + "    :  generate classes that can be frozen to prevent modifications";
+    }
+
+    @Override
+    public boolean run(Outline outline, Options opt, ErrorHandler errorHandler) throws SAXException {
+        var generatedClasses = new HashSet<String>();
+        for (ClassOutline classOutline : outline.getClasses()) {
+            generatedClasses.add(classOutline.implClass.fullName());
+        }
+
+        for (ClassOutline classOutline : outline.getClasses()) {
+            var implClass = classOutline.implClass;
+            if (implClass.fields().containsKey(FROZEN_FIELD)
+                    || implClass.getMethod(IS_FROZEN_METHOD, new JType[0]) != null
+                    || implClass.getMethod(FREEZE_METHOD, new JType[0]) != null) {
+                errorHandler.error(new SAXParseException(String.format(
+                        "Class %s already declares a member that is required to make it freezable",
+                        implClass.fullName()), classOutline.target.getLocator()));
+                return false;
+            }
+
+            // setters are collected before any method is added in order to not guard generated functions
+            var setters = new ArrayList<JMethod>();
+            for (JMethod method : implClass.methods()) {
+                if (method.name().startsWith("set") && (method.mods().getValue() & JMod.STATIC) == 0) {
+                    setters.add(method);
+                }
+            }
+
+            var freezeBody = classOutline.getSuperClass() == null
+                    ? generateRoot(outline.getCodeModel(), implClass)
+                    : generateSubclass(implClass);
+            generateFreezeFields(outline.getCodeModel(), implClass, freezeBody, generatedClasses);
+            setters.forEach(setter -> guardSetter(outline.getCodeModel(), setter));
+        }
+        return true;
+    }
+
+    private JBlock generateRoot(JCodeModel codeModel, JDefinedClass implClass) {
+        implClass._implements(codeModel.ref(FREEZABLE_INTERFACE));
+        var frozen = implClass.field(JMod.PRIVATE, codeModel.BOOLEAN, FROZEN_FIELD);
+        frozen.annotate(XmlTransient.class);
+
+        var isFrozen = implClass.method(JMod.PUBLIC, codeModel.BOOLEAN, IS_FROZEN_METHOD);
+        isFrozen.annotate(Override.class);
+        isFrozen.body()._return(frozen);
+
+        var freeze = implClass.method(JMod.PUBLIC, codeModel.VOID, FREEZE_METHOD);
+        freeze.annotate(Override.class);
+        var body = freeze.body();
+        body._if(frozen)._then()._return();
+        body.assign(frozen, JExpr.TRUE);
+        return body;
+    }
+
+    private JBlock generateSubclass(JDefinedClass implClass) {
+        var freeze = implClass.method(JMod.PUBLIC, implClass.owner().VOID, FREEZE_METHOD);
+        freeze.annotate(Override.class);
+        var body = freeze.body();
+        body._if(JExpr.invoke(IS_FROZEN_METHOD))._then()._return();
+        body.invoke(JExpr._super(), FREEZE_METHOD);
+        return body;
+    }
+
+    private void generateFreezeFields(JCodeModel codeModel,
+                                      JDefinedClass implClass,
+                                      JBlock freezeBody,
+                                      Set<String> generatedClasses) {
+        var freezable = codeModel.ref(FREEZABLE_INTERFACE);
+        for (JFieldVar field : implClass.fields().values()) {
+            if ((field.mods().getValue() & JMod.STATIC) != 0 || FROZEN_FIELD.equals(field.name())
+                    || field.type().isPrimitive()) {
+                continue;
+            }
+
+            var fieldRef = JExpr._this().ref(field);
+            var type = (JClass) field.type();
+            if (type.erasure().fullName().equals(List.class.getName())) {
+                var ifNull = freezeBody._if(fieldRef.eq(JExpr._null()));
+                ifNull._then().assign(fieldRef, codeModel.ref(Collections.class).staticInvoke("emptyList"));
+                // lists that are freezable themselves (e.g., sample lists) are frozen without visiting any element
+                var ifFreezable = ifNull._elseif(fieldRef._instanceof(freezable));
+                ifFreezable._then().invoke(JExpr.cast(freezable, fieldRef), FREEZE_METHOD);
+                var otherwise = ifFreezable._else();
+                JForEach forEach = otherwise.forEach(codeModel.ref(Object.class), "element", fieldRef);
+                forEach.body()._if(forEach.var()._instanceof(freezable))._then()
+                        .invoke(JExpr.cast(freezable, forEach.var()), FREEZE_METHOD);
+                otherwise.assign(fieldRef, codeModel.ref(Collections.class)
+                        .staticInvoke("unmodifiableList").arg(fieldRef));
+            } else if (generatedClasses.contains(type.fullName())) {
+                freezeBody._if(fieldRef.ne(JExpr._null()))._then().invoke(fieldRef, FREEZE_METHOD);
+            } else if (type.fullName().equals(Object.class.getName())) {
+                freezeBody._if(fieldRef._instanceof(freezable))._then()
+                        .invoke(JExpr.cast(freezable, fieldRef), FREEZE_METHOD);
+            }
+        }
+    }
+
+    private void guardSetter(JCodeModel codeModel, JMethod setter) {
+        var body = setter.body();
+        body.pos(0);
+        body._if(JExpr.invoke(IS_FROZEN_METHOD))._then()._throw(JExpr._new(
+                codeModel.ref(UnsupportedOperationException.class))
+                .arg(JExpr.lit("Frozen object cannot be modified")));
+        body.pos(body.getContents().size());
+    }
+}
@@ -0,0 +1,86 @@
+package org.somda.sdc.xjc;
+
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JType;
+import com.sun.codemodel.JVar;
+import com.sun.tools.xjc.Options;
+import com.sun.tools.xjc.Plugin;
+import com.sun.tools.xjc.outline.ClassOutline;
+import com.sun.tools.xjc.outline.FieldOutline;
+import com.sun.tools.xjc.outline.Outline;
+import com.sun.xml.xsom.XSAttributeUse;
+import org.xml.sax.ErrorHandler;
+
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+/**
+ * XJC plugin that binds attributes of the Participant Model real-time value type to a dedicated adapter.
+ * <p>
+ * The plugin annotates each attribute field of type {@code pm:RealTimeValueType} with
+ * {@code @XmlJavaTypeAdapter(org.somda.sdc.common.util.RealTimeValueAdapter.class)} and makes the corresponding setter
+ * keep {@code org.somda.sdc.common.util.SampleList}s instead of copying them element by element.
+ * Hence, samples can be passed from and to the wire as primitive arrays.
+ * <p>
+ * As the setter is modified, {@code -XrealTimeSamples} is supposed to follow the setters plugin option.
+ */
+public class RealTimeSamplesPlugin extends Plugin {
+    private static final String OPTION_NAME = "XrealTimeSamples";
+    private static final String REAL_TIME_VALUE_TYPE = "RealTimeValueType";
+    private static final String PARTICIPANT_MODEL_NAMESPACE =
+            "http://standards.ieee.org/downloads/11073/11073-10207-2017/participant";
+    private static final String ADAPTER_CLASS = "org.somda.sdc.common.util.RealTimeValueAdapter";
+    private static final String SAMPLE_LIST_CLASS = "org.somda.sdc.common.util.SampleList";
+
+    @Override
+    public String getOptionName() {
+        return OPTION_NAME;
+    }
+
+    @Override
+    public String getUsage() {
+        return "  -" + OPTION_NAME + "    :  bind real-time sample lists to an adapter that supports primitive arrays";
+    }
+
+    @Override
+    public boolean run(Outline outline, Options opt, ErrorHandler errorHandler) {
+        var codeModel = outline.getCodeModel();
+        for (ClassOutline classOutline : outline.getClasses()) {
+            for (FieldOutline fieldOutline : classOutline.getDeclaredFields()) {
+                if (!isRealTimeValue(fieldOutline)) {
+                    continue;
+                }
+
+                var propertyInfo = fieldOutline.getPropertyInfo();
+                var implClass = classOutline.implClass;
+                JFieldVar field = implClass.fields().get(propertyInfo.getName(false));
+                if (field == null) {
+                    continue;
+                }
+                field.annotate(XmlJavaTypeAdapter.class).param("value", codeModel.ref(ADAPTER_CLASS));
+
+                var setter = implClass.getMethod("set" + propertyInfo.getName(true), new JType[]{field.type()});
+                if (setter != null) {
+                    JVar value = setter.listParams()[0];
+                    var body = setter.body();
+                    body.pos(0);
+                    var keep = body._if(value._instanceof(codeModel.ref(SAMPLE_LIST_CLASS)))._then();
+                    keep.assign(JExpr._this().ref(field), value);
+                    keep._return();
+                    body.pos(body.getContents().size());
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRealTimeValue(FieldOutline fieldOutline) {
+        var schemaComponent = fieldOutline.getPropertyInfo().getSchemaComponent();
+        if (!(schemaComponent instanceof XSAttributeUse)) {
+            return false;
+        }
+        var type = ((XSAttributeUse) schemaComponent).getDecl().getType();
+        return REAL_TIME_VALUE_TYPE.equals(type.getName())
+                && PARTICIPANT_MODEL_NAMESPACE.equals(type.getTargetNamespace());
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * XJC plugins used to customize code generated from the SDC schemas.
+ */
+package org.somda.sdc.xjc;